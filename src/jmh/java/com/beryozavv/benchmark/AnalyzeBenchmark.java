@@ -0,0 +1,66 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.JavaDependencyAnalyzer;
+import com.beryozavv.result.AnalysisResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный анализ синтетического проекта: разбор, извлечение зависимостей и сбор результата
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnalyzeBenchmark {
+
+    @Param({"500"})
+    public int fileCount;
+
+    @Param({"10"})
+    public int methodsPerFile;
+
+    @Param({"5"})
+    public int importFanOut;
+
+    @Param({"true"})
+    public boolean genericHeavy;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private GeneratedProject project;
+    private JavaDependencyAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = GeneratedProject.create(new CorpusGenerator(fileCount, methodsPerFile, importFanOut, genericHeavy, 42));
+        analyzer = project.createAnalyzer(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.close();
+    }
+
+    /**
+     * Анализ с накоплением результата всего проекта
+     */
+    @Benchmark
+    public AnalysisResult analyze() throws IOException {
+        return analyzer.analyzeResult();
+    }
+
+    /**
+     * Потоковый анализ без накопления результатов
+     */
+    @Benchmark
+    public void analyzeStreaming(Blackhole blackhole) throws IOException {
+        analyzer.analyze((file, dependencies) -> blackhole.consume(dependencies));
+    }
+}
@@ -0,0 +1,194 @@
+package com.beryozavv.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Генератор синтетического проекта для бенчмарков. При одинаковых параметрах
+ * создает побайтно одинаковые файлы. Классы ссылаются на другие сгенерированные
+ * классы через импорты и на классы из libs/tetsApi-0.0.1-SNAPSHOT-plain.jar,
+ * поэтому для разрешения привязок этот JAR должен быть в classpath
+ */
+public class CorpusGenerator {
+
+    // JAR с моделями, на которые ссылается сгенерированный код
+    public static final String TEST_API_JAR = "libs/tetsApi-0.0.1-SNAPSHOT-plain.jar";
+
+    // Количество классов в одном пакете
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    // Количество файлов
+    private final int fileCount;
+
+    // Количество методов в классе, определяет размер файла
+    private final int methodsPerFile;
+
+    // Количество импортов других сгенерированных классов в каждом файле
+    private final int importFanOut;
+
+    // Добавлять вложенные параметризованные типы, лямбды и ссылки на методы
+    private final boolean genericHeavy;
+
+    // Начальное значение генератора случайных чисел
+    private final long seed;
+
+    /**
+     * @param fileCount      количество файлов
+     * @param methodsPerFile количество методов в классе (около 15 строк на метод)
+     * @param importFanOut   количество импортов других сгенерированных классов
+     * @param genericHeavy   добавлять код с большим количеством параметризованных типов
+     * @param seed           начальное значение генератора случайных чисел
+     */
+    public CorpusGenerator(int fileCount, int methodsPerFile, int importFanOut, boolean genericHeavy, long seed) {
+        if (fileCount < 1 || methodsPerFile < 1 || importFanOut < 0) {
+            throw new IllegalArgumentException("Некорректные параметры корпуса");
+        }
+        this.fileCount = fileCount;
+        this.methodsPerFile = methodsPerFile;
+        this.importFanOut = Math.min(importFanOut, fileCount - 1);
+        this.genericHeavy = genericHeavy;
+        this.seed = seed;
+    }
+
+    /**
+     * Создает проект в каталоге исходников
+     *
+     * @param sourceRoot каталог исходников, создается при необходимости
+     * @return пути к созданным файлам в порядке номеров классов
+     * @throws IOException при ошибке записи
+     */
+    public List<Path> generate(Path sourceRoot) throws IOException {
+        Random random = new Random(seed);
+        List<Path> files = new ArrayList<>(fileCount);
+        for (int index = 0; index < fileCount; index++) {
+            Path file = sourceRoot.resolve(packageName(index).replace('.', '/')).resolve(className(index) + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, generateClass(index, random), StandardCharsets.UTF_8);
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Удаляет каталог со всем содержимым, например созданный проект после бенчмарка
+     *
+     * @param directory каталог
+     * @throws IOException при ошибке удаления
+     */
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String generateClass(int index, Random random) {
+        // Зависимости выбираются без повторов и без ссылки на себя
+        int[] dependencies = random.ints(0, fileCount)
+                .filter(candidate -> candidate != index)
+                .distinct()
+                .limit(importFanOut)
+                .toArray();
+
+        StringBuilder source = new StringBuilder(4096);
+        source.append("package ").append(packageName(index)).append(";\n\n");
+        source.append("import com.beryozavv.tetsApi.models.ItemDto;\n");
+        source.append("import com.beryozavv.tetsApi.models.ItemEntity;\n");
+        source.append("import com.beryozavv.tetsApi.controller.ArtistController;\n");
+        for (int dependency : dependencies) {
+            if (!packageName(dependency).equals(packageName(index))) {
+                source.append("import ").append(packageName(dependency)).append('.').append(className(dependency)).append(";\n");
+            }
+        }
+        source.append("\nimport java.time.LocalDate;\n");
+        source.append("import java.util.*;\n");
+        source.append("import java.util.function.Function;\n");
+        source.append("import java.util.stream.Collectors;\n\n");
+
+        String name = className(index);
+        source.append("public class ").append(name).append(" {\n\n");
+        source.append("    public static final int LIMIT = ").append(random.nextInt(1000)).append(";\n\n");
+        source.append("    private final List<ItemDto> items = new ArrayList<>();\n");
+        source.append("    private final ArtistController artists = new ArtistController();\n");
+        if (genericHeavy) {
+            source.append("    private final Map<String, Map<Long, List<Optional<ItemDto>>>> index = new HashMap<>();\n");
+            source.append("    private final Function<ItemEntity, ItemDto> mapper = entity -> {\n");
+            source.append("        ItemDto dto = new ItemDto();\n");
+            source.append("        dto.setId(entity.getId());\n");
+            source.append("        dto.setName(entity.getName());\n");
+            source.append("        return dto;\n");
+            source.append("    };\n");
+        }
+        source.append('\n');
+
+        for (int method = 0; method < methodsPerFile; method++) {
+            String dependency = dependencies.length == 0 ? name : className(dependencies[method % dependencies.length]);
+            appendMethod(source, method, dependency, random);
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void appendMethod(StringBuilder source, int method, String dependency, Random random) {
+        source.append("    public int method").append(method).append('(').append(dependency).append(" other) {\n");
+        source.append("        ItemDto dto = new ItemDto();\n");
+        source.append("        dto.setName(\"item").append(random.nextInt(10_000)).append("\");\n");
+        source.append("        dto.setSomeDate(LocalDate.of(2024, ").append(1 + random.nextInt(12)).append(", 1));\n");
+        source.append("        dto.setAge(Math.min(LIMIT, ").append(random.nextInt(100)).append("));\n");
+        source.append("        this.items.add(dto);\n");
+        source.append("        if (other != null && other instanceof ").append(dependency).append(") {\n");
+        source.append("            dto.setAge(other.method").append(random.nextInt(methodsPerFile)).append("(null));\n");
+        source.append("        }\n");
+        source.append("        String greeting = artists.hello() + ").append(dependency).append(".class.getSimpleName();\n");
+        if (genericHeavy) {
+            source.append("        Map<String, List<ItemDto>> byName = items.stream()\n");
+            source.append("                .collect(Collectors.groupingBy(ItemDto::getName));\n");
+            source.append("        index.computeIfAbsent(greeting, key -> new TreeMap<>())\n");
+            source.append("                .computeIfAbsent((long) byName.size(), key -> new ArrayList<>())\n");
+            source.append("                .add(Optional.ofNullable(mapper.apply(new ItemEntity())));\n");
+        }
+        source.append("        return greeting.length() + items.size() + Integer.MAX_VALUE % LIMIT;\n");
+        source.append("    }\n\n");
+    }
+
+    private static String packageName(int index) {
+        return "gen.p" + index / CLASSES_PER_PACKAGE;
+    }
+
+    private static String className(int index) {
+        return "Generated" + index;
+    }
+
+    /**
+     * Создает проект из командной строки
+     *
+     * @param args каталог, количество файлов, методов в файле, импортов, generic-heavy (true/false) и seed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CorpusGenerator <output-dir> <files> [methods-per-file=10] [import-fan-out=5] [generic-heavy=true] [seed=42]");
+            System.exit(1);
+        }
+        CorpusGenerator generator = new CorpusGenerator(
+                Integer.parseInt(args[1]),
+                args.length > 2 ? Integer.parseInt(args[2]) : 10,
+                args.length > 3 ? Integer.parseInt(args[3]) : 5,
+                args.length <= 4 || Boolean.parseBoolean(args[4]),
+                args.length > 5 ? Long.parseLong(args[5]) : 42);
+        List<Path> files = generator.generate(Path.of(args[0]));
+        System.out.println("Generated " + files.size() + " files in " + args[0]);
+    }
+}
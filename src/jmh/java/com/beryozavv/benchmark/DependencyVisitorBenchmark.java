@@ -0,0 +1,188 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.AnalyzerOptions;
+import com.beryozavv.JavaDependencyAnalyzer;
+import com.beryozavv.dependencyExtractorStrategies.*;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Извлечение зависимостей целых файлов без разбора: AST с привязками строится один раз,
+ * операция - обход всех файлов корпуса. Выделение памяти на операцию дает профилировщик gc
+ * (gc.alloc.rate.norm); при настройке печатается количество узлов со стратегией, на которое
+ * оно делится для оценки байт на узел. Обход таблицей стратегий сравнивается с прежним
+ * обходчиком: отдельный visit для каждого типа узла, поиск стратегии в HashMap по классу узла,
+ * строка через getRoot() и лямбда-получатель на каждый узел
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DependencyVisitorBenchmark {
+
+    @Param({"true", "false"})
+    public boolean genericHeavy;
+
+    private GeneratedProject project;
+    private SymbolTable symbols;
+    private JavaDependencyAnalyzer analyzer;
+
+    // Сохраняем AST, чтобы привязки узлов оставались доступными
+    private final List<CompilationUnit> units = new ArrayList<>();
+
+    // Стратегии прежнего обходчика по классу узла
+    private final Map<Class<? extends ASTNode>, DependencyExtractorStrategy<? extends ASTNode>> strategiesByClass = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = GeneratedProject.create(new CorpusGenerator(50, 10, 5, genericHeavy, 42));
+        symbols = new SymbolTable();
+        AnalyzerOptions options = new AnalyzerOptions();
+        options.setParallelism(1);
+        analyzer = new JavaDependencyAnalyzer(List.of(project.getSourceRoot()), project.getClasspath(), options, symbols);
+
+        strategiesByClass.put(MethodInvocation.class, new MethodInvocationDependencyExtractor());
+        strategiesByClass.put(ClassInstanceCreation.class, new ClassInstanceCreationDependencyExtractor());
+        strategiesByClass.put(SimpleName.class, new SimpleNameDependencyExtractor());
+        strategiesByClass.put(SimpleType.class, new SimpleTypeDependencyExtractor());
+        strategiesByClass.put(TypeLiteral.class, new TypeLiteralDependencyExtractor());
+        strategiesByClass.put(FieldAccess.class, new FieldAccessDependencyExtractor());
+        strategiesByClass.put(QualifiedName.class, new QualifiedNameDependencyExtractor());
+        strategiesByClass.put(InstanceofExpression.class, new InstanceofExpressionDependencyExtractor());
+
+        String[] files = project.getFiles().stream().map(Path::toString).toArray(String[]::new);
+        String[] encodings = new String[files.length];
+        Arrays.fill(encodings, StandardCharsets.UTF_8.name());
+        int[] nodes = new int[1];
+        createParser().createASTs(files, encodings, new String[0], new FileASTRequestor() {
+            @Override
+            public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+                units.add(cu);
+                cu.accept(new ASTVisitor() {
+                    @Override
+                    public void preVisit(ASTNode node) {
+                        if (strategiesByClass.containsKey(node.getClass())) {
+                            nodes[0]++;
+                        }
+                    }
+                });
+            }
+        }, null);
+        System.out.printf(Locale.ROOT, "%nФайлов: %d, узлов со стратегией: %d%n", units.size(), nodes[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.close();
+    }
+
+    /**
+     * Текущий обход: стратегия из таблицы по типу узла, один переиспользуемый обходчик на поток
+     */
+    @Benchmark
+    public void tableDispatch(Blackhole blackhole) {
+        BindingNameCache names = new BindingNameCache(symbols);
+        for (CompilationUnit cu : units) {
+            blackhole.consume(analyzer.extract(cu, names));
+        }
+    }
+
+    /**
+     * Прежний обход: новый анонимный обходчик на файл и поиск стратегии по классу узла
+     */
+    @Benchmark
+    public void classMapDispatch(Blackhole blackhole) {
+        BindingNameCache names = new BindingNameCache(symbols);
+        for (CompilationUnit cu : units) {
+            FileDependencies.Builder lineDeps = new FileDependencies.Builder();
+            cu.accept(new ASTVisitor() {
+                @Override
+                public boolean visit(MethodInvocation node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(ClassInstanceCreation node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(SimpleName node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(SimpleType node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(TypeLiteral node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(FieldAccess node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(QualifiedName node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+
+                @Override
+                public boolean visit(InstanceofExpression node) {
+                    handleNode(node, names, lineDeps);
+                    return true;
+                }
+            });
+            blackhole.consume(lineDeps.build());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ASTNode> void handleNode(T node, BindingNameCache names, FileDependencies.Builder lineDeps) {
+        int lineNumber = ((CompilationUnit) node.getRoot()).getLineNumber(node.getStartPosition());
+        if (lineNumber == -1) return;
+
+        DependencyExtractorStrategy<T> strategy = (DependencyExtractorStrategy<T>) strategiesByClass.get(node.getClass());
+        try {
+            strategy.extractDependencies(node, names, symbolId -> lineDeps.add(lineNumber, symbolId));
+        } catch (Exception e) {
+            // Как и прежний обходчик, пропускаем узел с ошибкой
+        }
+    }
+
+    private ASTParser createParser() {
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.VERSION_21, options);
+        parser.setCompilerOptions(options);
+        parser.setEnvironment(project.getClasspath().toArray(String[]::new),
+                new String[]{project.getSourceRoot().toString()}, null, true);
+        return parser;
+    }
+}
@@ -0,0 +1,57 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.DependencyAnalyzer;
+import com.beryozavv.result.AnalysisResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Анализ одного и того же синтетического проекта по исходникам и по скомпилированным классам
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"500"})
+    public int fileCount;
+
+    @Param({"10"})
+    public int methodsPerFile;
+
+    @Param({"4"})
+    public int threads;
+
+    private GeneratedProject project;
+    private DependencyAnalyzer sourceAnalyzer;
+    private DependencyAnalyzer bytecodeAnalyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = GeneratedProject.create(new CorpusGenerator(fileCount, methodsPerFile, 5, true, 42));
+        Path classes = project.compile();
+        sourceAnalyzer = project.createAnalyzer(threads);
+        bytecodeAnalyzer = project.createBytecodeAnalyzer(classes, threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.close();
+    }
+
+    @Benchmark
+    public AnalysisResult source() throws IOException {
+        return sourceAnalyzer.analyzeResult();
+    }
+
+    @Benchmark
+    public AnalysisResult bytecode() throws IOException {
+        return bytecodeAnalyzer.analyzeResult();
+    }
+}
@@ -0,0 +1,152 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.result.AnalysisResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Сравнение результатов анализа по исходникам и по байт-коду на синтетическом проекте.
+ * Для каждого движка собирается множество троек (файл, строка, символ) и печатается, сколько
+ * троек найдено обоими движками и только одним из них. В байт-коде аргументы типов стерты,
+ * поэтому тройки сравниваются и как есть, и после стирания аргументов типов в именах;
+ * для второго сравнения печатаются символы, которые чаще всего расходятся, и первые расхождения.
+ * Файлы, которые нашел только один движок, печатаются отдельно. Завершается с кодом 1,
+ * если наборы файлов различаются или после стирания совпадает меньше указанной доли троек
+ */
+public final class EngineComparison {
+
+    // Сколько символов и троек с расхождениями печатать
+    private static final int TOP = 20;
+
+    private EngineComparison() {
+    }
+
+    /**
+     * @param args количество файлов, методов в файле, seed и наименьшая доля совпавших троек (0..1)
+     */
+    public static void main(String[] args) throws IOException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int methodsPerFile = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        double minOverlap = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+
+        AnalysisResult source;
+        AnalysisResult bytecode;
+        Path sourceRoot;
+        try (GeneratedProject project = GeneratedProject.create(new CorpusGenerator(fileCount, methodsPerFile, 5, true, seed))) {
+            Path classes = project.compile();
+            sourceRoot = project.getSourceRoot();
+            source = project.createAnalyzer(1).analyzeResult();
+            bytecode = project.createBytecodeAnalyzer(classes, 1).analyzeResult();
+        }
+
+        Set<String> sourceFiles = files(source, sourceRoot);
+        Set<String> bytecodeFiles = files(bytecode, sourceRoot);
+        System.out.printf(Locale.ROOT, "Файлов: исходники %d, байт-код %d%n", sourceFiles.size(), bytecodeFiles.size());
+        printDifference("Файлы только в исходниках", sourceFiles, bytecodeFiles);
+        printDifference("Файлы только в байт-коде", bytecodeFiles, sourceFiles);
+
+        compare("Тройки (файл, строка, символ)", triples(source, sourceRoot, false), triples(bytecode, sourceRoot, false), false);
+        double overlap = compare("Тройки после стирания аргументов типов",
+                triples(source, sourceRoot, true), triples(bytecode, sourceRoot, true), true);
+
+        if (!sourceFiles.equals(bytecodeFiles) || overlap < minOverlap) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Печатает совпадение множеств троек и, если нужно, расходящиеся символы и тройки
+     *
+     * @return доля троек, найденных обоими движками, среди всех найденных
+     */
+    private static double compare(String title, Set<String> sourceTriples, Set<String> bytecodeTriples, boolean details) {
+        Set<String> both = new TreeSet<>(sourceTriples);
+        both.retainAll(bytecodeTriples);
+        Set<String> onlySource = new TreeSet<>(sourceTriples);
+        onlySource.removeAll(bytecodeTriples);
+        Set<String> onlyBytecode = new TreeSet<>(bytecodeTriples);
+        onlyBytecode.removeAll(sourceTriples);
+
+        int union = both.size() + onlySource.size() + onlyBytecode.size();
+        double overlap = union == 0 ? 1 : (double) both.size() / union;
+        System.out.printf(Locale.ROOT, "%s: обоими %d, только исходники %d, только байт-код %d, совпадение %.1f%%%n",
+                title, both.size(), onlySource.size(), onlyBytecode.size(), overlap * 100);
+        if (details) {
+            printTopSymbols("Символы только в исходниках", onlySource);
+            printTopSymbols("Символы только в байт-коде", onlyBytecode);
+            printSample("Первые тройки только в исходниках", onlySource);
+            printSample("Первые тройки только в байт-коде", onlyBytecode);
+        }
+        return overlap;
+    }
+
+    /**
+     * @param erase стирать аргументы типов в именах символов
+     * @return тройки "файл:строка символ", путь файла относительно каталога исходников
+     */
+    private static Set<String> triples(AnalysisResult result, Path sourceRoot, boolean erase) {
+        Set<String> triples = new HashSet<>();
+        result.asMap().forEach((file, lines) -> {
+            String relative = relativePath(file, sourceRoot);
+            lines.forEach((line, symbols) -> {
+                for (String symbol : symbols) {
+                    int typeArguments = symbol.indexOf('<');
+                    String name = erase && typeArguments > 0 ? symbol.substring(0, typeArguments) : symbol;
+                    triples.add(relative + ":" + line + " " + name);
+                }
+            });
+        });
+        return triples;
+    }
+
+    private static Set<String> files(AnalysisResult result, Path sourceRoot) {
+        Set<String> files = new TreeSet<>();
+        for (Path file : result.getFiles()) {
+            if (!result.get(file).isEmpty()) {
+                files.add(relativePath(file, sourceRoot));
+            }
+        }
+        return files;
+    }
+
+    private static String relativePath(Path file, Path sourceRoot) {
+        Path path = file.startsWith(sourceRoot) ? sourceRoot.relativize(file) : file;
+        return path.toString().replace('\\', '/');
+    }
+
+    private static void printDifference(String title, Set<String> files, Set<String> other) {
+        List<String> difference = new ArrayList<>();
+        for (String file : files) {
+            if (!other.contains(file)) {
+                difference.add(file);
+            }
+        }
+        if (!difference.isEmpty()) {
+            System.out.println(title + " (" + difference.size() + "): " + difference);
+        }
+    }
+
+    private static void printTopSymbols(String title, Set<String> triples) {
+        if (triples.isEmpty()) return;
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (String triple : triples) {
+            counts.merge(triple.substring(triple.indexOf(' ') + 1), 1, Integer::sum);
+        }
+        System.out.println(title + ":");
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(TOP)
+                .forEach(entry -> System.out.printf(Locale.ROOT, "  %6d  %s%n", entry.getValue(), entry.getKey()));
+    }
+
+    private static void printSample(String title, Set<String> triples) {
+        if (triples.isEmpty()) return;
+
+        System.out.println(title + ":");
+        triples.stream().limit(TOP).forEach(triple -> System.out.println("  " + triple));
+    }
+}
@@ -0,0 +1,149 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.dependencyExtractorStrategies.*;
+import com.beryozavv.result.SymbolTable;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Каждая стратегия извлечения отдельно: AST с привязками строится один раз,
+ * операция - применение стратегии ко всем узлам ее типа в корпусе
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ExtractorStrategyBenchmark {
+
+    @Param({"MethodInvocation", "ClassInstanceCreation", "SimpleName", "SimpleType",
+            "TypeLiteral", "FieldAccess", "QualifiedName", "InstanceofExpression"})
+    public String strategy;
+
+    @Param({"true"})
+    public boolean genericHeavy;
+
+    private GeneratedProject project;
+    private DependencyExtractorStrategy<ASTNode> extractor;
+    private final List<ASTNode> nodes = new ArrayList<>();
+
+    // Сохраняем AST, чтобы привязки узлов оставались доступными
+    private final List<CompilationUnit> units = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        project = GeneratedProject.create(new CorpusGenerator(50, 10, 5, genericHeavy, 42));
+
+        int nodeType;
+        DependencyExtractorStrategy<? extends ASTNode> selected;
+        switch (strategy) {
+            case "MethodInvocation" -> {
+                nodeType = ASTNode.METHOD_INVOCATION;
+                selected = new MethodInvocationDependencyExtractor();
+            }
+            case "ClassInstanceCreation" -> {
+                nodeType = ASTNode.CLASS_INSTANCE_CREATION;
+                selected = new ClassInstanceCreationDependencyExtractor();
+            }
+            case "SimpleName" -> {
+                nodeType = ASTNode.SIMPLE_NAME;
+                selected = new SimpleNameDependencyExtractor();
+            }
+            case "SimpleType" -> {
+                nodeType = ASTNode.SIMPLE_TYPE;
+                selected = new SimpleTypeDependencyExtractor();
+            }
+            case "TypeLiteral" -> {
+                nodeType = ASTNode.TYPE_LITERAL;
+                selected = new TypeLiteralDependencyExtractor();
+            }
+            case "FieldAccess" -> {
+                nodeType = ASTNode.FIELD_ACCESS;
+                selected = new FieldAccessDependencyExtractor();
+            }
+            case "QualifiedName" -> {
+                nodeType = ASTNode.QUALIFIED_NAME;
+                selected = new QualifiedNameDependencyExtractor();
+            }
+            case "InstanceofExpression" -> {
+                nodeType = ASTNode.INSTANCEOF_EXPRESSION;
+                selected = new InstanceofExpressionDependencyExtractor();
+            }
+            default -> throw new IllegalArgumentException("Неизвестная стратегия: " + strategy);
+        }
+        extractor = (DependencyExtractorStrategy<ASTNode>) selected;
+
+        String[] files = project.getFiles().stream().map(Path::toString).toArray(String[]::new);
+        String[] encodings = new String[files.length];
+        Arrays.fill(encodings, StandardCharsets.UTF_8.name());
+        createParser().createASTs(files, encodings, new String[0], new FileASTRequestor() {
+            @Override
+            public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+                units.add(cu);
+                cu.accept(new ASTVisitor() {
+                    @Override
+                    public void preVisit(ASTNode node) {
+                        if (node.getNodeType() == nodeType) {
+                            nodes.add(node);
+                        }
+                    }
+                });
+            }
+        }, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.close();
+    }
+
+    /**
+     * Стратегия с новым кэшем имен привязок: имя каждого типа строится один раз за операцию
+     */
+    @Benchmark
+    public void extract(Blackhole blackhole) {
+        BindingNameCache names = new BindingNameCache(new SymbolTable());
+        for (ASTNode node : nodes) {
+            extractor.extractDependencies(node, names, blackhole::consume);
+        }
+    }
+
+    /**
+     * Стратегия через прежний контракт со списком строк, без кэша имен
+     */
+    @Benchmark
+    public void extractNames(Blackhole blackhole) {
+        List<String> dependencies = new ArrayList<>();
+        for (ASTNode node : nodes) {
+            dependencies.clear();
+            extractor.extractDependencies(node, dependencies);
+            blackhole.consume(dependencies);
+        }
+    }
+
+    private ASTParser createParser() {
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.VERSION_21, options);
+        parser.setCompilerOptions(options);
+        parser.setEnvironment(project.getClasspath().toArray(String[]::new),
+                new String[]{project.getSourceRoot().toString()}, null, true);
+        return parser;
+    }
+}
@@ -0,0 +1,128 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.AnalyzerOptions;
+import com.beryozavv.BytecodeDependencyAnalyzer;
+import com.beryozavv.JavaDependencyAnalyzer;
+import com.beryozavv.result.SymbolTable;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Синтетический проект во временном каталоге и classpath для его анализа
+ */
+final class GeneratedProject implements AutoCloseable {
+
+    // Каталог проекта и каталог исходников внутри него
+    private final Path root;
+    private final Path sourceRoot;
+
+    // Созданные файлы
+    private final List<Path> files;
+
+    // Classpath: JAR с моделями, классы JDK берутся из текущей JVM
+    private final List<String> classpath;
+
+    private GeneratedProject(Path root, List<Path> files) {
+        this.root = root;
+        this.sourceRoot = root.resolve("src");
+        this.files = files;
+        this.classpath = List.of(testApiJar().toString());
+    }
+
+    /**
+     * Создает проект во временном каталоге
+     *
+     * @param generator генератор с параметрами корпуса
+     * @return созданный проект
+     * @throws IOException при ошибке записи
+     */
+    static GeneratedProject create(CorpusGenerator generator) throws IOException {
+        Path root = Files.createTempDirectory("analyzer-benchmark");
+        return new GeneratedProject(root, generator.generate(root.resolve("src")));
+    }
+
+    /**
+     * Находит JAR с моделями: путь задается свойством benchmark.testApiJar, по умолчанию
+     * берется относительно каталога проекта
+     *
+     * @return путь к JAR
+     */
+    static Path testApiJar() {
+        Path jar = Path.of(System.getProperty("benchmark.testApiJar", CorpusGenerator.TEST_API_JAR)).toAbsolutePath();
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Не найден " + jar + ", укажите путь в -Dbenchmark.testApiJar");
+        }
+        return jar;
+    }
+
+    Path getSourceRoot() {
+        return sourceRoot;
+    }
+
+    List<Path> getFiles() {
+        return files;
+    }
+
+    List<String> getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * Создает анализатор проекта
+     *
+     * @param parallelism количество потоков
+     * @return анализатор без кэша результатов
+     */
+    JavaDependencyAnalyzer createAnalyzer(int parallelism) {
+        AnalyzerOptions options = new AnalyzerOptions();
+        options.setParallelism(parallelism);
+        return new JavaDependencyAnalyzer(sourceRoot, classpath, options);
+    }
+
+    /**
+     * Компилирует проект с отладочной информацией (-g) в каталог classes проекта
+     *
+     * @return каталог классов
+     * @throws IOException при ошибке записи
+     */
+    Path compile() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Для компиляции проекта нужен JDK, а не JRE");
+        }
+        Path classes = Files.createDirectories(root.resolve("classes"));
+        List<String> arguments = new ArrayList<>(List.of("-g", "-nowarn", "-d", classes.toString(),
+                "-cp", String.join(File.pathSeparator, classpath)));
+        files.forEach(file -> arguments.add(file.toString()));
+        if (compiler.run(null, null, null, arguments.toArray(String[]::new)) != 0) {
+            throw new IllegalStateException("Сгенерированный проект не компилируется");
+        }
+        return classes;
+    }
+
+    /**
+     * Создает анализатор скомпилированных классов проекта
+     *
+     * @param classes     каталог классов, созданный {@link #compile()}
+     * @param parallelism количество потоков
+     * @return анализатор байт-кода
+     */
+    BytecodeDependencyAnalyzer createBytecodeAnalyzer(Path classes, int parallelism) {
+        AnalyzerOptions options = new AnalyzerOptions();
+        options.setParallelism(parallelism);
+        return new BytecodeDependencyAnalyzer(List.of(classes), List.of(sourceRoot), options, new SymbolTable());
+    }
+
+    @Override
+    public void close() throws IOException {
+        CorpusGenerator.deleteRecursively(root);
+    }
+}
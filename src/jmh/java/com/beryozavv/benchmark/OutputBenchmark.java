@@ -0,0 +1,50 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.output.OutputFormat;
+import com.beryozavv.result.AnalysisResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вывод готовых результатов анализа в каждом формате, без затрат на запись на диск
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class OutputBenchmark {
+
+    @Param({"TEXT", "NDJSON", "CSV"})
+    public OutputFormat format;
+
+    private AnalysisResult result;
+    private List<Path> files;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (GeneratedProject project = GeneratedProject.create(new CorpusGenerator(200, 10, 5, true, 42))) {
+            result = project.createAnalyzer(Runtime.getRuntime().availableProcessors()).analyzeResult();
+        }
+        files = new ArrayList<>(result.getFiles());
+        Collections.sort(files);
+    }
+
+    @Benchmark
+    public void printResults() throws IOException {
+        try (DependencySink sink = format.createSink(Writer.nullWriter(), result.getSymbols())) {
+            for (Path file : files) {
+                sink.accept("main", file, result.get(file));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.beryozavv.benchmark;
+
+import com.beryozavv.JavaDependencyAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор и анализ одного файла, включая создание окружения JDT для этого файла
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ParseFileBenchmark {
+
+    @Param({"10", "50"})
+    public int methodsPerFile;
+
+    @Param({"true"})
+    public boolean genericHeavy;
+
+    private GeneratedProject project;
+    private JavaDependencyAnalyzer analyzer;
+    private List<Path> file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = GeneratedProject.create(new CorpusGenerator(20, methodsPerFile, 5, genericHeavy, 42));
+        analyzer = project.createAnalyzer(1);
+        file = List.of(project.getFiles().get(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.close();
+    }
+
+    @Benchmark
+    public void parseJavaFile(Blackhole blackhole) throws IOException {
+        analyzer.analyze(file, (javaFile, dependencies) -> blackhole.consume(dependencies));
+    }
+}
@@ -1,36 +1,115 @@
 package com.beryozavv;
 
+import com.beryozavv.delta.GitRepository;
+import com.beryozavv.delta.RevisionDelta;
+import com.beryozavv.graph.DependencyGraph;
+import com.beryozavv.graph.DependencyGraphBuilder;
+import com.beryozavv.graph.GraphExporter;
+import com.beryozavv.graph.GraphReport;
+import com.beryozavv.index.ReverseIndexWriter;
+import com.beryozavv.memory.MemoryBudget;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.output.CompositeDependencySink;
+import com.beryozavv.output.DeltaWriter;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.output.RollupLevel;
+import com.beryozavv.output.RollupSink;
+import com.beryozavv.result.SymbolTable;
+import com.beryozavv.shard.PartialResultWriter;
+import com.beryozavv.shard.ShardCoordinator;
+import com.beryozavv.watch.ProjectWatcher;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 
 public class AnalyzerMain {
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.out.println("""
-                    Usage: java -jar dependency-analyzer.jar <source-root>
-                      <source-root> - path to Java source code""");
+        AnalyzerOptions options;
+        try {
+            options = AnalyzerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(AnalyzerOptions.USAGE);
             System.exit(1);
+            return;
+        }
+
+        if (options.getMemoryBudget() != null && options.getMemoryBudget().getLimit() > Runtime.getRuntime().maxMemory()) {
+            System.err.println("Бюджет памяти больше максимального размера кучи, увеличьте -Xmx");
         }
 
         try {
-            Path sourceRoot = Path.of(args[0]);
+            Path sourceRoot = options.getSourceRoot();
+
+            if (options.isWatch()) {
+                SymbolTable symbols = new SymbolTable();
+                try (DependencySink sink = options.getOutputFormat().createSink(openOutput(options), symbols);
+                     ProjectWatcher watcher = new ProjectWatcher(sourceRoot, options, symbols, sink)) {
+                    watcher.run();
+                }
+                return;
+            }
 
-            PathResult pathResult = GradleConnectorWrapper.GetClassAndSourcePaths(sourceRoot);
-            String first = pathResult.getSourcePath().getFirst();
+            AnalysisMetrics metrics = options.getMetrics();
+            PathResult pathResult;
+            PhaseTimer phaseTimer = metrics.startPhase(Phase.GRADLE_MODEL);
+            try {
+                pathResult = options.getClasspathProvider().load(sourceRoot, options.isRefreshModel());
+            } finally {
+                phaseTimer.stop();
+            }
 
-            JavaDependencyAnalyzer analyzer = new JavaDependencyAnalyzer(Path.of(first), pathResult.getClassPath());
-            Map<Path, Map<Integer, Set<String>>> results = analyzer.analyze();
+            if (options.getDeltaBase() != null) {
+                RevisionDelta delta = new RevisionDelta(pathResult, options, GitRepository.open(sourceRoot));
+                try (DeltaWriter writer = new DeltaWriter(options.getOutputFormat(), openOutput(options))) {
+                    delta.run(options.getDeltaBase(), options.getDeltaHead(), writer);
+                }
+            } else if (options.getShardCount() > 0) {
+                SymbolTable symbols = new SymbolTable();
+                ShardCoordinator coordinator = new ShardCoordinator(pathResult, options.getShardCount(),
+                        options.getParallelism(), args, metrics);
+                DependencyGraphBuilder graph = options.isGraph()
+                        ? new DependencyGraphBuilder(symbols, options.isGraphExternal(), sourceRoots(pathResult))
+                        : null;
+                try (DependencySink sink = createSink(options, pathResult, symbols, graph)) {
+                    coordinator.run(sink, symbols);
+                }
+                writeGraph(options, graph);
+            } else if (options.getShard() != null) {
+                ProjectAnalyzer analyzer = new ProjectAnalyzer(pathResult, options);
+                try (DependencySink sink = new PartialResultWriter(options.getOutputFile(), options.getShard(), analyzer.getSymbols())) {
+                    analyzer.analyzeShard(sink, options.getShard());
+                }
+            } else {
+                ProjectAnalyzer analyzer = new ProjectAnalyzer(pathResult, options);
+                DependencyGraphBuilder graph = options.isGraph()
+                        ? new DependencyGraphBuilder(analyzer.getSymbols(), options.isGraphExternal(), sourceRoots(pathResult))
+                        : null;
+                try (DependencySink sink = createSink(options, pathResult, analyzer.getSymbols(), graph)) {
+                    analyzer.analyze(sink);
+                }
+                writeGraph(options, graph);
+            }
 
-            results.forEach((file, deps) -> {
-                System.out.println("File: " + file);
-                deps.entrySet().stream()
-                        .sorted(Map.Entry.comparingByKey())
-                        .forEach(e ->
-                                System.out.printf("  Line %d -> %s%n", e.getKey(), String.join(", ", e.getValue()))
-                        );
-            });
+            metrics.finish();
+            if (options.isStats()) {
+                metrics.printSummary(System.err);
+            }
+            if (options.getMetricsFile() != null) {
+                metrics.writeJson(options.getMetricsFile());
+            }
 
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
@@ -38,4 +117,88 @@ public class AnalyzerMain {
             System.exit(1);
         }
     }
+
+    /**
+     * Создает приемник результатов: вывод в выбранном формате, по строкам или агрегированный,
+     * и, если заданы, обратный индекс и построитель графа, которые получают данные по строкам
+     *
+     * @param options    параметры запуска
+     * @param pathResult пути к исходникам модулей, по которым определяется пакет файла
+     * @param symbols    таблица символов, в которой зарегистрированы зависимости
+     * @param graph      построитель графа зависимостей или null
+     * @return приемник результатов
+     * @throws IOException при ошибке открытия вывода
+     */
+    private static DependencySink createSink(AnalyzerOptions options, PathResult pathResult, SymbolTable symbols,
+                                             DependencyGraphBuilder graph) throws IOException {
+        List<DependencySink> sinks = new ArrayList<>();
+        if (options.getRollupLevel() == RollupLevel.LINE) {
+            sinks.add(options.getOutputFormat().createSink(openOutput(options), symbols));
+        } else {
+            sinks.add(new RollupSink(options.getRollupLevel(), options.getOutputFormat(), openOutput(options),
+                    symbols, sourceRoots(pathResult)));
+        }
+        if (options.getIndexFile() != null) {
+            MemoryBudget budget = options.getMemoryBudget();
+            sinks.add(new ReverseIndexWriter(options.getIndexFile(), symbols,
+                    budget != null ? budget.indexRunBytes() : ReverseIndexWriter.DEFAULT_RUN_BYTES));
+        }
+        if (graph != null) {
+            sinks.add(graph);
+        }
+        return sinks.size() == 1 ? sinks.get(0) : new CompositeDependencySink(sinks);
+    }
+
+    /**
+     * @param pathResult пути модулей проекта
+     * @return модуль -> каталоги исходников, по которым определяется пакет файла
+     */
+    private static Map<String, List<Path>> sourceRoots(PathResult pathResult) {
+        Map<String, List<Path>> sourceRoots = new HashMap<>();
+        for (ModulePaths module : pathResult.getModules()) {
+            sourceRoots.put(module.getName(), module.getSourcePath().stream().map(Path::of).toList());
+        }
+        return sourceRoots;
+    }
+
+    /**
+     * Строит граф зависимостей по собранным результатам, выгружает его и печатает сводку
+     *
+     * @param options параметры запуска
+     * @param graph   построитель графа или null, если граф не нужен
+     * @throws IOException при ошибке записи графа
+     */
+    private static void writeGraph(AnalyzerOptions options, DependencyGraphBuilder graph) throws IOException {
+        if (graph == null) {
+            return;
+        }
+        PhaseTimer phaseTimer = options.getMetrics().startPhase(Phase.GRAPH);
+        try {
+            DependencyGraph result = options.isTypeGraph() ? graph.buildTypeGraph() : graph.buildPackageGraph();
+            if (options.getGraphFile() != null) {
+                GraphExporter.write(result, options.getGraphFile());
+            }
+            if (options.isGraphReport()) {
+                GraphReport.print(result, options.isTypeGraph() ? "type" : "package", graph.getSkippedFiles(), System.err);
+            } else if (graph.getSkippedFiles() > 0) {
+                System.err.println("Файлов без собственного типа, не попавших в граф: " + graph.getSkippedFiles());
+            }
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    /**
+     * Открывает буферизованный поток вывода результатов
+     *
+     * @param options параметры запуска
+     * @return поток вывода в файл или на стандартный вывод
+     * @throws IOException при ошибке создания файла
+     */
+    private static Writer openOutput(AnalyzerOptions options) throws IOException {
+        if (options.getOutputFile() != null) {
+            return Files.newBufferedWriter(options.getOutputFile(), StandardCharsets.UTF_8);
+        }
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+    }
 }
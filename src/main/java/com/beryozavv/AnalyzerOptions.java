@@ -0,0 +1,744 @@
+package com.beryozavv;
+
+import com.beryozavv.classpath.ClasspathIndex;
+import com.beryozavv.classpath.ClasspathProvider;
+import com.beryozavv.classpath.GradleClasspathProvider;
+import com.beryozavv.classpath.LocalRepositoryClasspathProvider;
+import com.beryozavv.classpath.ModelFileClasspathProvider;
+import com.beryozavv.classpath.StaticClasspathProvider;
+import com.beryozavv.filter.DependencyFilter;
+import com.beryozavv.ingest.BufferPool;
+import com.beryozavv.memory.MemoryBudget;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.output.OutputFormat;
+import com.beryozavv.output.RollupLevel;
+import com.beryozavv.shard.Shard;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Параметры запуска анализатора, заданные в командной строке
+ */
+public class AnalyzerOptions {
+
+    public static final String USAGE = """
+            Usage: java -jar dependency-analyzer.jar <source-root> [options]
+              <source-root>        - path to Java source code
+              --threads <n>        - number of analysis threads (default: available processors)
+              --batch-size <n>     - max files parsed with one shared JDT environment (default: 500)
+              --memory-budget <n>  - bound the memory taken by parsing, by results waiting for
+                                     output and by the --index buffer, e.g. 4g: batches are sized
+                                     to the budget and wait for room before parsing, results and
+                                     index entries beyond it are spilled to temporary files; keep
+                                     it below -Xmx. Not covered: the symbol table, the file list,
+                                     --graph and --rollup aggregates and the --watch session;
+                                     cannot be combined with --cache
+              --prefetch <n>       - files read ahead of each parsing thread on virtual threads,
+                                     hides disk and network latency; 0 turns it off (default: 16)
+              --cache              - reuse the Gradle model and results of unchanged files
+                                     from <source-root>/.dependency-analyzer; files that use types
+                                     of changed, added or removed files are parsed again
+              --cache-dir <dir>    - same as --cache, using the given directory
+              --refresh-model      - fetch the Gradle model again even if the cached one is up to date
+              --classpath-file <file>
+                                   - take the classpath from a file instead of Gradle: entries on
+                                     separate lines or separated by ';' or the path separator,
+                                     dir/* for all jars of a directory (e.g. libs/ClassPath.txt)
+              --artifacts <file>   - build the classpath from group:name:version[:classifier] lines
+                                     found in the local Maven repository and Gradle cache, without
+                                     Gradle or network; the list must include transitive artifacts
+              --source-roots <dirs>
+                                   - source directories relative to <source-root>, separated by the
+                                     path separator, for --classpath-file and --artifacts
+                                     (default: src/main/java if present, else <source-root>)
+              --syntactic          - parse without binding resolution and resolve type names through
+                                     imports and a type index: several times faster, approximate;
+                                     names that cannot be resolved are reported with a '?' prefix
+              --bytecode           - read the compiled classes of each module instead of parsing its
+                                     sources: much faster, needs an up-to-date build; only references
+                                     inside method bodies and initializers carry line numbers
+              --prune-classpath    - pass the parser only the jars whose packages the parsed files
+                                     reference and the jars those depend on; faster on large
+                                     classpaths, approximate for types reached through other modules
+              --format <format>    - output format: text, ndjson or csv (default: text)
+              --output <file>      - write results to the file instead of standard output
+              --rollup <level>     - output the distinct dependencies of each file, package or module
+                                     instead of each line: line, file, package or module (default:
+                                     line); aggregated while analyzing, line data is not kept
+              --include <prefixes> - keep only dependencies under these packages or types, separated
+                                     by commas; may be repeated
+              --exclude <prefixes> - drop dependencies under these packages or types; the longest
+                                     matching prefix of --include and --exclude wins
+              --no-jdk             - drop JDK types and primitives
+              --no-project         - drop types declared in the analyzed sources
+              --index <file>       - also write a reverse index (type -> file:line) for QueryMain
+              --graph <file>       - also write the dependency graph between packages or top-level
+                                     types: GraphML if the file ends with .graphml, DOT otherwise
+              --graph-level <level>
+                                   - graph nodes: package or type (default: package)
+              --graph-external     - keep JDK and library types in the graph; by default only types
+                                     declared in the analyzed sources become nodes
+              --graph-report       - print dependency cycles and the nodes with the most incoming and
+                                     outgoing dependencies to standard error
+              --watch              - keep running and re-analyze changed files on save
+              --shards <n>         - split the files into n parts of similar size, analyze them in
+                                     n worker processes and merge the results; the threads are
+                                     divided between the workers
+              --shard <i/n>        - analyze only part i of n (from 1) and write a partial result
+                                     to --output; used by --shards and for runs on several machines
+              --delta <base>[..<head>]
+                                   - report only the dependencies added and removed between two git
+                                     revisions (head defaults to HEAD); parses just the changed files,
+                                     both versions are read from git without a checkout
+              --model <file>       - read the project model from a file written by --shards
+                                     instead of querying Gradle
+              --stats              - print phase timings and counters to standard error at the end
+              --metrics <file>     - write phase timings and counters to the file as JSON""";
+
+    // Корневой каталог проекта
+    private Path sourceRoot;
+
+    // Количество потоков анализа
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // Размер пакета файлов для одного ASTParser
+    private int batchSize = JavaDependencyAnalyzer.DEFAULT_BATCH_SIZE;
+
+    // Бюджет памяти разбора и ожидающих вывода результатов, null если память не ограничена
+    private MemoryBudget memoryBudget;
+
+    // Количество файлов, читаемых впрок для каждого потока разбора, 0 если чтение впрок отключено
+    private int prefetchDepth = JavaDependencyAnalyzer.DEFAULT_PREFETCH_DEPTH;
+
+    // Пул массивов для чтения исходников, общий для модулей
+    private BufferPool bufferPool;
+
+    // Каталог кэша результатов, null если кэш отключен
+    private Path cacheDir;
+
+    // Кэш включен без явного каталога
+    private boolean defaultCacheDir;
+
+    // Получить модель Gradle заново, минуя кэш
+    private boolean refreshModel;
+
+    // Разбор без разрешения привязок
+    private boolean syntactic;
+
+    // Анализ скомпилированных классов вместо исходников
+    private boolean bytecode;
+
+    // Передавать парсеру только архивы с пакетами, на которые ссылаются файлы
+    private boolean pruneClasspath;
+
+    // Индекс содержимого архивов classpath, создается при первом обращении
+    private ClasspathIndex classpathIndex;
+
+    // Формат вывода результатов
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+
+    // Файл для вывода результатов, null для стандартного вывода
+    private Path outputFile;
+
+    // Уровень агрегации вывода
+    private RollupLevel rollupLevel = RollupLevel.LINE;
+
+    // Включаемые и исключаемые префиксы зависимостей
+    private final List<String> includes = new ArrayList<>();
+    private final List<String> excludes = new ArrayList<>();
+
+    // Сохранять типы JDK
+    private boolean jdk = true;
+
+    // Сохранять типы проекта
+    private boolean project = true;
+
+    // Файл обратного индекса, null если индекс не нужен
+    private Path indexFile;
+
+    // Файл графа зависимостей, null если граф не выгружается
+    private Path graphFile;
+
+    // Узлы графа - типы верхнего уровня, иначе пакеты
+    private boolean typeGraph;
+
+    // Включать в граф типы JDK и библиотек
+    private boolean graphExternal;
+
+    // Печатать циклы и наибольшие степени узлов графа
+    private boolean graphReport;
+
+    // Наблюдать за изменениями файлов после полного анализа
+    private boolean watch;
+
+    // Количество процессов-исполнителей, 0 если анализ идет в одном процессе
+    private int shardCount;
+
+    // Часть проекта, которую анализирует процесс-исполнитель, null если анализируется весь проект
+    private Shard shard;
+
+    // Старая ревизия для вывода изменений зависимостей, null если анализируется весь проект
+    private String deltaBase;
+
+    // Новая ревизия для вывода изменений зависимостей
+    private String deltaHead = "HEAD";
+
+    // Файл модели проекта, null если модель запрашивается у Gradle
+    private Path modelFile;
+
+    // Файл со списком classpath, null если classpath берется не из файла
+    private Path classpathFile;
+
+    // Файл со списком артефактов из локальных хранилищ, null если не задан
+    private Path artifactsFile;
+
+    // Каталоги исходников для classpath из файла, пустой список для каталога по умолчанию
+    private List<String> sourceRoots = List.of();
+
+    // Печатать сводку метрик по окончании анализа
+    private boolean stats;
+
+    // Файл метрик в формате JSON, null если не нужен
+    private Path metricsFile;
+
+    // Метрики анализа, выключены, если не запрошены сводка или файл метрик
+    private AnalysisMetrics metrics = AnalysisMetrics.DISABLED;
+
+    /**
+     * Разбирает аргументы командной строки
+     *
+     * @param args аргументы командной строки
+     * @return параметры запуска
+     * @throws IllegalArgumentException если аргументы заданы неверно
+     */
+    public static AnalyzerOptions parse(String[] args) {
+        AnalyzerOptions options = new AnalyzerOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads" -> options.setParallelism(parsePositiveInt(arg, requireValue(args, ++i, arg)));
+                case "--batch-size" -> options.setBatchSize(parsePositiveInt(arg, requireValue(args, ++i, arg)));
+                case "--memory-budget" -> options.setMemoryBudget(new MemoryBudget(MemoryBudget.parseSize(requireValue(args, ++i, arg))));
+                case "--prefetch" -> options.setPrefetchDepth(parseNonNegativeInt(arg, requireValue(args, ++i, arg)));
+                case "--cache" -> options.defaultCacheDir = true;
+                case "--cache-dir" -> options.setCacheDir(Path.of(requireValue(args, ++i, arg)));
+                case "--refresh-model" -> options.setRefreshModel(true);
+                case "--syntactic" -> options.setSyntactic(true);
+                case "--bytecode" -> options.setBytecode(true);
+                case "--prune-classpath" -> options.setPruneClasspath(true);
+                case "--format" -> options.setOutputFormat(parseFormat(requireValue(args, ++i, arg)));
+                case "--output" -> options.setOutputFile(Path.of(requireValue(args, ++i, arg)));
+                case "--rollup" -> options.setRollupLevel(parseRollup(requireValue(args, ++i, arg)));
+                case "--include" -> options.includes.addAll(parsePrefixes(requireValue(args, ++i, arg)));
+                case "--exclude" -> options.excludes.addAll(parsePrefixes(requireValue(args, ++i, arg)));
+                case "--no-jdk" -> options.setJdk(false);
+                case "--no-project" -> options.setProject(false);
+                case "--index" -> options.setIndexFile(Path.of(requireValue(args, ++i, arg)));
+                case "--graph" -> options.setGraphFile(Path.of(requireValue(args, ++i, arg)));
+                case "--graph-level" -> options.setTypeGraph(parseGraphLevel(requireValue(args, ++i, arg)));
+                case "--graph-external" -> options.setGraphExternal(true);
+                case "--graph-report" -> options.setGraphReport(true);
+                case "--watch" -> options.setWatch(true);
+                case "--shards" -> options.setShardCount(parsePositiveInt(arg, requireValue(args, ++i, arg)));
+                case "--shard" -> options.setShard(Shard.parse(requireValue(args, ++i, arg)));
+                case "--delta" -> options.setDelta(requireValue(args, ++i, arg));
+                case "--model" -> options.setModelFile(Path.of(requireValue(args, ++i, arg)));
+                case "--classpath-file" -> options.setClasspathFile(Path.of(requireValue(args, ++i, arg)));
+                case "--artifacts" -> options.setArtifactsFile(Path.of(requireValue(args, ++i, arg)));
+                case "--source-roots" -> options.setSourceRoots(List.of(requireValue(args, ++i, arg).split(File.pathSeparator)));
+                case "--stats" -> options.setStats(true);
+                case "--metrics" -> options.setMetricsFile(Path.of(requireValue(args, ++i, arg)));
+                default -> {
+                    if (arg.startsWith("--") || options.sourceRoot != null) {
+                        throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+                    }
+                    options.sourceRoot = Path.of(arg);
+                }
+            }
+        }
+
+        if (options.sourceRoot == null) {
+            throw new IllegalArgumentException("Не указан каталог с исходным кодом");
+        }
+        if (options.watch && options.indexFile != null) {
+            // Индекс записывается при завершении анализа, а режим наблюдения не завершается
+            throw new IllegalArgumentException("--index нельзя использовать вместе с --watch");
+        }
+        if (options.bytecode && options.syntactic) {
+            throw new IllegalArgumentException("--bytecode нельзя использовать вместе с --syntactic");
+        }
+        if (options.bytecode && options.watch) {
+            // Класс меняется только после сборки, а не при сохранении исходника
+            throw new IllegalArgumentException("--bytecode нельзя использовать вместе с --watch");
+        }
+        int modelSources = (options.modelFile != null ? 1 : 0) + (options.classpathFile != null ? 1 : 0)
+                + (options.artifactsFile != null ? 1 : 0);
+        if (modelSources > 1) {
+            throw new IllegalArgumentException("Можно задать только один из параметров --model, --classpath-file и --artifacts");
+        }
+        if (!options.sourceRoots.isEmpty() && options.classpathFile == null && options.artifactsFile == null) {
+            // Для Gradle и файла модели каталоги исходников входят в модель
+            throw new IllegalArgumentException("--source-roots используется только с --classpath-file или --artifacts");
+        }
+        if (options.shard != null || options.shardCount > 0) {
+            validateSharding(options);
+        }
+        if (options.deltaBase != null) {
+            validateDelta(options);
+        }
+        if (options.isGraph() && (options.watch || options.shard != null || options.deltaBase != null)) {
+            // Граф строится по результату всего проекта
+            throw new IllegalArgumentException("--graph и --graph-report нельзя использовать вместе с --watch, --shard и --delta");
+        }
+        if (options.rollupLevel != RollupLevel.LINE && (options.watch || options.shard != null || options.deltaBase != null)) {
+            // Множества пакета и модуля готовы только по окончании анализа всего проекта
+            throw new IllegalArgumentException("--rollup нельзя использовать вместе с --watch, --shard и --delta");
+        }
+        if (options.memoryBudget != null && (options.defaultCacheDir || options.cacheDir != null)) {
+            // Кэш результатов загружается, сравнивается и записывается целиком в памяти
+            throw new IllegalArgumentException("--memory-budget нельзя использовать вместе с --cache и --cache-dir");
+        }
+        if (options.stats || options.metricsFile != null) {
+            options.setMetrics(new AnalysisMetrics());
+        }
+        if (options.defaultCacheDir && options.cacheDir == null) {
+            options.setCacheDir(options.sourceRoot.resolve(".dependency-analyzer"));
+        }
+        return options;
+    }
+
+    private static void validateSharding(AnalyzerOptions options) {
+        if (options.shard != null && options.shardCount > 0) {
+            throw new IllegalArgumentException("--shard нельзя использовать вместе с --shards");
+        }
+        if (options.watch || options.bytecode) {
+            throw new IllegalArgumentException("Анализ по частям несовместим с " + (options.watch ? "--watch" : "--bytecode"));
+        }
+        if (options.shard != null && options.outputFile == null) {
+            throw new IllegalArgumentException("Для --shard нужен файл частичного результата --output");
+        }
+        if (options.shard != null && options.indexFile != null) {
+            // Индекс строится по объединенному результату
+            throw new IllegalArgumentException("--index нельзя использовать вместе с --shard");
+        }
+    }
+
+    private static void validateDelta(AnalyzerOptions options) {
+        if (options.watch || options.bytecode || options.shard != null || options.shardCount > 0) {
+            // Версии файлов из ревизий есть только в исходниках и разбираются в одном процессе
+            throw new IllegalArgumentException("--delta нельзя использовать вместе с --watch, --bytecode, --shard и --shards");
+        }
+        if (options.indexFile != null) {
+            throw new IllegalArgumentException("--delta нельзя использовать вместе с --index");
+        }
+    }
+
+    private static boolean parseGraphLevel(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "type" -> true;
+            case "package" -> false;
+            default -> throw new IllegalArgumentException("Неизвестный уровень графа: " + value);
+        };
+    }
+
+    private static RollupLevel parseRollup(String value) {
+        try {
+            return RollupLevel.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный уровень агрегации: " + value);
+        }
+    }
+
+    private static List<String> parsePrefixes(String value) {
+        List<String> prefixes = new ArrayList<>();
+        for (String prefix : value.split(",")) {
+            String trimmed = prefix.strip();
+            if (trimmed.endsWith(".*")) {
+                trimmed = trimmed.substring(0, trimmed.length() - 2);
+            }
+            if (!trimmed.isEmpty()) {
+                prefixes.add(trimmed);
+            }
+        }
+        if (prefixes.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны префиксы пакетов: " + value);
+        }
+        return prefixes;
+    }
+
+    private static String requireValue(String[] args, int index, String name) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Не указано значение для " + name);
+        }
+        return args[index];
+    }
+
+    private static int parsePositiveInt(String name, String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 1) {
+                throw new IllegalArgumentException("Значение " + name + " должно быть положительным: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число для " + name + ": " + value);
+        }
+    }
+
+    private static int parseNonNegativeInt(String name, String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 0) {
+                throw new IllegalArgumentException("Значение " + name + " не может быть отрицательным: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число для " + name + ": " + value);
+        }
+    }
+
+    private static OutputFormat parseFormat(String value) {
+        try {
+            return OutputFormat.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный формат вывода: " + value);
+        }
+    }
+
+    public Path getSourceRoot() {
+        return sourceRoot;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Возвращает пул массивов для чтения исходников, общий для всех модулей. В каждом классе
+     * размеров пул хранит столько массивов, сколько файлов могут быть прочитаны впрок
+     * во всех потоках разбора
+     *
+     * @return пул массивов
+     */
+    public synchronized BufferPool getBufferPool() {
+        if (bufferPool == null) {
+            bufferPool = new BufferPool(Math.max(1, parallelism * (prefetchDepth + 1)));
+        }
+        return bufferPool;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public boolean isRefreshModel() {
+        return refreshModel;
+    }
+
+    public void setRefreshModel(boolean refreshModel) {
+        this.refreshModel = refreshModel;
+    }
+
+    public boolean isSyntactic() {
+        return syntactic;
+    }
+
+    public void setSyntactic(boolean syntactic) {
+        this.syntactic = syntactic;
+    }
+
+    public boolean isBytecode() {
+        return bytecode;
+    }
+
+    public void setBytecode(boolean bytecode) {
+        this.bytecode = bytecode;
+    }
+
+    public boolean isPruneClasspath() {
+        return pruneClasspath;
+    }
+
+    public void setPruneClasspath(boolean pruneClasspath) {
+        this.pruneClasspath = pruneClasspath;
+    }
+
+    /**
+     * Возвращает индекс содержимого архивов, общий для всех модулей. Индекс хранится
+     * в каталоге кэша, если кэш включен
+     *
+     * @return индекс архивов classpath
+     */
+    public synchronized ClasspathIndex getClasspathIndex() {
+        if (classpathIndex == null) {
+            classpathIndex = ClasspathIndex.load(cacheDir);
+        }
+        return classpathIndex;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(Path outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    public RollupLevel getRollupLevel() {
+        return rollupLevel;
+    }
+
+    public void setRollupLevel(RollupLevel rollupLevel) {
+        this.rollupLevel = rollupLevel;
+    }
+
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public boolean isJdk() {
+        return jdk;
+    }
+
+    public void setJdk(boolean jdk) {
+        this.jdk = jdk;
+    }
+
+    public boolean isProject() {
+        return project;
+    }
+
+    public void setProject(boolean project) {
+        this.project = project;
+    }
+
+    /**
+     * @return правила отбора зависимостей при извлечении или null, если отбор не задан
+     */
+    public DependencyFilter getDependencyFilter() {
+        DependencyFilter filter = new DependencyFilter(includes, excludes, jdk, project);
+        return filter.isEmpty() ? null : filter;
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    public void setIndexFile(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public Path getGraphFile() {
+        return graphFile;
+    }
+
+    public void setGraphFile(Path graphFile) {
+        this.graphFile = graphFile;
+    }
+
+    public boolean isTypeGraph() {
+        return typeGraph;
+    }
+
+    public void setTypeGraph(boolean typeGraph) {
+        this.typeGraph = typeGraph;
+    }
+
+    public boolean isGraphExternal() {
+        return graphExternal;
+    }
+
+    public void setGraphExternal(boolean graphExternal) {
+        this.graphExternal = graphExternal;
+    }
+
+    public boolean isGraphReport() {
+        return graphReport;
+    }
+
+    public void setGraphReport(boolean graphReport) {
+        this.graphReport = graphReport;
+    }
+
+    /**
+     * @return нужно ли строить граф зависимостей
+     */
+    public boolean isGraph() {
+        return graphFile != null || graphReport;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public Shard getShard() {
+        return shard;
+    }
+
+    public void setShard(Shard shard) {
+        this.shard = shard;
+    }
+
+    public String getDeltaBase() {
+        return deltaBase;
+    }
+
+    public String getDeltaHead() {
+        return deltaHead;
+    }
+
+    /**
+     * Задает ревизии для вывода изменений зависимостей
+     *
+     * @param range старая ревизия или диапазон base..head
+     */
+    public void setDelta(String range) {
+        int separator = range.indexOf("..");
+        if (separator < 0) {
+            deltaBase = range;
+        } else {
+            deltaBase = range.substring(0, separator);
+            if (separator + 2 < range.length()) {
+                deltaHead = range.substring(separator + 2);
+            }
+        }
+        if (deltaBase.isEmpty() || deltaHead.startsWith(".")) {
+            throw new IllegalArgumentException("Некорректный диапазон ревизий: " + range);
+        }
+    }
+
+    public Path getModelFile() {
+        return modelFile;
+    }
+
+    public void setModelFile(Path modelFile) {
+        this.modelFile = modelFile;
+    }
+
+    public Path getClasspathFile() {
+        return classpathFile;
+    }
+
+    public void setClasspathFile(Path classpathFile) {
+        this.classpathFile = classpathFile;
+    }
+
+    public Path getArtifactsFile() {
+        return artifactsFile;
+    }
+
+    public void setArtifactsFile(Path artifactsFile) {
+        this.artifactsFile = artifactsFile;
+    }
+
+    public List<String> getSourceRoots() {
+        return sourceRoots;
+    }
+
+    public void setSourceRoots(List<String> sourceRoots) {
+        this.sourceRoots = sourceRoots;
+    }
+
+    /**
+     * Выбирает источник модели проекта: файл модели, список classpath, список артефактов
+     * или, по умолчанию, Gradle с кэшем модели в каталоге кэша
+     *
+     * @return источник модели проекта
+     */
+    public ClasspathProvider getClasspathProvider() {
+        if (modelFile != null) {
+            return new ModelFileClasspathProvider(modelFile);
+        }
+        if (classpathFile != null) {
+            return new StaticClasspathProvider(classpathFile, sourceRoots);
+        }
+        if (artifactsFile != null) {
+            return new LocalRepositoryClasspathProvider(artifactsFile, sourceRoots);
+        }
+        return new GradleClasspathProvider(cacheDir);
+    }
+
+    public boolean isStats() {
+        return stats;
+    }
+
+    public void setStats(boolean stats) {
+        this.stats = stats;
+    }
+
+    public Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    public void setMetricsFile(Path metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,83 @@
+package com.beryozavv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Выполнение пакетов анализа в пуле ForkJoin, общее для анализаторов исходников и байт-кода
+ */
+final class BatchExecutor {
+
+    private BatchExecutor() {
+    }
+
+    /**
+     * Выполняет задачи пакетов в пуле ForkJoin: в текущем пуле, если анализ уже
+     * выполняется внутри него, иначе в собственном пуле на время вызова
+     *
+     * @param tasks       задачи пакетов
+     * @param parallelism количество потоков собственного пула
+     * @throws IOException при ошибке задачи или прерывании потока
+     */
+    static void invokeAll(List<ForkJoinTask<?>> tasks, int parallelism) throws IOException {
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            try (ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()))) {
+                pool.submit(() -> ForkJoinTask.invokeAll(tasks)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Анализ прерван");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                    throw uncheckedIOException.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException("Ошибка при анализе пакета файлов", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Передает результаты пакетов получателю в порядке пакетов. Пакеты, завершившиеся раньше
+     * предыдущих, ждут своей очереди. Количество пакетов может быть заранее неизвестно
+     *
+     * @param <T> результат пакета
+     */
+    static final class OrderedEmitter<T> {
+        private final ObjIntConsumer<T> emitter;
+        private final List<T> completed;
+        private int next;
+
+        /**
+         * @param batchCount ожидаемое количество пакетов
+         * @param emitter    передача результата пакета с его номером получателю
+         */
+        OrderedEmitter(int batchCount, ObjIntConsumer<T> emitter) {
+            this.emitter = emitter;
+            this.completed = new ArrayList<>(Collections.nCopies(batchCount, null));
+        }
+
+        synchronized void complete(int index, T results) {
+            while (completed.size() <= index) {
+                completed.add(null);
+            }
+            completed.set(index, results);
+            while (next < completed.size() && completed.get(next) != null) {
+                emitter.accept(completed.get(next), next);
+                completed.set(next, null);
+                next++;
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.beryozavv;
+
+import com.beryozavv.metrics.AnalysisMetrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Планировщик пакетов разбора. Файлы выдаются в исходном, каноническом порядке анализатора,
+ * то есть сгруппированными по каталогам (пакетам Java), а соседние пакеты идут подряд: файлы,
+ * которые используют одни и те же типы, попадают в один пакет разбора и разделяют окружение
+ * JDT с привязками. Очень большие файлы
+ * разбираются первыми и по одному, чтобы такой файл в конце обхода не задержал окончание
+ * анализа. Потоки забирают пакеты из общей очереди по мере освобождения, поэтому быстрый
+ * поток берет больше работы, а размер следующего пакета подбирается по ходу разбора:
+ * <ul>
+ *     <li>пакет не больше остатка работы, деленного на удвоенное количество потоков,
+ *     поэтому к концу пакеты мельчают и потоки заканчивают почти одновременно;</li>
+ *     <li>по процессорному времени готовых пакетов оцениваются постоянные затраты на пакет
+ *     и затраты на байт исходника, и пакет не уменьшается настолько, чтобы постоянные
+ *     затраты превысили десятую часть его времени;</li>
+ *     <li>если после сборки мусора занято больше трех четвертей кучи, предел объема пакета
+ *     уменьшается вдвое, а при свободной куче снова постепенно растет.</li>
+ * </ul>
+ * Пакеты нумеруются в порядке выдачи, и файлы, переданные получателю в порядке номеров,
+ * идут в порядке очереди независимо от границ пакетов. Очередь отличается от исходного
+ * порядка только большими файлами в начале; их результаты возвращает на место
+ * {@link InputOrderListener}, поэтому вывод не зависит от порога больших файлов и количества
+ * потоков. Потокобезопасен
+ */
+final class BatchScheduler {
+
+    // Пакет - не больше этой доли остатка работы на поток
+    private static final int GUIDED_FACTOR = 2;
+
+    // Постоянные затраты - не больше 1 / (OVERHEAD_FACTOR + 1) времени пакета
+    private static final int OVERHEAD_FACTOR = 9;
+
+    // Количество замеров, после которого оцениваются постоянные затраты
+    private static final int MIN_SAMPLES = 4;
+
+    // Наименьший объем исходников пакета, кроме последнего, байт
+    private static final long MIN_BATCH_BYTES = 16 * 1024;
+
+    // Файл разбирается отдельно и в начале, если он больше этого объема
+    // и больше 1/LARGE_FILE_SHARE работы одного потока
+    private static final long LARGE_FILE_BYTES = 128 * 1024;
+    private static final int LARGE_FILE_SHARE = 8;
+
+    // Доля занятой кучи после сборки мусора, выше которой пакеты уменьшаются,
+    // и ниже которой предел снова растет
+    private static final double HEAP_HIGH = 0.75;
+    private static final double HEAP_LOW = 0.5;
+
+    // Области кучи, для которых известно заполнение после сборки мусора
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+            .toList();
+
+    /**
+     * Пакет файлов, выданный потоку
+     *
+     * @param index       номер пакета в порядке выдачи
+     * @param files       файлы пакета
+     * @param sourceBytes объем исходников, байт
+     * @param limit       предел объема пакета по памяти на момент выдачи
+     */
+    record Batch(int index, List<Path> files, long sourceBytes, long limit) {
+    }
+
+    // Файлы в порядке выдачи, их каталоги и размеры
+    private final List<Path> files = new ArrayList<>();
+    private final Path[] directories;
+    private final long[] sizes;
+
+    // Количество больших файлов в начале очереди
+    private final int largeFileCount;
+
+    // Наибольшее количество файлов пакета
+    private final int maxFiles;
+
+    // Количество потоков разбора
+    private final int parallelism;
+
+    // Предел объема исходников пакета по бюджету памяти, байт
+    private final long sourceLimit;
+
+    // Общий объем исходников, байт
+    private final long totalBytes;
+
+    private final AnalysisMetrics metrics;
+
+    // Следующий файл очереди и объем еще не выданных исходников
+    private int next;
+    private long remainingBytes;
+
+    // Номер следующего пакета
+    private int nextIndex;
+
+    // Предел объема пакета по заполнению кучи, байт
+    private long heapLimit = Long.MAX_VALUE;
+
+    // Суммы для оценки времени пакета как постоянные затраты + затраты на байт * объем
+    private int samples;
+    private double sumBytes;
+    private double sumNanos;
+    private double sumBytesSquared;
+    private double sumBytesNanos;
+
+    /**
+     * @param javaFiles   Java-файлы
+     * @param maxFiles    наибольшее количество файлов пакета
+     * @param parallelism количество потоков разбора
+     * @param sourceLimit предел объема исходников пакета, байт, например по бюджету памяти
+     * @param metrics     метрики анализа
+     */
+    BatchScheduler(List<Path> javaFiles, int maxFiles, int parallelism, long sourceLimit, AnalysisMetrics metrics) {
+        this.maxFiles = maxFiles;
+        this.parallelism = parallelism;
+        this.sourceLimit = sourceLimit;
+        this.metrics = metrics;
+
+        List<SourceFile> sourceFiles = new ArrayList<>(javaFiles.size());
+        long total = 0;
+        for (Path javaFile : javaFiles) {
+            long size = sourceSize(javaFile);
+            sourceFiles.add(new SourceFile(javaFile, directory(javaFile), size));
+            total += size;
+        }
+        long largeFileBytes = Math.max(LARGE_FILE_BYTES, total / ((long) parallelism * LARGE_FILE_SHARE));
+
+        List<SourceFile> large = new ArrayList<>();
+        List<SourceFile> regular = new ArrayList<>();
+        for (SourceFile sourceFile : sourceFiles) {
+            (sourceFile.size() > largeFileBytes ? large : regular).add(sourceFile);
+        }
+        large.sort(Comparator.comparingLong(SourceFile::size).reversed().thenComparing(SourceFile::path));
+
+        this.directories = new Path[sourceFiles.size()];
+        this.sizes = new long[sourceFiles.size()];
+        int i = 0;
+        for (List<SourceFile> group : List.of(large, regular)) {
+            for (SourceFile sourceFile : group) {
+                files.add(sourceFile.path());
+                directories[i] = sourceFile.directory();
+                sizes[i++] = sourceFile.size();
+            }
+        }
+        this.largeFileCount = large.size();
+        this.totalBytes = total;
+        this.remainingBytes = total;
+        if (metrics.isEnabled()) {
+            metrics.largeFilesFirst(large.size());
+        }
+    }
+
+    /**
+     * @return количество потоков, которым хватит работы
+     */
+    int getWorkerCount() {
+        return Math.max(1, Math.min(parallelism, files.size()));
+    }
+
+    /**
+     * @return большие файлы, которые выдаются первыми, вне исходного порядка
+     */
+    Set<Path> getLargeFiles() {
+        return new HashSet<>(files.subList(0, largeFileCount));
+    }
+
+    /**
+     * @return количество пакетов, если бы все они были наибольшего размера
+     */
+    int getMinBatchCount() {
+        return largeFileCount + (files.size() - largeFileCount + maxFiles - 1) / maxFiles;
+    }
+
+    /**
+     * Выдает следующий пакет очереди
+     *
+     * @return пакет или null, если все файлы выданы
+     */
+    synchronized Batch next() {
+        if (next == files.size()) {
+            return null;
+        }
+
+        int from = next;
+        long bytes = sizes[next++];
+        if (from >= largeFileCount) {
+            long target = targetBytes();
+            long limit = Math.min(heapLimit, sourceLimit);
+            while (next < files.size() && next - from < maxFiles) {
+                long size = sizes[next];
+                if (bytes + size > limit) {
+                    break;
+                }
+                // Сверх цели пакет дополняется только небольшим остатком текущего пакета Java
+                if (bytes + size > target && !(sameDirectory(next - 1, next)
+                        && restOfDirectoryFits(next, Math.min(limit, target + target / 4) - bytes, from + maxFiles))) {
+                    break;
+                }
+                bytes += size;
+                next++;
+            }
+        }
+        remainingBytes -= bytes;
+        return new Batch(nextIndex++, files.subList(from, next), bytes, heapLimit);
+    }
+
+    /**
+     * Выполняет разбор пакета, замеряя его процессорное время и выделенную память,
+     * и учитывает замер при выборе размера следующих пакетов
+     *
+     * @param batch    пакет
+     * @param analysis разбор файлов пакета
+     * @param <T>      результат разбора
+     * @return результат разбора
+     */
+    <T> T run(Batch batch, Function<List<Path>, T> analysis) {
+        long cpuStart = AnalysisMetrics.currentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        long allocatedStart = metrics.isEnabled() ? AnalysisMetrics.currentThreadAllocatedBytes() : 0;
+
+        T result = analysis.apply(batch.files());
+
+        // Без процессорного времени потока оценка идет по астрономическому
+        long cpuEnd = AnalysisMetrics.currentThreadCpuTime();
+        long nanos = cpuEnd > 0 ? cpuEnd - cpuStart : System.nanoTime() - wallStart;
+        if (metrics.isEnabled()) {
+            metrics.scheduledBatch(batch.sourceBytes(), AnalysisMetrics.currentThreadAllocatedBytes() - allocatedStart);
+        }
+        completed(batch, nanos, heapOccupancy());
+        return result;
+    }
+
+    private synchronized void completed(Batch batch, long nanos, double heapOccupancy) {
+        if (nanos > 0) {
+            double bytes = batch.sourceBytes();
+            samples++;
+            sumBytes += bytes;
+            sumNanos += nanos;
+            sumBytesSquared += bytes * bytes;
+            sumBytesNanos += bytes * nanos;
+        }
+
+        if (heapOccupancy > HEAP_HIGH) {
+            // Пакеты, выданные до предыдущего уменьшения, уже учтены
+            if (batch.limit() <= heapLimit) {
+                heapLimit = Math.max(MIN_BATCH_BYTES, Math.min(heapLimit, batch.sourceBytes()) / 2);
+                if (metrics.isEnabled()) {
+                    metrics.batchLimitCut();
+                }
+            }
+        } else if (heapOccupancy < HEAP_LOW && heapLimit != Long.MAX_VALUE) {
+            heapLimit += heapLimit / 4;
+            if (heapLimit >= totalBytes) {
+                heapLimit = Long.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Выбирает объем следующего пакета: доля остатка работы, но не меньше объема,
+     * при котором постоянные затраты на пакет невелики
+     */
+    private long targetBytes() {
+        long target = Math.max(MIN_BATCH_BYTES, remainingBytes / ((long) parallelism * GUIDED_FACTOR));
+        if (samples >= MIN_SAMPLES) {
+            double denominator = samples * sumBytesSquared - sumBytes * sumBytes;
+            if (denominator > 0) {
+                double nanosPerByte = (samples * sumBytesNanos - sumBytes * sumNanos) / denominator;
+                double overheadNanos = (sumNanos - nanosPerByte * sumBytes) / samples;
+                if (nanosPerByte > 0 && overheadNanos > 0) {
+                    target = Math.max(target, (long) Math.min(Long.MAX_VALUE, OVERHEAD_FACTOR * overheadNanos / nanosPerByte));
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Проверяет, что файлы каталога, начиная с данного, укладываются в объем и количество
+     */
+    private boolean restOfDirectoryFits(int index, long bytes, int endLimit) {
+        for (int i = index; i < files.size() && (i == index || sameDirectory(i - 1, i)); i++) {
+            bytes -= sizes[i];
+            if (bytes < 0 || i >= endLimit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameDirectory(int first, int second) {
+        return directories[first].equals(directories[second]);
+    }
+
+    private static Path directory(Path file) {
+        Path parent = file.toAbsolutePath().getParent();
+        return parent != null ? parent : file.getRoot();
+    }
+
+    /**
+     * @return доля кучи, занятая после последней сборки мусора, или 0, если она неизвестна
+     */
+    private static double heapOccupancy() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * @return размер файла, байт, или 0, если его не удалось получить
+     */
+    private static long sourceSize(Path javaFile) {
+        try {
+            return Files.size(javaFile);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record SourceFile(Path path, Path directory, long size) {
+    }
+}
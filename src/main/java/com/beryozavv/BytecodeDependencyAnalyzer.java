@@ -0,0 +1,258 @@
+package com.beryozavv;
+
+import com.beryozavv.bytecode.ClassFileReader;
+import com.beryozavv.filter.SymbolFilter;
+import com.beryozavv.memory.MemoryBudget;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.BatchTimer;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.result.AnalysisResult;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Анализатор зависимостей по скомпилированным классам модуля. Читает class-файлы
+ * выходных каталогов и сопоставляет ссылки на типы строкам исходных файлов по атрибутам
+ * SourceFile и LineNumberTable, поэтому результат имеет тот же вид, что и у
+ * {@link JavaDependencyAnalyzer}. Видны только ссылки из кода методов и инициализаторов:
+ * объявления полей, параметров и супертипов строк в class-файле не имеют. Классы должны
+ * быть собраны из текущих исходников; кэш результатов не используется, так как чтение
+ * class-файлов дешевле проверки кэша
+ */
+public class BytecodeDependencyAnalyzer implements DependencyAnalyzer {
+
+    // Каталоги скомпилированных классов модуля
+    private final List<Path> classRoots;
+
+    // Каталоги исходников, в которых ищутся файлы из атрибута SourceFile
+    private final List<Path> sourceRoots;
+
+    // Таблица символов, общая для всех файлов
+    private final SymbolTable symbols;
+
+    // Количество потоков чтения
+    private final int parallelism;
+
+    // Бюджет памяти для результатов, ожидающих вывода, null если память не ограничена
+    private final MemoryBudget memoryBudget;
+
+    // Метрики анализа
+    private final AnalysisMetrics metrics;
+
+    // Отбор зависимостей при извлечении, null если сохраняются все
+    private final SymbolFilter filter;
+
+    /**
+     * Каталог классов одного пакета Java
+     *
+     * @param relativeDir каталог пакета относительно каталога классов, он же - относительно каталога исходников
+     * @param classFiles  class-файлы пакета
+     */
+    private record ClassPackage(Path relativeDir, List<Path> classFiles) {
+    }
+
+    /**
+     * @param classRoots  каталоги скомпилированных классов модуля
+     * @param sourceRoots каталоги исходников модуля
+     * @param options     параметры анализа
+     * @param symbols     таблица символов, общая с другими модулями
+     */
+    public BytecodeDependencyAnalyzer(List<Path> classRoots, List<Path> sourceRoots, AnalyzerOptions options, SymbolTable symbols) {
+        this(classRoots, sourceRoots, options, symbols,
+                JavaDependencyAnalyzer.createFilter(options.getDependencyFilter(), sourceRoots, symbols));
+    }
+
+    /**
+     * @param classRoots  каталоги скомпилированных классов модуля
+     * @param sourceRoots каталоги исходников модуля
+     * @param options     параметры анализа
+     * @param symbols     таблица символов, общая с другими модулями
+     * @param filter      отбор зависимостей при извлечении или null, если сохраняются все
+     */
+    public BytecodeDependencyAnalyzer(List<Path> classRoots, List<Path> sourceRoots, AnalyzerOptions options, SymbolTable symbols,
+                                      SymbolFilter filter) {
+        this.classRoots = classRoots;
+        this.sourceRoots = sourceRoots;
+        this.symbols = symbols;
+        this.parallelism = options.getParallelism();
+        this.memoryBudget = options.getMemoryBudget();
+        this.metrics = options.getMetrics();
+        this.filter = filter;
+    }
+
+    @Override
+    public AnalysisResult analyzeResult() throws IOException {
+        Map<Path, FileDependencies> usageMap = new HashMap<>();
+        analyze(usageMap::put);
+        return new AnalysisResult(symbols, usageMap);
+    }
+
+    /**
+     * Читает class-файлы пакетами Java: все классы одного исходного файла лежат в каталоге
+     * его пакета. Пакеты читаются параллельно, результаты передаются в порядке пакетов;
+     * при заданном бюджете памяти результаты, ждущие очереди сверх бюджета, выгружаются на диск
+     *
+     * @param listener получатель результатов
+     * @throws IOException при ошибке обхода каталогов классов
+     */
+    @Override
+    public void analyze(DependencyListener listener) throws IOException {
+        List<ClassPackage> packages;
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.FILE_SCAN);
+        try {
+            packages = collectClassPackages();
+        } finally {
+            phaseTimer.stop();
+        }
+        if (packages.isEmpty()) return;
+
+        if (parallelism == 1 || packages.size() == 1) {
+            for (ClassPackage classPackage : packages) {
+                emit(analyzePackage(classPackage), listener);
+            }
+            return;
+        }
+        if (memoryBudget != null) {
+            try (SpillingEmitter emitter = new SpillingEmitter(packages.size(), memoryBudget, metrics, listener)) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < packages.size(); i++) {
+                    int index = i;
+                    tasks.add(ForkJoinTask.adapt(() -> emitter.complete(index, analyzePackage(packages.get(index)))));
+                }
+                BatchExecutor.invokeAll(tasks, parallelism);
+            }
+            return;
+        }
+        BatchExecutor.OrderedEmitter<Map<Path, FileDependencies>> emitter =
+                new BatchExecutor.OrderedEmitter<>(packages.size(), (results, index) -> emit(results, listener));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < packages.size(); i++) {
+            int index = i;
+            tasks.add(ForkJoinTask.adapt(() -> emitter.complete(index, analyzePackage(packages.get(index)))));
+        }
+        BatchExecutor.invokeAll(tasks, parallelism);
+    }
+
+    private static void emit(Map<Path, FileDependencies> results, DependencyListener listener) {
+        results.forEach(listener::onFile);
+    }
+
+    /**
+     * Собирает class-файлы, сгруппированные по каталогам пакетов
+     *
+     * @return пакеты в порядке обхода
+     * @throws IOException при ошибке доступа к файлам
+     */
+    private List<ClassPackage> collectClassPackages() throws IOException {
+        List<ClassPackage> packages = new ArrayList<>();
+        for (Path classRoot : classRoots) {
+            if (!Files.isDirectory(classRoot)) continue;
+
+            Map<Path, List<Path>> filesByDir = new LinkedHashMap<>();
+            Files.walkFileTree(classRoot, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".class") && !name.equals("module-info.class") && !name.equals("package-info.class")) {
+                        filesByDir.computeIfAbsent(file.getParent(), key -> new ArrayList<>()).add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            filesByDir.forEach((dir, files) -> packages.add(new ClassPackage(classRoot.relativize(dir), files)));
+        }
+        return packages;
+    }
+
+    /**
+     * @param typeName имя типа из class-файла
+     * @return идентификатор символа или -1, если фильтр отбрасывает тип
+     */
+    private int symbolId(String typeName) {
+        return filter == null || filter.accepts(typeName) ? symbols.intern(typeName) : -1;
+    }
+
+    /**
+     * Читает классы одного пакета и собирает зависимости по исходным файлам
+     *
+     * @param classPackage каталог классов пакета
+     * @return зависимости исходных файлов пакета, упорядоченные по пути
+     */
+    private Map<Path, FileDependencies> analyzePackage(ClassPackage classPackage) {
+        BatchTimer timer = metrics.startBatch();
+        // Имя исходного файла -> зависимости всех его классов, включая вложенные и анонимные
+        Map<String, FileDependencies.Builder> builders = new HashMap<>();
+        // Имя типа -> идентификатор символа или -1 для отброшенного фильтром имени,
+        // которое не регистрируется в таблице символов
+        Map<String, Integer> symbolIds = new HashMap<>();
+        for (Path classFile : classPackage.classFiles()) {
+            try {
+                ClassFileReader reader = new ClassFileReader(Files.readAllBytes(classFile));
+                FileDependencies.Builder builder = builders.computeIfAbsent(sourceFileName(reader), key -> new FileDependencies.Builder());
+                timer.extractStarted();
+                reader.accept((line, typeName) -> {
+                    int symbolId = symbolIds.computeIfAbsent(typeName, this::symbolId);
+                    if (symbolId >= 0) {
+                        builder.add(line, symbolId);
+                    }
+                });
+                timer.extractFinished();
+            } catch (IOException e) {
+                // Пропускаем класс, который не удалось прочитать
+                System.err.println("Ошибка при чтении " + classFile + ": " + e.getMessage());
+                if (metrics.isEnabled()) {
+                    metrics.extractionError();
+                }
+            }
+        }
+
+        Map<Path, FileDependencies> results = new TreeMap<>();
+        builders.forEach((sourceFileName, builder) -> {
+            Path sourceFile = findSourceFile(classPackage.relativeDir(), sourceFileName);
+            // Классы из сгенерированных или не-Java исходников пропускаются
+            if (sourceFile != null && !builder.isEmpty()) {
+                results.put(sourceFile, builder.build());
+            }
+        });
+        timer.finish(classPackage.classFiles().size(), 0, 0);
+        return results;
+    }
+
+    /**
+     * Имя исходного файла класса: из атрибута SourceFile, а без него - по имени класса верхнего уровня
+     */
+    private static String sourceFileName(ClassFileReader reader) {
+        if (reader.getSourceFile() != null) {
+            return reader.getSourceFile();
+        }
+        String className = reader.getClassName();
+        String simpleName = className.substring(className.lastIndexOf('/') + 1);
+        int dollar = simpleName.indexOf('$');
+        return (dollar > 0 ? simpleName.substring(0, dollar) : simpleName) + ".java";
+    }
+
+    /**
+     * Находит исходный файл в каталоге пакета одного из каталогов исходников
+     *
+     * @return путь к исходному файлу или null, если он не найден
+     */
+    private Path findSourceFile(Path relativeDir, String sourceFileName) {
+        if (!sourceFileName.endsWith(".java")) {
+            return null;
+        }
+        for (Path sourceRoot : sourceRoots) {
+            Path sourceFile = sourceRoot.resolve(relativeDir.toString()).resolve(sourceFileName);
+            if (Files.isRegularFile(sourceFile)) {
+                return sourceFile;
+            }
+        }
+        return null;
+    }
+}
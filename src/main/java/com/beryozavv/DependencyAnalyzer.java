@@ -0,0 +1,42 @@
+package com.beryozavv;
+
+import com.beryozavv.result.AnalysisResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Анализатор зависимостей одного модуля. Результат в любом случае описывает
+ * исходные Java-файлы модуля: для каждой строки - типы, на которые она ссылается
+ */
+public interface DependencyAnalyzer {
+
+    /**
+     * Анализирует модуль и передает результат каждого файла получателю,
+     * не накапливая результаты всего модуля в памяти
+     *
+     * @param listener получатель результатов
+     * @throws IOException при ошибке доступа к файлам
+     */
+    void analyze(DependencyListener listener) throws IOException;
+
+    /**
+     * Анализирует модуль и возвращает результат в компактном виде
+     *
+     * @return зависимости файлов с общей таблицей символов
+     * @throws IOException при ошибке доступа к файлам
+     */
+    AnalysisResult analyzeResult() throws IOException;
+
+    /**
+     * Анализирует модуль и возвращает результат в виде вложенных коллекций
+     *
+     * @return карта "файл -> (строка -> типы)"
+     * @throws IOException при ошибке доступа к файлам
+     */
+    default Map<Path, Map<Integer, Set<String>>> analyze() throws IOException {
+        return analyzeResult().asMap();
+    }
+}
@@ -0,0 +1,23 @@
+package com.beryozavv;
+
+import com.beryozavv.result.FileDependencies;
+
+import java.nio.file.Path;
+
+/**
+ * Получатель результатов анализа. Вызывается для каждого файла с зависимостями,
+ * как только обработан пакет, в который входит файл
+ */
+@FunctionalInterface
+public interface DependencyListener {
+
+    /**
+     * Принимает зависимости одного файла. Вызовы одного анализатора не пересекаются по времени
+     * и идут в порядке, который не зависит от количества потоков; анализатор исходников
+     * выдает файлы в каноническом порядке {@link JavaDependencyAnalyzer#collectJavaFiles}
+     *
+     * @param file         путь к Java-файлу
+     * @param dependencies зависимости файла по строкам
+     */
+    void onFile(Path file, FileDependencies dependencies);
+}
@@ -0,0 +1,166 @@
+package com.beryozavv;
+
+import com.beryozavv.dependencyExtractorStrategies.BindingNameCache;
+import com.beryozavv.dependencyExtractorStrategies.DependencyExtractorStrategy;
+import com.beryozavv.filter.SymbolFilter;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.result.FileDependencies;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Обходчик AST, извлекающий зависимости файла за один проход. Стратегия выбирается
+ * по типу узла из плоской таблицы, а простые имена, которые уже обработала стратегия
+ * родительского узла в той же строке, пропускаются без разрешения привязки.
+ * Экземпляр переиспользуется одним потоком для всех файлов и не потокобезопасен
+ */
+final class DependencyVisitor extends ASTVisitor implements IntConsumer {
+
+    // Стратегии по типу узла (ASTNode.getNodeType()), null для узлов без стратегии
+    private final List<DependencyExtractorStrategy<ASTNode>> strategies;
+
+    // Метрики: время стратегий, неразрешенные привязки и ошибки извлечения
+    private final AnalysisMetrics metrics;
+
+    // Отбор зависимостей до сохранения, null если сохраняются все
+    private final SymbolFilter filter;
+
+    // Накопитель пар (строка, символ), очищается перед каждым файлом
+    private final FileDependencies.Builder lineDeps = new FileDependencies.Builder();
+
+    // Символы текущего файла, отброшенные фильтром
+    private final RejectedSymbols rejected = new RejectedSymbols();
+
+    // Текущий файл, кэш имен его пакета и строка обрабатываемого узла
+    private CompilationUnit cu;
+    private BindingNameCache names;
+    private int line;
+
+    DependencyVisitor(List<DependencyExtractorStrategy<ASTNode>> strategies, AnalysisMetrics metrics, SymbolFilter filter) {
+        this.strategies = strategies;
+        this.metrics = metrics;
+        this.filter = filter;
+    }
+
+    /**
+     * Обходит файл и возвращает найденные зависимости
+     *
+     * @param cu    единица компиляции
+     * @param names кэш имен привязок пакета
+     * @return зависимости файла по строкам, пустые если зависимостей нет
+     */
+    FileDependencies collect(CompilationUnit cu, BindingNameCache names) {
+        this.cu = cu;
+        this.names = names;
+        lineDeps.clear();
+        rejected.clear();
+        try {
+            cu.accept(this);
+            return lineDeps.build();
+        } finally {
+            // Не удерживаем AST файла до следующего вызова
+            this.cu = null;
+            this.names = null;
+        }
+    }
+
+    @Override
+    public boolean preVisit2(ASTNode node) {
+        int nodeType = node.getNodeType();
+        DependencyExtractorStrategy<ASTNode> strategy = nodeType < strategies.size() ? strategies.get(nodeType) : null;
+        if (strategy == null) return true;
+
+        int lineNumber = cu.getLineNumber(node.getStartPosition());
+        if (lineNumber == -1) return true;
+
+        if (nodeType == ASTNode.SIMPLE_NAME && isCoveredByParent(node, lineNumber)) {
+            // У простого имени нет дочерних узлов, обходить нечего
+            return false;
+        }
+
+        line = lineNumber;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        try {
+            strategy.extractDependencies(node, names, this);
+        } catch (Exception e) {
+            // Игнорируем ошибки при попытке получить информацию о зависимостях
+            System.err.println("Ошибка при обработке узла " + node + " в строке " + lineNumber + ": " + e.getMessage());
+            if (metrics.isEnabled()) {
+                metrics.extractionError();
+            }
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordNode(nodeType, System.nanoTime() - start);
+            if (isUnresolved(node)) {
+                metrics.unresolvedBinding();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, что привязка узла не разрешена или восстановлена по неполному classpath.
+     * JDT кэширует привязки, поэтому повторное разрешение после стратегии дешево
+     *
+     * @param node узел, обработанный стратегией
+     * @return true, если привязка отсутствует или восстановлена
+     */
+    private static boolean isUnresolved(ASTNode node) {
+        IBinding binding = switch (node) {
+            case Name name -> name.resolveBinding();
+            case Type type -> type.resolveBinding();
+            case MethodInvocation invocation -> invocation.resolveMethodBinding();
+            case InstanceofExpression instanceOf -> instanceOf.getRightOperand().resolveBinding();
+            case Expression expression -> expression.resolveTypeBinding();
+            default -> null;
+        };
+        return binding == null || binding.isRecovered();
+    }
+
+    /**
+     * Принимает идентификатор зависимости текущего узла
+     *
+     * @param symbolId идентификатор символа
+     */
+    @Override
+    public void accept(int symbolId) {
+        if (filter == null || filter.accepts(symbolId)) {
+            lineDeps.add(line, symbolId);
+        } else {
+            rejected.add(symbolId);
+        }
+    }
+
+    /**
+     * @return символы последнего обойденного файла, отброшенные фильтром, по возрастанию
+     */
+    int[] rejectedSymbols() {
+        return rejected.toArray();
+    }
+
+    /**
+     * Проверяет, что простое имя уже обработано стратегией родителя: последняя часть
+     * QualifiedName, имя метода в MethodInvocation и имя поля в FieldAccess разрешаются
+     * в ту же привязку, что и родитель, и дают подмножество его зависимостей.
+     * Имя в SimpleType не пропускается: для параметризованных и восстановленных типов
+     * привязка SimpleType и привязка его имени различаются (List&lt;E&gt; и List).
+     * Пропуск допустим, только если родитель начинается в той же строке,
+     * иначе зависимость потеряется для строки имени
+     *
+     * @param name       простое имя
+     * @param lineNumber строка имени
+     * @return true, если имя можно не обрабатывать
+     */
+    private boolean isCoveredByParent(ASTNode name, int lineNumber) {
+        StructuralPropertyDescriptor location = name.getLocationInParent();
+        if (location != QualifiedName.NAME_PROPERTY
+                && location != MethodInvocation.NAME_PROPERTY
+                && location != FieldAccess.NAME_PROPERTY) {
+            return false;
+        }
+        ASTNode parent = name.getParent();
+        return cu.getLineNumber(parent.getStartPosition()) == lineNumber;
+    }
+}
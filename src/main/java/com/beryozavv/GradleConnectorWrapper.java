@@ -1,19 +1,49 @@
 package com.beryozavv;
 
+import com.beryozavv.cache.GradleModelCache;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.model.idea.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Коннектор для извлечения зависимостей
  */
 public class GradleConnectorWrapper {
 
+    /**
+     * Получить пути к исходникам и зависимости проекта, используя кэш модели Gradle.
+     * Если файлы сборки не изменились, подключение к Gradle не выполняется
+     *
+     * @param projectRootPath корневой каталог Gradle-проекта
+     * @param cacheDir        каталог кэша модели
+     * @param refresh         получить модель заново, даже если кэш актуален
+     * @return пути к исходникам и classpath проекта
+     * @throws IOException при ошибке чтения файлов сборки или записи кэша
+     */
+    public static PathResult GetClassAndSourcePaths(Path projectRootPath, Path cacheDir, boolean refresh) throws IOException {
+        GradleModelCache modelCache = GradleModelCache.open(cacheDir, projectRootPath);
+        if (!refresh) {
+            PathResult cached = modelCache.load();
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        PathResult pathResult = GetClassAndSourcePaths(projectRootPath);
+        modelCache.save(pathResult);
+        return pathResult;
+    }
+
     /**
      * Получить пути к исходникам и зависимости проекта
      * @param projectRootPath
@@ -22,8 +52,7 @@ public class GradleConnectorWrapper {
     public static PathResult GetClassAndSourcePaths(Path projectRootPath) {
         File projectDir = new File(projectRootPath.toString());
 
-        List<String> sourcepath = new ArrayList<>();
-        List<String> classpath = new ArrayList<>();
+        List<ModulePaths> modules = new ArrayList<>();
 
         try (ProjectConnection connection = GradleConnector.newConnector()
                 .forProjectDirectory(projectDir)
@@ -31,11 +60,28 @@ public class GradleConnectorWrapper {
 
             IdeaProject project = connection.getModel(IdeaProject.class);
 
+            // Индекс модулей по имени для разрешения межмодульных зависимостей
+            Map<String, IdeaModule> modulesByName = new HashMap<>();
+            for (IdeaModule module : project.getModules()) {
+                modulesByName.putIfAbsent(module.getName(), module);
+            }
+
             for (IdeaModule module : project.getModules()) {
+                // у каждого модуля собственный classpath без библиотек соседних модулей
+                List<String> sourcepath = new ArrayList<>();
+                Set<String> classpath = new LinkedHashSet<>();
+                Set<String> moduleOutputs = new LinkedHashSet<>();
+
+                Set<String> dependencySourcepath = new LinkedHashSet<>();
+
+                // тестовые исходники анализируются вместе с основными
                 for (IdeaContentRoot root : module.getContentRoots()) {
                     for (var src : root.getSourceDirectories()) {
                         sourcepath.add(src.getDirectory().getAbsolutePath());
                     }
+                    for (var src : root.getTestDirectories()) {
+                        sourcepath.add(src.getDirectory().getAbsolutePath());
+                    }
                 }
 
                 for (IdeaDependency dep : module.getDependencies()) {
@@ -50,16 +96,18 @@ public class GradleConnectorWrapper {
                         // зависимость на другой модуль
                         String targetName = ((IdeaModuleDependency) dep).getTargetModuleName();
                         // находим сам модуль по имени
-                        var targetModule = project.getModules()
-                                .stream()
-                                .filter(m -> m.getName().equals(targetName))
-                                .findFirst();
-                        if (targetModule.isPresent()) {
-                            IdeaCompilerOutput out = targetModule.get().getCompilerOutput();
-                            if (out != null) {
-                                File outDir = out.getOutputDir();
-                                if (outDir.exists()) {
-                                    classpath.add(outDir.getAbsolutePath());
+                        IdeaModule targetModule = modulesByName.get(targetName);
+                        if (targetModule != null) {
+                            IdeaCompilerOutput out = targetModule.getCompilerOutput();
+                            File outDir = out != null ? out.getOutputDir() : null;
+                            if (outDir != null && outDir.exists()) {
+                                moduleOutputs.add(outDir.getAbsolutePath());
+                            } else {
+                                // модуль не собран: его типы разрешаются по основным исходникам
+                                for (IdeaContentRoot root : targetModule.getContentRoots()) {
+                                    for (var src : root.getSourceDirectories()) {
+                                        dependencySourcepath.add(src.getDirectory().getAbsolutePath());
+                                    }
                                 }
                             }
                         }
@@ -68,12 +116,20 @@ public class GradleConnectorWrapper {
                         // на будущее: если появятся другие типы
                         System.err.println("Неизвестный тип зависимости: "
                                 + dep.getClass().getSimpleName()
-                                + ", scope=" + ((IdeaDependency) dep).getScope());
+                                + ", scope=" + dep.getScope());
                     }
                 }
+
+                // собственные скомпилированные классы модуля для анализа байт-кода
+                IdeaCompilerOutput compilerOutput = module.getCompilerOutput();
+                File outputDir = compilerOutput != null ? compilerOutput.getOutputDir() : null;
+
+                modules.add(new ModulePaths(module.getName(), sourcepath,
+                        new ArrayList<>(classpath), new ArrayList<>(moduleOutputs),
+                        outputDir != null ? outputDir.getAbsolutePath() : null, new ArrayList<>(dependencySourcepath)));
             }
 
-            return new PathResult(sourcepath, classpath);
+            return new PathResult(modules);
         }
     }
 }
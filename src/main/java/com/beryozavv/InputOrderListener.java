@@ -0,0 +1,170 @@
+package com.beryozavv;
+
+import com.beryozavv.memory.MemoryBudget;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.result.FileDependencies;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Получатель, который передает результаты дальше в исходном порядке файлов. Результаты
+ * остальных файлов должны приходить в исходном порядке, а результаты отложенных файлов
+ * (например, больших, разобранных первыми, или взятых из кэша) могут прийти раньше:
+ * они придерживаются в памяти и передаются, когда очередь доходит до их места.
+ * При заданном бюджете памяти придержанные результаты сверх него выгружаются на диск,
+ * как в {@link SpillingEmitter}. Вызовы не должны пересекаться по времени
+ */
+final class InputOrderListener implements DependencyListener, Closeable {
+
+    // Файлы в исходном порядке
+    private final List<Path> files;
+
+    // Файлы, результаты которых приходят вне очереди
+    private final Set<Path> deferred;
+
+    private final DependencyListener listener;
+
+    // Бюджет памяти, null если результаты держатся в памяти без ограничения
+    private final MemoryBudget budget;
+    private final AnalysisMetrics metrics;
+
+    // Придержанные в памяти результаты и зарезервированный под них объем
+    private final Map<Path, FileDependencies> held = new HashMap<>();
+    private final Map<Path, Long> reserved = new HashMap<>();
+
+    // Выгруженные результаты: положение и длина в файле выгрузки
+    private final Map<Path, long[]> spilled = new HashMap<>();
+    private final SpillFile spillFile = new SpillFile();
+
+    // Следующий файл исходного порядка, до которого еще не дошла очередь
+    private int next;
+
+    /**
+     * @param files    файлы в исходном порядке
+     * @param deferred файлы, результаты которых приходят вне очереди
+     * @param listener получатель результатов в исходном порядке
+     * @param budget   бюджет памяти или null
+     * @param metrics  метрики анализа
+     */
+    InputOrderListener(List<Path> files, Set<Path> deferred, DependencyListener listener, MemoryBudget budget,
+                       AnalysisMetrics metrics) {
+        this.files = files;
+        this.deferred = deferred;
+        this.listener = listener;
+        this.budget = budget;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Придерживает результат файла до его места в исходном порядке
+     *
+     * @param file         путь к Java-файлу
+     * @param dependencies зависимости файла
+     * @throws UncheckedIOException при ошибке записи файла выгрузки
+     */
+    void hold(Path file, FileDependencies dependencies) {
+        if (budget == null) {
+            held.put(file, dependencies);
+            return;
+        }
+        long size = SpillingEmitter.ENTRY_OVERHEAD + dependencies.memorySize();
+        if (budget.reserveResults(size)) {
+            held.put(file, dependencies);
+            reserved.put(file, size);
+        } else {
+            spill(file, dependencies);
+        }
+    }
+
+    @Override
+    public void onFile(Path file, FileDependencies dependencies) {
+        if (deferred.contains(file)) {
+            hold(file, dependencies);
+            return;
+        }
+        while (next < files.size()) {
+            Path passed = files.get(next++);
+            if (passed.equals(file)) break;
+            emitHeld(passed);
+        }
+        listener.onFile(file, dependencies);
+    }
+
+    /**
+     * Передает придержанные результаты, до которых не дошла очередь. Вызывается после разбора
+     */
+    void finish() {
+        while (next < files.size() && (!held.isEmpty() || !spilled.isEmpty())) {
+            emitHeld(files.get(next++));
+        }
+    }
+
+    private void emitHeld(Path file) {
+        FileDependencies dependencies = held.remove(file);
+        if (dependencies != null) {
+            Long size = reserved.remove(file);
+            if (size != null) {
+                budget.releaseResults(size);
+            }
+        } else if (spilled.containsKey(file)) {
+            dependencies = readSpilled(file);
+        }
+        if (dependencies != null) {
+            listener.onFile(file, dependencies);
+        }
+    }
+
+    private void spill(Path file, FileDependencies dependencies) {
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.SPILL);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            dependencies.write(out);
+            out.flush();
+            spilled.put(file, new long[]{spillFile.append(bytes.toByteArray()), bytes.size()});
+            if (metrics.isEnabled()) {
+                metrics.spilledBatch(bytes.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    private FileDependencies readSpilled(Path file) {
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.SPILL);
+        try {
+            long[] position = spilled.remove(file);
+            return FileDependencies.read(new DataInputStream(new ByteArrayInputStream(spillFile.read(position[0], (int) position[1]))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    /**
+     * Освобождает память, зарезервированную под результаты, которые не дошли до получателя
+     * из-за ошибки, и удаляет файл выгрузки
+     *
+     * @throws IOException при ошибке закрытия файла
+     */
+    @Override
+    public void close() throws IOException {
+        for (long size : reserved.values()) {
+            budget.releaseResults(size);
+        }
+        reserved.clear();
+        held.clear();
+        spilled.clear();
+        spillFile.close();
+    }
+}
@@ -1,31 +1,126 @@
 package com.beryozavv;
 
+import com.beryozavv.cache.AnalysisCache;
+import com.beryozavv.classpath.ClasspathIndex;
+import com.beryozavv.classpath.ModuleClasspath;
+import com.beryozavv.classpath.PackageReferenceScanner;
 import com.beryozavv.dependencyExtractorStrategies.*;
+import com.beryozavv.filter.DependencyFilter;
+import com.beryozavv.filter.SymbolFilter;
+import com.beryozavv.ingest.BufferPool;
+import com.beryozavv.ingest.SourcePrefetcher;
+import com.beryozavv.ingest.SourceReader;
+import com.beryozavv.ingest.SourceText;
+import com.beryozavv.memory.MemoryBudget;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.BatchTimer;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.result.AnalysisResult;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+import com.beryozavv.syntactic.*;
 import org.eclipse.jdt.core.dom.*;
 import org.eclipse.jdt.core.JavaCore;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 /**
  * Анализатор зависимостей в Java-файлах
  */
-public class JavaDependencyAnalyzer {
+public class JavaDependencyAnalyzer implements DependencyAnalyzer {
 
-    // Корневой путь проекта для анализа
-    private final Path sourceRoot;
+    // Размер пакета по умолчанию для пакетного разбора
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Количество файлов, читаемых впрок для каждого потока разбора, по умолчанию
+    public static final int DEFAULT_PREFETCH_DEPTH = 16;
+
+    // Корневые каталоги исходников для анализа
+    private final List<Path> sourceRoots;
+
+    // Каталоги исходников несобранных модулей, от которых зависит модуль: только для разрешения типов
+    private final List<Path> dependencySourceRoots;
 
     // Список путей к библиотекам для разрешения зависимостей
     private final List<String> classpath;
 
-    // Результаты анализа: файл -> (строка -> список символов)
-    private final Map<Path, Map<Integer, Set<String>>> usageMap = new HashMap<>();
+    // Таблица символов для полных имен зависимостей
+    private final SymbolTable symbols;
+
+    // Стратегии для извлечения зависимостей по типу узла (ASTNode.getNodeType())
+    private final List<DependencyExtractorStrategy<ASTNode>> extractorStrategies = createStrategyTable();
+
+    // Обходчик AST каждого потока, переиспользуется для всех файлов
+    private final ThreadLocal<DependencyVisitor> visitors;
+
+    // Отбор зависимостей при извлечении, null если сохраняются все
+    private final SymbolFilter filter;
+
+    // Индекс содержимого архивов, общий для модулей
+    private final ClasspathIndex classpathIndex;
+
+    // Classpath модуля с индексом пакетов, null до первого обращения
+    private ModuleClasspath moduleClasspath;
+
+    // Передавать парсеру только архивы с пакетами, на которые ссылаются файлы пакета
+    private final boolean pruneClasspath;
+
+    // Разбор без привязок: имена типов разрешаются по импортам и индексу типов
+    private final boolean syntactic;
+
+    // Стратегии и обходчики AST для разбора без привязок
+    private final List<SyntacticExtractorStrategy<ASTNode>> syntacticStrategies = createSyntacticStrategyTable();
+    private final ThreadLocal<SyntacticDependencyVisitor> syntacticVisitors;
+
+    // Индекс типов для разбора без привязок
+    private final TypeIndex typeIndex;
+
+    // Типы исходников модуля вносятся в общий индекс проекта до анализа
+    private final boolean sharedSourceTypes;
+
+    // Индекс типов заполнен типами classpath и исходников
+    private boolean typeIndexReady;
+
+    // Размер пакета файлов, разбираемых одним ASTParser с общим окружением
+    private final int batchSize;
+
+    // Количество потоков, в которых разбираются пакеты файлов
+    private final int parallelism;
+
+    // Бюджет памяти, общий для модулей, null если память не ограничена
+    private final MemoryBudget memoryBudget;
+
+    // Количество файлов, читаемых впрок для каждого потока разбора, 0 если чтение впрок отключено
+    private final int prefetchDepth;
+
+    // Пул массивов для чтения исходников
+    private final BufferPool bufferPool;
+
+    // Каталог кэша результатов, null если кэш отключен
+    private final Path cacheDir;
+
+    // Ссылки разобранных файлов на типы проекта, null если кэш результатов не пишется
+    private volatile ProjectReferences references;
+
+    // Опции компилятора, вычисляются один раз на анализатор
+    private final Map<String, String> compilerOptions;
+
+    // Метрики этапов анализа, выключены по умолчанию
+    private final AnalysisMetrics metrics;
 
-    // Стратегии для извлечения зависимостей
-    private final Map<Class<? extends ASTNode>, DependencyExtractorStrategy<? extends ASTNode>> extractorStrategies = new HashMap<>();
+    // Попадания и промахи кэша имен привязок по всем пакетам
+    private final LongAdder bindingCacheHits = new LongAdder();
+    private final LongAdder bindingCacheMisses = new LongAdder();
 
     /**
      * Создает анализатор зависимостей на основе Eclipse JDT Core
@@ -34,11 +129,151 @@ public class JavaDependencyAnalyzer {
      * @param classpath  список путей к JAR-файлам для разрешения зависимостей
      */
     public JavaDependencyAnalyzer(Path sourceRoot, List<String> classpath) {
-        this.sourceRoot = sourceRoot;
+        this(sourceRoot, classpath, singleThreaded());
+    }
+
+    /**
+     * Создает анализатор зависимостей на основе Eclipse JDT Core
+     *
+     * @param sourceRoot корневой каталог с исходным кодом Java
+     * @param classpath  список путей к JAR-файлам для разрешения зависимостей
+     * @param options    параметры пакетного и параллельного разбора и кэширования
+     */
+    public JavaDependencyAnalyzer(Path sourceRoot, List<String> classpath, AnalyzerOptions options) {
+        this(List.of(sourceRoot), classpath, options);
+    }
+
+    /**
+     * Создает анализатор зависимостей для нескольких каталогов исходников одного модуля
+     *
+     * @param sourceRoots каталоги с исходным кодом Java
+     * @param classpath   список путей к JAR-файлам и каталогам классов для разрешения зависимостей
+     * @param options     параметры пакетного и параллельного разбора и кэширования
+     */
+    public JavaDependencyAnalyzer(List<Path> sourceRoots, List<String> classpath, AnalyzerOptions options) {
+        this(sourceRoots, classpath, options, new SymbolTable());
+    }
+
+    /**
+     * Создает анализатор зависимостей с общей таблицей символов, например для нескольких модулей проекта
+     *
+     * @param sourceRoots каталоги с исходным кодом Java
+     * @param classpath   список путей к JAR-файлам и каталогам классов для разрешения зависимостей
+     * @param options     параметры пакетного и параллельного разбора и кэширования
+     * @param symbols     таблица символов, в которой регистрируются найденные зависимости
+     */
+    public JavaDependencyAnalyzer(List<Path> sourceRoots, List<String> classpath, AnalyzerOptions options, SymbolTable symbols) {
+        this(sourceRoots, classpath, options, symbols, null);
+    }
+
+    /**
+     * Создает анализатор модуля проекта. При разборе без привязок типы исходников всех модулей
+     * заранее собираются в общий индекс через {@link #indexSourceTypes(TypeIndex)}
+     *
+     * @param sourceRoots  каталоги с исходным кодом Java
+     * @param classpath    список путей к JAR-файлам и каталогам классов для разрешения зависимостей
+     * @param options      параметры пакетного и параллельного разбора и кэширования
+     * @param symbols      таблица символов, в которой регистрируются найденные зависимости
+     * @param projectTypes общий индекс типов исходников проекта или null, если анализатор
+     *                     сам индексирует типы своих исходников
+     */
+    public JavaDependencyAnalyzer(List<Path> sourceRoots, List<String> classpath, AnalyzerOptions options, SymbolTable symbols,
+                                  TypeIndex projectTypes) {
+        this(sourceRoots, classpath, options, symbols, projectTypes, createFilter(options.getDependencyFilter(), sourceRoots, symbols));
+    }
+
+    /**
+     * Создает анализатор модуля проекта с общим для модулей фильтром зависимостей
+     *
+     * @param sourceRoots  каталоги с исходным кодом Java
+     * @param classpath    список путей к JAR-файлам и каталогам классов для разрешения зависимостей
+     * @param options      параметры пакетного и параллельного разбора и кэширования
+     * @param symbols      таблица символов, в которой регистрируются найденные зависимости
+     * @param projectTypes общий индекс типов исходников проекта или null
+     * @param filter       отбор зависимостей при извлечении или null, если сохраняются все
+     */
+    public JavaDependencyAnalyzer(List<Path> sourceRoots, List<String> classpath, AnalyzerOptions options, SymbolTable symbols,
+                                  TypeIndex projectTypes, SymbolFilter filter) {
+        this(sourceRoots, classpath, options, symbols, projectTypes, filter, List.of());
+    }
+
+    /**
+     * Создает анализатор модуля проекта, типы несобранных модулей которого разрешаются по их исходникам
+     *
+     * @param sourceRoots           каталоги с исходным кодом Java
+     * @param classpath             список путей к JAR-файлам и каталогам классов для разрешения зависимостей
+     * @param options               параметры пакетного и параллельного разбора и кэширования
+     * @param symbols               таблица символов, в которой регистрируются найденные зависимости
+     * @param projectTypes          общий индекс типов исходников проекта или null
+     * @param filter                отбор зависимостей при извлечении или null, если сохраняются все
+     * @param dependencySourceRoots каталоги исходников модулей, от которых зависит модуль и которых
+     *                              нет в classpath; файлы из них не анализируются
+     */
+    public JavaDependencyAnalyzer(List<Path> sourceRoots, List<String> classpath, AnalyzerOptions options, SymbolTable symbols,
+                                  TypeIndex projectTypes, SymbolFilter filter, List<Path> dependencySourceRoots) {
+        if (options.getBatchSize() < 1) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным: " + options.getBatchSize());
+        }
+        if (options.getParallelism() < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + options.getParallelism());
+        }
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.dependencySourceRoots = List.copyOf(dependencySourceRoots);
+        this.symbols = symbols;
         this.classpath = classpath;
+        this.batchSize = options.getBatchSize();
+        this.parallelism = options.getParallelism();
+        this.memoryBudget = options.getMemoryBudget();
+        this.prefetchDepth = options.getPrefetchDepth();
+        this.bufferPool = options.getBufferPool();
+        this.cacheDir = options.getCacheDir();
+        this.compilerOptions = createCompilerOptions();
+        this.metrics = options.getMetrics();
+        this.filter = filter;
+        this.visitors = ThreadLocal.withInitial(() -> new DependencyVisitor(extractorStrategies, metrics, filter));
+        this.classpathIndex = options.getClasspathIndex();
+        this.pruneClasspath = options.isPruneClasspath();
+        this.syntactic = options.isSyntactic();
+        this.syntacticVisitors = ThreadLocal.withInitial(() -> new SyntacticDependencyVisitor(syntacticStrategies, metrics, filter));
+        this.typeIndex = new TypeIndex(projectTypes);
+        this.sharedSourceTypes = projectTypes != null;
+    }
 
-        // Инициализация стратегий
-        initializeExtractorStrategies();
+    /**
+     * Создает фильтр зависимостей по правилам запуска; типы проекта определяются
+     * по пакетам указанных каталогов исходников
+     *
+     * @param rules       правила отбора или null
+     * @param sourceRoots каталоги исходников проекта
+     * @param symbols     таблица символов
+     * @return фильтр или null, если сохраняются все зависимости
+     */
+    static SymbolFilter createFilter(DependencyFilter rules, Collection<Path> sourceRoots, SymbolTable symbols) {
+        if (rules == null || rules.isEmpty()) {
+            return null;
+        }
+        if (rules.needsProjectPackages()) {
+            try {
+                rules = rules.withProjectPackages(DependencyFilter.scanPackages(sourceRoots));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new SymbolFilter(rules, symbols);
+    }
+
+    /**
+     * @return количество обращений к кэшу имен привязок, для которых имя уже было вычислено
+     */
+    public long getBindingCacheHits() {
+        return bindingCacheHits.sum();
+    }
+
+    /**
+     * @return количество обращений к кэшу имен привязок, потребовавших вычислить имя
+     */
+    public long getBindingCacheMisses() {
+        return bindingCacheMisses.sum();
     }
 
     /**
@@ -47,208 +282,915 @@ public class JavaDependencyAnalyzer {
      * @return карта зависимостей для каждого файла и строки
      * @throws IOException при ошибке доступа к файлам
      */
+    @Override
     public Map<Path, Map<Integer, Set<String>>> analyze() throws IOException {
-        // Проходим по всем Java-файлам в проекте
-        Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (file.toString().endsWith(".java")) {
-                    analyzeJavaFile(file);
+        return analyzeResult().asMap();
+    }
+
+    /**
+     * Запускает анализ всех Java-файлов в проекте и возвращает результат в компактном виде
+     *
+     * @return зависимости файлов с общей таблицей символов
+     * @throws IOException при ошибке доступа к файлам
+     */
+    @Override
+    public AnalysisResult analyzeResult() throws IOException {
+        // Результаты анализа: файл -> зависимости по строкам в компактном виде
+        Map<Path, FileDependencies> usageMap = new HashMap<>();
+        analyze(usageMap::put);
+        return new AnalysisResult(symbols, usageMap);
+    }
+
+    /**
+     * Запускает анализ всех Java-файлов в проекте и передает результат каждого файла получателю,
+     * не накапливая результаты всего проекта в памяти
+     *
+     * @param listener получатель результатов
+     * @throws IOException при ошибке доступа к файлам
+     */
+    @Override
+    public void analyze(DependencyListener listener) throws IOException {
+        List<Path> javaFiles;
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.FILE_SCAN);
+        try {
+            javaFiles = collectJavaFiles();
+        } finally {
+            phaseTimer.stop();
+        }
+        if (pruneClasspath) {
+            moduleClasspath();
+        }
+        if (syntactic) {
+            prepareTypeIndex(javaFiles);
+        }
+
+        if (cacheDir == null) {
+            analyzeFiles(javaFiles, listener);
+        } else {
+            analyzeIncrementally(javaFiles, listener);
+        }
+    }
+
+    /**
+     * Разбирает только указанные файлы модуля, например измененные с прошлого анализа.
+     * Файлы вне каталогов исходников модуля и удаленные файлы пропускаются, кэш не используется
+     *
+     * @param files    пути к Java-файлам
+     * @param listener получатель результатов
+     * @throws IOException при ошибке анализа
+     */
+    public void analyze(Collection<Path> files, DependencyListener listener) throws IOException {
+        List<Path> javaFiles = new ArrayList<>();
+        for (Path file : files) {
+            if (isSourceFile(file) && Files.isRegularFile(file)) {
+                javaFiles.add(file);
+            }
+        }
+        if (pruneClasspath) {
+            moduleClasspath();
+        }
+        if (syntactic) {
+            if (typeIndexReady) {
+                // Новые типы измененных файлов
+                indexDeclaredTypes(javaFiles, typeIndex);
+            } else {
+                prepareTypeIndex(collectJavaFiles());
+            }
+        }
+        analyzeFiles(javaFiles, listener);
+    }
+
+    /**
+     * Находит элемент classpath модуля, из которого взят тип
+     *
+     * @param qualifiedName полное имя типа
+     * @return путь к архиву или каталогу классов, null если тип не найден в classpath
+     * @throws IOException при ошибке чтения classpath
+     */
+    public String findClasspathEntry(String qualifiedName) throws IOException {
+        return moduleClasspath().findEntry(qualifiedName);
+    }
+
+    /**
+     * Возвращает classpath модуля с индексом пакетов, при первом обращении читает
+     * содержимое архивов (из кэша, если архивы не изменились) и сохраняет кэш
+     *
+     * @return classpath модуля
+     * @throws IOException при ошибке чтения classpath или записи кэша
+     */
+    private synchronized ModuleClasspath moduleClasspath() throws IOException {
+        if (moduleClasspath == null) {
+            PhaseTimer phaseTimer = metrics.startPhase(Phase.TYPE_INDEX);
+            try {
+                moduleClasspath = classpathIndex.forClasspath(classpath);
+                classpathIndex.save();
+            } finally {
+                phaseTimer.stop();
+            }
+        }
+        return moduleClasspath;
+    }
+
+    /**
+     * Добавляет в индекс типы, объявленные в исходниках модуля. Файлы разбираются
+     * без привязок и без тел методов
+     *
+     * @param index индекс типов, например общий для всех модулей проекта
+     * @throws IOException при ошибке доступа к файлам
+     */
+    public void indexSourceTypes(TypeIndex index) throws IOException {
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.TYPE_INDEX);
+        try {
+            indexDeclaredTypes(collectJavaFiles(), index);
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    /**
+     * Заполняет индекс типов перед первым разбором без привязок: типы classpath
+     * и, если нет общего индекса проекта, типы исходников модуля
+     *
+     * @param javaFiles все Java-файлы модуля
+     * @throws IOException при ошибке чтения classpath или исходников
+     */
+    private void prepareTypeIndex(List<Path> javaFiles) throws IOException {
+        if (typeIndexReady) return;
+
+        ModuleClasspath moduleClasspath = moduleClasspath();
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.TYPE_INDEX);
+        try {
+            typeIndex.addClasspath(moduleClasspath);
+            if (!sharedSourceTypes) {
+                indexDeclaredTypes(javaFiles, typeIndex);
+            }
+        } finally {
+            phaseTimer.stop();
+        }
+        typeIndexReady = true;
+    }
+
+    /**
+     * Разбирает объявления типов в файлах пакетами, последовательно или в пуле потоков
+     *
+     * @param javaFiles список Java-файлов
+     * @param index     индекс, в который добавляются типы
+     * @throws IOException при ошибке разбора или прерывании потока
+     */
+    private void indexDeclaredTypes(List<Path> javaFiles, TypeIndex index) throws IOException {
+        if (javaFiles.isEmpty()) return;
+
+        List<List<Path>> batches = splitIntoBatches(javaFiles);
+        if (parallelism == 1 || batches.size() == 1) {
+            for (List<Path> batch : batches) {
+                indexBatch(batch, index);
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (List<Path> batch : batches) {
+            tasks.add(ForkJoinTask.adapt(() -> indexBatch(batch, index)));
+        }
+        BatchExecutor.invokeAll(tasks, parallelism);
+    }
+
+    /**
+     * Проверяет, что файл является Java-файлом из каталогов исходников этого модуля
+     *
+     * @param file путь к файлу
+     * @return true, если файл относится к модулю
+     */
+    public boolean isSourceFile(Path file) {
+        if (!file.toString().endsWith(".java")) {
+            return false;
+        }
+        for (Path sourceRoot : sourceRoots) {
+            if (file.startsWith(sourceRoot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Разбирает файлы пакетами, которые выдает планировщик, последовательно или в пуле потоков.
+     * Результаты передаются получателю в порядке списка файлов при любом количестве потоков
+     *
+     * @param javaFiles список Java-файлов
+     * @param listener  получатель результатов
+     * @throws IOException при ошибке анализа или прерывании потока
+     */
+    private void analyzeFiles(List<Path> javaFiles, DependencyListener listener) throws IOException {
+        if (javaFiles.isEmpty()) return;
+
+        BatchScheduler scheduler = new BatchScheduler(javaFiles, batchSize, parallelism,
+                memoryBudget != null ? memoryBudget.batchSourceLimit(parallelism) : Long.MAX_VALUE, metrics);
+        // Большие файлы разбираются первыми, их результаты ждут своего места в списке
+        try (InputOrderListener ordered = new InputOrderListener(javaFiles, scheduler.getLargeFiles(), listener,
+                memoryBudget, metrics)) {
+            if (scheduler.getWorkerCount() == 1) {
+                for (BatchScheduler.Batch batch = scheduler.next(); batch != null; batch = scheduler.next()) {
+                    emitBatch(batch.files(), scheduler.run(batch, this::analyzeBatch), ordered);
                 }
-                return FileVisitResult.CONTINUE;
+            } else {
+                analyzeInParallel(scheduler, ordered);
             }
-        });
+            ordered.finish();
+        }
+    }
 
-        return usageMap;
+    /**
+     * Передает получателю результаты пакета в порядке файлов пакета
+     *
+     * @param batch    файлы пакета
+     * @param results  зависимости файлов пакета
+     * @param listener получатель результатов
+     */
+    private static void emitBatch(List<Path> batch, Map<Path, FileDependencies> results, DependencyListener listener) {
+        for (Path javaFile : batch) {
+            FileDependencies dependencies = results.get(javaFile);
+            if (dependencies != null) {
+                listener.onFile(javaFile, dependencies);
+            }
+        }
     }
 
     /**
-     * Инициализирует стратегии для извлечения зависимостей
+     * Берет из кэша результаты файлов с неизменным содержимым и разбирает заново новые
+     * и измененные файлы, а также файлы, которые ссылаются на типы измененных или удаленных
+     * файлов или на пакеты добавленных, в том числе в исходниках несобранных модулей
+     * ({@link AnalysisCache#findStale})
+     *
+     * @param javaFiles список Java-файлов
+     * @param listener  получатель результатов
+     * @throws IOException при ошибке чтения файлов или записи кэша
      */
-    private void initializeExtractorStrategies() {
-        extractorStrategies.put(MethodInvocation.class, new MethodInvocationDependencyExtractor());
-        extractorStrategies.put(ClassInstanceCreation.class, new ClassInstanceCreationDependencyExtractor());
-        extractorStrategies.put(SimpleName.class, new SimpleNameDependencyExtractor());
-        extractorStrategies.put(SimpleType.class, new SimpleTypeDependencyExtractor());
-        extractorStrategies.put(TypeLiteral.class, new TypeLiteralDependencyExtractor());
-        extractorStrategies.put(FieldAccess.class, new FieldAccessDependencyExtractor());
-        extractorStrategies.put(QualifiedName.class, new QualifiedNameDependencyExtractor());
-        extractorStrategies.put(InstanceofExpression.class, new InstanceofExpressionDependencyExtractor());
+    private void analyzeIncrementally(List<Path> javaFiles, DependencyListener listener) throws IOException {
+        AnalysisCache cache;
+        Map<String, AnalysisCache.SourceStamp> dependencySources = new HashMap<>();
+        PhaseTimer loadTimer = metrics.startPhase(Phase.CACHE_IO);
+        try {
+            // Результаты разбора без привязок хранятся отдельно от точных, отфильтрованные -
+            // отдельно для каждого набора правил
+            Path resultCacheDir = syntactic ? cacheDir.resolve("syntactic") : cacheDir;
+            if (filter != null) {
+                resultCacheDir = resultCacheDir.resolve("filter-" + filter.fingerprint());
+            }
+            cache = AnalysisCache.load(resultCacheDir, sourceRoots, AnalysisCache.fingerprint(classpath), symbols);
+            for (Path sourceRoot : dependencySourceRoots) {
+                for (Path javaFile : collectJavaFiles(List.of(sourceRoot))) {
+                    BasicFileAttributes attributes = Files.readAttributes(javaFile, BasicFileAttributes.class);
+                    String relativePath = sourceRoot.relativize(javaFile).toString().replace('\\', '/');
+                    dependencySources.put(javaFile.toAbsolutePath().toString(), new AnalysisCache.SourceStamp(
+                            attributes.size(), attributes.lastModifiedTime().toMillis(), AnalysisCache.typeOf(relativePath)));
+                }
+            }
+        } finally {
+            loadTimer.stop();
+        }
+
+        Map<String, byte[]> contentHashes = new HashMap<>();
+        try (SourcePrefetcher<byte[]> hashes = prefetchHashes(javaFiles)) {
+            for (Path javaFile : javaFiles) {
+                PhaseTimer hashTimer = metrics.startPhase(Phase.CACHE_IO);
+                try {
+                    contentHashes.put(cacheKey(javaFile), hashes != null ? hashes.next() : AnalysisCache.hash(javaFile));
+                } finally {
+                    hashTimer.stop();
+                }
+            }
+        }
+        Set<String> stale = cache.findStale(contentHashes, dependencySources);
+
+        // Компактные результаты всех файлов нужны для записи кэша
+        Map<Path, FileDependencies> usageMap = new HashMap<>();
+        List<Path> staleFiles = new ArrayList<>();
+        // Результаты из кэша передаются получателю на своих местах между разобранными файлами.
+        // Кэш держит их в памяти целиком, поэтому выгружать придержанные результаты незачем
+        InputOrderListener ordered = new InputOrderListener(javaFiles, Set.of(), listener, null, metrics);
+        for (Path javaFile : javaFiles) {
+            String key = cacheKey(javaFile);
+            if (stale.contains(key)) {
+                staleFiles.add(javaFile);
+                continue;
+            }
+            FileDependencies cached = cache.get(key).dependencies();
+            if (!cached.isEmpty()) {
+                usageMap.put(javaFile, cached);
+                ordered.hold(javaFile, cached);
+            }
+        }
+
+        // Типы проекта, ссылки на которые хранятся в кэше
+        Set<String> projectTypes = new HashSet<>();
+        for (String key : contentHashes.keySet()) {
+            projectTypes.add(AnalysisCache.typeOf(key));
+        }
+        for (AnalysisCache.SourceStamp stamp : dependencySources.values()) {
+            projectTypes.add(stamp.type());
+        }
+        ProjectReferences projectReferences = new ProjectReferences(symbols, projectTypes);
+        references = projectReferences;
+        try {
+            analyzeFiles(staleFiles, (javaFile, dependencies) -> {
+                usageMap.put(javaFile, dependencies);
+                ordered.onFile(javaFile, dependencies);
+            });
+        } finally {
+            references = null;
+        }
+        ordered.finish();
+
+        // Файлы без зависимостей тоже сохраняются, чтобы не разбирать их повторно
+        Map<String, AnalysisCache.Entry> entries = new HashMap<>();
+        for (Path javaFile : javaFiles) {
+            String key = cacheKey(javaFile);
+            FileDependencies dependencies = usageMap.getOrDefault(javaFile, FileDependencies.EMPTY);
+            String[] referencedTypes = stale.contains(key)
+                    ? projectReferences.get(javaFile)
+                    : cache.get(key).referencedTypes();
+            entries.put(key, new AnalysisCache.Entry(contentHashes.get(key), dependencies, referencedTypes));
+        }
+        PhaseTimer saveTimer = metrics.startPhase(Phase.CACHE_IO);
+        try {
+            cache.replaceAll(entries, dependencySources);
+            cache.save();
+        } finally {
+            saveTimer.stop();
+        }
     }
 
     /**
-     * Анализирует один Java-файл и собирает информацию о зависимостях
+     * Возвращает ключ файла в кэше: номер каталога исходников и путь относительно него
      *
      * @param javaFile путь к Java-файлу
-     * @throws IOException при ошибке чтения файла
+     * @return ключ кэша
      */
-    private void analyzeJavaFile(Path javaFile) throws IOException {
-        CompilationUnit cu = parseJavaFile(javaFile);
+    private String cacheKey(Path javaFile) {
+        for (int i = 0; i < sourceRoots.size(); i++) {
+            Path sourceRoot = sourceRoots.get(i);
+            if (javaFile.startsWith(sourceRoot)) {
+                return i + ":" + sourceRoot.relativize(javaFile).toString().replace('\\', '/');
+            }
+        }
+        return javaFile.toAbsolutePath().toString();
+    }
 
-        // Создаем карту для хранения зависимостей по строкам в этом файле
-        Map<Integer, Set<String>> lineDepMap = new HashMap<>();
+    /**
+     * Разбивает файлы на пакеты для индексации объявлений. При параллельном разборе пакеты
+     * уменьшаются так, чтобы работы хватило на все потоки
+     *
+     * @param javaFiles список Java-файлов
+     * @return пакеты файлов в порядке списка
+     */
+    private List<List<Path>> splitIntoBatches(List<Path> javaFiles) {
+        int filesPerThread = (javaFiles.size() + parallelism - 1) / parallelism;
+        int unitSize = Math.max(1, Math.min(batchSize, filesPerThread));
 
-        runVisitor(cu, lineDepMap);
+        List<List<Path>> batches = new ArrayList<>();
+        for (int from = 0; from < javaFiles.size(); from += unitSize) {
+            int to = Math.min(from + unitSize, javaFiles.size());
+            batches.add(javaFiles.subList(from, to));
+        }
+        return batches;
+    }
 
-        // Если в файле найдены зависимости, добавляем их в общую карту
-        if (!lineDepMap.isEmpty()) {
-            usageMap.put(javaFile, lineDepMap);
+    /**
+     * @return размер файла, байт, или 0, если его не удалось получить
+     */
+    private static long sourceSize(Path javaFile) {
+        try {
+            return Files.size(javaFile);
+        } catch (IOException e) {
+            return 0;
         }
     }
 
     /**
-     * Создает ASTVisitor и подписывается на события
+     * Разбирает пакеты в пуле ForkJoin. Каждый поток забирает у планировщика следующий пакет,
+     * как только закончит предыдущий, и собирает его зависимости в собственную карту; готовые
+     * пакеты передаются получателю строго в порядке выдачи, поэтому результат не зависит
+     * от порядка завершения задач. Если анализ уже выполняется внутри пула (например,
+     * при анализе нескольких модулей), пакеты разбираются в том же пуле
      *
-     * @param cu
-     * @param lineDepMap
+     * @param scheduler планировщик пакетов
+     * @param listener  получатель результатов
+     * @throws IOException при ошибке анализа или прерывании потока
      */
-    private void runVisitor(CompilationUnit cu, Map<Integer, Set<String>> lineDepMap) {
-        // Запускаем посетителя для обхода AST
-        cu.accept(new ASTVisitor() {
+    private void analyzeInParallel(BatchScheduler scheduler, DependencyListener listener) throws IOException {
+        if (memoryBudget != null) {
+            analyzeWithinBudget(scheduler, listener);
+            return;
+        }
+        BatchExecutor.OrderedEmitter<Map<Path, FileDependencies>> emitter = new BatchExecutor.OrderedEmitter<>(
+                scheduler.getMinBatchCount(), (results, index) -> results.forEach(listener::onFile));
+        runWorkers(scheduler, (batch, results) -> emitter.complete(batch.index(), results));
+    }
 
-            // Посещаем выражения с вызовом методов
-            @Override
-            public boolean visit(MethodInvocation node) {
-                handleNode(node, lineDepMap);
-                return true;
-            }
+    /**
+     * Разбирает пакеты в пуле ForkJoin в пределах бюджета памяти: пакеты, готовые раньше
+     * предыдущих, ждут очереди в памяти, пока хватает бюджета, а затем выгружаются на диск
+     *
+     * @param scheduler планировщик пакетов
+     * @param listener  получатель результатов
+     * @throws IOException при ошибке анализа, выгрузки результатов или прерывании потока
+     */
+    private void analyzeWithinBudget(BatchScheduler scheduler, DependencyListener listener) throws IOException {
+        try (SpillingEmitter emitter = new SpillingEmitter(scheduler.getMinBatchCount(), memoryBudget, metrics, listener)) {
+            runWorkers(scheduler, (batch, results) -> emitter.complete(batch.index(), results));
+        }
+    }
 
-            // Посещаем выражения создания объектов
-            @Override
-            public boolean visit(ClassInstanceCreation node) {
-                handleNode(node, lineDepMap);
-                return true;
+    /**
+     * Запускает потоки, которые разбирают пакеты планировщика, пока они не закончатся
+     *
+     * @param scheduler планировщик пакетов
+     * @param completed получатель результатов пакета, упорядоченных по файлам пакета
+     * @throws IOException при ошибке анализа или прерывании потока
+     */
+    private void runWorkers(BatchScheduler scheduler,
+                            BiConsumer<BatchScheduler.Batch, Map<Path, FileDependencies>> completed) throws IOException {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < scheduler.getWorkerCount(); i++) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                for (BatchScheduler.Batch batch = scheduler.next(); batch != null; batch = scheduler.next()) {
+                    completed.accept(batch, inBatchOrder(batch.files(), scheduler.run(batch, this::analyzeBatch)));
+                }
+            }));
+        }
+        BatchExecutor.invokeAll(tasks, parallelism);
+    }
+
+    /**
+     * Упорядочивает результаты пакета по файлам пакета
+     *
+     * @param batch   файлы пакета
+     * @param results зависимости файлов пакета
+     * @return зависимости в порядке файлов пакета
+     */
+    private static Map<Path, FileDependencies> inBatchOrder(List<Path> batch, Map<Path, FileDependencies> results) {
+        Map<Path, FileDependencies> ordered = new LinkedHashMap<>(results.size() * 2);
+        for (Path javaFile : batch) {
+            FileDependencies dependencies = results.get(javaFile);
+            if (dependencies != null) {
+                ordered.put(javaFile, dependencies);
             }
+        }
+        return ordered;
+    }
 
-            // Посещаем выражения с именами (переменные, поля и т.д.)
-            @Override
-            public boolean visit(SimpleName node) {
-                handleNode(node, lineDepMap);
-                return true;
+    /**
+     * Собирает все Java-файлы в проекте
+     *
+     * @return список путей к Java-файлам в каноническом порядке
+     * @throws IOException при ошибке доступа к файлам
+     */
+    private List<Path> collectJavaFiles() throws IOException {
+        return collectJavaFiles(sourceRoots);
+    }
+
+    /**
+     * Собирает все Java-файлы в каталогах в каноническом порядке: по порядку каталогов исходников,
+     * внутри каталога - по относительному пути каталога файла, затем по имени файла. Порядок
+     * не зависит от файловой системы и количества потоков, в нем выводятся результаты анализа
+     * и объединяются результаты частей проекта
+     *
+     * @param roots каталоги исходников
+     * @return список путей к Java-файлам
+     * @throws IOException при ошибке доступа к файлам
+     */
+    public static List<Path> collectJavaFiles(List<Path> roots) throws IOException {
+        List<Path> javaFiles = new ArrayList<>();
+        for (Path sourceRoot : roots) {
+            // Gradle сообщает и каталоги, которые еще не созданы
+            if (!Files.isDirectory(sourceRoot)) continue;
+
+            List<SourceFile> rootFiles = new ArrayList<>();
+            Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.toString().endsWith(".java")) {
+                        String directory = sourceRoot.relativize(file.getParent()).toString().replace('\\', '/');
+                        rootFiles.add(new SourceFile(directory, file.getFileName().toString(), file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            // Сначала каталог, затем имя: файлы пакета Java не разделяются файлами вложенных пакетов
+            rootFiles.sort(Comparator.comparing(SourceFile::directory).thenComparing(SourceFile::name));
+            for (SourceFile sourceFile : rootFiles) {
+                javaFiles.add(sourceFile.path());
             }
+        }
+        return javaFiles;
+    }
 
-            // Посещаем простые типы (в объявлениях переменных, параметрах и т.д.)
-            @Override
-            public boolean visit(SimpleType node) {
-                handleNode(node, lineDepMap);
-                return true;
+    /**
+     * Java-файл с ключом канонического порядка
+     */
+    private record SourceFile(String directory, String name, Path path) {
+    }
+
+    /**
+     * Разбирает пакет Java-файлов одним ASTParser и собирает информацию о зависимостях.
+     * Все файлы пакета используют общее окружение имен и кэш привязок JDT
+     *
+     * @param javaFiles пути к Java-файлам пакета
+     * @return зависимости файлов пакета
+     */
+    private Map<Path, FileDependencies> analyzeBatch(List<Path> javaFiles) {
+        // Сопоставляем путь, переданный парсеру, с исходным путем файла
+        Map<String, Path> filesByPath = new HashMap<>();
+        String[] sourceFilePaths = new String[javaFiles.size()];
+        String[] encodings = new String[javaFiles.size()];
+        for (int i = 0; i < javaFiles.size(); i++) {
+            Path javaFile = javaFiles.get(i);
+            sourceFilePaths[i] = javaFile.toAbsolutePath().toString();
+            encodings[i] = StandardCharsets.UTF_8.name();
+            filesByPath.put(sourceFilePaths[i], javaFile);
+        }
+
+        Map<Path, FileDependencies> batchUsages = new HashMap<>();
+        if (syntactic) {
+            BatchTimer timer = metrics.startBatch();
+            TypeNameResolver resolver = new TypeNameResolver(typeIndex, symbols);
+            if (prefetchDepth > 0) {
+                parseEach(javaFiles, false, (javaFile, cu) -> {
+                    timer.extractStarted();
+                    collectSyntacticDependencies(javaFile, cu, resolver, batchUsages);
+                    timer.extractFinished();
+                });
+                timer.finish(javaFiles.size(), 0, 0);
+                return batchUsages;
             }
+            createSyntacticParser(false).createASTs(sourceFilePaths, encodings, new String[0], new FileASTRequestor() {
+                @Override
+                public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+                    timer.extractStarted();
+                    collectSyntacticDependencies(filesByPath.get(sourceFilePath), cu, resolver, batchUsages);
+                    timer.extractFinished();
+                }
+            }, null);
+            timer.finish(javaFiles.size(), 0, 0);
+            return batchUsages;
+        }
 
-            // Посещаем ссылки на типы (Type References)
-            @Override
-            public boolean visit(TypeLiteral node) {
-                handleNode(node, lineDepMap);
-                return true;
+        // Окружение JDT с привязками освобождается после разбора пакета, до того же момента
+        // пакет занимает место в бюджете памяти. JDT читает файлы пакета сам и по одному,
+        // поэтому файлы только прогреваются впрок, чтобы JDT не ждал диска
+        MemoryBudget.ParsePermit permit = acquireParsePermit(javaFiles);
+        try {
+            SourcePrefetcher<Void> warming = prefetchDepth > 0 ? SourcePrefetcher.warm(javaFiles, prefetchDepth, bufferPool) : null;
+            try {
+                // Привязки общие для всех файлов пакета, поэтому и кэш их имен живет один пакет
+                BindingNameCache names = new BindingNameCache(symbols);
+                BatchTimer timer = metrics.startBatch();
+                String[] classpathEntries = pruneClasspath ? prunedClasspath(javaFiles) : classpath.toArray(String[]::new);
+                Set<String> accepted = new HashSet<>();
+                parseWithBindings(sourceFilePaths, classpathEntries, filesByPath, names, timer, batchUsages, accepted);
+                if (accepted.size() < javaFiles.size()) {
+                    parseRemaining(sourceFilePaths, filesByPath, names, timer, batchUsages, accepted);
+                }
+                timer.finish(javaFiles.size(), names.getHits(), names.getMisses());
+                bindingCacheHits.add(names.getHits());
+                bindingCacheMisses.add(names.getMisses());
+            } finally {
+                if (warming != null) {
+                    warming.close();
+                }
+            }
+        } finally {
+            if (permit != null) {
+                permit.close();
             }
+        }
+        return batchUsages;
+    }
 
-            // Посещаем выражения доступа к полям
-            @Override
-            public boolean visit(FieldAccess node) {
-                handleNode(node, lineDepMap);
-                return true;
+    /**
+     * Запускает вычисление хэшей содержимого впрок. Хэши всех файлов нужны до разбора,
+     * поэтому глубина чтения впрок умножается на количество потоков
+     *
+     * @param javaFiles список Java-файлов
+     * @return хэши в порядке файлов или null, если чтение впрок отключено
+     */
+    private SourcePrefetcher<byte[]> prefetchHashes(List<Path> javaFiles) {
+        if (prefetchDepth == 0) {
+            return null;
+        }
+        return new SourcePrefetcher<>(javaFiles, prefetchDepth * parallelism, AnalysisCache::hash, hash -> {
+        });
+    }
+
+    /**
+     * Ждет места в бюджете памяти для разбора пакета с привязками
+     *
+     * @param javaFiles файлы пакета
+     * @return разрешение на разбор или null, если память не ограничена
+     */
+    private MemoryBudget.ParsePermit acquireParsePermit(List<Path> javaFiles) {
+        if (memoryBudget == null) {
+            return null;
+        }
+        long sourceBytes = 0;
+        for (Path javaFile : javaFiles) {
+            sourceBytes += sourceSize(javaFile);
+        }
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.MEMORY_WAIT);
+        try {
+            return memoryBudget.acquireParse(sourceBytes);
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    /**
+     * Разбирает файлы пакета, оставшиеся без AST. JDT прерывает разбор всего пакета на файле,
+     * для которого не может построить окружение, например если в classpath нет типа из иерархии
+     * его классов, и файлы после него не передаются получателю. Оставшиеся файлы разбираются
+     * заново с полным classpath; если повторный разбор не дал ни одного AST, первый из них
+     * разбирается отдельно, а файл, который не удалось разобрать и так, пропускается с сообщением
+     *
+     * @param sourceFilePaths пути файлов пакета в порядке разбора
+     * @param accepted        пути файлов, для которых JDT уже построил AST, пополняется
+     */
+    private void parseRemaining(String[] sourceFilePaths, Map<String, Path> filesByPath, BindingNameCache names,
+                                BatchTimer timer, Map<Path, FileDependencies> batchUsages, Set<String> accepted) {
+        String[] fullClasspath = classpath.toArray(String[]::new);
+        List<String> remaining = new ArrayList<>();
+        for (String sourceFilePath : sourceFilePaths) {
+            if (!accepted.contains(sourceFilePath)) {
+                remaining.add(sourceFilePath);
+            }
+        }
+        while (!remaining.isEmpty()) {
+            int acceptedBefore = accepted.size();
+            parseWithBindings(remaining.toArray(String[]::new), fullClasspath, filesByPath, names, timer, batchUsages, accepted);
+            if (accepted.size() == acceptedBefore) {
+                String first = remaining.get(0);
+                parseWithBindings(new String[]{first}, fullClasspath, filesByPath, names, timer, batchUsages, accepted);
+                if (!accepted.contains(first)) {
+                    System.err.println("Не удалось разобрать " + filesByPath.get(first) + ": JDT прервал разбор файла, файл пропущен");
+                    metrics.skippedFile();
+                    remaining.remove(0);
+                }
             }
+            remaining.removeIf(accepted::contains);
+        }
+    }
 
-            // Посещаем выражения с доступом к статическим членам класса
+    /**
+     * Разбирает файлы с привязками и собирает их зависимости
+     *
+     * @param sourceFilePaths пути файлов
+     * @param accepted        пути файлов, для которых JDT построил AST, пополняется
+     */
+    private void parseWithBindings(String[] sourceFilePaths, String[] classpathEntries, Map<String, Path> filesByPath,
+                                   BindingNameCache names, BatchTimer timer, Map<Path, FileDependencies> batchUsages,
+                                   Set<String> accepted) {
+        String[] encodings = new String[sourceFilePaths.length];
+        Arrays.fill(encodings, StandardCharsets.UTF_8.name());
+        createParser(classpathEntries).createASTs(sourceFilePaths, encodings, new String[0], new FileASTRequestor() {
             @Override
-            public boolean visit(QualifiedName node) {
-                handleNode(node, lineDepMap);
-                return true;
+            public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+                accepted.add(sourceFilePath);
+                timer.extractStarted();
+                collectDependencies(filesByPath.get(sourceFilePath), cu, names, batchUsages);
+                timer.extractFinished();
             }
+        }, null);
+    }
 
-            // Посещаем выражения с оператором instanceof
+    /**
+     * Разбирает объявления типов пакета файлов без привязок и тел методов
+     *
+     * @param javaFiles пути к Java-файлам пакета
+     * @param index     индекс, в который добавляются типы
+     */
+    private void indexBatch(List<Path> javaFiles, TypeIndex index) {
+        if (prefetchDepth > 0) {
+            parseEach(javaFiles, true, (javaFile, cu) -> TypeNameResolver.addDeclaredTypes(cu, index));
+            return;
+        }
+        String[] sourceFilePaths = new String[javaFiles.size()];
+        String[] encodings = new String[javaFiles.size()];
+        for (int i = 0; i < javaFiles.size(); i++) {
+            sourceFilePaths[i] = javaFiles.get(i).toAbsolutePath().toString();
+            encodings[i] = StandardCharsets.UTF_8.name();
+        }
+        createSyntacticParser(true).createASTs(sourceFilePaths, encodings, new String[0], new FileASTRequestor() {
             @Override
-            public boolean visit(InstanceofExpression node) {
-                handleNode(node, lineDepMap);
-                return true;
+            public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+                TypeNameResolver.addDeclaredTypes(cu, index);
             }
-        });
+        }, null);
     }
 
     /**
-     * Создает ASTParser, конфигурирует его и получает (CompilationUnit) ASTNode
+     * Разбирает файлы без привязок по одному из текстов, прочитанных впрок. Пока разбирается
+     * файл, следующие файлы уже читаются. Файл, который не удалось прочитать, пропускается
      *
-     * @param javaFile
-     * @return
-     * @throws IOException
+     * @param javaFiles        пути к Java-файлам
+     * @param declarationsOnly пропускать тела методов
+     * @param requestor        получатель AST; AST нельзя использовать после возврата из него,
+     *                         так как массив с текстом файла возвращается в пул
      */
-    private CompilationUnit parseJavaFile(Path javaFile) throws IOException {
-        // Читаем содержимое файла
-        String source = Files.readString(javaFile, StandardCharsets.UTF_8);
+    private void parseEach(List<Path> javaFiles, boolean declarationsOnly, BiConsumer<Path, CompilationUnit> requestor) {
+        try (SourcePrefetcher<SourceText> sources = new SourcePrefetcher<>(javaFiles, prefetchDepth,
+                javaFile -> SourceReader.read(javaFile, bufferPool), SourceText::close)) {
+            for (Path javaFile : javaFiles) {
+                try (SourceText source = sources.next()) {
+                    ASTParser parser = createSyntacticParser(declarationsOnly);
+                    parser.setSource(source.getChars());
+                    requestor.accept(javaFile, (CompilationUnit) parser.createAST(null));
+                } catch (IOException e) {
+                    System.err.println("Не удалось прочитать " + javaFile + ": " + e.getMessage());
+                }
+            }
+        }
+    }
 
-        // Создаем и настраиваем парсер AST
-        ASTParser parser = ASTParser.newParser(AST.JLS21);
-        parser.setSource(source.toCharArray());
-        parser.setResolveBindings(true);
-        parser.setBindingsRecovery(true);
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+    /**
+     * Создает таблицу стратегий для извлечения зависимостей, индексированную типом узла
+     *
+     * @return таблица стратегий, null для узлов без стратегии
+     */
+    @SuppressWarnings("unchecked")
+    private static List<DependencyExtractorStrategy<ASTNode>> createStrategyTable() {
+        Map<Integer, DependencyExtractorStrategy<?>> strategies = new HashMap<>();
+        strategies.put(ASTNode.METHOD_INVOCATION, new MethodInvocationDependencyExtractor());
+        strategies.put(ASTNode.CLASS_INSTANCE_CREATION, new ClassInstanceCreationDependencyExtractor());
+        strategies.put(ASTNode.SIMPLE_NAME, new SimpleNameDependencyExtractor());
+        strategies.put(ASTNode.SIMPLE_TYPE, new SimpleTypeDependencyExtractor());
+        strategies.put(ASTNode.TYPE_LITERAL, new TypeLiteralDependencyExtractor());
+        strategies.put(ASTNode.FIELD_ACCESS, new FieldAccessDependencyExtractor());
+        strategies.put(ASTNode.QUALIFIED_NAME, new QualifiedNameDependencyExtractor());
+        strategies.put(ASTNode.INSTANCEOF_EXPRESSION, new InstanceofExpressionDependencyExtractor());
 
-        // Устанавливаем опции компилятора
-        Map<String, String> options = JavaCore.getOptions();
-        JavaCore.setComplianceOptions(JavaCore.VERSION_21, options);
-        parser.setCompilerOptions(options);
+        List<DependencyExtractorStrategy<ASTNode>> table = new ArrayList<>(Collections.nCopies(Collections.max(strategies.keySet()) + 1, null));
+        strategies.forEach((nodeType, strategy) -> table.set(nodeType, (DependencyExtractorStrategy<ASTNode>) strategy));
+        return table;
+    }
 
-        // Устанавливаем classpath для разрешения зависимостей
-        if (!classpath.isEmpty()) {
-            String[] classpathEntries = classpath.toArray(String[]::new);
-            parser.setEnvironment(classpathEntries, new String[]{sourceRoot.toString()}, null, true);
-        }
-        parser.setUnitName("Example.java");
+    /**
+     * Создает таблицу стратегий для разбора без привязок. Типы в создании объектов, литералах
+     * типов и instanceof являются узлами SimpleType и отдельных стратегий не требуют, а для
+     * доступа к полю через выражение без привязок тип неизвестен
+     *
+     * @return таблица стратегий, null для узлов без стратегии
+     */
+    @SuppressWarnings("unchecked")
+    private static List<SyntacticExtractorStrategy<ASTNode>> createSyntacticStrategyTable() {
+        Map<Integer, SyntacticExtractorStrategy<?>> strategies = new HashMap<>();
+        strategies.put(ASTNode.SIMPLE_TYPE, new SimpleTypeSyntacticExtractor());
+        strategies.put(ASTNode.NAME_QUALIFIED_TYPE, new NameQualifiedTypeSyntacticExtractor());
+        strategies.put(ASTNode.SIMPLE_NAME, new SimpleNameSyntacticExtractor());
+        strategies.put(ASTNode.QUALIFIED_NAME, new QualifiedNameSyntacticExtractor());
+        strategies.put(ASTNode.IMPORT_DECLARATION, new ImportDeclarationSyntacticExtractor());
 
-        // Получаем единицу компиляции (CompilationUnit)
-        CompilationUnit cu = (CompilationUnit) parser.createAST(null);
-        return cu;
+        List<SyntacticExtractorStrategy<ASTNode>> table = new ArrayList<>(Collections.nCopies(Collections.max(strategies.keySet()) + 1, null));
+        strategies.forEach((nodeType, strategy) -> table.set(nodeType, (SyntacticExtractorStrategy<ASTNode>) strategy));
+        return table;
     }
 
     /**
-     * Обрабатывает узел AST и извлекает информацию о зависимостях
+     * Извлекает зависимости из файла, разобранного с привязками вызывающим кодом, например
+     * чтобы замерить извлечение отдельно от разбора. Файл обходится так же, как при анализе
      *
-     * @param node       узел AST для анализа
-     * @param lineDepMap карта для сохранения зависимостей по строкам
+     * @param cu    единица компиляции с привязками
+     * @param names кэш имен привязок пакета, в котором разобран файл, с таблицей символов анализатора
+     * @return зависимости файла по строкам, пустые если зависимостей нет
      */
-    private void handleNode(ASTNode node, Map<Integer, Set<String>> lineDepMap) {
-        int lineNumber = getLineNumber(node);
-        if (lineNumber == -1) return;
+    public FileDependencies extract(CompilationUnit cu, BindingNameCache names) {
+        return visitors.get().collect(cu, names);
+    }
 
-        // Список для хранения FQN (полных имен классов) в этом узле
-        List<String> dependencies = new ArrayList<>();
+    /**
+     * Обходит разобранный файл и сохраняет найденные зависимости
+     *
+     * @param javaFile путь к Java-файлу
+     * @param cu       единица компиляции этого файла
+     * @param names    кэш имен привязок пакета
+     * @param usages   карта, в которую добавляются зависимости файла
+     */
+    private void collectDependencies(Path javaFile, CompilationUnit cu, BindingNameCache names, Map<Path, FileDependencies> usages) {
+        DependencyVisitor visitor = visitors.get();
+        FileDependencies dependencies = visitor.collect(cu, names);
+        addDependencies(javaFile, dependencies, usages);
+        ProjectReferences projectReferences = references;
+        if (projectReferences != null) {
+            projectReferences.record(javaFile, cu, dependencies, visitor.rejectedSymbols());
+        }
+    }
 
-        // Определяем тип узла и применяем соответствующую стратегию
-        try {
-            applyExtractorStrategy(node, dependencies);
-        } catch (Exception e) {
-            // Игнорируем ошибки при попытке получить информацию о зависимостях
-            System.err.println("Ошибка при обработке узла " + node + " в строке " + lineNumber + ": " + e.getMessage());
+    /**
+     * Обходит файл, разобранный без привязок, и сохраняет найденные зависимости
+     *
+     * @param javaFile путь к Java-файлу
+     * @param cu       единица компиляции этого файла
+     * @param resolver разрешение имен пакета
+     * @param usages   карта, в которую добавляются зависимости файла
+     */
+    private void collectSyntacticDependencies(Path javaFile, CompilationUnit cu, TypeNameResolver resolver,
+                                              Map<Path, FileDependencies> usages) {
+        SyntacticDependencyVisitor visitor = syntacticVisitors.get();
+        FileDependencies dependencies = visitor.collect(cu, resolver);
+        addDependencies(javaFile, dependencies, usages);
+        ProjectReferences projectReferences = references;
+        if (projectReferences != null) {
+            projectReferences.record(javaFile, cu, dependencies, visitor.rejectedSymbols());
         }
+    }
 
-        // Если найдены зависимости, добавляем их в карту
+    /**
+     * Добавляет зависимости файла в карту пакета, если они найдены
+     *
+     * @param javaFile     путь к Java-файлу
+     * @param dependencies зависимости файла
+     * @param usages       карта зависимостей пакета
+     */
+    private static void addDependencies(Path javaFile, FileDependencies dependencies, Map<Path, FileDependencies> usages) {
         if (!dependencies.isEmpty()) {
-            lineDepMap.computeIfAbsent(lineNumber, k -> new HashSet<>())
-                    .addAll(dependencies);
+            usages.put(javaFile, dependencies);
         }
     }
 
     /**
-     * Применяет соответствующую стратегию для извлечения зависимостей из узла AST
+     * Оставляет в classpath архивы с пакетами, на которые ссылаются файлы пакета.
+     * Если файл не удалось прочитать, используется весь classpath
      *
-     * @param node         узел AST для анализа
-     * @param dependencies список для сохранения найденных зависимостей
+     * @param javaFiles файлы пакета
+     * @return элементы classpath для парсера
      */
-    @SuppressWarnings("unchecked")
-    private <T extends ASTNode> void applyExtractorStrategy(T node, List<String> dependencies) {
-        Class<? extends ASTNode> nodeClass = node.getClass();
-        DependencyExtractorStrategy<T> strategy = (DependencyExtractorStrategy<T>) extractorStrategies.get(nodeClass);
-        strategy.extractDependencies(node, dependencies);
+    private String[] prunedClasspath(List<Path> javaFiles) {
+        Set<String> packages = new HashSet<>();
+        try {
+            for (Path javaFile : javaFiles) {
+                PackageReferenceScanner.scan(javaFile, moduleClasspath, packages);
+            }
+        } catch (IOException e) {
+            return classpath.toArray(String[]::new);
+        }
+        return moduleClasspath.prune(packages);
+    }
+
+    /**
+     * Создает и настраивает ASTParser с разрешением привязок и окружением проекта
+     *
+     * @param classpathEntries элементы classpath для разрешения привязок
+     * @return настроенный парсер
+     */
+    private ASTParser createParser(String[] classpathEntries) {
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(new HashMap<>(compilerOptions));
+
+        // JDT отклоняет окружение с несуществующими каталогами исходников
+        String[] sourcepathEntries = Stream.concat(sourceRoots.stream(), dependencySourceRoots.stream())
+                .filter(Files::isDirectory)
+                .map(Path::toString)
+                .toArray(String[]::new);
+        parser.setEnvironment(classpathEntries, sourcepathEntries, null, true);
+        return parser;
+    }
+
+    /**
+     * Создает ASTParser без разрешения привязок: окружение проекта не нужно,
+     * JDT только строит синтаксическое дерево
+     *
+     * @param declarationsOnly пропускать тела методов, если нужны только объявления типов
+     * @return настроенный парсер
+     */
+    private ASTParser createSyntacticParser(boolean declarationsOnly) {
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setResolveBindings(false);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(new HashMap<>(compilerOptions));
+        parser.setIgnoreMethodBodies(declarationsOnly);
+        return parser;
     }
 
     /**
-     * Получает номер строки для узла AST
+     * Создает параметры для последовательного анализа
      *
-     * @param node узел AST
-     * @return номер строки или -1, если информация недоступна
+     * @return параметры с одним потоком и размером пакета по умолчанию
      */
-    private int getLineNumber(ASTNode node) {
-        CompilationUnit cu = (CompilationUnit) node.getRoot();
-        return cu.getLineNumber(node.getStartPosition());
+    private static AnalyzerOptions singleThreaded() {
+        AnalyzerOptions options = new AnalyzerOptions();
+        options.setParallelism(1);
+        return options;
     }
 
+    /**
+     * Создает опции компилятора для Java 21
+     *
+     * @return опции компилятора
+     */
+    private static Map<String, String> createCompilerOptions() {
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.VERSION_21, options);
+        return options;
+    }
 }
@@ -0,0 +1,81 @@
+package com.beryozavv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пути одного модуля проекта: исходники, библиотеки, выходные каталоги модулей, от которых он зависит,
+ * собственный выходной каталог классов и исходники несобранных модулей, от которых он зависит
+ */
+public class ModulePaths {
+    private final String name;
+    private final List<String> sourcePath;
+    private final List<String> classPath;
+    private final List<String> moduleOutputPath;
+    private final String outputPath;
+    private final List<String> dependencySourcePath;
+
+    public ModulePaths(String name, List<String> sourcePath, List<String> classPath, List<String> moduleOutputPath) {
+        this(name, sourcePath, classPath, moduleOutputPath, null);
+    }
+
+    /**
+     * @param outputPath каталог скомпилированных классов модуля или null, если он неизвестен
+     */
+    public ModulePaths(String name, List<String> sourcePath, List<String> classPath, List<String> moduleOutputPath,
+                       String outputPath) {
+        this(name, sourcePath, classPath, moduleOutputPath, outputPath, List.of());
+    }
+
+    /**
+     * @param outputPath           каталог скомпилированных классов модуля или null, если он неизвестен
+     * @param dependencySourcePath каталоги исходников модулей, от которых зависит модуль, но которые
+     *                             еще не собраны: типы этих модулей разрешаются по исходникам
+     */
+    public ModulePaths(String name, List<String> sourcePath, List<String> classPath, List<String> moduleOutputPath,
+                       String outputPath, List<String> dependencySourcePath) {
+        this.name = name;
+        this.sourcePath = sourcePath;
+        this.classPath = classPath;
+        this.moduleOutputPath = moduleOutputPath;
+        this.outputPath = outputPath;
+        this.dependencySourcePath = dependencySourcePath;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getSourcePath() {
+        return sourcePath;
+    }
+
+    public List<String> getClassPath() {
+        return classPath;
+    }
+
+    public List<String> getModuleOutputPath() {
+        return moduleOutputPath;
+    }
+
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    public List<String> getDependencySourcePath() {
+        return dependencySourcePath;
+    }
+
+    /**
+     * Возвращает classpath для разрешения зависимостей модуля: его библиотеки
+     * и выходные каталоги модулей, от которых он зависит
+     *
+     * @return список путей
+     */
+    public List<String> getResolutionClassPath() {
+        List<String> result = new ArrayList<>(classPath.size() + moduleOutputPath.size());
+        result.addAll(classPath);
+        result.addAll(moduleOutputPath);
+        return result;
+    }
+}
@@ -1,14 +1,35 @@
 package com.beryozavv;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PathResult {
+    // Имя модуля, если пути заданы без разбиения на модули
+    public static final String DEFAULT_MODULE_NAME = "main";
+
     private final List<String> sourcePath;
     private final List<String> classPath;
+    private final List<ModulePaths> modules;
 
     public PathResult(List<String> sourcePath, List<String> classPath) {
         this.sourcePath = sourcePath;
         this.classPath = classPath;
+        this.modules = List.of(new ModulePaths(DEFAULT_MODULE_NAME, sourcePath, classPath, List.of()));
+    }
+
+    public PathResult(List<ModulePaths> modules) {
+        // Общие списки путей сохраняются для совместимости с прежними вызовами
+        Set<String> allSources = new LinkedHashSet<>();
+        Set<String> allClasses = new LinkedHashSet<>();
+        for (ModulePaths module : modules) {
+            allSources.addAll(module.getSourcePath());
+            allClasses.addAll(module.getResolutionClassPath());
+        }
+        this.sourcePath = new ArrayList<>(allSources);
+        this.classPath = new ArrayList<>(allClasses);
+        this.modules = modules;
     }
 
     public List<String> getSourcePath() {
@@ -18,4 +39,8 @@ public class PathResult {
     public List<String> getClassPath() {
         return classPath;
     }
-}
\ No newline at end of file
+
+    public List<ModulePaths> getModules() {
+        return modules;
+    }
+}
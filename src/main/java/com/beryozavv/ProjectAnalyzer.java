@@ -0,0 +1,314 @@
+package com.beryozavv;
+
+import com.beryozavv.filter.SymbolFilter;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.AnalysisResult;
+import com.beryozavv.result.SymbolTable;
+import com.beryozavv.shard.Shard;
+import com.beryozavv.shard.ShardPartitioner;
+import com.beryozavv.syntactic.TypeIndex;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Анализатор всех модулей проекта. Каждый модуль разбирается со своим classpath;
+ * модули обрабатываются одновременно в общем пуле потоков, кроме потоковой передачи
+ * результатов в приемник, где модули идут по очереди
+ */
+public class ProjectAnalyzer {
+
+    // Пути модулей проекта
+    private final PathResult pathResult;
+
+    // Параметры анализа
+    private final AnalyzerOptions options;
+
+    // Таблица символов, общая для всех модулей
+    private final SymbolTable symbols = new SymbolTable();
+
+    // Типы исходников всех модулей для разбора без привязок, null до индексации
+    private TypeIndex projectTypes;
+
+    // Отбор зависимостей, общий для модулей, null если сохраняются все
+    private SymbolFilter filter;
+
+    // Фильтр создан
+    private boolean filterReady;
+
+    /**
+     * Действие над одним модулем
+     */
+    @FunctionalInterface
+    private interface ModuleAction<R> {
+        R run(ModulePaths module) throws IOException;
+    }
+
+    /**
+     * Создает анализатор проекта
+     *
+     * @param pathResult пути к исходникам и classpath модулей
+     * @param options    параметры анализа
+     */
+    public ProjectAnalyzer(PathResult pathResult, AnalyzerOptions options) {
+        this.pathResult = pathResult;
+        this.options = options;
+    }
+
+    /**
+     * @return таблица символов, в которой регистрируются зависимости всех модулей
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Анализирует все модули проекта, в которых есть каталоги исходников
+     *
+     * @return результаты модулей с общей таблицей символов, в порядке модулей проекта
+     * @throws IOException при ошибке доступа к файлам
+     */
+    public Map<String, AnalysisResult> analyze() throws IOException {
+        List<ModulePaths> modules = sourceModules();
+        prepareFilter(modules);
+        indexProjectTypes(modules);
+        List<AnalysisResult> moduleResults = runModules(modules, module -> createAnalyzer(module).analyzeResult());
+
+        Map<String, AnalysisResult> results = new LinkedHashMap<>();
+        for (int i = 0; i < modules.size(); i++) {
+            results.put(modules.get(i).getName(), moduleResults.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * Анализирует все модули проекта и передает результат каждого файла в приемник,
+     * не накапливая в памяти результаты текущего модуля. Модули разбираются по очереди,
+     * каждый со всеми потоками, поэтому результаты следующих модулей не ждут в памяти,
+     * пока завершатся предыдущие. Вызовы приемника идут в порядке модулей проекта,
+     * а внутри модуля - в каноническом порядке файлов, как и при объединении результатов
+     * частей проекта
+     *
+     * @param sink приемник результатов
+     * @throws IOException при ошибке доступа к файлам или записи в приемник
+     */
+    public void analyze(DependencySink sink) throws IOException {
+        List<ModulePaths> modules = sourceModules();
+        prepareFilter(modules);
+        indexProjectTypes(modules);
+        try {
+            for (ModulePaths module : modules) {
+                createAnalyzer(module).analyze(moduleListener(module, sink));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Анализирует одну часть файлов проекта, например в одном из нескольких процессов.
+     * Разбиение зависит только от списка и размеров файлов, поэтому части всех процессов
+     * вместе покрывают проект ровно один раз. Файлы разбираются по исходникам с полным
+     * окружением модуля, так что их зависимости совпадают с результатом анализа всего проекта
+     *
+     * @param sink  приемник результатов
+     * @param shard часть проекта
+     * @throws IOException при ошибке доступа к файлам или записи в приемник
+     */
+    public void analyzeShard(DependencySink sink, Shard shard) throws IOException {
+        analyzeFiles(ShardPartitioner.select(sourceModules(), shard), sink);
+    }
+
+    /**
+     * Разбирает только указанные файлы модулей по исходникам, с полным окружением каждого
+     * модуля. Файлы вне каталогов исходников своего модуля пропускаются
+     *
+     * @param moduleFiles имя модуля -> файлы модуля; модули, которых нет в карте, не разбираются
+     * @param sink        приемник результатов
+     * @throws IOException при ошибке доступа к файлам или записи в приемник
+     */
+    public void analyzeFiles(Map<String, List<Path>> moduleFiles, DependencySink sink) throws IOException {
+        List<ModulePaths> modules = sourceModules();
+        prepareFilter(modules);
+        indexProjectTypes(modules);
+
+        List<ModulePaths> selectedModules = new ArrayList<>();
+        for (ModulePaths module : modules) {
+            if (moduleFiles.containsKey(module.getName())) {
+                selectedModules.add(module);
+            }
+        }
+        try {
+            runModules(selectedModules, module -> {
+                createSourceAnalyzer(module).analyze(moduleFiles.get(module.getName()), moduleListener(module, sink));
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Создает получателя результатов модуля, который передает их в общий приемник.
+     * Вызовы приемника разных модулей не пересекаются по времени
+     *
+     * @param module модуль
+     * @param sink   приемник результатов проекта
+     * @return получатель результатов модуля
+     */
+    private DependencyListener moduleListener(ModulePaths module, DependencySink sink) {
+        return (file, dependencies) -> {
+            synchronized (sink) {
+                PhaseTimer phaseTimer = options.getMetrics().startPhase(Phase.OUTPUT);
+                try {
+                    sink.accept(module.getName(), file, dependencies);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    phaseTimer.stop();
+                }
+            }
+        };
+    }
+
+    /**
+     * Создает фильтр зависимостей, общий для модулей: тип любого модуля считается типом проекта
+     *
+     * @param modules модули проекта
+     */
+    private void prepareFilter(List<ModulePaths> modules) {
+        if (filterReady) return;
+
+        List<Path> sourceRoots = new ArrayList<>();
+        for (ModulePaths module : modules) {
+            for (String sourceRoot : module.getSourcePath()) {
+                sourceRoots.add(Path.of(sourceRoot));
+            }
+        }
+        filter = JavaDependencyAnalyzer.createFilter(options.getDependencyFilter(), sourceRoots, symbols);
+        filterReady = true;
+    }
+
+    /**
+     * При разборе без привязок собирает типы исходников всех модулей в общий индекс,
+     * чтобы ссылки между модулями разрешались без собранных классов
+     *
+     * @param modules модули проекта
+     * @throws IOException при ошибке доступа к файлам
+     */
+    private void indexProjectTypes(List<ModulePaths> modules) throws IOException {
+        if (!options.isSyntactic() || projectTypes != null) return;
+
+        TypeIndex index = new TypeIndex();
+        runModules(modules, module -> {
+            createSourceAnalyzer(module).indexSourceTypes(index);
+            return null;
+        });
+        projectTypes = index;
+    }
+
+    /**
+     * @return модули, в которых есть каталоги исходников
+     */
+    private List<ModulePaths> sourceModules() {
+        List<ModulePaths> modules = new ArrayList<>();
+        for (ModulePaths module : pathResult.getModules()) {
+            if (!module.getSourcePath().isEmpty()) {
+                modules.add(module);
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * Выполняет действие для каждого модуля. Модули не зависят друг от друга по результатам,
+     * поэтому запускаются одновременно; пакеты файлов каждого модуля разбираются в том же пуле
+     *
+     * @param modules модули проекта
+     * @param action  действие над модулем
+     * @return результаты действия в порядке модулей
+     * @throws IOException при ошибке анализа модуля
+     */
+    private <R> List<R> runModules(List<ModulePaths> modules, ModuleAction<R> action) throws IOException {
+        List<R> results = new ArrayList<>(modules.size());
+        if (options.getParallelism() == 1 || modules.size() <= 1) {
+            for (ModulePaths module : modules) {
+                results.add(action.run(module));
+            }
+            return results;
+        }
+
+        List<ForkJoinTask<R>> tasks = new ArrayList<>();
+        for (ModulePaths module : modules) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    return action.run(module);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+
+        try (ForkJoinPool pool = new ForkJoinPool(options.getParallelism())) {
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Анализ прерван");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Ошибка при анализе модулей", e.getCause());
+        }
+
+        for (ForkJoinTask<R> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Создает анализатор одного модуля: по скомпилированным классам, если это запрошено
+     * и модуль собран, иначе по исходникам
+     *
+     * @param module пути модуля
+     * @return анализатор модуля
+     */
+    private DependencyAnalyzer createAnalyzer(ModulePaths module) {
+        if (options.isBytecode()) {
+            String outputPath = module.getOutputPath();
+            if (outputPath != null && Files.isDirectory(Path.of(outputPath))) {
+                List<Path> sourceRoots = module.getSourcePath().stream().map(Path::of).toList();
+                return new BytecodeDependencyAnalyzer(List.of(Path.of(outputPath)), sourceRoots, options, symbols, filter);
+            }
+            System.err.println("Модуль " + module.getName() + " не собран, зависимости берутся из исходников");
+        }
+        return createSourceAnalyzer(module);
+    }
+
+    /**
+     * Создает анализатор исходников одного модуля с его собственным classpath; типы несобранных
+     * модулей, от которых он зависит, разрешаются по их исходникам
+     *
+     * @param module пути модуля
+     * @return анализатор модуля
+     */
+    private JavaDependencyAnalyzer createSourceAnalyzer(ModulePaths module) {
+        List<Path> sourceRoots = module.getSourcePath().stream().map(Path::of).toList();
+        List<Path> dependencySourceRoots = module.getDependencySourcePath().stream().map(Path::of).toList();
+        return new JavaDependencyAnalyzer(sourceRoots, module.getResolutionClassPath(), options, symbols, projectTypes, filter,
+                dependencySourceRoots);
+    }
+}
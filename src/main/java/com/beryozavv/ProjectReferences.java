@@ -0,0 +1,79 @@
+package com.beryozavv;
+
+import com.beryozavv.cache.AnalysisCache;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ссылки разобранных файлов на типы исходников проекта для кэша результатов: типы находятся
+ * в именах сохраненных и отброшенных фильтром зависимостей, а импорты по шаблону
+ * записываются пакетами. Заполняется потоками разбора одновременно
+ */
+final class ProjectReferences {
+
+    // Таблица символов анализатора
+    private final SymbolTable symbols;
+
+    // Типы файлов исходников проекта
+    private final Set<String> projectTypes;
+
+    // Найденные типы по символам, общие для всех файлов
+    private final Map<Integer, String[]> typesBySymbol = new ConcurrentHashMap<>();
+
+    // Ссылки по разобранным файлам
+    private final Map<Path, String[]> referencesByFile = new ConcurrentHashMap<>();
+
+    ProjectReferences(SymbolTable symbols, Set<String> projectTypes) {
+        this.symbols = symbols;
+        this.projectTypes = projectTypes;
+    }
+
+    /**
+     * Запоминает ссылки разобранного файла
+     *
+     * @param javaFile     путь к Java-файлу
+     * @param cu           единица компиляции файла
+     * @param dependencies сохраненные зависимости файла
+     * @param rejected     зависимости, отброшенные фильтром, по возрастанию
+     */
+    void record(Path javaFile, CompilationUnit cu, FileDependencies dependencies, int[] rejected) {
+        Set<String> references = new TreeSet<>();
+        for (int i = 0; i < dependencies.getLineCount(); i++) {
+            for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                Collections.addAll(references, typesOf(dependencies.getSymbolId(i, j)));
+            }
+        }
+        for (int symbolId : rejected) {
+            Collections.addAll(references, typesOf(symbolId));
+        }
+        for (Object object : cu.imports()) {
+            ImportDeclaration importDeclaration = (ImportDeclaration) object;
+            if (importDeclaration.isOnDemand() && !importDeclaration.isStatic()) {
+                references.add(AnalysisCache.onDemandImport(importDeclaration.getName().getFullyQualifiedName()));
+            }
+        }
+        referencesByFile.put(javaFile, references.toArray(String[]::new));
+    }
+
+    /**
+     * @param javaFile путь к Java-файлу
+     * @return ссылки файла по возрастанию или пустой массив, если файл не разбирался
+     */
+    String[] get(Path javaFile) {
+        return referencesByFile.getOrDefault(javaFile, new String[0]);
+    }
+
+    private String[] typesOf(int symbolId) {
+        return typesBySymbol.computeIfAbsent(symbolId, id -> {
+            List<String> types = new ArrayList<>(1);
+            AnalysisCache.addReferencedTypes(symbols.getName(id), projectTypes, types);
+            return types.toArray(String[]::new);
+        });
+    }
+}
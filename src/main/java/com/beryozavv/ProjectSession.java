@@ -0,0 +1,285 @@
+package com.beryozavv;
+
+import com.beryozavv.classpath.Artifact;
+import com.beryozavv.index.ReverseIndex;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+import com.beryozavv.syntactic.TypeIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Проект, загруженный в память: анализаторы модулей и последние результаты всех файлов.
+ * Позволяет повторно разбирать только измененные файлы, обновляя результаты на месте
+ */
+public class ProjectSession {
+
+    // Оценка накладных расходов на один файл в результатах, байт
+    private static final long FILE_OVERHEAD = 160;
+
+    // Оценка накладных расходов на один символ в таблице символов, байт
+    private static final long SYMBOL_OVERHEAD = 96;
+
+    // Корневой каталог проекта
+    private final Path projectRoot;
+
+    // Таблица символов, общая для всех модулей проекта
+    private final SymbolTable symbols;
+
+    // Анализаторы модулей в порядке модулей проекта
+    private final Map<String, JavaDependencyAnalyzer> analyzers = new LinkedHashMap<>();
+
+    // Последние результаты: файл -> зависимости и модуль файла
+    private final Map<Path, FileDependencies> results = new HashMap<>();
+    private final Map<Path, String> fileModules = new HashMap<>();
+
+    // Время последнего обращения, мс
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    // Оценка занимаемой памяти, байт
+    private volatile long estimatedBytes;
+
+    /**
+     * Создает сессию и выполняет полный анализ проекта
+     *
+     * @param projectRoot корневой каталог проекта
+     * @param pathResult  пути модулей проекта
+     * @param options     параметры анализа
+     * @throws IOException при ошибке анализа
+     */
+    public ProjectSession(Path projectRoot, PathResult pathResult, AnalyzerOptions options) throws IOException {
+        this(projectRoot, pathResult, options, new SymbolTable());
+    }
+
+    /**
+     * Создает сессию с заданной таблицей символов и выполняет полный анализ проекта
+     *
+     * @param projectRoot корневой каталог проекта
+     * @param pathResult  пути модулей проекта
+     * @param options     параметры анализа
+     * @param symbols     таблица символов, например общая с приемником результатов
+     * @throws IOException при ошибке анализа
+     */
+    public ProjectSession(Path projectRoot, PathResult pathResult, AnalyzerOptions options, SymbolTable symbols) throws IOException {
+        this.projectRoot = projectRoot;
+        this.symbols = symbols;
+        // При разборе без привязок модули разрешают имена по общему индексу типов исходников
+        TypeIndex projectTypes = options.isSyntactic() ? new TypeIndex() : null;
+        for (ModulePaths module : pathResult.getModules()) {
+            if (!module.getSourcePath().isEmpty()) {
+                List<Path> sourceRoots = module.getSourcePath().stream().map(Path::of).toList();
+                List<Path> dependencySourceRoots = module.getDependencySourcePath().stream().map(Path::of).toList();
+                analyzers.put(module.getName(), new JavaDependencyAnalyzer(sourceRoots, module.getResolutionClassPath(), options, symbols,
+                        projectTypes, JavaDependencyAnalyzer.createFilter(options.getDependencyFilter(), sourceRoots, symbols),
+                        dependencySourceRoots));
+            }
+        }
+        if (projectTypes != null) {
+            for (JavaDependencyAnalyzer analyzer : analyzers.values()) {
+                analyzer.indexSourceTypes(projectTypes);
+            }
+        }
+
+        for (Map.Entry<String, JavaDependencyAnalyzer> entry : analyzers.entrySet()) {
+            entry.getValue().analyze((file, dependencies) -> store(entry.getKey(), file, dependencies));
+        }
+        updateEstimate();
+    }
+
+    public Path getProjectRoot() {
+        return projectRoot;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public synchronized int getFileCount() {
+        return results.size();
+    }
+
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Повторно разбирает указанные файлы, обновляет сохраненные результаты и передает
+     * новые результаты в приемник. Удаленные файлы и файлы без зависимостей передаются
+     * с пустыми зависимостями. Если список пуст, передаются результаты всех файлов.
+     * При ошибке анализа модуля сохраненные результаты его файлов не меняются
+     *
+     * @param files абсолютные пути к файлам
+     * @param sink  приемник результатов
+     * @throws IOException при ошибке анализа или записи в приемник
+     */
+    public synchronized void analyze(List<Path> files, DependencySink sink) throws IOException {
+        touch();
+        if (files.isEmpty()) {
+            for (Path file : sortedFiles()) {
+                sink.accept(fileModules.get(file), file, results.get(file));
+            }
+            return;
+        }
+
+        try {
+            for (Map.Entry<String, JavaDependencyAnalyzer> entry : analyzers.entrySet()) {
+                JavaDependencyAnalyzer analyzer = entry.getValue();
+                List<Path> moduleFiles = new ArrayList<>();
+                for (Path file : files) {
+                    if (analyzer.isSourceFile(file)) {
+                        moduleFiles.add(file);
+                    }
+                }
+                if (moduleFiles.isEmpty()) continue;
+
+                // Новые результаты заменяют сохраненные только после успешного анализа модуля,
+                // чтобы ошибка разбора не оставила файлы сессии без результатов
+                String module = entry.getKey();
+                Map<Path, FileDependencies> updated = new LinkedHashMap<>();
+                analyzer.analyze(moduleFiles, updated::put);
+                for (Path file : moduleFiles) {
+                    // Удаленный файл или файл без зависимостей не вернется из анализа
+                    results.remove(file);
+                    fileModules.remove(file);
+                }
+                updated.forEach((file, dependencies) -> store(module, file, dependencies));
+                updateEstimate();
+
+                for (Map.Entry<Path, FileDependencies> result : updated.entrySet()) {
+                    sink.accept(module, result.getKey(), result.getValue());
+                }
+                for (Path file : moduleFiles) {
+                    if (!updated.containsKey(file)) {
+                        sink.accept(module, file, FileDependencies.EMPTY);
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Находит использования типа или пакета по последним результатам анализа
+     *
+     * @param name      полное имя типа или пакета
+     * @param isPackage искать все типы пакета и его подпакетов
+     * @return места использования в порядке файлов и строк
+     */
+    public synchronized List<ReverseIndex.Usage> findUsages(String name, boolean isPackage) {
+        touch();
+        BitSet matching = new BitSet();
+        for (int id = 0; id < symbols.size(); id++) {
+            if (matches(symbols.getName(id), name, isPackage)) {
+                matching.set(id);
+            }
+        }
+
+        List<ReverseIndex.Usage> usages = new ArrayList<>();
+        if (matching.isEmpty()) {
+            return usages;
+        }
+        for (Path file : sortedFiles()) {
+            FileDependencies dependencies = results.get(file);
+            for (int i = 0; i < dependencies.getLineCount(); i++) {
+                for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                    int symbolId = dependencies.getSymbolId(i, j);
+                    if (matching.get(symbolId)) {
+                        usages.add(new ReverseIndex.Usage(symbols.getName(symbolId), fileModules.get(file),
+                                file.toString(), dependencies.getLine(i)));
+                    }
+                }
+            }
+        }
+        return usages;
+    }
+
+    /**
+     * Находит артефакты classpath, из которых модули проекта берут тип
+     *
+     * @param qualifiedName полное имя типа
+     * @return модуль -> артефакт, только модули, в classpath которых есть тип
+     * @throws IOException при ошибке чтения classpath
+     */
+    public synchronized Map<String, Artifact> findArtifacts(String qualifiedName) throws IOException {
+        touch();
+        Map<String, Artifact> artifacts = new LinkedHashMap<>();
+        for (Map.Entry<String, JavaDependencyAnalyzer> entry : analyzers.entrySet()) {
+            String classpathEntry = entry.getValue().findClasspathEntry(qualifiedName);
+            if (classpathEntry != null) {
+                artifacts.put(entry.getKey(), Artifact.of(classpathEntry));
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Возвращает проанализированные файлы внутри каталога, например удаленного целиком
+     *
+     * @param directory каталог
+     * @return файлы с результатами в этом каталоге и его подкаталогах
+     */
+    public synchronized List<Path> filesUnder(Path directory) {
+        List<Path> files = new ArrayList<>();
+        for (Path file : results.keySet()) {
+            if (file.startsWith(directory)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Сравнивает имя символа с запросом по тем же правилам, что и обратный индекс:
+     * тип совпадает вместе с параметризациями и массивами, пакет - вместе с подпакетами
+     */
+    private static boolean matches(String symbol, String name, boolean isPackage) {
+        if (isPackage) {
+            return symbol.length() > name.length() && symbol.startsWith(name) && symbol.charAt(name.length()) == '.';
+        }
+        if (!symbol.startsWith(name)) {
+            return false;
+        }
+        if (symbol.length() == name.length()) {
+            return true;
+        }
+        char next = symbol.charAt(name.length());
+        return next == '<' || next == '[';
+    }
+
+    private void store(String module, Path file, FileDependencies dependencies) {
+        results.put(file, dependencies);
+        fileModules.put(file, module);
+    }
+
+    private List<Path> sortedFiles() {
+        List<Path> files = new ArrayList<>(results.keySet());
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Пересчитывает приблизительный объем памяти сессии по размеру результатов и таблицы символов
+     */
+    private void updateEstimate() {
+        long bytes = (long) symbols.size() * SYMBOL_OVERHEAD;
+        for (Map.Entry<Path, FileDependencies> entry : results.entrySet()) {
+            FileDependencies dependencies = entry.getValue();
+            bytes += FILE_OVERHEAD + 2L * entry.getKey().toString().length()
+                    + 8L * dependencies.getLineCount() + 4L * dependencies.size();
+        }
+        estimatedBytes = bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package com.beryozavv;
+
+import com.beryozavv.index.ReverseIndex;
+
+import java.nio.file.Path;
+import java.util.List;
+
+
+public class QueryMain {
+    public static void main(String[] args) {
+        if (args.length != 2 && !(args.length == 3 && args[1].equals("--package"))) {
+            System.out.println("""
+                    Usage: java -cp dependency-analyzer.jar com.beryozavv.QueryMain <index-file> [--package] <name>
+                      <index-file> - reverse index written by AnalyzerMain --index
+                      <name>       - fully qualified type name, or package name with --package""");
+            System.exit(1);
+        }
+
+        try (ReverseIndex index = ReverseIndex.open(Path.of(args[0]))) {
+            List<ReverseIndex.Usage> usages = args.length == 3
+                    ? index.findPackage(args[2])
+                    : index.findType(args[1]);
+
+            StringBuilder output = new StringBuilder();
+            for (ReverseIndex.Usage usage : usages) {
+                output.append(usage.module()).append('\t')
+                        .append(usage.file()).append(':').append(usage.line()).append('\t')
+                        .append(usage.symbol()).append('\n');
+            }
+            System.out.print(output);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.beryozavv;
+
+import java.util.Arrays;
+
+/**
+ * Символы, которые фильтр зависимостей отбросил в одном файле. По ним {@link ProjectReferences}
+ * узнает, на какие типы проекта ссылается файл, даже если эти зависимости не сохраняются.
+ * Экземпляр принадлежит обходчику AST одного потока
+ */
+final class RejectedSymbols {
+
+    private int[] ids = new int[16];
+    private int size;
+
+    void clear() {
+        size = 0;
+    }
+
+    void add(int symbolId) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = symbolId;
+    }
+
+    /**
+     * @return отброшенные символы файла по возрастанию, без повторов
+     */
+    int[] toArray() {
+        int[] sorted = Arrays.copyOf(ids, size);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (unique == 0 || sorted[i] != sorted[unique - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+}
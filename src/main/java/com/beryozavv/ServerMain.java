@@ -0,0 +1,111 @@
+package com.beryozavv;
+
+import com.beryozavv.server.AnalyzerServer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class ServerMain {
+
+    public static final String USAGE = """
+            Usage: java -cp dependency-analyzer.jar com.beryozavv.ServerMain [options]
+              --port <n>           - port on the loopback interface (default: 7391)
+              --max-memory-mb <n>  - memory budget for loaded projects (default: 512)
+              --idle-minutes <n>   - unload a project after this idle time (default: 30)
+              --threads <n>        - number of analysis threads (default: available processors)
+              --batch-size <n>     - max files parsed with one shared JDT environment (default: 500)
+              --allow-roots <dirs> - directories whose projects may be loaded, separated by the path
+                                     separator; loading a project runs its Gradle build scripts
+                                     (default: the current directory)
+              --token-file <file>  - where to write the secret that clients send as
+                                     'Authorization: Bearer <secret>'; readable by the owner only
+                                     (default: ~/.dependency-analyzer/server-<port>.token)
+              --model <file>       - read each project model from a file written by --shards
+              --classpath-file <file>
+                                   - take each project classpath from a file instead of Gradle
+              --artifacts <file>   - build each project classpath from group:name:version[:classifier]
+                                     lines found in the local Maven repository and Gradle cache
+              --source-roots <dirs>
+                                   - source directories separated by the path separator, for
+                                     --classpath-file and --artifacts (default: src/main/java if
+                                     present, else the project directory)
+                                   Relative files and directories are resolved against each project
+                                   directory, so every project can keep its own list""";
+
+    public static void main(String[] args) {
+        int port = 7391;
+        int maxMemoryMb = 512;
+        int idleMinutes = 30;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int batchSize = JavaDependencyAnalyzer.DEFAULT_BATCH_SIZE;
+        List<Path> allowedRoots = List.of(Path.of("").toAbsolutePath());
+        Path tokenFile = null;
+        AnalyzerOptions modelSource = new AnalyzerOptions();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Не указано значение для " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--port" -> port = parseInt(arg, value, true);
+                    case "--max-memory-mb" -> maxMemoryMb = parseInt(arg, value, false);
+                    case "--idle-minutes" -> idleMinutes = parseInt(arg, value, false);
+                    case "--threads" -> parallelism = parseInt(arg, value, false);
+                    case "--batch-size" -> batchSize = parseInt(arg, value, false);
+                    case "--allow-roots" -> allowedRoots = Arrays.stream(value.split(File.pathSeparator))
+                            .filter(root -> !root.isEmpty())
+                            .map(Path::of)
+                            .toList();
+                    case "--token-file" -> tokenFile = Path.of(value);
+                    case "--model" -> modelSource.setModelFile(Path.of(value));
+                    case "--classpath-file" -> modelSource.setClasspathFile(Path.of(value));
+                    case "--artifacts" -> modelSource.setArtifactsFile(Path.of(value));
+                    case "--source-roots" -> modelSource.setSourceRoots(List.of(value.split(File.pathSeparator)));
+                    default -> throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+                }
+            }
+            validateModelSource(modelSource);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        try (AnalyzerServer server = new AnalyzerServer(port, maxMemoryMb * 1024L * 1024L,
+                idleMinutes * 60_000L, parallelism, batchSize, allowedRoots, tokenFile, modelSource)) {
+            server.start();
+            System.err.println("Dependency analyzer server listening on 127.0.0.1:" + server.getPort()
+                    + ", token in " + server.getTokenFile());
+            server.awaitShutdown();
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void validateModelSource(AnalyzerOptions modelSource) {
+        int modelSources = (modelSource.getModelFile() != null ? 1 : 0) + (modelSource.getClasspathFile() != null ? 1 : 0)
+                + (modelSource.getArtifactsFile() != null ? 1 : 0);
+        if (modelSources > 1) {
+            throw new IllegalArgumentException("Можно задать только один из параметров --model, --classpath-file и --artifacts");
+        }
+        if (!modelSource.getSourceRoots().isEmpty() && modelSource.getClasspathFile() == null && modelSource.getArtifactsFile() == null) {
+            throw new IllegalArgumentException("--source-roots используется только с --classpath-file или --artifacts");
+        }
+    }
+
+        private static int parseInt(String arg, String value, boolean zeroAllowed) {
+        int result = Integer.parseInt(value);
+        if (result < 0 || (result == 0 && !zeroAllowed)) {
+            throw new IllegalArgumentException("Значение " + arg + " должно быть положительным: " + value);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package com.beryozavv;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Временный файл для результатов, которые ждут очереди на вывод сверх бюджета памяти:
+ * записи дописываются в конец и читаются по положению. Файл создается при первой записи
+ * и удаляется при закрытии
+ */
+final class SpillFile implements Closeable {
+
+    private FileChannel channel;
+    private long end;
+
+    /**
+     * Дописывает запись в конец файла
+     *
+     * @param bytes запись
+     * @return положение записи в файле
+     * @throws IOException при ошибке создания или записи файла
+     */
+    long append(byte[] bytes) throws IOException {
+        if (channel == null) {
+            Path file = Files.createTempFile("dependency-analyzer-spill", ".bin");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        long offset = end;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            end += channel.write(buffer, end);
+        }
+        return offset;
+    }
+
+    /**
+     * Читает запись
+     *
+     * @param offset положение записи, которое вернул {@link #append(byte[])}
+     * @param length длина записи, байт
+     * @return запись
+     * @throws IOException при ошибке чтения или если файл обрезан
+     */
+    byte[] read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Файл выгрузки результатов обрезан");
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.beryozavv;
+
+import com.beryozavv.memory.MemoryBudget;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.result.FileDependencies;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Передает результаты пакетов получателю в порядке пакетов, как {@link BatchExecutor.OrderedEmitter},
+ * но держит в памяти пакеты, ожидающие очереди, только в пределах бюджета. Остальные
+ * пакеты дописываются в файл выгрузки и читаются из него, когда до них доходит очередь.
+ * Каждый выгруженный пакет упорядочен так же, как при выводе, поэтому слияние сводится
+ * к чтению пакетов по порядку. Файл выгрузки удаляется при закрытии
+ */
+final class SpillingEmitter implements Closeable {
+
+    // Оценка памяти на путь файла и запись карты результатов, байт
+    static final int ENTRY_OVERHEAD = 160;
+
+    private final MemoryBudget budget;
+    private final AnalysisMetrics metrics;
+    private final DependencyListener listener;
+
+    // Результаты пакетов, ожидающие очереди в памяти, и зарезервированный под них объем
+    private final List<Map<Path, FileDependencies>> buffered;
+    private long[] reserved;
+
+    // Положение и длина выгруженных пакетов в файле выгрузки, -1 если пакет не выгружен
+    private long[] spillOffsets;
+    private int[] spillLengths;
+
+    // Файл выгрузки
+    private final SpillFile spillFile = new SpillFile();
+
+    // Номер пакета, который передается получателю следующим
+    private int next;
+
+    /**
+     * @param batchCount ожидаемое количество пакетов, массивы растут, если пакетов больше
+     * @param budget     бюджет памяти, общий для всех анализаторов
+     * @param metrics    метрики анализа
+     * @param listener   получатель результатов
+     */
+    SpillingEmitter(int batchCount, MemoryBudget budget, AnalysisMetrics metrics, DependencyListener listener) {
+        this.budget = budget;
+        this.metrics = metrics;
+        this.listener = listener;
+        this.buffered = new ArrayList<>(Collections.nCopies(batchCount, null));
+        this.reserved = new long[batchCount];
+        this.spillOffsets = new long[batchCount];
+        this.spillLengths = new int[batchCount];
+        Arrays.fill(spillOffsets, -1);
+    }
+
+    /**
+     * Принимает результаты пакета. Результаты передаются получателю в порядке обхода карты
+     *
+     * @param index   номер пакета
+     * @param results зависимости файлов пакета
+     * @throws UncheckedIOException при ошибке записи или чтения файла выгрузки
+     */
+    synchronized void complete(int index, Map<Path, FileDependencies> results) {
+        ensureCapacity(index);
+        if (index != next) {
+            long size = memorySize(results);
+            if (budget.reserveResults(size)) {
+                buffered.set(index, results);
+                reserved[index] = size;
+            } else {
+                spill(index, results);
+            }
+            return;
+        }
+
+        emit(results);
+        next++;
+        while (next < buffered.size()) {
+            Map<Path, FileDependencies> nextResults = buffered.get(next);
+            if (nextResults != null) {
+                buffered.set(next, null);
+                budget.releaseResults(reserved[next]);
+            } else if (spillOffsets[next] >= 0) {
+                nextResults = readSpilled(next);
+            } else {
+                break;
+            }
+            emit(nextResults);
+            next++;
+        }
+    }
+
+    private void ensureCapacity(int index) {
+        if (index < reserved.length) return;
+
+        int capacity = Math.max(index + 1, reserved.length * 2);
+        int oldCapacity = reserved.length;
+        while (buffered.size() < capacity) {
+            buffered.add(null);
+        }
+        reserved = Arrays.copyOf(reserved, capacity);
+        spillOffsets = Arrays.copyOf(spillOffsets, capacity);
+        Arrays.fill(spillOffsets, oldCapacity, capacity, -1);
+        spillLengths = Arrays.copyOf(spillLengths, capacity);
+    }
+
+    private void emit(Map<Path, FileDependencies> results) {
+        results.forEach(listener::onFile);
+    }
+
+    private static long memorySize(Map<Path, FileDependencies> results) {
+        long size = 0;
+        for (FileDependencies dependencies : results.values()) {
+            size += ENTRY_OVERHEAD + dependencies.memorySize();
+        }
+        return size;
+    }
+
+    /**
+     * Дописывает результаты пакета в файл выгрузки
+     */
+    private void spill(int index, Map<Path, FileDependencies> results) {
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.SPILL);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(results.size());
+            for (Map.Entry<Path, FileDependencies> entry : results.entrySet()) {
+                out.writeUTF(entry.getKey().toString());
+                entry.getValue().write(out);
+            }
+            out.flush();
+
+            spillLengths[index] = bytes.size();
+            spillOffsets[index] = spillFile.append(bytes.toByteArray());
+            if (metrics.isEnabled()) {
+                metrics.spilledBatch(spillLengths[index]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    /**
+     * Читает выгруженные результаты пакета
+     */
+    private Map<Path, FileDependencies> readSpilled(int index) {
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.SPILL);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(spillFile.read(spillOffsets[index], spillLengths[index])));
+            int fileCount = in.readInt();
+            Map<Path, FileDependencies> results = new LinkedHashMap<>(fileCount * 2);
+            for (int i = 0; i < fileCount; i++) {
+                results.put(Path.of(in.readUTF()), FileDependencies.read(in));
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            phaseTimer.stop();
+        }
+    }
+
+    /**
+     * Освобождает память, зарезервированную под результаты, которые не дошли до получателя
+     * из-за ошибки, и удаляет файл выгрузки
+     *
+     * @throws IOException при ошибке закрытия файла
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (int i = next; i < buffered.size(); i++) {
+            if (buffered.get(i) != null) {
+                buffered.set(i, null);
+                budget.releaseResults(reserved[i]);
+            }
+        }
+        spillFile.close();
+    }
+}
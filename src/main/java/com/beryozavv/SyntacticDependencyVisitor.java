@@ -0,0 +1,132 @@
+package com.beryozavv;
+
+import com.beryozavv.filter.SymbolFilter;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.syntactic.SyntacticExtractorStrategy;
+import com.beryozavv.syntactic.TypeNameResolver;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Обходчик AST, разобранного без привязок. Стратегия выбирается по типу узла из плоской
+ * таблицы; имена внутри типа, квалифицированного имени, импорта и объявления пакета
+ * разрешает стратегия самого узла, поэтому они не обходятся.
+ * Экземпляр переиспользуется одним потоком для всех файлов и не потокобезопасен
+ */
+final class SyntacticDependencyVisitor extends ASTVisitor implements IntConsumer {
+
+    // Стратегии по типу узла (ASTNode.getNodeType()), null для узлов без стратегии
+    private final List<SyntacticExtractorStrategy<ASTNode>> strategies;
+
+    // Метрики: время стратегий, неразрешенные имена и ошибки извлечения
+    private final AnalysisMetrics metrics;
+
+    // Отбор зависимостей до сохранения, null если сохраняются все
+    private final SymbolFilter filter;
+
+    // Накопитель пар (строка, символ), очищается перед каждым файлом
+    private final FileDependencies.Builder lineDeps = new FileDependencies.Builder();
+
+    // Символы текущего файла, отброшенные фильтром
+    private final RejectedSymbols rejected = new RejectedSymbols();
+
+    // Текущий файл, разрешение имен и строка обрабатываемого узла
+    private CompilationUnit cu;
+    private TypeNameResolver resolver;
+    private int line;
+
+    SyntacticDependencyVisitor(List<SyntacticExtractorStrategy<ASTNode>> strategies, AnalysisMetrics metrics, SymbolFilter filter) {
+        this.strategies = strategies;
+        this.metrics = metrics;
+        this.filter = filter;
+    }
+
+    /**
+     * Обходит файл и возвращает найденные зависимости
+     *
+     * @param cu       единица компиляции, разобранная без привязок
+     * @param resolver разрешение имен пакета разбора
+     * @return зависимости файла по строкам, пустые если зависимостей нет
+     */
+    FileDependencies collect(CompilationUnit cu, TypeNameResolver resolver) {
+        this.cu = cu;
+        this.resolver = resolver;
+        resolver.reset(cu);
+        lineDeps.clear();
+        rejected.clear();
+        try {
+            cu.accept(this);
+            return lineDeps.build();
+        } finally {
+            // Не удерживаем AST файла до следующего вызова
+            this.cu = null;
+            this.resolver = null;
+        }
+    }
+
+    @Override
+    public boolean preVisit2(ASTNode node) {
+        int nodeType = node.getNodeType();
+        if (nodeType == ASTNode.PACKAGE_DECLARATION) return false;
+
+        SyntacticExtractorStrategy<ASTNode> strategy = nodeType < strategies.size() ? strategies.get(nodeType) : null;
+        if (strategy == null) return true;
+
+        int lineNumber = cu.getLineNumber(node.getStartPosition());
+        if (lineNumber != -1) {
+            line = lineNumber;
+            long start = metrics.isEnabled() ? System.nanoTime() : 0;
+            long unresolved = resolver.getUnresolved();
+            try {
+                strategy.extractDependencies(node, resolver, this);
+            } catch (Exception e) {
+                // Игнорируем ошибки при попытке получить информацию о зависимостях
+                System.err.println("Ошибка при обработке узла " + node + " в строке " + lineNumber + ": " + e.getMessage());
+                if (metrics.isEnabled()) {
+                    metrics.extractionError();
+                }
+            }
+            if (metrics.isEnabled()) {
+                metrics.recordNode(nodeType, System.nanoTime() - start);
+                if (resolver.getUnresolved() != unresolved) {
+                    metrics.unresolvedBinding();
+                }
+            }
+        }
+        return !ownsNames(nodeType);
+    }
+
+    /**
+     * Принимает идентификатор зависимости текущего узла
+     *
+     * @param symbolId идентификатор символа
+     */
+    @Override
+    public void accept(int symbolId) {
+        if (filter == null || filter.accepts(symbolId)) {
+            lineDeps.add(line, symbolId);
+        } else {
+            rejected.add(symbolId);
+        }
+    }
+
+    /**
+     * @return символы последнего обойденного файла, отброшенные фильтром, по возрастанию
+     */
+    int[] rejectedSymbols() {
+        return rejected.toArray();
+    }
+
+    /**
+     * Узлы, дочерние имена которых уже разрешены стратегией самого узла
+     */
+    private static boolean ownsNames(int nodeType) {
+        return nodeType == ASTNode.SIMPLE_TYPE
+                || nodeType == ASTNode.NAME_QUALIFIED_TYPE
+                || nodeType == ASTNode.QUALIFIED_NAME
+                || nodeType == ASTNode.IMPORT_DECLARATION;
+    }
+}
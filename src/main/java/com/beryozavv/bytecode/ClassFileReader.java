@@ -0,0 +1,539 @@
+package com.beryozavv.bytecode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Чтение ссылок на типы из class-файла с привязкой к строкам исходника. Ссылки берутся
+ * из инструкций методов (создание объектов, приведения, вызовы, обращения к полям,
+ * литералы классов, ссылки на методы в лямбдах), обработчиков исключений и таблицы
+ * локальных переменных; строка определяется по атрибуту LineNumberTable. Объявления
+ * полей, параметров и супертипов строк в class-файле не имеют и не читаются.
+ * Имена типов записываются как в исходнике: вложенные через точку, массивы с [],
+ * аргументы типов стерты
+ */
+public final class ClassFileReader {
+
+    /**
+     * Получатель ссылок на типы
+     */
+    @FunctionalInterface
+    public interface ReferenceVisitor {
+
+        /**
+         * @param line     строка исходника
+         * @param typeName полное имя типа
+         */
+        void reference(int line, String typeName);
+    }
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+
+    // Теги пула констант (JVMS 4.4)
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+    // Флаг мостового метода: его инструкции сгенерированы компилятором
+    private static final int ACC_BRIDGE = 0x0040;
+
+    // Коды инструкций, ссылающихся на пул констант (JVMS 6.5)
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int GETSTATIC = 0xb2;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int INVOKEDYNAMIC = 0xba;
+    private static final int NEW = 0xbb;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int CHECKCAST = 0xc0;
+    private static final int INSTANCEOF = 0xc1;
+    private static final int MULTIANEWARRAY = 0xc5;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int WIDE = 0xc4;
+    private static final int IINC = 0x84;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ASTORE = 0x3a;
+    private static final int ASTORE_0 = 0x4b;
+
+    // Длина инструкции с операндами, 0 для инструкций переменной длины
+    private static final int[] INSTRUCTION_LENGTHS = new int[256];
+
+    static {
+        Arrays.fill(INSTRUCTION_LENGTHS, 1);
+        set(2, 0x10, 0x12, 0xbc, 0xa9);                       // bipush, ldc, newarray, ret
+        set(2, 0x15, 0x16, 0x17, 0x18, 0x19);                 // xload
+        set(2, 0x36, 0x37, 0x38, 0x39, 0x3a);                 // xstore
+        set(3, 0x11, 0x13, 0x14, IINC, 0xbb, 0xbd, 0xc0, 0xc1, 0xc6, 0xc7);
+        for (int opcode = 0x99; opcode <= 0xa8; opcode++) {   // if*, goto, jsr
+            INSTRUCTION_LENGTHS[opcode] = 3;
+        }
+        for (int opcode = GETSTATIC; opcode <= 0xb8; opcode++) {
+            INSTRUCTION_LENGTHS[opcode] = 3;
+        }
+        set(4, MULTIANEWARRAY);
+        set(5, INVOKEINTERFACE, INVOKEDYNAMIC, 0xc8, 0xc9);   // goto_w, jsr_w
+        set(0, TABLESWITCH, LOOKUPSWITCH, WIDE);
+    }
+
+    private final byte[] bytes;
+
+    // Смещения записей пула констант (на байт тега)
+    private final int[] constants;
+
+    // Имена типов записей CONSTANT_Class, вычисляются при первом обращении
+    private final String[] classNames;
+
+    // Смещение таблицы методов и атрибута BootstrapMethods (0, если его нет)
+    private final int methodsOffset;
+    private int bootstrapMethodsOffset;
+
+    private final String className;
+    private String sourceFile;
+
+    /**
+     * Разбирает заголовок class-файла: пул констант и атрибуты класса
+     *
+     * @param bytes содержимое class-файла
+     * @throws IOException если файл не является корректным class-файлом
+     */
+    public ClassFileReader(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        try {
+            if (readInt(0) != CLASS_FILE_MAGIC) {
+                throw new IOException("Не class-файл");
+            }
+            int count = readUnsignedShort(8);
+            constants = new int[count];
+            classNames = new String[count];
+            int offset = 10;
+            for (int i = 1; i < count; i++) {
+                constants[i] = offset;
+                int tag = bytes[offset] & 0xFF;
+                offset += switch (tag) {
+                    case CONSTANT_UTF8 -> 3 + readUnsignedShort(offset + 1);
+                    case CONSTANT_CLASS, 8, 16, 19, 20 -> 3;    // Class, String, MethodType, Module, Package
+                    case CONSTANT_METHOD_HANDLE -> 4;
+                    case 3, 4, 9, 10, 11, 12, 17, CONSTANT_INVOKE_DYNAMIC -> 5;
+                    case CONSTANT_LONG, CONSTANT_DOUBLE -> 9;
+                    default -> throw new IOException("Неизвестный тег пула констант " + tag);
+                };
+                if (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) {
+                    // Занимают две записи пула
+                    i++;
+                }
+            }
+
+            className = utf8(readUnsignedShort(constants[readUnsignedShort(offset + 2)] + 1));
+            int interfaceCount = readUnsignedShort(offset + 6);
+            offset = skipMembers(offset + 8 + 2 * interfaceCount);
+            methodsOffset = offset;
+            offset = skipMembers(offset);
+            readClassAttributes(offset);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Обрезанный class-файл", e);
+        }
+    }
+
+    /**
+     * @return внутреннее имя класса, например com/foo/Outer$Inner
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return имя исходного файла из атрибута SourceFile или null
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Передает получателю ссылки на типы из кода методов. Методы без LineNumberTable
+     * (класс скомпилирован без отладочной информации о строках) пропускаются
+     *
+     * @param visitor получатель ссылок
+     * @throws IOException если код метода поврежден
+     */
+    public void accept(ReferenceVisitor visitor) throws IOException {
+        try {
+            int offset = methodsOffset;
+            int methodCount = readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < methodCount; i++) {
+                int accessFlags = readUnsignedShort(offset);
+                int attributeCount = readUnsignedShort(offset + 6);
+                offset += 8;
+                for (int j = 0; j < attributeCount; j++) {
+                    int length = readInt(offset + 2);
+                    if ((accessFlags & ACC_BRIDGE) == 0 && "Code".equals(utf8(readUnsignedShort(offset)))) {
+                        readCode(offset + 6, visitor);
+                    }
+                    offset += 6 + length;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Поврежден код метода в " + className, e);
+        }
+    }
+
+    /**
+     * Читает атрибут Code: сначала таблицы строк и локальных переменных, затем инструкции
+     * и обработчики исключений
+     */
+    private void readCode(int offset, ReferenceVisitor visitor) {
+        int codeLength = readInt(offset + 4);
+        int codeStart = offset + 8;
+        int exceptionsOffset = codeStart + codeLength;
+        int exceptionCount = readUnsignedShort(exceptionsOffset);
+        int attributesOffset = exceptionsOffset + 2 + 8 * exceptionCount;
+
+        List<Integer> lineNumberTables = new ArrayList<>(1);
+        List<Integer> localVariableTables = new ArrayList<>(1);
+        int attributeCount = readUnsignedShort(attributesOffset);
+        int attribute = attributesOffset + 2;
+        for (int i = 0; i < attributeCount; i++) {
+            String name = utf8(readUnsignedShort(attribute));
+            if (name.equals("LineNumberTable")) {
+                lineNumberTables.add(attribute + 6);
+            } else if (name.equals("LocalVariableTable")) {
+                localVariableTables.add(attribute + 6);
+            }
+            attribute += 6 + readInt(attribute + 2);
+        }
+        // Без номеров строк, в том числе при пустой таблице, зависимости метода не к чему привязать
+        LineTable lines = LineTable.read(this, lineNumberTables);
+        if (lines == null) return;
+
+        LocalVariables locals = LocalVariables.read(this, localVariableTables);
+        readInstructions(codeStart, codeLength, lines, locals, visitor);
+
+        for (int i = 0; i < exceptionCount; i++) {
+            int entry = exceptionsOffset + 2 + 8 * i;
+            int catchType = readUnsignedShort(entry + 6);
+            if (catchType != 0) {
+                emit(visitor, lines.lineAt(readUnsignedShort(entry + 4)), elementClassName(catchType));
+            }
+        }
+    }
+
+    private void readInstructions(int codeStart, int codeLength, LineTable lines, LocalVariables locals, ReferenceVisitor visitor) {
+        int pc = 0;
+        while (pc < codeLength) {
+            int opcode = bytes[codeStart + pc] & 0xFF;
+            int length = INSTRUCTION_LENGTHS[opcode];
+            if (length == 0) {
+                length = variableLength(opcode, codeStart, pc);
+            }
+            switch (opcode) {
+                case LDC -> loadConstant(bytes[codeStart + pc + 1] & 0xFF, lines.lineAt(pc), visitor);
+                case LDC_W -> loadConstant(readUnsignedShort(codeStart + pc + 1), lines.lineAt(pc), visitor);
+                case GETSTATIC, GETSTATIC + 1, GETSTATIC + 2, PUTFIELD ->
+                        memberReference(readUnsignedShort(codeStart + pc + 1), false, lines.lineAt(pc), visitor);
+                case INVOKEVIRTUAL, INVOKEVIRTUAL + 1, INVOKEVIRTUAL + 2, INVOKEINTERFACE ->
+                        memberReference(readUnsignedShort(codeStart + pc + 1), true, lines.lineAt(pc), visitor);
+                case INVOKEDYNAMIC -> dynamicCall(readUnsignedShort(codeStart + pc + 1), lines.lineAt(pc), visitor);
+                case NEW, ANEWARRAY, CHECKCAST, INSTANCEOF, MULTIANEWARRAY ->
+                        emit(visitor, lines.lineAt(pc), elementClassName(readUnsignedShort(codeStart + pc + 1)));
+                // Чтение и запись переменной: ее тип, как у имени переменной в исходнике.
+                // Область видимости переменной начинается после первой записи
+                case ALOAD -> emitDescriptorType(visitor, lines.lineAt(pc),
+                        locals.typeAt(bytes[codeStart + pc + 1] & 0xFF, pc), false);
+                case ALOAD_0, ALOAD_0 + 1, ALOAD_0 + 2, ALOAD_0 + 3 -> emitDescriptorType(visitor, lines.lineAt(pc),
+                        locals.typeAt(opcode - ALOAD_0, pc), false);
+                case ASTORE -> emitDescriptorType(visitor, lines.lineAt(pc),
+                        locals.typeAt(bytes[codeStart + pc + 1] & 0xFF, pc + length), false);
+                case ASTORE_0, ASTORE_0 + 1, ASTORE_0 + 2, ASTORE_0 + 3 -> emitDescriptorType(visitor, lines.lineAt(pc),
+                        locals.typeAt(opcode - ASTORE_0, pc + length), false);
+                case WIDE -> {
+                    int widened = bytes[codeStart + pc + 1] & 0xFF;
+                    if (widened == ALOAD || widened == ASTORE) {
+                        emitDescriptorType(visitor, lines.lineAt(pc), locals.typeAt(readUnsignedShort(codeStart + pc + 2),
+                                widened == ALOAD ? pc : pc + length), false);
+                    }
+                }
+                default -> {
+                }
+            }
+            pc += length;
+        }
+    }
+
+    /**
+     * Длина tableswitch, lookupswitch и wide: операнды switch выровнены по 4 байта от начала кода
+     */
+    private int variableLength(int opcode, int codeStart, int pc) {
+        if (opcode == WIDE) {
+            return (bytes[codeStart + pc + 1] & 0xFF) == IINC ? 6 : 4;
+        }
+        int operands = pc + 1 + ((4 - (pc + 1) % 4) % 4);
+        if (opcode == TABLESWITCH) {
+            int low = readInt(codeStart + operands + 4);
+            int high = readInt(codeStart + operands + 8);
+            return operands - pc + 12 + 4 * (high - low + 1);
+        }
+        int pairCount = readInt(codeStart + operands + 4);
+        return operands - pc + 8 + 8 * pairCount;
+    }
+
+    private void loadConstant(int index, int line, ReferenceVisitor visitor) {
+        if ((bytes[constants[index]] & 0xFF) == CONSTANT_CLASS) {
+            emit(visitor, line, elementClassName(index));
+        }
+    }
+
+    /**
+     * Ссылка на поле или метод: класс-владелец, тип поля или типы параметров и результата,
+     * как у привязок JDT для обращения к полю и вызова метода. Владелец собственного поля
+     * не записывается: JDT для имени поля без квалификатора дает только его тип. У вызова
+     * конструктора записывается только класс, как у создания объекта в исходнике.
+     * Object в дескрипторе обычно является стертой переменной типа и не записывается
+     */
+    private void memberReference(int index, boolean method, int line, ReferenceVisitor visitor) {
+        int entry = constants[index];
+        int owner = readUnsignedShort(entry + 1);
+        int nameAndType = constants[readUnsignedShort(entry + 3)];
+        String descriptor = utf8(readUnsignedShort(nameAndType + 3));
+        if (method) {
+            emit(visitor, line, elementClassName(owner));
+            if (utf8(readUnsignedShort(nameAndType + 1)).equals("<init>")) return;
+
+            DescriptorTypes.forEachParameter(descriptor, type -> emitDescriptorType(visitor, line, type, true));
+            emitDescriptorType(visitor, line, DescriptorTypes.returnType(descriptor), false);
+        } else {
+            if (!utf8(readUnsignedShort(constants[owner] + 1)).equals(className)) {
+                emit(visitor, line, elementClassName(owner));
+            }
+            emitDescriptorType(visitor, line, DescriptorTypes.fieldType(descriptor), false);
+        }
+    }
+
+    /**
+     * invokedynamic: владельцы методов, на которые ссылаются аргументы bootstrap-метода,
+     * например String в String::valueOf. Функциональный интерфейс лямбды не записывается,
+     * как и в исходнике, где он не указан
+     */
+    private void dynamicCall(int index, int line, ReferenceVisitor visitor) {
+        if (bootstrapMethodsOffset == 0) return;
+
+        int entry = constants[index];
+        int bootstrapIndex = readUnsignedShort(entry + 1);
+        int bootstrap = bootstrapMethodsOffset + 2;
+        for (int i = 0; i < bootstrapIndex; i++) {
+            bootstrap += 4 + 2 * readUnsignedShort(bootstrap + 2);
+        }
+        int argumentCount = readUnsignedShort(bootstrap + 2);
+        for (int i = 0; i < argumentCount; i++) {
+            int argument = constants[readUnsignedShort(bootstrap + 4 + 2 * i)];
+            if ((bytes[argument] & 0xFF) == CONSTANT_METHOD_HANDLE) {
+                int member = constants[readUnsignedShort(argument + 2)];
+                emit(visitor, line, elementClassName(readUnsignedShort(member + 1)));
+            }
+        }
+    }
+
+    private static void emitDescriptorType(ReferenceVisitor visitor, int line, String typeName, boolean withPrimitives) {
+        if (typeName != null && !typeName.equals("java.lang.Object")
+                && (withPrimitives || !DescriptorTypes.isPrimitive(typeName))) {
+            visitor.reference(line, typeName);
+        }
+    }
+
+    private static void emit(ReferenceVisitor visitor, int line, String typeName) {
+        if (typeName != null) {
+            visitor.reference(line, typeName);
+        }
+    }
+
+    /**
+     * Имя типа записи CONSTANT_Class; для массива - тип элемента, как в исходнике new String[n].
+     * Для примитивов, анонимных и локальных классов возвращает null
+     */
+    private String elementClassName(int index) {
+        String name = classNames[index];
+        if (name == null) {
+            String internalName = utf8(readUnsignedShort(constants[index] + 1));
+            if (internalName.startsWith("[")) {
+                String elementType = DescriptorTypes.fieldType(internalName.substring(internalName.lastIndexOf('[') + 1));
+                name = DescriptorTypes.isPrimitive(elementType) ? "" : elementType;
+            } else {
+                name = DescriptorTypes.className(internalName);
+            }
+            classNames[index] = name == null ? "" : name;
+        }
+        return name == null || name.isEmpty() ? null : name;
+    }
+
+    private int skipMembers(int offset) {
+        int count = readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            int attributeCount = readUnsignedShort(offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributeCount; j++) {
+                offset += 6 + readInt(offset + 2);
+            }
+        }
+        return offset;
+    }
+
+    private void readClassAttributes(int offset) {
+        int count = readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            String name = utf8(readUnsignedShort(offset));
+            if (name.equals("SourceFile")) {
+                sourceFile = utf8(readUnsignedShort(offset + 6));
+            } else if (name.equals("BootstrapMethods")) {
+                bootstrapMethodsOffset = offset + 6;
+            }
+            offset += 6 + readInt(offset + 2);
+        }
+    }
+
+    String utf8(int index) {
+        int offset = constants[index];
+        // Модифицированный UTF-8 совпадает с UTF-8 для имен без нулевого символа и суррогатов
+        return new String(bytes, offset + 3, readUnsignedShort(offset + 1), StandardCharsets.UTF_8);
+    }
+
+    int readUnsignedShort(int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    int readInt(int offset) {
+        return (readUnsignedShort(offset) << 16) | readUnsignedShort(offset + 2);
+    }
+
+    /**
+     * Таблица строк метода: начальные смещения инструкций и строки, отсортированные по смещению
+     */
+    private static final class LineTable {
+        private final int[] startPcs;
+        private final int[] lines;
+
+        private LineTable(int[] startPcs, int[] lines) {
+            this.startPcs = startPcs;
+            this.lines = lines;
+        }
+
+        /**
+         * Собирает все атрибуты LineNumberTable атрибута Code
+         *
+         * @param tables смещения таблиц (на поле длины таблицы)
+         * @return таблица строк или null, если таблиц нет или в них нет ни одной записи
+         */
+        static LineTable read(ClassFileReader reader, List<Integer> tables) {
+            long[] entries = new long[0];
+            int count = 0;
+            for (int table : tables) {
+                int entryCount = reader.readUnsignedShort(table);
+                entries = Arrays.copyOf(entries, count + entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    int entry = table + 2 + 4 * j;
+                    entries[count++] = ((long) reader.readUnsignedShort(entry) << 32) | reader.readUnsignedShort(entry + 2);
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+
+            Arrays.sort(entries, 0, count);
+            int[] startPcs = new int[count];
+            int[] lines = new int[count];
+            for (int i = 0; i < count; i++) {
+                startPcs[i] = (int) (entries[i] >>> 32);
+                lines[i] = (int) entries[i];
+            }
+            return new LineTable(startPcs, lines);
+        }
+
+        /**
+         * @return строка инструкции: строка ближайшего начала строки не после нее
+         */
+        int lineAt(int pc) {
+            int index = Arrays.binarySearch(startPcs, pc);
+            if (index < 0) {
+                index = Math.max(-index - 2, 0);
+            }
+            return lines[index];
+        }
+    }
+
+    /**
+     * Таблица локальных переменных метода: слот, диапазон инструкций и тип ссылочной переменной
+     */
+    private static final class LocalVariables {
+        private final int[] slots;
+        private final int[] startPcs;
+        private final int[] endPcs;
+        private final String[] types;
+
+        private LocalVariables(int[] slots, int[] startPcs, int[] endPcs, String[] types) {
+            this.slots = slots;
+            this.startPcs = startPcs;
+            this.endPcs = endPcs;
+            this.types = types;
+        }
+
+        /**
+         * Собирает атрибуты LocalVariableTable; без них (класс собран без -g) таблица пуста
+         *
+         * @param tables смещения таблиц (на поле длины таблицы)
+         * @return таблица строк или null, если таблиц нет или в них нет ни одной записи
+         */
+        static LocalVariables read(ClassFileReader reader, List<Integer> tables) {
+            int count = 0;
+            for (int table : tables) {
+                count += reader.readUnsignedShort(table);
+            }
+            int[] slots = new int[count];
+            int[] startPcs = new int[count];
+            int[] endPcs = new int[count];
+            String[] types = new String[count];
+            int i = 0;
+            for (int table : tables) {
+                int entryCount = reader.readUnsignedShort(table);
+                for (int j = 0; j < entryCount; j++, i++) {
+                    int entry = table + 2 + 10 * j;
+                    startPcs[i] = reader.readUnsignedShort(entry);
+                    endPcs[i] = startPcs[i] + reader.readUnsignedShort(entry + 2);
+                    slots[i] = reader.readUnsignedShort(entry + 8);
+                    // this - не имя переменной в исходнике
+                    if (!reader.utf8(reader.readUnsignedShort(entry + 4)).equals("this")) {
+                        types[i] = DescriptorTypes.fieldType(reader.utf8(reader.readUnsignedShort(entry + 6)));
+                    }
+                }
+            }
+            return new LocalVariables(slots, startPcs, endPcs, types);
+        }
+
+        /**
+         * @return тип переменной в слоте на инструкции или null
+         */
+        String typeAt(int slot, int pc) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == slot && startPcs[i] <= pc && pc < endPcs[i]) {
+                    return types[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void set(int length, int... opcodes) {
+        for (int opcode : opcodes) {
+            INSTRUCTION_LENGTHS[opcode] = length;
+        }
+    }
+}
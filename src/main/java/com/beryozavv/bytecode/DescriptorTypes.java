@@ -0,0 +1,100 @@
+package com.beryozavv.bytecode;
+
+import java.util.function.Consumer;
+
+/**
+ * Перевод дескрипторов JVM (JVMS 4.3) в имена типов, как их записывают JDT и исходник:
+ * java.util.Map.Entry, int, java.lang.String[]
+ */
+final class DescriptorTypes {
+
+    private DescriptorTypes() {
+    }
+
+    /**
+     * @param descriptor дескриптор поля, например [Ljava/lang/String;
+     * @return имя типа или null для анонимного и локального класса
+     */
+    static String fieldType(String descriptor) {
+        return typeAt(descriptor, 0);
+    }
+
+    /**
+     * Передает получателю имена типов параметров метода, кроме анонимных и локальных классов
+     *
+     * @param descriptor дескриптор метода, например (ILjava/lang/String;)V
+     * @param action     получатель имен
+     */
+    static void forEachParameter(String descriptor, Consumer<String> action) {
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            int end = typeEnd(descriptor, i);
+            String type = typeAt(descriptor, i);
+            if (type != null) {
+                action.accept(type);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * @param descriptor дескриптор метода
+     * @return имя типа результата, void для метода без результата
+     */
+    static String returnType(String descriptor) {
+        return typeAt(descriptor, descriptor.indexOf(')') + 1);
+    }
+
+    /**
+     * @param type имя типа
+     * @return true для примитивного типа и void
+     */
+    static boolean isPrimitive(String type) {
+        return type != null && switch (type) {
+            case "byte", "char", "double", "float", "int", "long", "short", "boolean", "void" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Переводит внутреннее имя класса в полное имя: com/foo/Outer$Inner -> com.foo.Outer.Inner
+     *
+     * @param internalName внутреннее имя
+     * @return полное имя или null для анонимного и локального класса (Outer$1, Outer$1Local)
+     */
+    static String className(String internalName) {
+        for (int dollar = internalName.indexOf('$'); dollar >= 0; dollar = internalName.indexOf('$', dollar + 1)) {
+            if (dollar + 1 < internalName.length() && Character.isDigit(internalName.charAt(dollar + 1))) {
+                return null;
+            }
+        }
+        return internalName.replace('/', '.').replace('$', '.');
+    }
+
+    private static String typeAt(String descriptor, int i) {
+        return switch (descriptor.charAt(i)) {
+            case 'B' -> "byte";
+            case 'C' -> "char";
+            case 'D' -> "double";
+            case 'F' -> "float";
+            case 'I' -> "int";
+            case 'J' -> "long";
+            case 'S' -> "short";
+            case 'Z' -> "boolean";
+            case 'V' -> "void";
+            case '[' -> {
+                String elementType = typeAt(descriptor, i + 1);
+                yield elementType == null ? null : elementType + "[]";
+            }
+            case 'L' -> className(descriptor.substring(i + 1, descriptor.indexOf(';', i)));
+            default -> throw new IllegalArgumentException("Некорректный дескриптор " + descriptor);
+        };
+    }
+
+    private static int typeEnd(String descriptor, int i) {
+        while (descriptor.charAt(i) == '[') {
+            i++;
+        }
+        return descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+    }
+}
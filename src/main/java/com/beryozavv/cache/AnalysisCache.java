@@ -0,0 +1,420 @@
+package com.beryozavv.cache;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Дисковый кэш результатов анализа. Для каждого файла хранит хэш содержимого, найденные
+ * зависимости и типы проекта, на которые файл ссылается, в том числе отброшенные фильтром.
+ * Весь кэш привязан к отпечатку classpath. Привязки файла зависят и от типов других исходников,
+ * поэтому вместе с новыми и измененными файлами разбираются заново файлы, которые ссылаются
+ * на типы измененных и удаленных файлов, а также файлы из пакетов добавленных файлов
+ * и импортирующие эти пакеты по шаблону: новый тип может разрешить прежде неразрешенное
+ * простое имя или заслонить тип из другого импорта.
+ * Тип файла определяется по его пути: пакет по каталогу, имя по имени файла
+ */
+public class AnalysisCache {
+
+    // Сигнатура и версия бинарного формата
+    private static final int MAGIC = 0x4A444143;
+    private static final int FORMAT_VERSION = 3;
+
+    // Окончание ссылки на пакет, импортированный по шаблону
+    private static final String ON_DEMAND_SUFFIX = ".*";
+
+    // Файл кэша
+    private final Path cacheFile;
+
+    // Отпечаток classpath, с которым получены результаты
+    private final String classpathFingerprint;
+
+    // Таблица символов анализатора, в которой регистрируются загруженные имена
+    private final SymbolTable symbols;
+
+    // Записи кэша: номер каталога исходников и путь относительно него -> запись
+    private final Map<String, Entry> entries;
+
+    // Исходники несобранных модулей, по которым разрешались типы: абсолютный путь -> отметка
+    private final Map<String, SourceStamp> dependencySources;
+
+    /**
+     * Результат анализа одного файла вместе с хэшем его содержимого
+     *
+     * @param contentHash     хэш содержимого файла
+     * @param dependencies    зависимости по строкам
+     * @param referencedTypes типы исходников проекта, на которые ссылается файл, и пакеты
+     *                        импортов по шаблону в виде {@link #onDemandImport(String)}
+     */
+    public record Entry(byte[] contentHash, FileDependencies dependencies, String[] referencedTypes) {
+    }
+
+    /**
+     * Отметка файла исходников зависимости. Такие файлы не разбираются, поэтому их изменение
+     * определяется по размеру и времени изменения, а не по хэшу содержимого
+     *
+     * @param size         размер, байт
+     * @param lastModified время изменения, мс
+     * @param type         тип файла
+     */
+    public record SourceStamp(long size, long lastModified, String type) {
+    }
+
+    private AnalysisCache(Path cacheFile, String classpathFingerprint, SymbolTable symbols, Map<String, Entry> entries,
+                          Map<String, SourceStamp> dependencySources) {
+        this.cacheFile = cacheFile;
+        this.classpathFingerprint = classpathFingerprint;
+        this.symbols = symbols;
+        this.entries = entries;
+        this.dependencySources = dependencySources;
+    }
+
+    /**
+     * Загружает кэш для набора каталогов исходников. Если кэша нет, он поврежден
+     * или classpath изменился, возвращается пустой кэш
+     *
+     * @param cacheDir             каталог для файлов кэша
+     * @param sourceRoots          каталоги исходников модуля
+     * @param classpathFingerprint отпечаток текущего classpath
+     * @param symbols              таблица символов анализатора
+     * @return кэш результатов
+     */
+    public static AnalysisCache load(Path cacheDir, List<Path> sourceRoots, String classpathFingerprint, SymbolTable symbols) {
+        StringBuilder rootKey = new StringBuilder();
+        for (Path sourceRoot : sourceRoots) {
+            rootKey.append(sourceRoot.toAbsolutePath().normalize()).append('\n');
+        }
+        Path cacheFile = cacheDir.resolve("analysis-" + Hashing.toHex(Hashing.sha256(rootKey.toString().getBytes(StandardCharsets.UTF_8)), 8) + ".bin");
+
+        AnalysisCache cache = new AnalysisCache(cacheFile, classpathFingerprint, symbols, new HashMap<>(), new HashMap<>());
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                cache.read();
+            } catch (IOException e) {
+                System.err.println("Кэш анализа " + cacheFile + " поврежден и будет перестроен: " + e.getMessage());
+                cache.entries.clear();
+                cache.dependencySources.clear();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Определяет файлы, которые нужно разобрать заново: новые, измененные и ссылающиеся
+     * на типы измененных и удаленных файлов, а также файлы из пакетов добавленных файлов
+     * и импортирующие эти пакеты по шаблону. То же относится к изменениям исходников зависимостей
+     *
+     * @param contentHashes     текущие файлы модуля: ключ -> хэш содержимого
+     * @param dependencySources текущие исходники зависимостей: абсолютный путь -> отметка
+     * @return ключи файлов, результаты которых нельзя взять из кэша
+     */
+    public Set<String> findStale(Map<String, byte[]> contentHashes, Map<String, SourceStamp> dependencySources) {
+        Set<String> stale = new HashSet<>();
+        Set<String> changedTypes = new HashSet<>();
+        Set<String> addedPackages = new HashSet<>();
+        contentHashes.forEach((key, contentHash) -> {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                stale.add(key);
+                addedPackages.add(packageOf(typeOf(key)));
+            } else if (!Arrays.equals(entry.contentHash(), contentHash)) {
+                stale.add(key);
+                changedTypes.add(typeOf(key));
+            }
+        });
+        for (String key : entries.keySet()) {
+            if (!contentHashes.containsKey(key)) {
+                changedTypes.add(typeOf(key));
+            }
+        }
+        dependencySources.forEach((path, stamp) -> {
+            SourceStamp previous = this.dependencySources.get(path);
+            if (previous == null) {
+                addedPackages.add(packageOf(stamp.type()));
+            } else if (!previous.equals(stamp)) {
+                changedTypes.add(stamp.type());
+            }
+        });
+        this.dependencySources.forEach((path, stamp) -> {
+            if (!dependencySources.containsKey(path)) {
+                changedTypes.add(stamp.type());
+            }
+        });
+        if (changedTypes.isEmpty() && addedPackages.isEmpty()) {
+            return stale;
+        }
+
+        for (String key : contentHashes.keySet()) {
+            if (stale.contains(key)) continue;
+
+            if (addedPackages.contains(packageOf(typeOf(key)))) {
+                stale.add(key);
+                continue;
+            }
+            for (String type : entries.get(key).referencedTypes()) {
+                if (changedTypes.contains(type)
+                        || type.endsWith(ON_DEMAND_SUFFIX) && addedPackages.contains(packageOf(type))) {
+                    stale.add(key);
+                    break;
+                }
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Возвращает сохраненную запись файла
+     *
+     * @param relativePath ключ файла: номер каталога исходников и путь относительно него
+     * @return запись или null, если файла нет в кэше
+     */
+    public Entry get(String relativePath) {
+        return entries.get(relativePath);
+    }
+
+    /**
+     * Заменяет содержимое кэша текущими результатами. Файлы, которых нет в новых
+     * результатах, удаляются из кэша
+     *
+     * @param current           актуальные записи по всем файлам модуля
+     * @param dependencySources актуальные отметки исходников зависимостей
+     */
+    public void replaceAll(Map<String, Entry> current, Map<String, SourceStamp> dependencySources) {
+        entries.clear();
+        entries.putAll(current);
+        this.dependencySources.clear();
+        this.dependencySources.putAll(dependencySources);
+    }
+
+    /**
+     * Сохраняет кэш на диск. Запись идет во временный файл, который затем заменяет прежний
+     *
+     * @throws IOException при ошибке записи
+     */
+    public void save() throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        Path tempFile = Files.createTempFile(cacheFile.getParent(), "analysis", ".tmp");
+        try {
+            write(tempFile);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Вычисляет отпечаток classpath по путям, размерам и датам изменения элементов.
+     * Изменения исходников проекта учитываются по файлам в {@link #findStale}
+     *
+     * @param classpath список путей к библиотекам
+     * @return отпечаток в шестнадцатеричном виде
+     */
+    public static String fingerprint(List<String> classpath) {
+        StringBuilder builder = new StringBuilder();
+        for (String entry : classpath) {
+            File file = new File(entry);
+            builder.append(entry).append('|')
+                    .append(file.length()).append('|')
+                    .append(file.lastModified()).append('\n');
+        }
+        return Hashing.toHex(Hashing.sha256(builder.toString().getBytes(StandardCharsets.UTF_8)), 32);
+    }
+
+    /**
+     * Определяет тип файла по ключу кэша: пакет по каталогу, имя по имени файла
+     *
+     * @param relativePath ключ файла: номер каталога исходников и путь относительно него
+     * @return полное имя типа
+     */
+    public static String typeOf(String relativePath) {
+        String path = relativePath.substring(relativePath.indexOf(':') + 1);
+        if (path.endsWith(".java")) {
+            path = path.substring(0, path.length() - ".java".length());
+        }
+        return path.replace('/', '.');
+    }
+
+    /**
+     * Находит в имени зависимости типы исходников проекта, включая аргументы типа:
+     * для каждого полного имени берется самый короткий префикс, который является типом проекта,
+     * то есть тип верхнего уровня, объявленный файлом
+     *
+     * @param name         имя зависимости, например java.util.List&lt;com.example.Item&gt;
+     * @param projectTypes типы файлов исходников проекта
+     * @param types        множество, в которое добавляются найденные типы
+     */
+    public static void addReferencedTypes(String name, Set<String> projectTypes, Collection<String> types) {
+        int start = -1;
+        for (int i = 0; i <= name.length(); i++) {
+            char c = i < name.length() ? name.charAt(i) : ' ';
+            boolean part = c == '.' || Character.isJavaIdentifierPart(c);
+            if (part && start < 0) {
+                start = i;
+            }
+            if (part || start < 0) continue;
+
+            for (int end = name.indexOf('.', start); ; end = name.indexOf('.', end + 1)) {
+                if (end < 0 || end > i) {
+                    end = i;
+                }
+                String prefix = name.substring(start, end);
+                if (projectTypes.contains(prefix)) {
+                    types.add(prefix);
+                    break;
+                }
+                if (end == i) break;
+            }
+            start = -1;
+        }
+    }
+
+    /**
+     * @param packageName пакет, импортированный по шаблону
+     * @return ссылка на пакет среди типов, на которые ссылается файл
+     */
+    public static String onDemandImport(String packageName) {
+        return packageName + ON_DEMAND_SUFFIX;
+    }
+
+    /**
+     * @param type полное имя типа
+     * @return пакет типа, пустая строка для пакета по умолчанию
+     */
+    private static String packageOf(String type) {
+        int dot = type.lastIndexOf('.');
+        return dot < 0 ? "" : type.substring(0, dot);
+    }
+
+    /**
+     * Вычисляет хэш содержимого файла
+     *
+     * @param file путь к файлу
+     * @return SHA-256 содержимого
+     * @throws IOException при ошибке чтения файла
+     */
+    public static byte[] hash(Path file) throws IOException {
+        return Hashing.sha256(Files.readAllBytes(file));
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            if (!in.readUTF().equals(classpathFingerprint)) {
+                // classpath изменился, все результаты недействительны
+                return;
+            }
+
+            // Таблица строк: каждое полное имя хранится один раз и сразу регистрируется в таблице символов
+            int[] symbolIds = new int[in.readInt()];
+            for (int i = 0; i < symbolIds.length; i++) {
+                symbolIds[i] = symbols.intern(in.readUTF());
+            }
+            // Таблица типов проекта, на которые ссылаются файлы
+            String[] types = new String[in.readInt()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = in.readUTF();
+            }
+
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String path = in.readUTF();
+                byte[] contentHash = new byte[in.readUnsignedByte()];
+                in.readFully(contentHash);
+
+                int lineCount = in.readInt();
+                FileDependencies.Builder dependencies = new FileDependencies.Builder();
+                for (int j = 0; j < lineCount; j++) {
+                    int line = in.readInt();
+                    int depCount = in.readInt();
+                    for (int k = 0; k < depCount; k++) {
+                        dependencies.add(line, symbolIds[in.readInt()]);
+                    }
+                }
+                String[] referencedTypes = new String[in.readInt()];
+                for (int j = 0; j < referencedTypes.length; j++) {
+                    referencedTypes[j] = types[in.readInt()];
+                }
+                entries.put(path, new Entry(contentHash, dependencies.build(), referencedTypes));
+            }
+
+            int sourceCount = in.readInt();
+            for (int i = 0; i < sourceCount; i++) {
+                String path = in.readUTF();
+                dependencySources.put(path, new SourceStamp(in.readLong(), in.readLong(), in.readUTF()));
+            }
+        } catch (ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Некорректный формат кэша", e);
+        }
+    }
+
+    private void write(Path file) throws IOException {
+        // Собираем таблицы строк только из используемых символов и типов: значение -> номер в файле
+        Map<Integer, Integer> fileSymbolIds = new LinkedHashMap<>();
+        Map<String, Integer> fileTypeIds = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            FileDependencies dependencies = entry.dependencies();
+            for (int i = 0; i < dependencies.getLineCount(); i++) {
+                for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                    fileSymbolIds.putIfAbsent(dependencies.getSymbolId(i, j), fileSymbolIds.size());
+                }
+            }
+            for (String type : entry.referencedTypes()) {
+                fileTypeIds.putIfAbsent(type, fileTypeIds.size());
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(classpathFingerprint);
+
+            out.writeInt(fileSymbolIds.size());
+            for (int symbolId : fileSymbolIds.keySet()) {
+                out.writeUTF(symbols.getName(symbolId));
+            }
+            out.writeInt(fileTypeIds.size());
+            for (String type : fileTypeIds.keySet()) {
+                out.writeUTF(type);
+            }
+
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> fileEntry : entries.entrySet()) {
+                out.writeUTF(fileEntry.getKey());
+                byte[] contentHash = fileEntry.getValue().contentHash();
+                out.writeByte(contentHash.length);
+                out.write(contentHash);
+
+                FileDependencies dependencies = fileEntry.getValue().dependencies();
+                out.writeInt(dependencies.getLineCount());
+                for (int i = 0; i < dependencies.getLineCount(); i++) {
+                    out.writeInt(dependencies.getLine(i));
+                    out.writeInt(dependencies.getSymbolCount(i));
+                    for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                        out.writeInt(fileSymbolIds.get(dependencies.getSymbolId(i, j)));
+                    }
+                }
+                String[] referencedTypes = fileEntry.getValue().referencedTypes();
+                out.writeInt(referencedTypes.length);
+                for (String type : referencedTypes) {
+                    out.writeInt(fileTypeIds.get(type));
+                }
+            }
+
+            out.writeInt(dependencySources.size());
+            for (Map.Entry<String, SourceStamp> source : dependencySources.entrySet()) {
+                out.writeUTF(source.getKey());
+                out.writeLong(source.getValue().size());
+                out.writeLong(source.getValue().lastModified());
+                out.writeUTF(source.getValue().type());
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.beryozavv.cache;
+
+import com.beryozavv.ModulePaths;
+import com.beryozavv.PathResult;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Дисковый кэш модели Gradle. Хранит пути к исходникам и classpath проекта,
+ * пока не изменились файлы сборки. Модель содержит абсолютные пути, поэтому у каждого
+ * корневого каталога проекта свой файл кэша, даже если каталог кэша общий
+ */
+public class GradleModelCache {
+
+    // Сигнатура и версия бинарного формата
+    private static final int MAGIC = 0x4A444147;
+    private static final int FORMAT_VERSION = 4;
+
+    // Префикс имени файла кэша внутри каталога кэша
+    private static final String CACHE_FILE_PREFIX = "gradle-model-";
+
+    // Файлы, влияющие на модель проекта, помимо build.gradle(.kts)
+    private static final List<String> ROOT_BUILD_FILES = List.of(
+            "settings.gradle",
+            "settings.gradle.kts",
+            "gradle.properties",
+            "gradle/wrapper/gradle-wrapper.properties",
+            "gradle/libs.versions.toml");
+
+    // Каталоги, в которых не ищутся файлы сборки
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of(".git", ".gradle", ".idea", "build", "out", "node_modules");
+
+    // Файл кэша
+    private final Path cacheFile;
+
+    // Хэш корневого каталога и файлов сборки проекта
+    private final String buildFilesHash;
+
+    private GradleModelCache(Path cacheFile, String buildFilesHash) {
+        this.cacheFile = cacheFile;
+        this.buildFilesHash = buildFilesHash;
+    }
+
+    /**
+     * Создает кэш модели для проекта и вычисляет хэш его файлов сборки
+     *
+     * @param cacheDir    каталог для файлов кэша
+     * @param projectRoot корневой каталог Gradle-проекта
+     * @return кэш модели
+     * @throws IOException при ошибке чтения файлов сборки
+     */
+    public static GradleModelCache open(Path cacheDir, Path projectRoot) throws IOException {
+        String rootKey = projectRoot.toAbsolutePath().normalize().toString();
+        Path cacheFile = cacheDir.resolve(CACHE_FILE_PREFIX + Hashing.toHex(Hashing.sha256(rootKey.getBytes(StandardCharsets.UTF_8)), 8) + ".bin");
+        return new GradleModelCache(cacheFile, hashBuildFiles(projectRoot, rootKey, cacheDir));
+    }
+
+    /**
+     * Возвращает сохраненную модель, если файлы сборки не изменились
+     * и все элементы classpath все еще существуют
+     *
+     * @return сохраненные пути или null, если модель нужно получить заново
+     */
+    public PathResult load() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(buildFilesHash)) {
+                return null;
+            }
+            PathResult pathResult = readModules(in);
+            // Библиотеки могли быть удалены из кэша Gradle
+            for (ModulePaths module : pathResult.getModules()) {
+                for (String entry : module.getResolutionClassPath()) {
+                    if (!Files.exists(Path.of(entry))) {
+                        return null;
+                    }
+                }
+            }
+            return pathResult;
+        } catch (IOException e) {
+            System.err.println("Кэш модели Gradle " + cacheFile + " поврежден и будет перестроен: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет модель на диск
+     *
+     * @param pathResult пути к исходникам и classpath модулей проекта
+     * @throws IOException при ошибке записи
+     */
+    public void save(PathResult pathResult) throws IOException {
+        write(cacheFile, buildFilesHash, pathResult);
+    }
+
+    /**
+     * Записывает модель в отдельный файл, например для передачи процессам-исполнителям,
+     * которым не нужно заново подключаться к Gradle
+     *
+     * @param file       файл модели
+     * @param pathResult пути к исходникам и classpath модулей проекта
+     * @throws IOException при ошибке записи
+     */
+    public static void writeModelFile(Path file, PathResult pathResult) throws IOException {
+        write(file.toAbsolutePath(), "", pathResult);
+    }
+
+    /**
+     * Читает модель, записанную {@link #writeModelFile(Path, PathResult)}, без проверки файлов сборки
+     *
+     * @param file файл модели
+     * @return пути к исходникам и classpath модулей проекта
+     * @throws IOException если файл не удалось прочитать или он имеет другой формат
+     */
+    public static PathResult readModelFile(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Файл " + file + " не является файлом модели проекта");
+            }
+            in.readUTF();
+            return readModules(in);
+        }
+    }
+
+    private static void write(Path file, String buildFilesHash, PathResult pathResult) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(file.getParent(), "gradle-model", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(buildFilesHash);
+                out.writeInt(pathResult.getModules().size());
+                for (ModulePaths module : pathResult.getModules()) {
+                    out.writeUTF(module.getName());
+                    writeList(out, module.getSourcePath());
+                    writeList(out, module.getClassPath());
+                    writeList(out, module.getModuleOutputPath());
+                    out.writeUTF(module.getOutputPath() == null ? "" : module.getOutputPath());
+                    writeList(out, module.getDependencySourcePath());
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static PathResult readModules(DataInputStream in) throws IOException {
+        int moduleCount = in.readInt();
+        List<ModulePaths> modules = new ArrayList<>(Math.max(moduleCount, 0));
+        for (int i = 0; i < moduleCount; i++) {
+            String name = in.readUTF();
+            List<String> sourcePath = readList(in);
+            List<String> classPath = readList(in);
+            List<String> moduleOutputPath = readList(in);
+            String outputPath = in.readUTF();
+            List<String> dependencySourcePath = readList(in);
+            modules.add(new ModulePaths(name, sourcePath, classPath, moduleOutputPath, outputPath.isEmpty() ? null : outputPath,
+                    dependencySourcePath));
+        }
+        return new PathResult(modules);
+    }
+
+    /**
+     * Находит файлы сборки проекта: settings, gradle.properties, свойства wrapper, каталог версий
+     * и все build.gradle(.kts), кроме служебных каталогов и каталога кэша
+     *
+     * @param projectRoot корневой каталог Gradle-проекта
+     * @param cacheDir    каталог кэша, который не просматривается; может быть null
+     * @return файлы сборки в порядке путей
+     * @throws IOException при ошибке обхода каталогов
+     */
+    public static List<Path> findBuildFiles(Path projectRoot, Path cacheDir) throws IOException {
+        List<Path> buildFiles = new ArrayList<>();
+        for (String name : ROOT_BUILD_FILES) {
+            Path file = projectRoot.resolve(name);
+            if (Files.isRegularFile(file)) {
+                buildFiles.add(file);
+            }
+        }
+
+        Path normalizedCacheDir = cacheDir == null ? null : cacheDir.toAbsolutePath().normalize();
+        Files.walkFileTree(projectRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(projectRoot)
+                        && (SKIPPED_DIRECTORIES.contains(dir.getFileName().toString())
+                        || dir.toAbsolutePath().normalize().equals(normalizedCacheDir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (isBuildFile(file)) {
+                    buildFiles.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(buildFiles);
+        return buildFiles;
+    }
+
+    /**
+     * Проверяет, является ли файл скриптом сборки build.gradle(.kts)
+     *
+     * @param file путь к файлу
+     * @return true для build.gradle и build.gradle.kts
+     */
+    public static boolean isBuildFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.equals("build.gradle") || name.equals("build.gradle.kts");
+    }
+
+    /**
+     * Проверяет, влияет ли файл на модель проекта: build.gradle(.kts) в любом каталоге
+     * или один из корневых файлов сборки
+     *
+     * @param projectRoot корневой каталог Gradle-проекта
+     * @param file        путь к файлу
+     * @return true, если изменение файла требует получить модель заново
+     */
+    public static boolean affectsModel(Path projectRoot, Path file) {
+        if (isBuildFile(file)) {
+            return true;
+        }
+        for (String name : ROOT_BUILD_FILES) {
+            if (file.equals(projectRoot.resolve(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Вычисляет общий хэш корневого каталога и файлов сборки в порядке их относительных путей
+     */
+    private static String hashBuildFiles(Path projectRoot, String rootKey, Path cacheDir) throws IOException {
+        MessageDigest digest = Hashing.newSha256();
+        digest.update(rootKey.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (Path file : findBuildFiles(projectRoot, cacheDir)) {
+            digest.update(projectRoot.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(file));
+            digest.update((byte) 0);
+        }
+        return Hashing.toHex(digest.digest(), 32);
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Некорректный размер списка: " + size);
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String item : list) {
+            out.writeUTF(item);
+        }
+    }
+}
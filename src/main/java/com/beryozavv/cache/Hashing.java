@@ -0,0 +1,52 @@
+package com.beryozavv.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Вспомогательные методы для вычисления хэшей ключей кэша
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Создает новый экземпляр SHA-256
+     *
+     * @return объект для вычисления хэша
+     */
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Вычисляет SHA-256 массива байт
+     *
+     * @param data данные
+     * @return хэш
+     */
+    static byte[] sha256(byte[] data) {
+        return newSha256().digest(data);
+    }
+
+    /**
+     * Переводит начало массива байт в шестнадцатеричную строку
+     *
+     * @param bytes  исходные байты
+     * @param length количество байт, попадающих в строку
+     * @return шестнадцатеричная строка
+     */
+    static String toHex(byte[] bytes, int length) {
+        StringBuilder builder = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            builder.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
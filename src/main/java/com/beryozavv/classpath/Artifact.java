@@ -0,0 +1,50 @@
+package com.beryozavv.classpath;
+
+import java.nio.file.Path;
+
+/**
+ * Артефакт, из которого взят тип. Координаты определяются по расположению архива
+ * в кэше Gradle (files-2.1/группа/имя/версия/хэш/файл) или в локальном репозитории
+ * Maven (repository/путь/группы/имя/версия/файл); для остальных элементов известен только файл
+ *
+ * @param group   группа или null
+ * @param name    имя артефакта или null
+ * @param version версия или null
+ * @param file    путь к архиву или каталогу классов
+ */
+public record Artifact(String group, String name, String version, String file) {
+
+    /**
+     * Определяет артефакт по пути элемента classpath
+     *
+     * @param entry путь к архиву или каталогу классов
+     * @return артефакт
+     */
+    public static Artifact of(String entry) {
+        Path path = Path.of(entry).toAbsolutePath().normalize();
+        int count = path.getNameCount();
+        for (int i = 0; i < count; i++) {
+            String segment = path.getName(i).toString();
+            if (segment.equals("files-2.1") && count - i == 6) {
+                return new Artifact(path.getName(i + 1).toString(), path.getName(i + 2).toString(),
+                        path.getName(i + 3).toString(), entry);
+            }
+            if (segment.equals("repository") && count - i >= 5) {
+                String name = path.getName(count - 3).toString();
+                String version = path.getName(count - 2).toString();
+                if (path.getFileName().toString().startsWith(name + "-" + version)) {
+                    return new Artifact(path.subpath(i + 1, count - 3).toString().replace(path.getFileSystem().getSeparator(), "."),
+                            name, version, entry);
+                }
+            }
+        }
+        return new Artifact(null, null, null, entry);
+    }
+
+    /**
+     * @return координаты группа:имя:версия или путь к файлу, если они неизвестны
+     */
+    public String coordinates() {
+        return group == null ? file : group + ":" + name + ":" + version;
+    }
+}
@@ -0,0 +1,145 @@
+package com.beryozavv.classpath;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Чтение пакетов, на которые ссылается class-файл, по его пулу констант: имена классов,
+ * дескрипторы и сигнатуры полей и методов. Байт-код методов не разбирается
+ */
+final class ClassFileReferences {
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+
+    // Теги пула констант (JVMS 4.4)
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private ClassFileReferences() {
+    }
+
+    /**
+     * Добавляет пакеты, на которые ссылается class-файл, через точку. Пакеты JDK
+     * (java.*) не добавляются. Поврежденный файл пропускается
+     *
+     * @param classFile содержимое class-файла
+     * @param packages  множество, в которое добавляются пакеты
+     */
+    static void addReferencedPackages(byte[] classFile, Set<String> packages) {
+        if (classFile.length < 10 || readInt(classFile, 0) != CLASS_FILE_MAGIC) {
+            return;
+        }
+
+        int count = readUnsignedShort(classFile, 8);
+        // Смещения записей Utf8 и индексы имен классов
+        int[] utf8Offsets = new int[count];
+        int[] classNames = new int[count];
+        int classCount = 0;
+        int offset = 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                int tag = classFile[offset] & 0xFF;
+                switch (tag) {
+                    case CONSTANT_UTF8 -> {
+                        utf8Offsets[i] = offset + 1;
+                        offset += 3 + readUnsignedShort(classFile, offset + 1);
+                    }
+                    case CONSTANT_CLASS -> {
+                        classNames[classCount++] = readUnsignedShort(classFile, offset + 1);
+                        offset += 3;
+                    }
+                    case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE -> offset += 3;
+                    case CONSTANT_METHOD_HANDLE -> offset += 4;
+                    case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                         CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                         CONSTANT_INVOKE_DYNAMIC -> offset += 5;
+                    case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                        // Занимают две записи пула
+                        offset += 9;
+                        i++;
+                    }
+                    default -> {
+                        return;
+                    }
+                }
+            }
+
+            for (int i = 0; i < classCount; i++) {
+                int utf8 = utf8Offsets[classNames[i]];
+                if (utf8 == 0) continue;
+                String name = readUtf8(classFile, utf8);
+                if (name.startsWith("[")) {
+                    addDescriptorPackages(name, packages);
+                } else {
+                    addPackage(name, 0, name.length(), packages);
+                }
+            }
+            // Дескрипторы и сигнатуры: (Ljava/lang/String;)V, <T:Ljava/lang/Object;>Lfoo/Bar<TT;>;
+            for (int i = 1; i < count; i++) {
+                int utf8 = utf8Offsets[i];
+                if (utf8 == 0 || readUnsignedShort(classFile, utf8) == 0) continue;
+                byte first = classFile[utf8 + 2];
+                if (first == '(' || first == 'L' || first == '[' || first == '<') {
+                    addDescriptorPackages(readUtf8(classFile, utf8), packages);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // Обрезанный class-файл: оставляем то, что успели прочитать
+        }
+    }
+
+    /**
+     * Добавляет пакеты всех ссылок на классы вида Lpkg/Name; в дескрипторе или сигнатуре
+     */
+    private static void addDescriptorPackages(String descriptor, Set<String> packages) {
+        for (int i = descriptor.indexOf('L'); i >= 0; i = descriptor.indexOf('L', i + 1)) {
+            int end = i + 1;
+            while (end < descriptor.length()) {
+                char c = descriptor.charAt(end);
+                if (c == ';' || c == '<') break;
+                end++;
+            }
+            addPackage(descriptor, i + 1, end, packages);
+            i = end;
+        }
+    }
+
+    /**
+     * Добавляет пакет внутреннего имени класса pkg/sub/Name, если имя не из пакета java.*
+     */
+    private static void addPackage(String internalName, int from, int to, Set<String> packages) {
+        int slash = internalName.lastIndexOf('/', to - 1);
+        if (slash <= from || internalName.startsWith("java/", from)) {
+            return;
+        }
+        packages.add(internalName.substring(from, slash).replace('/', '.'));
+    }
+
+    private static String readUtf8(byte[] classFile, int offset) {
+        // Модифицированный UTF-8 совпадает с UTF-8 для имен без нулевого символа и суррогатов
+        return new String(classFile, offset + 2, readUnsignedShort(classFile, offset), StandardCharsets.UTF_8);
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (readUnsignedShort(bytes, offset) << 16) | readUnsignedShort(bytes, offset + 2);
+    }
+}
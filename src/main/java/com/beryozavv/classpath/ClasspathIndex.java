@@ -0,0 +1,227 @@
+package com.beryozavv.classpath;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Дисковый кэш содержимого JAR-файлов: пакеты и имена типов каждого архива и пакеты
+ * других архивов, на которые ссылаются его классы. Запись кэша действительна, пока
+ * не изменились путь, размер и дата изменения архива, поэтому архив читается один раз.
+ * Индекс общий для модулей проекта и потокобезопасен
+ */
+public class ClasspathIndex {
+
+    // Сигнатура и версия бинарного формата
+    private static final int MAGIC = 0x4A44414A;
+    private static final int FORMAT_VERSION = 2;
+
+    // Имя файла кэша внутри каталога кэша
+    private static final String CACHE_FILE_NAME = "classpath-index.bin";
+
+    // Префикс классов для других версий Java в многоверсионных JAR
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    /**
+     * Содержимое архива
+     *
+     * @param size           размер файла, байт
+     * @param lastModified   дата изменения файла, мс
+     * @param typesByPackage       пакет -> простые имена типов, вложенные типы через точку
+     * @param referencedPackages пакеты вне архива, на которые ссылаются его классы, кроме java.*
+     */
+    public record JarListing(long size, long lastModified, Map<String, String[]> typesByPackage,
+                             String[] referencedPackages) {
+    }
+
+    // Файл кэша, null если индекс хранится только в памяти
+    private final Path cacheFile;
+
+    // Путь к архиву -> содержимое
+    private final Map<String, JarListing> listings;
+
+    // Есть записи, которых нет в файле кэша
+    private volatile boolean changed;
+
+    private ClasspathIndex(Path cacheFile, Map<String, JarListing> listings) {
+        this.cacheFile = cacheFile;
+        this.listings = listings;
+    }
+
+    /**
+     * Загружает индекс из каталога кэша. Если кэша нет или он поврежден, индекс пуст
+     *
+     * @param cacheDir каталог кэша или null, чтобы не сохранять индекс на диск
+     * @return индекс содержимого архивов
+     */
+    public static ClasspathIndex load(Path cacheDir) {
+        if (cacheDir == null) {
+            return new ClasspathIndex(null, new ConcurrentHashMap<>());
+        }
+
+        Path cacheFile = cacheDir.resolve(CACHE_FILE_NAME);
+        Map<String, JarListing> listings = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                read(cacheFile, listings);
+            } catch (IOException e) {
+                System.err.println("Кэш classpath " + cacheFile + " поврежден и будет перестроен: " + e.getMessage());
+                listings.clear();
+            }
+        }
+        return new ClasspathIndex(cacheFile, listings);
+    }
+
+    /**
+     * Возвращает содержимое архива, читая его заново, если архив изменился
+     *
+     * @param jar путь к архиву
+     * @return содержимое архива
+     * @throws IOException если архив не удалось прочитать
+     */
+    public JarListing listing(String jar) throws IOException {
+        Path path = Path.of(jar);
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+        JarListing listing = listings.get(jar);
+        if (listing != null && listing.size() == size && listing.lastModified() == lastModified) {
+            return listing;
+        }
+        listing = readArchive(path, size, lastModified);
+        listings.put(jar, listing);
+        changed = true;
+        return listing;
+    }
+
+    /**
+     * Создает представление classpath одного модуля
+     *
+     * @param classpath пути к JAR-файлам и каталогам классов
+     * @return classpath модуля с пакетами его элементов
+     * @throws IOException при ошибке обхода каталога классов
+     */
+    public ModuleClasspath forClasspath(List<String> classpath) throws IOException {
+        return new ModuleClasspath(classpath, this);
+    }
+
+    /**
+     * Сохраняет индекс, если в нем появились новые записи. Записи архивов,
+     * которых больше нет на диске, не сохраняются
+     *
+     * @throws IOException при ошибке записи
+     */
+    public synchronized void save() throws IOException {
+        if (cacheFile == null || !changed) return;
+
+        listings.keySet().removeIf(jar -> !Files.isRegularFile(Path.of(jar)));
+        Files.createDirectories(cacheFile.getParent());
+        Path tempFile = Files.createTempFile(cacheFile.getParent(), "classpath-index", ".tmp");
+        try {
+            write(tempFile);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        changed = false;
+    }
+
+    /**
+     * Читает имена классов архива и пакеты, на которые ссылаются пулы констант классов
+     */
+    private static JarListing readArchive(Path jar, long size, long lastModified) throws IOException {
+        Map<String, List<String>> types = new HashMap<>();
+        Set<String> references = new HashSet<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.startsWith(VERSIONS_PREFIX)) {
+                    // META-INF/versions/11/com/foo/Bar.class
+                    int slash = name.indexOf('/', VERSIONS_PREFIX.length());
+                    if (slash < 0) continue;
+                    name = name.substring(slash + 1);
+                }
+                if (!name.endsWith(".class") || name.endsWith("module-info.class") || name.endsWith("package-info.class")) {
+                    continue;
+                }
+                int slash = name.lastIndexOf('/');
+                String packageName = slash < 0 ? "" : name.substring(0, slash).replace('/', '.');
+                String typeName = name.substring(slash + 1, name.length() - ".class".length()).replace('$', '.');
+                types.computeIfAbsent(packageName, key -> new ArrayList<>()).add(typeName);
+                try (InputStream in = zip.getInputStream(entry)) {
+                    ClassFileReferences.addReferencedPackages(in.readAllBytes(), references);
+                }
+            }
+        }
+
+        Map<String, String[]> typesByPackage = new HashMap<>(types.size() * 2);
+        types.forEach((packageName, names) -> typesByPackage.put(packageName, names.stream().distinct().toArray(String[]::new)));
+        references.removeAll(typesByPackage.keySet());
+        return new JarListing(size, lastModified, typesByPackage, references.stream().sorted().toArray(String[]::new));
+    }
+
+    private static void read(Path file, Map<String, JarListing> listings) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            int jarCount = in.readInt();
+            for (int i = 0; i < jarCount; i++) {
+                String jar = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int packageCount = in.readInt();
+                Map<String, String[]> typesByPackage = new HashMap<>(Math.max(packageCount, 0) * 2);
+                for (int j = 0; j < packageCount; j++) {
+                    String packageName = in.readUTF();
+                    String[] names = new String[in.readInt()];
+                    for (int k = 0; k < names.length; k++) {
+                        names[k] = in.readUTF();
+                    }
+                    typesByPackage.put(packageName, names);
+                }
+                String[] referencedPackages = new String[in.readInt()];
+                for (int j = 0; j < referencedPackages.length; j++) {
+                    referencedPackages[j] = in.readUTF();
+                }
+                listings.put(jar, new JarListing(size, lastModified, typesByPackage, referencedPackages));
+            }
+        } catch (NegativeArraySizeException e) {
+            throw new IOException("Некорректный формат кэша", e);
+        }
+    }
+
+    private void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            Map<String, JarListing> snapshot = new TreeMap<>(listings);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, JarListing> entry : snapshot.entrySet()) {
+                JarListing listing = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(listing.size());
+                out.writeLong(listing.lastModified());
+                out.writeInt(listing.typesByPackage().size());
+                for (Map.Entry<String, String[]> packageEntry : listing.typesByPackage().entrySet()) {
+                    out.writeUTF(packageEntry.getKey());
+                    out.writeInt(packageEntry.getValue().length);
+                    for (String name : packageEntry.getValue()) {
+                        out.writeUTF(name);
+                    }
+                }
+                out.writeInt(listing.referencedPackages().length);
+                for (String packageName : listing.referencedPackages()) {
+                    out.writeUTF(packageName);
+                }
+            }
+        }
+    }
+}
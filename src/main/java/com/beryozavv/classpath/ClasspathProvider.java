@@ -0,0 +1,44 @@
+package com.beryozavv.classpath;
+
+import com.beryozavv.PathResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Источник модели проекта: каталоги исходников и classpath модулей. Модель можно получить
+ * у Gradle или составить без него из готовых списков путей
+ */
+public interface ClasspathProvider {
+
+    /**
+     * Получает модель проекта
+     *
+     * @param projectRoot корневой каталог проекта
+     * @param refresh     получить модель заново, минуя кэш, если он есть
+     * @return пути к исходникам и classpath модулей
+     * @throws IOException при ошибке чтения файлов модели
+     */
+    PathResult load(Path projectRoot, boolean refresh) throws IOException;
+
+    /**
+     * Проверяет, требует ли изменение файла получить модель заново (для режима наблюдения)
+     *
+     * @param projectRoot корневой каталог проекта
+     * @param file        измененный файл
+     * @return true, если файл описывает модель проекта
+     */
+    default boolean affectsModel(Path projectRoot, Path file) {
+        return false;
+    }
+
+    /**
+     * @param projectRoot корневой каталог проекта
+     * @return каталоги с файлами модели, за которыми нужно наблюдать вместе с исходниками
+     * @throws IOException при ошибке обхода каталогов
+     */
+    default List<Path> modelDirectories(Path projectRoot) throws IOException {
+        return List.of();
+    }
+}
@@ -0,0 +1,57 @@
+package com.beryozavv.classpath;
+
+import com.beryozavv.GradleConnectorWrapper;
+import com.beryozavv.PathResult;
+import com.beryozavv.cache.GradleModelCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Модель проекта из Gradle Tooling API. Если задан каталог кэша, модель берется из кэша,
+ * пока не изменились файлы сборки
+ */
+public class GradleClasspathProvider implements ClasspathProvider {
+
+    // Каталог кэша модели, null если кэш отключен
+    private final Path cacheDir;
+
+    /**
+     * @param cacheDir каталог кэша модели или null
+     */
+    public GradleClasspathProvider(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public PathResult load(Path projectRoot, boolean refresh) throws IOException {
+        return cacheDir == null
+                ? GradleConnectorWrapper.GetClassAndSourcePaths(projectRoot)
+                : GradleConnectorWrapper.GetClassAndSourcePaths(projectRoot, cacheDir, refresh);
+    }
+
+    @Override
+    public boolean affectsModel(Path projectRoot, Path file) {
+        return GradleModelCache.affectsModel(projectRoot, file);
+    }
+
+    @Override
+    public List<Path> modelDirectories(Path projectRoot) throws IOException {
+        Set<Path> directories = new LinkedHashSet<>();
+        directories.add(projectRoot);
+        for (String name : List.of("gradle", "gradle/wrapper")) {
+            if (Files.isDirectory(projectRoot.resolve(name))) {
+                directories.add(projectRoot.resolve(name));
+            }
+        }
+        for (Path buildFile : GradleModelCache.findBuildFiles(projectRoot, cacheDir)) {
+            directories.add(buildFile.getParent());
+        }
+        return new ArrayList<>(directories);
+    }
+}
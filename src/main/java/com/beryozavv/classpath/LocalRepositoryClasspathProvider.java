@@ -0,0 +1,136 @@
+package com.beryozavv.classpath;
+
+import com.beryozavv.PathResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Модель проекта из списка артефактов, найденных в локальных хранилищах без обращения к сети:
+ * в репозитории Maven (~/.m2/repository) и в кэше Gradle (~/.gradle/caches/modules-2/files-2.1).
+ * Список содержит по одному артефакту в строке в виде группа:имя:версия[:классификатор];
+ * транзитивные зависимости не вычисляются, поэтому список должен быть полным, например
+ * выгрузкой разрешенной конфигурации сборки. Проект считается одним модулем
+ */
+public class LocalRepositoryClasspathProvider implements ClasspathProvider {
+
+    // Файл со списком артефактов
+    private final Path artifactsFile;
+
+    // Каталоги исходников относительно корня проекта
+    private final List<String> sourceRoots;
+
+    // Локальные репозитории Maven
+    private final List<Path> mavenRepositories;
+
+    // Каталоги files-2.1 кэшей Gradle
+    private final List<Path> gradleCaches;
+
+    /**
+     * Использует стандартные хранилища текущего пользователя: репозиторий Maven из свойства
+     * maven.repo.local или ~/.m2/repository и кэш Gradle из GRADLE_USER_HOME или ~/.gradle
+     *
+     * @param artifactsFile файл со списком артефактов
+     * @param sourceRoots   каталоги исходников; если пусто, берется src/main/java или корень проекта
+     */
+    public LocalRepositoryClasspathProvider(Path artifactsFile, List<String> sourceRoots) {
+        this(artifactsFile, sourceRoots, List.of(defaultMavenRepository()), List.of(defaultGradleCache()));
+    }
+
+    /**
+     * @param artifactsFile     файл со списком артефактов
+     * @param sourceRoots       каталоги исходников
+     * @param mavenRepositories локальные репозитории Maven в порядке поиска
+     * @param gradleCaches      каталоги files-2.1 кэшей Gradle в порядке поиска
+     */
+    public LocalRepositoryClasspathProvider(Path artifactsFile, List<String> sourceRoots,
+                                            List<Path> mavenRepositories, List<Path> gradleCaches) {
+        this.artifactsFile = artifactsFile.toAbsolutePath().normalize();
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.mavenRepositories = List.copyOf(mavenRepositories);
+        this.gradleCaches = List.copyOf(gradleCaches);
+    }
+
+    @Override
+    public PathResult load(Path projectRoot, boolean refresh) throws IOException {
+        List<String> classpath = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String line : Files.readAllLines(artifactsFile, StandardCharsets.UTF_8)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split(":");
+            if (parts.length < 3 || parts.length > 4) {
+                throw new IOException("Некорректный артефакт в " + artifactsFile + ": " + line
+                        + ", ожидается группа:имя:версия[:классификатор]");
+            }
+            Path jar = find(parts[0], parts[1], parts[2], parts.length == 4 ? parts[3] : null);
+            if (jar != null) {
+                classpath.add(jar.toString());
+            } else {
+                missing.add(line);
+            }
+        }
+        StaticClasspathProvider.reportMissing("Не найдено артефактов в локальных хранилищах", missing);
+        return StaticClasspathProvider.singleModule(projectRoot, sourceRoots, classpath);
+    }
+
+    /**
+     * Ищет архив артефакта сначала в репозиториях Maven, затем в кэшах Gradle
+     *
+     * @return путь к архиву или null
+     */
+    private Path find(String group, String name, String version, String classifier) throws IOException {
+        String fileName = name + "-" + version + (classifier == null ? "" : "-" + classifier) + ".jar";
+        for (Path repository : mavenRepositories) {
+            Path jar = repository.resolve(group.replace('.', '/')).resolve(name).resolve(version).resolve(fileName);
+            if (Files.isRegularFile(jar)) {
+                return jar;
+            }
+        }
+
+        // В кэше Gradle архив лежит в подкаталоге с именем по его хэшу
+        for (Path cache : gradleCaches) {
+            Path versionDir = cache.resolve(group).resolve(name).resolve(version);
+            if (!Files.isDirectory(versionDir)) continue;
+
+            try (DirectoryStream<Path> hashDirs = Files.newDirectoryStream(versionDir, Files::isDirectory)) {
+                for (Path hashDir : hashDirs) {
+                    Path jar = hashDir.resolve(fileName);
+                    if (Files.isRegularFile(jar)) {
+                        return jar;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean affectsModel(Path projectRoot, Path file) {
+        return file.toAbsolutePath().normalize().equals(artifactsFile);
+    }
+
+    @Override
+    public List<Path> modelDirectories(Path projectRoot) {
+        return List.of(artifactsFile.getParent());
+    }
+
+    private static Path defaultMavenRepository() {
+        String repository = System.getProperty("maven.repo.local");
+        return repository != null
+                ? Path.of(repository)
+                : Path.of(System.getProperty("user.home"), ".m2", "repository");
+    }
+
+    private static Path defaultGradleCache() {
+        String gradleHome = System.getenv("GRADLE_USER_HOME");
+        Path home = gradleHome != null ? Path.of(gradleHome) : Path.of(System.getProperty("user.home"), ".gradle");
+        return home.resolve("caches").resolve("modules-2").resolve("files-2.1");
+    }
+}
@@ -0,0 +1,40 @@
+package com.beryozavv.classpath;
+
+import com.beryozavv.PathResult;
+import com.beryozavv.cache.GradleModelCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Модель проекта из файла, записанного координатором анализа по частям
+ * ({@link GradleModelCache#writeModelFile(Path, PathResult)})
+ */
+public class ModelFileClasspathProvider implements ClasspathProvider {
+
+    // Файл модели
+    private final Path modelFile;
+
+    /**
+     * @param modelFile файл модели
+     */
+    public ModelFileClasspathProvider(Path modelFile) {
+        this.modelFile = modelFile.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public PathResult load(Path projectRoot, boolean refresh) throws IOException {
+        return GradleModelCache.readModelFile(modelFile);
+    }
+
+    @Override
+    public boolean affectsModel(Path projectRoot, Path file) {
+        return file.toAbsolutePath().normalize().equals(modelFile);
+    }
+
+    @Override
+    public List<Path> modelDirectories(Path projectRoot) {
+        return List.of(modelFile.getParent());
+    }
+}
@@ -0,0 +1,179 @@
+package com.beryozavv.classpath;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Classpath одного модуля с индексом "пакет -> элементы classpath". Позволяет передать
+ * парсеру только архивы с пакетами, на которые ссылаются файлы, вместе с архивами,
+ * от которых они зависят, и найти элемент classpath, из которого взят тип. Каталоги классов читаются заново при каждом создании,
+ * так как меняются при сборке; после создания объект не изменяется
+ */
+public class ModuleClasspath {
+
+    // Элементы classpath в исходном порядке
+    private final List<String> entries;
+
+    // Элемент classpath -> пакет -> простые имена типов
+    private final Map<String, Map<String, String[]>> typesByEntry = new LinkedHashMap<>();
+
+    // Пакет -> элементы classpath, в которых он есть, в порядке classpath
+    private final Map<String, List<String>> entriesByPackage = new HashMap<>();
+
+    // Элемент classpath -> пакеты других элементов, на которые ссылаются его классы
+    private final Map<String, String[]> referencesByEntry = new HashMap<>();
+
+    // Элементы, которые всегда передаются парсеру: каталоги и непрочитанные архивы
+    private final Set<String> alwaysIncluded = new HashSet<>();
+
+    ModuleClasspath(List<String> classpath, ClasspathIndex index) throws IOException {
+        this.entries = List.copyOf(classpath);
+        for (String entry : entries) {
+            Path path = Path.of(entry);
+            Map<String, String[]> types;
+            if (Files.isDirectory(path)) {
+                Set<String> references = new HashSet<>();
+                types = readDirectory(path, references);
+                references.removeAll(types.keySet());
+                referencesByEntry.put(entry, references.toArray(String[]::new));
+                alwaysIncluded.add(entry);
+            } else if (Files.isRegularFile(path)) {
+                try {
+                    ClasspathIndex.JarListing listing = index.listing(entry);
+                    types = listing.typesByPackage();
+                    referencesByEntry.put(entry, listing.referencedPackages());
+                } catch (IOException e) {
+                    System.err.println("Не удалось прочитать " + path + ": " + e.getMessage());
+                    alwaysIncluded.add(entry);
+                    continue;
+                }
+            } else {
+                continue;
+            }
+            typesByEntry.put(entry, types);
+            for (String packageName : types.keySet()) {
+                entriesByPackage.computeIfAbsent(packageName, key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+    }
+
+    /**
+     * @param name имя, например префикс квалифицированного имени из исходника
+     * @return true, если в classpath есть пакет с таким именем
+     */
+    public boolean isPackage(String name) {
+        return entriesByPackage.containsKey(name);
+    }
+
+    /**
+     * Оставляет в classpath каталоги классов, архивы, содержащие хотя бы один из пакетов,
+     * и архивы, на пакеты которых ссылаются классы уже отобранных. Без последних JDT
+     * не может прочитать сигнатуры отобранных классов и прерывает разбор пакета файлов
+     *
+     * @param packages пакеты, на которые ссылаются разбираемые файлы
+     * @return элементы classpath в исходном порядке
+     */
+    public String[] prune(Collection<String> packages) {
+        Set<String> needed = new HashSet<>(alwaysIncluded);
+        Deque<String> pending = new ArrayDeque<>(alwaysIncluded);
+        for (String packageName : packages) {
+            for (String entry : entriesByPackage.getOrDefault(packageName, List.of())) {
+                if (needed.add(entry)) {
+                    pending.add(entry);
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            for (String packageName : referencesByEntry.getOrDefault(pending.poll(), new String[0])) {
+                for (String entry : entriesByPackage.getOrDefault(packageName, List.of())) {
+                    if (needed.add(entry)) {
+                        pending.add(entry);
+                    }
+                }
+            }
+        }
+        return entries.stream().filter(needed::contains).toArray(String[]::new);
+    }
+
+    /**
+     * Находит элемент classpath, из которого берется тип: первый по порядку classpath
+     *
+     * @param qualifiedName полное имя типа, возможно с аргументами типа или размерностью массива
+     * @return путь к архиву или каталогу классов, null если тип не найден
+     */
+    public String findEntry(String qualifiedName) {
+        String type = erasure(qualifiedName);
+        for (int dot = type.indexOf('.'); dot > 0; dot = type.indexOf('.', dot + 1)) {
+            String packageName = type.substring(0, dot);
+            String simpleName = type.substring(dot + 1);
+            for (String entry : entriesByPackage.getOrDefault(packageName, List.of())) {
+                for (String name : typesByEntry.get(entry).get(packageName)) {
+                    if (name.equals(simpleName)) {
+                        return entry;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Передает полное имя каждого типа classpath, вложенные типы через точку
+     *
+     * @param action получатель имен
+     */
+    public void forEachType(Consumer<String> action) {
+        for (Map<String, String[]> types : typesByEntry.values()) {
+            types.forEach((packageName, names) -> {
+                String prefix = packageName.isEmpty() ? "" : packageName + ".";
+                for (String name : names) {
+                    action.accept(prefix + name);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return элементы classpath в исходном порядке
+     */
+    public List<String> getEntries() {
+        return entries;
+    }
+
+    private static String erasure(String qualifiedName) {
+        int end = qualifiedName.length();
+        int generic = qualifiedName.indexOf('<');
+        if (generic >= 0) end = generic;
+        int array = qualifiedName.indexOf('[');
+        if (array >= 0 && array < end) end = array;
+        return qualifiedName.substring(0, end);
+    }
+
+    private static Map<String, String[]> readDirectory(Path directory, Set<String> references) throws IOException {
+        Map<String, List<String>> types = new HashMap<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".class") && !name.equals("module-info.class") && !name.equals("package-info.class")) {
+                    Path parent = directory.relativize(file).getParent();
+                    String packageName = parent == null ? "" : parent.toString().replace(file.getFileSystem().getSeparator(), ".");
+                    types.computeIfAbsent(packageName, key -> new ArrayList<>())
+                            .add(name.substring(0, name.length() - ".class".length()).replace('$', '.'));
+                    ClassFileReferences.addReferencedPackages(Files.readAllBytes(file), references);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Map<String, String[]> result = new HashMap<>(types.size() * 2);
+        types.forEach((packageName, names) -> result.put(packageName, names.toArray(String[]::new)));
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+package com.beryozavv.classpath;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Быстрый поиск пакетов classpath, на которые ссылается Java-файл, без построения AST.
+ * Рассматриваются все квалифицированные имена вне комментариев и строк: импорты,
+ * объявление пакета и полные имена в коде. Префикс имени считается ссылкой на пакет,
+ * если такой пакет есть в classpath модуля
+ */
+public final class PackageReferenceScanner {
+
+    private PackageReferenceScanner() {
+    }
+
+    /**
+     * Добавляет пакеты classpath, на которые ссылается файл
+     *
+     * @param file      Java-файл
+     * @param classpath classpath модуля
+     * @param packages  множество, в которое добавляются найденные пакеты
+     * @throws IOException при ошибке чтения файла
+     */
+    public static void scan(Path file, ModuleClasspath classpath, Set<String> packages) throws IOException {
+        // Побайтовое чтение в ISO-8859-1 сохраняет ASCII-имена пакетов при любой кодировке файла
+        String text = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        int length = text.length();
+        StringBuilder name = new StringBuilder();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '/' && i + 1 < length && text.charAt(i + 1) == '/') {
+                i = skipTo(text, i + 2, "\n");
+            } else if (c == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+                i = skipTo(text, i + 2, "*/");
+            } else if (c == '"') {
+                i = text.startsWith("\"\"\"", i) ? skipTo(text, i + 3, "\"\"\"") : skipLiteral(text, i + 1, '"');
+            } else if (c == '\'') {
+                i = skipLiteral(text, i + 1, '\'');
+            } else if (Character.isJavaIdentifierStart(c)) {
+                // Имя вида a.b.C: после каждой точки проверяем накопленный префикс
+                name.setLength(0);
+                i = readIdentifier(text, i, name);
+                while (true) {
+                    int dot = skipWhitespace(text, i);
+                    if (dot >= length || text.charAt(dot) != '.') break;
+                    int next = skipWhitespace(text, dot + 1);
+                    if (next >= length || !Character.isJavaIdentifierStart(text.charAt(next))) break;
+
+                    String prefix = name.toString();
+                    if (classpath.isPackage(prefix)) {
+                        packages.add(prefix);
+                    }
+                    name.append('.');
+                    i = readIdentifier(text, next, name);
+                }
+                String whole = name.toString();
+                if (whole.indexOf('.') > 0 && classpath.isPackage(whole)) {
+                    packages.add(whole);
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static int readIdentifier(String text, int from, StringBuilder name) {
+        int i = from;
+        while (i < text.length() && Character.isJavaIdentifierPart(text.charAt(i))) {
+            name.append(text.charAt(i));
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipTo(String text, int from, String end) {
+        int index = text.indexOf(end, from);
+        return index < 0 ? text.length() : index + end.length();
+    }
+
+    /**
+     * Пропускает строковый или символьный литерал с экранированием; литерал не продолжается за концом строки
+     */
+    private static int skipLiteral(String text, int from, char quote) {
+        int i = from;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || c == '\n') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+}
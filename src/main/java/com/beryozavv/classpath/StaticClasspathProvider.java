@@ -0,0 +1,143 @@
+package com.beryozavv.classpath;
+
+import com.beryozavv.ModulePaths;
+import com.beryozavv.PathResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Модель проекта из готового списка classpath, например выгруженного сборкой в файл
+ * (libs/ClassPath.txt). Проект считается одним модулем. Элементы разделяются переводом строки,
+ * ';' или системным разделителем путей; строки с '#' в начале пропускаются; dir/* означает
+ * все архивы каталога; относительные пути отсчитываются от каталога файла списка
+ */
+public class StaticClasspathProvider implements ClasspathProvider {
+
+    // Файл со списком classpath
+    private final Path classpathFile;
+
+    // Каталоги исходников относительно корня проекта, пустой список для каталога по умолчанию
+    private final List<String> sourceRoots;
+
+    /**
+     * @param classpathFile файл со списком classpath
+     * @param sourceRoots   каталоги исходников; если пусто, берется src/main/java или корень проекта
+     */
+    public StaticClasspathProvider(Path classpathFile, List<String> sourceRoots) {
+        this.classpathFile = classpathFile.toAbsolutePath().normalize();
+        this.sourceRoots = List.copyOf(sourceRoots);
+    }
+
+    @Override
+    public PathResult load(Path projectRoot, boolean refresh) throws IOException {
+        List<String> classpath = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        Path baseDir = classpathFile.getParent();
+        for (String line : Files.readAllLines(classpathFile, StandardCharsets.UTF_8)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String separator = line.indexOf(';') >= 0 ? ";" : File.pathSeparator;
+            for (String entry : line.split(separator)) {
+                entry = entry.strip();
+                if (!entry.isEmpty()) {
+                    addEntry(baseDir, entry, classpath, missing);
+                }
+            }
+        }
+        reportMissing("Не найдено элементов classpath", missing);
+        return singleModule(projectRoot, sourceRoots, classpath);
+    }
+
+    private static void addEntry(Path baseDir, String entry, List<String> classpath, List<String> missing) throws IOException {
+        if (entry.endsWith("*")) {
+            Path directory = baseDir.resolve(entry.substring(0, entry.length() - 1)).normalize();
+            if (!Files.isDirectory(directory)) {
+                missing.add(entry);
+                return;
+            }
+            List<String> jars = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{jar,JAR}")) {
+                for (Path jar : files) {
+                    jars.add(jar.toString());
+                }
+            }
+            jars.sort(null);
+            classpath.addAll(jars);
+            return;
+        }
+
+        Path path;
+        try {
+            path = baseDir.resolve(entry).normalize();
+        } catch (InvalidPathException e) {
+            missing.add(entry);
+            return;
+        }
+        if (Files.exists(path)) {
+            classpath.add(path.toString());
+        } else {
+            missing.add(entry);
+        }
+    }
+
+    @Override
+    public boolean affectsModel(Path projectRoot, Path file) {
+        return file.toAbsolutePath().normalize().equals(classpathFile);
+    }
+
+    @Override
+    public List<Path> modelDirectories(Path projectRoot) {
+        return List.of(classpathFile.getParent());
+    }
+
+    /**
+     * Составляет модель проекта из одного модуля
+     *
+     * @param projectRoot корневой каталог проекта
+     * @param sourceRoots каталоги исходников относительно корня; если пусто, берется
+     *                    src/main/java, а при его отсутствии корень проекта
+     * @param classpath   элементы classpath
+     * @return модель проекта
+     */
+    static PathResult singleModule(Path projectRoot, List<String> sourceRoots, List<String> classpath) {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        List<String> sourcePath = new ArrayList<>();
+        for (String sourceRoot : sourceRoots) {
+            sourcePath.add(root.resolve(sourceRoot).normalize().toString());
+        }
+        if (sourcePath.isEmpty()) {
+            Path conventional = root.resolve("src/main/java");
+            sourcePath.add((Files.isDirectory(conventional) ? conventional : root).toString());
+        }
+
+        // Каталог классов по соглашениям Gradle и Maven, для анализа байт-кода
+        String outputPath = null;
+        for (String candidate : List.of("build/classes/java/main", "target/classes")) {
+            if (Files.isDirectory(root.resolve(candidate))) {
+                outputPath = root.resolve(candidate).toString();
+                break;
+            }
+        }
+        return new PathResult(List.of(new ModulePaths(PathResult.DEFAULT_MODULE_NAME, sourcePath, classpath, List.of(), outputPath)));
+    }
+
+    /**
+     * Сообщает о ненайденных элементах, не прерывая анализ: без них часть типов останется
+     * неразрешенной
+     */
+    static void reportMissing(String message, List<String> missing) {
+        if (missing.isEmpty()) {
+            return;
+        }
+        System.err.println(message + ": " + missing.size() + ", например " + missing.get(0));
+    }
+}
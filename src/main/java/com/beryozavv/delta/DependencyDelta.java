@@ -0,0 +1,68 @@
+package com.beryozavv.delta;
+
+import java.util.*;
+
+/**
+ * Изменение зависимостей одного файла между ревизиями. Зависимость считается добавленной,
+ * если в старой версии файла ее не было ни в одной строке, и удаленной, если ее нет
+ * в новой версии. Добавленные зависимости отнесены к строкам новой версии, удаленные -
+ * к строкам старой, поэтому сдвиг строк при правке файла не дает ложных изменений
+ *
+ * @param module  модуль файла
+ * @param change  изменение файла
+ * @param removed строка старой версии -> удаленные зависимости, по возрастанию строк
+ * @param added   строка новой версии -> добавленные зависимости, по возрастанию строк
+ */
+public record DependencyDelta(String module, FileChange change,
+                              SortedMap<Integer, SortedSet<String>> removed,
+                              SortedMap<Integer, SortedSet<String>> added) {
+
+    /**
+     * Сравнивает зависимости старой и новой версии файла
+     *
+     * @param module          модуль файла
+     * @param change          изменение файла
+     * @param oldDependencies зависимости старой версии по строкам, пустые для добавленного файла
+     * @param newDependencies зависимости новой версии по строкам, пустые для удаленного файла
+     * @return изменение зависимостей файла
+     */
+    public static DependencyDelta compute(String module, FileChange change,
+                                          Map<Integer, Set<String>> oldDependencies,
+                                          Map<Integer, Set<String>> newDependencies) {
+        Set<String> oldNames = allNames(oldDependencies);
+        Set<String> newNames = allNames(newDependencies);
+        return new DependencyDelta(module, change,
+                linesWithout(oldDependencies, newNames),
+                linesWithout(newDependencies, oldNames));
+    }
+
+    /**
+     * @return true, если набор зависимостей файла не изменился
+     */
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+
+    private static Set<String> allNames(Map<Integer, Set<String>> dependencies) {
+        Set<String> names = new HashSet<>();
+        for (Set<String> lineNames : dependencies.values()) {
+            names.addAll(lineNames);
+        }
+        return names;
+    }
+
+    /**
+     * Оставляет в строках только зависимости, которых нет в другой версии файла
+     */
+    private static SortedMap<Integer, SortedSet<String>> linesWithout(Map<Integer, Set<String>> dependencies, Set<String> other) {
+        SortedMap<Integer, SortedSet<String>> result = new TreeMap<>();
+        dependencies.forEach((line, names) -> {
+            for (String name : names) {
+                if (!other.contains(name)) {
+                    result.computeIfAbsent(line, ignored -> new TreeSet<>()).add(name);
+                }
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package com.beryozavv.delta;
+
+/**
+ * Измененный файл между двумя ревизиями. Пути заданы относительно корня репозитория
+ * через '/', как их выводит git
+ *
+ * @param status  вид изменения
+ * @param oldPath путь в старой ревизии, null для добавленного файла
+ * @param newPath путь в новой ревизии, null для удаленного файла
+ */
+public record FileChange(Status status, String oldPath, String newPath) {
+
+    /**
+     * Вид изменения файла
+     */
+    public enum Status {
+        ADDED("added"),
+        DELETED("deleted"),
+        MODIFIED("modified"),
+        RENAMED("renamed"),
+        COPIED("copied");
+
+        private final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * @return путь файла в новой ревизии, а для удаленного файла - в старой
+     */
+    public String path() {
+        return newPath != null ? newPath : oldPath;
+    }
+}
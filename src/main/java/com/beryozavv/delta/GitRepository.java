@@ -0,0 +1,215 @@
+package com.beryozavv.delta;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Доступ к репозиторию через установленный git. Версии файлов читаются из объектов
+ * репозитория, рабочая копия не меняется
+ */
+public class GitRepository {
+
+    // Корень рабочей копии
+    private final Path topLevel;
+
+    private GitRepository(Path topLevel) {
+        this.topLevel = topLevel;
+    }
+
+    /**
+     * Находит репозиторий, в который входит каталог
+     *
+     * @param directory каталог внутри рабочей копии
+     * @return репозиторий
+     * @throws IOException если git не установлен или каталог не входит в репозиторий
+     */
+    public static GitRepository open(Path directory) throws IOException {
+        String topLevel = new String(run(directory, List.of("rev-parse", "--show-toplevel")), StandardCharsets.UTF_8).trim();
+        return new GitRepository(Path.of(topLevel).toRealPath());
+    }
+
+    /**
+     * @return корень рабочей копии
+     */
+    public Path getTopLevel() {
+        return topLevel;
+    }
+
+    /**
+     * Переводит имя ревизии (ветку, тег, HEAD~1) в идентификатор коммита, чтобы все
+     * следующие запросы относились к одному и тому же коммиту
+     *
+     * @param revision имя ревизии
+     * @return идентификатор коммита
+     * @throws IOException если ревизия не найдена
+     */
+    public String resolveCommit(String revision) throws IOException {
+        return new String(run(topLevel, List.of("rev-parse", "--verify", "--end-of-options", revision + "^{commit}")),
+                StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Возвращает Java-файлы, измененные между ревизиями. Переименованные и скопированные
+     * файлы определяются по содержимому, как в git diff -M -C
+     *
+     * @param base старая ревизия
+     * @param head новая ревизия
+     * @return изменения в порядке вывода git
+     * @throws IOException при ошибке git
+     */
+    public List<FileChange> diffJavaFiles(String base, String head) throws IOException {
+        byte[] output = run(topLevel, List.of("diff", "--name-status", "-z", "--find-renames", "--find-copies",
+                base, head, "--", "*.java"));
+
+        // Записи разделены нулевыми байтами: статус, затем один путь или два для R и C
+        String[] fields = new String(output, StandardCharsets.UTF_8).split("\0");
+        List<FileChange> changes = new ArrayList<>();
+        int i = 0;
+        while (i < fields.length && !fields[i].isEmpty()) {
+            char status = fields[i++].charAt(0);
+            switch (status) {
+                case 'A' -> changes.add(new FileChange(FileChange.Status.ADDED, null, fields[i++]));
+                case 'D' -> changes.add(new FileChange(FileChange.Status.DELETED, fields[i++], null));
+                case 'M', 'T' -> {
+                    String path = fields[i++];
+                    changes.add(new FileChange(FileChange.Status.MODIFIED, path, path));
+                }
+                case 'R' -> changes.add(new FileChange(FileChange.Status.RENAMED, fields[i++], fields[i++]));
+                case 'C' -> changes.add(new FileChange(FileChange.Status.COPIED, fields[i++], fields[i++]));
+                // Неслитые и прочие записи не относятся к сравнению двух коммитов
+                default -> i++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Записывает версии файлов из ревизии в файлы на диске. Все версии читаются одним
+     * процессом git cat-file --batch
+     *
+     * @param revision идентификатор коммита
+     * @param paths    пути файлов относительно корня репозитория
+     * @param target   путь в репозитории -> файл, в который записывается его версия
+     * @throws IOException если файла нет в ревизии или при ошибке git
+     */
+    public void extract(String revision, List<String> paths, Function<String, Path> target) throws IOException {
+        if (paths.isEmpty()) return;
+
+        Process process = new ProcessBuilder("git", "cat-file", "--batch")
+                .directory(topLevel.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        // Запросы пишутся в отдельном потоке: git отвечает, не дожидаясь конца запросов,
+        // и при записи в том же потоке оба процесса могли бы ждать друг друга
+        CompletableFuture<Void> requests = CompletableFuture.runAsync(() -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8))) {
+                for (String path : paths) {
+                    writer.write(revision);
+                    writer.write(':');
+                    writer.write(path);
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, command -> Thread.ofVirtual().start(command));
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream(), 1 << 16))) {
+            for (String path : paths) {
+                // Заголовок: "<объект> blob <размер>" или "<запрос> missing"
+                String header = readLine(in);
+                String[] parts = header.split(" ");
+                if (parts.length != 3 || !parts[1].equals("blob")) {
+                    throw new IOException("Файл " + path + " не найден в ревизии " + revision);
+                }
+                long size = Long.parseLong(parts[2]);
+                Path file = target.apply(path);
+                Files.createDirectories(file.getParent());
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    copy(in, out, size);
+                }
+                in.readByte();
+            }
+        } finally {
+            process.destroy();
+        }
+        try {
+            requests.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Чтение из git прервано");
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка при передаче запросов git", e.getCause());
+        }
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("git cat-file завершился раньше времени");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void copy(InputStream in, OutputStream out, long size) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (size > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, size));
+            if (read < 0) {
+                throw new EOFException("git cat-file завершился раньше времени");
+            }
+            out.write(buffer, 0, read);
+            size -= read;
+        }
+    }
+
+    /**
+     * Выполняет команду git и возвращает ее вывод
+     *
+     * @throws IOException если git не запустился или завершился с ошибкой
+     */
+    private static byte[] run(Path directory, List<String> args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(args);
+        Process process = new ProcessBuilder(command).directory(directory.toFile()).start();
+        CompletableFuture<byte[]> errors = CompletableFuture.supplyAsync(() -> {
+            try (InputStream err = process.getErrorStream()) {
+                return err.readAllBytes();
+            } catch (IOException e) {
+                return new byte[0];
+            }
+        }, task -> Thread.ofVirtual().start(task));
+
+        byte[] output;
+        try (InputStream in = process.getInputStream()) {
+            output = in.readAllBytes();
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                String message = new String(errors.get(), StandardCharsets.UTF_8).trim();
+                throw new IOException("git " + String.join(" ", args) + " завершился с кодом " + exitCode
+                        + (message.isEmpty() ? "" : ": " + message));
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Выполнение git прервано");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        return output;
+    }
+}
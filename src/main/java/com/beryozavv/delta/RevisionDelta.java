@@ -0,0 +1,261 @@
+package com.beryozavv.delta;
+
+import com.beryozavv.AnalyzerOptions;
+import com.beryozavv.ModulePaths;
+import com.beryozavv.PathResult;
+import com.beryozavv.ProjectAnalyzer;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.output.DeltaWriter;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.FileDependencies;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Изменение зависимостей между двумя ревизиями git. Разбираются только Java-файлы,
+ * измененные между ревизиями: обе их версии читаются из объектов репозитория
+ * во временные каталоги, которые ставятся перед каталогами исходников модуля.
+ * Версия файла из ревизии заслоняет файл рабочей копии с тем же путем, а остальные
+ * типы проекта и библиотек разрешаются как при обычном анализе модуля
+ */
+public class RevisionDelta {
+
+    /**
+     * Место файла в проекте: модуль, каталог исходников и путь внутри него
+     */
+    private record Location(int moduleIndex, int rootIndex, String relativePath) {
+    }
+
+    // Пути модулей проекта
+    private final PathResult pathResult;
+
+    // Параметры анализа
+    private final AnalyzerOptions options;
+
+    // Репозиторий проекта
+    private final GitRepository git;
+
+    // Каталоги исходников модулей в виде путей рабочей копии: модуль -> каталоги
+    private final List<List<Path>> sourceRoots = new ArrayList<>();
+
+    /**
+     * @param pathResult пути к исходникам и classpath модулей
+     * @param options    параметры анализа
+     * @param git        репозиторий, в который входят исходники проекта
+     */
+    public RevisionDelta(PathResult pathResult, AnalyzerOptions options, GitRepository git) {
+        this.pathResult = pathResult;
+        this.options = options;
+        this.git = git;
+        for (ModulePaths module : pathResult.getModules()) {
+            List<Path> roots = new ArrayList<>();
+            for (String sourceRoot : module.getSourcePath()) {
+                roots.add(realPath(Path.of(sourceRoot)));
+            }
+            sourceRoots.add(roots);
+        }
+    }
+
+    /**
+     * Сравнивает зависимости измененных файлов в двух ревизиях и выводит файлы,
+     * набор зависимостей которых изменился
+     *
+     * @param base   старая ревизия
+     * @param head   новая ревизия
+     * @param writer вывод изменений
+     * @throws IOException при ошибке git, разбора или записи
+     */
+    public void run(String base, String head, DeltaWriter writer) throws IOException {
+        AnalysisMetrics metrics = options.getMetrics();
+        String baseCommit;
+        String headCommit;
+        List<FileChange> changes;
+        PhaseTimer phaseTimer = metrics.startPhase(Phase.GIT);
+        try {
+            baseCommit = git.resolveCommit(base);
+            headCommit = git.resolveCommit(head);
+            changes = git.diffJavaFiles(baseCommit, headCommit);
+        } finally {
+            phaseTimer.stop();
+        }
+
+        // Версии файлов вне каталогов исходников модулей не разбираются
+        Map<String, Location> oldFiles = new LinkedHashMap<>();
+        Map<String, Location> newFiles = new LinkedHashMap<>();
+        List<FileChange> projectChanges = new ArrayList<>();
+        for (FileChange change : changes) {
+            Location oldLocation = change.oldPath() != null ? locate(change.oldPath()) : null;
+            Location newLocation = change.newPath() != null ? locate(change.newPath()) : null;
+            if (oldLocation == null && newLocation == null) continue;
+
+            projectChanges.add(change);
+            if (oldLocation != null) {
+                oldFiles.put(change.oldPath(), oldLocation);
+            }
+            if (newLocation != null) {
+                newFiles.put(change.newPath(), newLocation);
+            }
+        }
+
+        Path workDir = Files.createTempDirectory("dependency-analyzer-delta");
+        try {
+            Map<String, Map<Integer, Set<String>>> oldDependencies = analyzeRevision(baseCommit, oldFiles, workDir.resolve("base"));
+            Map<String, Map<Integer, Set<String>>> newDependencies = analyzeRevision(headCommit, newFiles, workDir.resolve("head"));
+
+            for (FileChange change : projectChanges) {
+                Location location = change.newPath() != null && newFiles.containsKey(change.newPath())
+                        ? newFiles.get(change.newPath())
+                        : oldFiles.get(change.oldPath());
+                String module = pathResult.getModules().get(location.moduleIndex()).getName();
+                DependencyDelta delta = DependencyDelta.compute(module, change,
+                        change.oldPath() != null ? oldDependencies.getOrDefault(change.oldPath(), Map.of()) : Map.of(),
+                        change.newPath() != null ? newDependencies.getOrDefault(change.newPath(), Map.of()) : Map.of());
+                if (!delta.isEmpty()) {
+                    PhaseTimer outputTimer = metrics.startPhase(Phase.OUTPUT);
+                    try {
+                        writer.write(delta);
+                    } finally {
+                        outputTimer.stop();
+                    }
+                }
+            }
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Извлекает версии файлов из ревизии и разбирает их с окружением модулей
+     *
+     * @param commit  идентификатор коммита
+     * @param files   путь в репозитории -> место файла в проекте
+     * @param overlay каталог для версий файлов
+     * @return путь в репозитории -> зависимости версии файла по строкам
+     */
+    private Map<String, Map<Integer, Set<String>>> analyzeRevision(String commit, Map<String, Location> files, Path overlay)
+            throws IOException {
+        if (files.isEmpty()) {
+            return Map.of();
+        }
+
+        PhaseTimer phaseTimer = options.getMetrics().startPhase(Phase.GIT);
+        try {
+            git.extract(commit, new ArrayList<>(files.keySet()), path -> overlayFile(overlay, files.get(path)));
+        } finally {
+            phaseTimer.stop();
+        }
+
+        // Файл версии -> путь в репозитории
+        Map<Path, String> repositoryPaths = new HashMap<>();
+        Map<String, List<Path>> moduleFiles = new LinkedHashMap<>();
+        // Модуль -> номера каталогов исходников, в которых есть версии файлов
+        Map<Integer, SortedSet<Integer>> overlayRoots = new HashMap<>();
+        files.forEach((path, location) -> {
+            Path file = overlayFile(overlay, location);
+            repositoryPaths.put(file, path);
+            String module = pathResult.getModules().get(location.moduleIndex()).getName();
+            moduleFiles.computeIfAbsent(module, ignored -> new ArrayList<>()).add(file);
+            overlayRoots.computeIfAbsent(location.moduleIndex(), ignored -> new TreeSet<>()).add(location.rootIndex());
+        });
+
+        // Каталоги с версиями файлов идут в пути исходников первыми, чтобы JDT брал типы из них
+        List<ModulePaths> modules = new ArrayList<>();
+        for (int i = 0; i < pathResult.getModules().size(); i++) {
+            ModulePaths module = pathResult.getModules().get(i);
+            SortedSet<Integer> roots = overlayRoots.get(i);
+            if (roots == null) {
+                modules.add(module);
+                continue;
+            }
+            List<String> sourcePath = new ArrayList<>();
+            for (int rootIndex : roots) {
+                sourcePath.add(overlayRoot(overlay, i, rootIndex).toString());
+            }
+            sourcePath.addAll(module.getSourcePath());
+            modules.add(new ModulePaths(module.getName(), sourcePath, module.getClassPath(),
+                    module.getModuleOutputPath(), module.getOutputPath(), module.getDependencySourcePath()));
+        }
+
+        ProjectAnalyzer analyzer = new ProjectAnalyzer(new PathResult(modules), options);
+        Map<String, Map<Integer, Set<String>>> results = new HashMap<>();
+        analyzer.analyzeFiles(moduleFiles, new DependencySink() {
+            @Override
+            public void accept(String module, Path file, FileDependencies dependencies) {
+                results.put(repositoryPaths.get(file), dependencies.toMap(analyzer.getSymbols()));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Находит каталог исходников модуля, в который входит файл
+     *
+     * @param path путь файла относительно корня репозитория
+     * @return место файла или null, если файл не входит в исходники модулей
+     */
+    private Location locate(String path) {
+        Path file = git.getTopLevel().resolve(path).normalize();
+        Location best = null;
+        int bestDepth = -1;
+        for (int moduleIndex = 0; moduleIndex < sourceRoots.size(); moduleIndex++) {
+            List<Path> roots = sourceRoots.get(moduleIndex);
+            for (int rootIndex = 0; rootIndex < roots.size(); rootIndex++) {
+                Path root = roots.get(rootIndex);
+                // Вложенный каталог исходников точнее объемлющего
+                if (file.startsWith(root) && root.getNameCount() > bestDepth) {
+                    best = new Location(moduleIndex, rootIndex, root.relativize(file).toString());
+                    bestDepth = root.getNameCount();
+                }
+            }
+        }
+        return best;
+    }
+
+    private static Path overlayRoot(Path overlay, int moduleIndex, int rootIndex) {
+        return overlay.resolve(Integer.toString(moduleIndex)).resolve(Integer.toString(rootIndex));
+    }
+
+    private static Path overlayFile(Path overlay, Location location) {
+        return overlayRoot(overlay, location.moduleIndex(), location.rootIndex()).resolve(location.relativePath());
+    }
+
+    /**
+     * Приводит каталог к виду, в котором git сообщает корень рабочей копии: без символических ссылок
+     */
+    private static Path realPath(Path directory) {
+        Path absolute = directory.toAbsolutePath().normalize();
+        try {
+            return Files.exists(absolute) ? absolute.toRealPath() : absolute;
+        } catch (IOException e) {
+            return absolute;
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.beryozavv.dependencyExtractorStrategies;
+
+import com.beryozavv.result.SymbolTable;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Кэш полных имен привязок типов. Внутри одного пакета разбора JDT возвращает один и тот же
+ * объект привязки для одного типа, поэтому имя каждого типа строится и регистрируется
+ * в таблице символов один раз, а повторные обращения ищут привязку по ссылке.
+ * Кэш не потокобезопасен и используется одним пакетом
+ */
+public class BindingNameCache {
+
+    // Таблица символов для регистрации имен
+    private final SymbolTable symbols;
+
+    // Привязка -> идентификатор полного имени
+    private final Map<ITypeBinding, Integer> symbolIds = new IdentityHashMap<>();
+
+    // Количество попаданий и промахов
+    private long hits;
+    private long misses;
+
+    public BindingNameCache(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Возвращает идентификатор полного имени типа, вычисляя имя только при первом обращении
+     *
+     * @param binding привязка типа
+     * @return идентификатор символа
+     */
+    public int symbolId(ITypeBinding binding) {
+        Integer symbolId = symbolIds.get(binding);
+        if (symbolId != null) {
+            hits++;
+            return symbolId;
+        }
+        misses++;
+        int id = symbols.intern(binding.getQualifiedName());
+        symbolIds.put(binding, id);
+        return id;
+    }
+
+    /**
+     * Регистрирует имя, полученное не из привязки
+     *
+     * @param name полное имя
+     * @return идентификатор символа
+     */
+    public int symbolId(String name) {
+        return symbols.intern(name);
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -3,7 +3,7 @@ package com.beryozavv.dependencyExtractorStrategies;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из выражений создания экземпляров классов
@@ -11,10 +11,10 @@ import java.util.List;
 public class ClassInstanceCreationDependencyExtractor implements DependencyExtractorStrategy<ClassInstanceCreation> {
 
     @Override
-    public void extractDependencies(ClassInstanceCreation node, List<String> dependencies) {
+    public void extractDependencies(ClassInstanceCreation node, BindingNameCache names, IntConsumer dependencies) {
         ITypeBinding typeBinding = node.resolveTypeBinding();
         if (typeBinding != null) {
-            dependencies.add(typeBinding.getQualifiedName());
+            dependencies.accept(names.symbolId(typeBinding));
         }
     }
 }
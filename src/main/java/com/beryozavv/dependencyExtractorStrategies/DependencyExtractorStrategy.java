@@ -1,11 +1,16 @@
 package com.beryozavv.dependencyExtractorStrategies;
 
+import com.beryozavv.result.SymbolTable;
 import org.eclipse.jdt.core.dom.ASTNode;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
- * Интерфейс стратегии для извлечения зависимостей из различных типов узлов AST
+ * Интерфейс стратегии для извлечения зависимостей из различных типов узлов AST.
+ * Реализация должна переопределить хотя бы один из методов extractDependencies:
+ * каждый из них по умолчанию выражен через другой
  *
  * @param <T> тип узла AST
  */
@@ -17,5 +22,25 @@ public interface DependencyExtractorStrategy<T extends ASTNode> {
      * @param node узел AST для анализа
      * @param dependencies список для сохранения найденных зависимостей
      */
-    void extractDependencies(T node, List<String> dependencies);
+    default void extractDependencies(T node, List<String> dependencies) {
+        BindingNameCache names = new BindingNameCache(new SymbolTable());
+        extractDependencies(node, names, symbolId -> dependencies.add(names.getSymbols().getName(symbolId)));
+    }
+
+    /**
+     * Извлекает зависимости из узла AST в виде идентификаторов символов. Имена типов
+     * вычисляются через кэш привязок, поэтому повторно встреченный тип не требует
+     * построения строки имени
+     *
+     * @param node         узел AST для анализа
+     * @param names        кэш имен привязок текущего пакета разбора
+     * @param dependencies получатель идентификаторов найденных зависимостей
+     */
+    default void extractDependencies(T node, BindingNameCache names, IntConsumer dependencies) {
+        List<String> found = new ArrayList<>();
+        extractDependencies(node, found);
+        for (String dependency : found) {
+            dependencies.accept(names.symbolId(dependency));
+        }
+    }
 }
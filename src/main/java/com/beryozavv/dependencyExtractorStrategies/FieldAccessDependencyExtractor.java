@@ -4,7 +4,7 @@ import org.eclipse.jdt.core.dom.FieldAccess;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.IVariableBinding;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из выражений доступа к полям
@@ -12,19 +12,19 @@ import java.util.List;
 public class FieldAccessDependencyExtractor implements DependencyExtractorStrategy<FieldAccess> {
 
     @Override
-    public void extractDependencies(FieldAccess node, List<String> dependencies) {
+    public void extractDependencies(FieldAccess node, BindingNameCache names, IntConsumer dependencies) {
         IVariableBinding fieldBinding = node.resolveFieldBinding();
         if (fieldBinding != null) {
             // Тип поля
             ITypeBinding fieldType = fieldBinding.getType();
             if (fieldType != null && !fieldType.isPrimitive()) {
-                dependencies.add(fieldType.getQualifiedName());
+                dependencies.accept(names.symbolId(fieldType));
             }
 
             // Тип класса, в котором объявлено поле
             ITypeBinding declaringClass = fieldBinding.getDeclaringClass();
             if (declaringClass != null) {
-                dependencies.add(declaringClass.getQualifiedName());
+                dependencies.accept(names.symbolId(declaringClass));
             }
         }
     }
@@ -3,7 +3,7 @@ package com.beryozavv.dependencyExtractorStrategies;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.InstanceofExpression;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из выражений instanceof
@@ -11,10 +11,10 @@ import java.util.List;
 public class InstanceofExpressionDependencyExtractor implements DependencyExtractorStrategy<InstanceofExpression> {
 
     @Override
-    public void extractDependencies(InstanceofExpression node, List<String> dependencies) {
+    public void extractDependencies(InstanceofExpression node, BindingNameCache names, IntConsumer dependencies) {
         ITypeBinding typeBinding = node.getRightOperand().resolveBinding();
         if (typeBinding != null) {
-            dependencies.add(typeBinding.getQualifiedName());
+            dependencies.accept(names.symbolId(typeBinding));
         }
     }
 }
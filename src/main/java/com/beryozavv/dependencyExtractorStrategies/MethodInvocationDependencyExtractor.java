@@ -4,7 +4,7 @@ import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из вызовов методов
@@ -12,23 +12,23 @@ import java.util.List;
 public class MethodInvocationDependencyExtractor implements DependencyExtractorStrategy<MethodInvocation> {
 
     @Override
-    public void extractDependencies(MethodInvocation node, List<String> dependencies) {
+    public void extractDependencies(MethodInvocation node, BindingNameCache names, IntConsumer dependencies) {
         IMethodBinding methodBinding = node.resolveMethodBinding();
         if (methodBinding != null) {
             ITypeBinding declaringClass = methodBinding.getDeclaringClass();
             if (declaringClass != null) {
-                dependencies.add(declaringClass.getQualifiedName());
+                dependencies.accept(names.symbolId(declaringClass));
             }
 
             // Добавляем типы параметров
             for (ITypeBinding paramType : methodBinding.getParameterTypes()) {
-                dependencies.add(paramType.getQualifiedName());
+                dependencies.accept(names.symbolId(paramType));
             }
 
             // Добавляем тип возвращаемого значения
             ITypeBinding returnType = methodBinding.getReturnType();
             if (returnType != null && !returnType.isPrimitive()) {
-                dependencies.add(returnType.getQualifiedName());
+                dependencies.accept(names.symbolId(returnType));
             }
         }
     }
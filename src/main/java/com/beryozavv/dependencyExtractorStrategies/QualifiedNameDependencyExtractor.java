@@ -5,7 +5,7 @@ import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.IVariableBinding;
 import org.eclipse.jdt.core.dom.QualifiedName;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из квалифицированных имен
@@ -13,14 +13,14 @@ import java.util.List;
 public class QualifiedNameDependencyExtractor implements DependencyExtractorStrategy<QualifiedName> {
 
     @Override
-    public void extractDependencies(QualifiedName node, List<String> dependencies) {
+    public void extractDependencies(QualifiedName node, BindingNameCache names, IntConsumer dependencies) {
         IBinding binding = node.resolveBinding();
         if (binding == null) return;
 
         if (binding instanceof ITypeBinding) {
             // Полное имя типа
             ITypeBinding typeBinding = (ITypeBinding) binding;
-            dependencies.add(typeBinding.getQualifiedName());
+            dependencies.accept(names.symbolId(typeBinding));
         } else if (binding instanceof IVariableBinding) {
             // Ссылка на поле
             IVariableBinding varBinding = (IVariableBinding) binding;
@@ -28,13 +28,13 @@ public class QualifiedNameDependencyExtractor implements DependencyExtractorStra
             // Тип поля
             ITypeBinding fieldType = varBinding.getType();
             if (fieldType != null && !fieldType.isPrimitive()) {
-                dependencies.add(fieldType.getQualifiedName());
+                dependencies.accept(names.symbolId(fieldType));
             }
 
             // Тип класса, в котором объявлено поле
             ITypeBinding declaringClass = varBinding.getDeclaringClass();
             if (declaringClass != null) {
-                dependencies.add(declaringClass.getQualifiedName());
+                dependencies.accept(names.symbolId(declaringClass));
             }
         }
     }
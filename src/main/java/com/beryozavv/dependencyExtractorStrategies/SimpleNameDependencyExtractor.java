@@ -6,7 +6,7 @@ import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.IVariableBinding;
 import org.eclipse.jdt.core.dom.SimpleName;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из простых имен
@@ -14,27 +14,27 @@ import java.util.List;
 public class SimpleNameDependencyExtractor implements DependencyExtractorStrategy<SimpleName> {
 
     @Override
-    public void extractDependencies(SimpleName node, List<String> dependencies) {
+    public void extractDependencies(SimpleName node, BindingNameCache names, IntConsumer dependencies) {
         IBinding binding = node.resolveBinding();
         if (binding == null) return;
 
         if (binding instanceof ITypeBinding) {
             // Ссылка на тип (класс, интерфейс, enum)
             ITypeBinding typeBinding = (ITypeBinding) binding;
-            dependencies.add(typeBinding.getQualifiedName());
+            dependencies.accept(names.symbolId(typeBinding));
         } else if (binding instanceof IVariableBinding) {
             // Ссылка на переменную или поле
             IVariableBinding varBinding = (IVariableBinding) binding;
             ITypeBinding typeBinding = varBinding.getType();
             if (typeBinding != null && !typeBinding.isPrimitive()) {
-                dependencies.add(typeBinding.getQualifiedName());
+                dependencies.accept(names.symbolId(typeBinding));
             }
         } else if (binding instanceof IMethodBinding) {
             // Ссылка на метод
             IMethodBinding methodBinding = (IMethodBinding) binding;
             ITypeBinding declaringClass = methodBinding.getDeclaringClass();
             if (declaringClass != null) {
-                dependencies.add(declaringClass.getQualifiedName());
+                dependencies.accept(names.symbolId(declaringClass));
             }
         }
     }
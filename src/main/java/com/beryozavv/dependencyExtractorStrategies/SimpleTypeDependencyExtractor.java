@@ -3,7 +3,7 @@ package com.beryozavv.dependencyExtractorStrategies;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.SimpleType;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из простых типов
@@ -11,10 +11,10 @@ import java.util.List;
 public class SimpleTypeDependencyExtractor implements DependencyExtractorStrategy<SimpleType> {
 
     @Override
-    public void extractDependencies(SimpleType node, List<String> dependencies) {
+    public void extractDependencies(SimpleType node, BindingNameCache names, IntConsumer dependencies) {
         ITypeBinding typeBinding = node.resolveBinding();
         if (typeBinding != null) {
-            dependencies.add(typeBinding.getQualifiedName());
+            dependencies.accept(names.symbolId(typeBinding));
         }
     }
 }
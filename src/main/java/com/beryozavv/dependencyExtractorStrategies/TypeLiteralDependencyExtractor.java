@@ -3,7 +3,7 @@ package com.beryozavv.dependencyExtractorStrategies;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.TypeLiteral;
 
-import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Стратегия для извлечения зависимостей из литералов типов
@@ -11,16 +11,16 @@ import java.util.List;
 public class TypeLiteralDependencyExtractor implements DependencyExtractorStrategy<TypeLiteral> {
 
     @Override
-    public void extractDependencies(TypeLiteral node, List<String> dependencies) {
+    public void extractDependencies(TypeLiteral node, BindingNameCache names, IntConsumer dependencies) {
         ITypeBinding typeBinding = node.resolveTypeBinding();
         if (typeBinding != null) {
             // Получаем тип, на который ссылается выражение Class<T>
             ITypeBinding referencedType = typeBinding.getTypeArguments().length > 0 ?
                     typeBinding.getTypeArguments()[0] : null;
             if (referencedType != null) {
-                dependencies.add(referencedType.getQualifiedName());
+                dependencies.accept(names.symbolId(referencedType));
             } else {
-                dependencies.add(typeBinding.getQualifiedName());
+                dependencies.accept(names.symbolId(typeBinding));
             }
         }
     }
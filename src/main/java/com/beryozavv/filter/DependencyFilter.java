@@ -0,0 +1,214 @@
+package com.beryozavv.filter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Правила отбора зависимостей, применяемые при извлечении, до сохранения результатов.
+ * Порядок проверки: самый длинный совпавший префикс из --include/--exclude, затем признаки
+ * "тип JDK" и "тип проекта", затем правило по умолчанию: если заданы включаемые префиксы,
+ * остальные зависимости отбрасываются, иначе сохраняются. Когда отбрасываются типы JDK или
+ * проекта, отбрасываются и имена без пакета, кроме примитивов: пустые имена анонимных классов
+ * и переменные типа не относятся ни к JDK, ни к проекту, ни к библиотекам. Имя сравнивается
+ * без аргументов типа и признака массива. Объект неизменяем
+ */
+public final class DependencyFilter {
+
+    private static final byte INCLUDE = 1;
+    private static final byte EXCLUDE = 2;
+
+    private static final FileSystem JRT = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+    // Пакет -> есть ли он в образе запущенной JVM
+    private static final Map<String, Boolean> JDK_PACKAGES = new ConcurrentHashMap<>();
+
+    private static final Set<String> PRIMITIVES = Set.of(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double", "void");
+
+    // Включаемые и исключаемые префиксы в порядке задания
+    private final List<String> includes;
+    private final List<String> excludes;
+
+    // Префиксы по сегментам
+    private final PackageTrie rules = new PackageTrie();
+
+    // Сохранять типы JDK
+    private final boolean jdk;
+
+    // Сохранять типы проекта
+    private final boolean project;
+
+    // Пакеты исходников проекта, нужны только если типы проекта отбрасываются
+    private final Set<String> projectPackages;
+
+    /**
+     * @param includes включаемые префиксы пакетов или типов
+     * @param excludes исключаемые префиксы пакетов или типов
+     * @param jdk      сохранять типы JDK и примитивы
+     * @param project  сохранять типы из исходников проекта
+     */
+    public DependencyFilter(List<String> includes, List<String> excludes, boolean jdk, boolean project) {
+        this(includes, excludes, jdk, project, Set.of());
+    }
+
+    private DependencyFilter(List<String> includes, List<String> excludes, boolean jdk, boolean project,
+                             Set<String> projectPackages) {
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.jdk = jdk;
+        this.project = project;
+        this.projectPackages = projectPackages;
+        for (String prefix : this.includes) {
+            rules.put(prefix, INCLUDE);
+        }
+        // При совпадении префиксов исключение сильнее
+        for (String prefix : this.excludes) {
+            rules.put(prefix, EXCLUDE);
+        }
+    }
+
+    /**
+     * @return true, если фильтр сохраняет все зависимости
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty() && jdk && project;
+    }
+
+    /**
+     * @return true, если для отбора нужен список пакетов проекта
+     */
+    public boolean needsProjectPackages() {
+        return !project;
+    }
+
+    /**
+     * @param packages пакеты исходников проекта
+     * @return фильтр, отличающий типы проекта по этим пакетам
+     */
+    public DependencyFilter withProjectPackages(Set<String> packages) {
+        return new DependencyFilter(includes, excludes, jdk, project, Set.copyOf(packages));
+    }
+
+    /**
+     * Проверяет, сохраняется ли зависимость
+     *
+     * @param name имя зависимости, как оно выводится в результатах
+     * @return true, если зависимость сохраняется
+     */
+    public boolean accepts(String name) {
+        int start = name.startsWith("?") ? 1 : 0;
+        String erased = name;
+        int end = name.indexOf('<');
+        if (end < 0) {
+            end = name.length();
+        }
+        while (end - start >= 2 && name.startsWith("[]", end - 2)) {
+            end -= 2;
+        }
+        if (start > 0 || end < name.length()) {
+            erased = name.substring(start, end);
+        }
+
+        byte rule = rules.match(erased, erased.length());
+        if (rule != PackageTrie.NONE) {
+            return rule == INCLUDE;
+        }
+        // Неразрешенное имя без '?' не относится ни к JDK, ни к проекту
+        if (start == 0) {
+            if ((!jdk || !project) && erased.indexOf('.') < 0 && !PRIMITIVES.contains(erased)) {
+                return false;
+            }
+            if (!jdk && isJdkType(erased)) {
+                return false;
+            }
+            if (!project && projectPackages.contains(packageOf(erased))) {
+                return false;
+            }
+        }
+        return includes.isEmpty();
+    }
+
+    /**
+     * @return отпечаток правил для ключа кэша результатов
+     */
+    public String fingerprint() {
+        StringBuilder builder = new StringBuilder();
+        // Версия правил: результаты, отобранные прежними правилами, не переиспользуются
+        builder.append("2|").append(jdk).append('|').append(project).append('\n');
+        builder.append(String.join(",", includes)).append('\n');
+        builder.append(String.join(",", excludes)).append('\n');
+        if (!project) {
+            builder.append(String.join(",", new TreeSet<>(projectPackages)));
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Собирает пакеты Java-файлов каталогов исходников по их расположению в каталогах
+     *
+     * @param sourceRoots каталоги исходников
+     * @return имена пакетов
+     * @throws IOException при ошибке обхода каталогов
+     */
+    public static Set<String> scanPackages(Collection<Path> sourceRoots) throws IOException {
+        Set<String> packages = new HashSet<>();
+        for (Path sourceRoot : sourceRoots) {
+            if (!Files.isDirectory(sourceRoot)) continue;
+
+            Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(".java")) {
+                        Path directory = sourceRoot.relativize(file.getParent());
+                        packages.add(directory.toString().replace(directory.getFileSystem().getSeparator(), "."));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return packages;
+    }
+
+    /**
+     * Выделяет пакет по соглашению об именах: сегменты до первого, начинающегося с заглавной буквы
+     */
+    private static String packageOf(String type) {
+        int start = 0;
+        while (start < type.length()) {
+            if (Character.isUpperCase(type.charAt(start))) {
+                return start == 0 ? "" : type.substring(0, start - 1);
+            }
+            int dot = type.indexOf('.', start);
+            if (dot < 0) break;
+            start = dot + 1;
+        }
+        int lastDot = type.lastIndexOf('.');
+        return lastDot < 0 ? "" : type.substring(0, lastDot);
+    }
+
+    private static boolean isJdkType(String type) {
+        if (type.indexOf('.') < 0) {
+            return PRIMITIVES.contains(type);
+        }
+        String packageName = packageOf(type);
+        return !packageName.isEmpty() && JDK_PACKAGES.computeIfAbsent(packageName,
+                name -> Files.isDirectory(JRT.getPath("/packages", name)));
+    }
+}
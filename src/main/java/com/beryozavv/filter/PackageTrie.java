@@ -0,0 +1,79 @@
+package com.beryozavv.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Префиксное дерево по сегментам полного имени (org -> springframework -> web). Префикс
+ * совпадает только по границе сегмента: org.spring не совпадает с org.springframework.Foo.
+ * Поиск возвращает значение самого длинного совпавшего префикса
+ */
+final class PackageTrie {
+
+    // Значение узла, для которого префикс не задан
+    static final byte NONE = 0;
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>(4);
+        byte value = NONE;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * @return true, если в дереве нет ни одного префикса
+     */
+    boolean isEmpty() {
+        return root.children.isEmpty() && root.value == NONE;
+    }
+
+    /**
+     * Задает значение префикса; повторное задание заменяет значение
+     *
+     * @param prefix префикс из сегментов через точку, например org.springframework
+     * @param value  значение, отличное от {@link #NONE}
+     */
+    void put(String prefix, byte value) {
+        Node node = root;
+        int start = 0;
+        while (start < prefix.length()) {
+            int end = prefix.indexOf('.', start);
+            if (end < 0) {
+                end = prefix.length();
+            }
+            if (end > start) {
+                node = node.children.computeIfAbsent(prefix.substring(start, end), ignored -> new Node());
+            }
+            start = end + 1;
+        }
+        node.value = value;
+    }
+
+    /**
+     * Ищет самый длинный префикс имени
+     *
+     * @param name  полное имя
+     * @param end   длина имени, до которой идет поиск
+     * @return значение самого длинного совпавшего префикса или {@link #NONE}
+     */
+    byte match(String name, int end) {
+        Node node = root;
+        byte value = node.value;
+        int start = 0;
+        while (start < end) {
+            int dot = name.indexOf('.', start);
+            if (dot < 0 || dot > end) {
+                dot = end;
+            }
+            node = node.children.get(name.substring(start, dot));
+            if (node == null) {
+                break;
+            }
+            if (node.value != NONE) {
+                value = node.value;
+            }
+            start = dot + 1;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,77 @@
+package com.beryozavv.filter;
+
+import com.beryozavv.result.SymbolTable;
+
+import java.util.Arrays;
+
+/**
+ * Фильтр зависимостей по идентификаторам таблицы символов. Решение для каждого символа
+ * вычисляется по имени один раз и запоминается, поэтому проверка в горячем пути извлечения -
+ * одно чтение из массива. Потокобезопасен: гонка при первом обращении приводит лишь
+ * к повторному вычислению того же решения
+ */
+public final class SymbolFilter {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte ACCEPTED = 1;
+    private static final byte REJECTED = 2;
+
+    // Правила отбора
+    private final DependencyFilter filter;
+
+    // Таблица символов, по которой определяются имена
+    private final SymbolTable symbols;
+
+    // Решение по идентификатору символа
+    private volatile byte[] states = new byte[1024];
+
+    /**
+     * @param filter  правила отбора
+     * @param symbols таблица символов
+     */
+    public SymbolFilter(DependencyFilter filter, SymbolTable symbols) {
+        this.filter = filter;
+        this.symbols = symbols;
+    }
+
+    /**
+     * @param symbolId идентификатор символа
+     * @return true, если зависимость сохраняется
+     */
+    public boolean accepts(int symbolId) {
+        byte[] current = states;
+        if (symbolId < current.length) {
+            byte state = current[symbolId];
+            if (state != UNKNOWN) {
+                return state == ACCEPTED;
+            }
+        }
+        boolean accepted = filter.accepts(symbols.getName(symbolId));
+        record(symbolId, accepted ? ACCEPTED : REJECTED);
+        return accepted;
+    }
+
+    /**
+     * @param name имя зависимости, еще не зарегистрированное в таблице символов
+     * @return true, если зависимость сохраняется
+     */
+    public boolean accepts(String name) {
+        return filter.accepts(name);
+    }
+
+    /**
+     * @return отпечаток правил для ключа кэша результатов
+     */
+    public String fingerprint() {
+        return filter.fingerprint();
+    }
+
+    private synchronized void record(int symbolId, byte state) {
+        byte[] current = states;
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        }
+        current[symbolId] = state;
+        states = current;
+    }
+}
@@ -0,0 +1,212 @@
+package com.beryozavv.graph;
+
+import java.util.*;
+
+/**
+ * Неизменяемый ориентированный граф зависимостей в компактном виде (CSR): узлы пронумерованы
+ * подряд, дуги узла n находятся в targets[offsets[n]..offsets[n + 1]) по возрастанию номеров
+ * целевых узлов. Вес дуги - количество строк исходников, в которых встречается зависимость
+ */
+public final class DependencyGraph {
+
+    // Имена узлов: полные имена типов или пакетов
+    private final String[] names;
+
+    // Начало дуг каждого узла, offsets[nodeCount] - количество дуг
+    private final int[] offsets;
+
+    // Целевые узлы дуг
+    private final int[] targets;
+
+    // Веса дуг
+    private final int[] weights;
+
+    private DependencyGraph(String[] names, int[] offsets, int[] targets, int[] weights) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Собирает граф из списка дуг. Повторяющиеся дуги объединяются, их веса складываются
+     *
+     * @param names     имена узлов
+     * @param sources   исходные узлы дуг
+     * @param dests     целевые узлы дуг
+     * @param weights   веса дуг
+     * @param edgeCount количество дуг в массивах
+     * @return граф
+     */
+    static DependencyGraph fromEdges(String[] names, int[] sources, int[] dests, int[] weights, int edgeCount) {
+        int nodeCount = names.length;
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            offsets[n + 1] += offsets[n];
+        }
+
+        // Дуги раскладываются по узлам; целевой узел и вес упаковываются в long,
+        // чтобы сортировать их вместе
+        long[] packed = new long[edgeCount];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            packed[fill[sources[i]]++] = ((long) dests[i] << 32) | (weights[i] & 0xFFFFFFFFL);
+        }
+
+        int[] mergedOffsets = new int[nodeCount + 1];
+        int merged = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            Arrays.sort(packed, offsets[n], offsets[n + 1]);
+            for (int i = offsets[n]; i < offsets[n + 1]; i++) {
+                int target = (int) (packed[i] >>> 32);
+                int weight = (int) packed[i];
+                if (merged > mergedOffsets[n] && (int) (packed[merged - 1] >>> 32) == target) {
+                    packed[merged - 1] = ((long) target << 32) | ((int) packed[merged - 1] + weight & 0xFFFFFFFFL);
+                } else {
+                    packed[merged++] = packed[i];
+                }
+            }
+            mergedOffsets[n + 1] = merged;
+        }
+
+        int[] targets = new int[merged];
+        int[] edgeWeights = new int[merged];
+        for (int i = 0; i < merged; i++) {
+            targets[i] = (int) (packed[i] >>> 32);
+            edgeWeights[i] = (int) packed[i];
+        }
+        return new DependencyGraph(names, mergedOffsets, targets, edgeWeights);
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param node номер узла
+     * @return полное имя типа или пакета
+     */
+    public String getName(int node) {
+        return names[node];
+    }
+
+    /**
+     * @param node номер узла
+     * @return количество дуг из узла
+     */
+    public int getOutDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @param node номер узла
+     * @param edge номер дуги узла от 0 до {@link #getOutDegree(int)}
+     * @return целевой узел дуги
+     */
+    public int getTarget(int node, int edge) {
+        return targets[offsets[node] + edge];
+    }
+
+    /**
+     * @param node номер узла
+     * @param edge номер дуги узла
+     * @return вес дуги
+     */
+    public int getWeight(int node, int edge) {
+        return weights[offsets[node] + edge];
+    }
+
+    /**
+     * @return количество дуг, входящих в каждый узел
+     */
+    public int[] getInDegrees() {
+        int[] inDegrees = new int[names.length];
+        for (int target : targets) {
+            inDegrees[target]++;
+        }
+        return inDegrees;
+    }
+
+    /**
+     * Находит циклы зависимостей: компоненты сильной связности из нескольких узлов
+     *
+     * @return узлы каждого цикла по алфавиту; циклы по убыванию размера
+     */
+    public List<int[]> findCycles() {
+        int[] components = StronglyConnectedComponents.compute(this);
+        int componentCount = 0;
+        for (int component : components) {
+            componentCount = Math.max(componentCount, component + 1);
+        }
+        int[] sizes = new int[componentCount];
+        for (int component : components) {
+            sizes[component]++;
+        }
+
+        Map<Integer, int[]> cycles = new HashMap<>();
+        int[] filled = new int[componentCount];
+        for (int node = 0; node < components.length; node++) {
+            int component = components[node];
+            if (sizes[component] > 1) {
+                cycles.computeIfAbsent(component, ignored -> new int[sizes[component]])[filled[component]++] = node;
+            }
+        }
+
+        List<int[]> result = new ArrayList<>(cycles.values());
+        for (int[] cycle : result) {
+            sortByName(cycle);
+        }
+        result.sort(Comparator.<int[]>comparingInt(cycle -> -cycle.length).thenComparing(cycle -> names[cycle[0]]));
+        return result;
+    }
+
+    /**
+     * Выбирает узлы с наибольшим значением, при равенстве по алфавиту
+     *
+     * @param values значение каждого узла, например входящая или исходящая степень
+     * @param limit  наибольшее количество узлов
+     * @return номера узлов по убыванию значения
+     */
+    public int[] rank(int[] values, int limit) {
+        Integer[] nodes = new Integer[names.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = i;
+        }
+        Arrays.sort(nodes, Comparator.<Integer>comparingInt(node -> -values[node]).thenComparing(node -> names[node]));
+        int count = Math.min(limit, nodes.length);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = nodes[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return исходящая степень каждого узла
+     */
+    public int[] getOutDegrees() {
+        int[] outDegrees = new int[names.length];
+        for (int node = 0; node < names.length; node++) {
+            outDegrees[node] = getOutDegree(node);
+        }
+        return outDegrees;
+    }
+
+    private void sortByName(int[] nodes) {
+        Integer[] boxed = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            boxed[i] = nodes[i];
+        }
+        Arrays.sort(boxed, Comparator.comparing(node -> names[node]));
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = boxed[i];
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.beryozavv.graph;
+
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Приемник результатов, собирающий граф зависимостей между типами верхнего уровня по мере
+ * готовности файлов. Исходным узлом файла считается его собственный тип: пакет берется из каталога
+ * файла относительно каталога исходников модуля, простое имя - из имени файла. Поэтому узел
+ * не теряется, даже если фильтр зависимостей (--no-project, --include) отбросил объявление
+ * типа. Для файлов вне каталогов исходников собственный тип ищется среди зависимостей. Дуги хранятся
+ * плоскими массивами int без объектов на каждую дугу, поэтому миллионы дуг занимают десятки
+ * мегабайт; граф типов и граф пакетов строятся из них по запросу.
+ * Вызовы {@link #accept} должны быть последовательными, как у остальных приемников
+ */
+public class DependencyGraphBuilder implements DependencySink {
+
+    // Значение кэша для символа, который не является типом
+    private static final int NOT_A_TYPE = -1;
+
+    // Значение кэша для символа, который еще не разбирался
+    private static final int UNKNOWN = -2;
+
+    // Таблица символов анализа, в которой зарегистрированы зависимости
+    private final SymbolTable symbols;
+
+    // Включать ли в граф типы вне проекта (JDK и библиотеки)
+    private final boolean includeExternal;
+
+    // Каталоги исходников модулей для определения пакета файла
+    private final Map<String, List<Path>> sourceRoots = new HashMap<>();
+
+    // Типы верхнего уровня - узлы графа
+    private final SymbolTable types = new SymbolTable();
+
+    // Символ анализа -> тип верхнего уровня, UNKNOWN или NOT_A_TYPE
+    private int[] symbolTypes = new int[0];
+
+    // Типы, объявленные в разобранных файлах проекта или найденные в каталогах исходников
+    private final BitSet projectTypes = new BitSet();
+
+    // Количество типов, уже проверенных по каталогам исходников
+    private int checkedTypes;
+
+    // Дуги: исходный тип, целевой тип и количество строк с зависимостью
+    private int[] edgeSources = new int[1024];
+    private int[] edgeTargets = new int[1024];
+    private int[] edgeWeights = new int[1024];
+    private int edgeCount;
+
+    // Рабочие массивы одного файла: типы файла, их веса, номер последнего файла и последней
+    // строки, в которых встретился тип, и позиция типа в массиве типов файла
+    private int[] fileTypes = new int[64];
+    private int[] fileWeights = new int[64];
+    private int[] seenInFile = new int[0];
+    private int[] seenOnLine = new int[0];
+    private int[] slotInFile = new int[0];
+    private int fileStamp;
+    private int lineStamp;
+
+    // Файлы вне каталогов исходников, собственный тип которых не найден среди зависимостей
+    private int skippedFiles;
+
+    /**
+     * @param symbols         таблица символов анализа
+     * @param includeExternal включать ли в граф типы JDK и библиотек; иначе в граф попадают
+     *                        только типы, объявленные в разобранных файлах
+     * @param sourceRoots     каталоги исходников модулей для определения пакета файла
+     */
+    public DependencyGraphBuilder(SymbolTable symbols, boolean includeExternal, Map<String, List<Path>> sourceRoots) {
+        this.symbols = symbols;
+        this.includeExternal = includeExternal;
+        sourceRoots.forEach((module, roots) -> this.sourceRoots.put(module,
+                roots.stream().map(root -> root.toAbsolutePath().normalize()).toList()));
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) {
+        String fileName = file.getFileName().toString();
+        if (fileName.endsWith(".java")) {
+            fileName = fileName.substring(0, fileName.length() - ".java".length());
+        }
+        // package-info.java и module-info.java не объявляют типов
+        if (!isIdentifier(fileName)) return;
+
+        fileStamp++;
+        int typeCount = 0;
+        for (int i = 0; i < dependencies.getLineCount(); i++) {
+            lineStamp++;
+            for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                int type = typeOf(dependencies.getSymbolId(i, j));
+                if (type == NOT_A_TYPE || seenOnLine[type] == lineStamp) continue;
+
+                seenOnLine[type] = lineStamp;
+                if (seenInFile[type] != fileStamp) {
+                    seenInFile[type] = fileStamp;
+                    if (typeCount == fileTypes.length) {
+                        fileTypes = Arrays.copyOf(fileTypes, typeCount * 2);
+                        fileWeights = Arrays.copyOf(fileWeights, typeCount * 2);
+                    }
+                    slotInFile[type] = typeCount;
+                    fileTypes[typeCount] = type;
+                    fileWeights[typeCount] = 1;
+                    typeCount++;
+                } else {
+                    fileWeights[slotInFile[type]]++;
+                }
+            }
+        }
+
+        int source = ownType(module, file, fileName, typeCount);
+        if (source < 0) {
+            skippedFiles++;
+            return;
+        }
+        projectTypes.set(source);
+
+        for (int i = 0; i < typeCount; i++) {
+            if (fileTypes[i] != source) {
+                addEdge(source, fileTypes[i], fileWeights[i]);
+            }
+        }
+    }
+
+    /**
+     * Определяет тип, объявленный файлом, по каталогу файла относительно каталога исходников
+     * модуля, а для файла вне каталогов исходников - по его зависимостям
+     *
+     * @param fileName имя файла без расширения
+     * @return тип или -1, если его не удалось определить
+     */
+    private int ownType(String module, Path file, String fileName, int typeCount) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path best = null;
+        for (Path root : sourceRoots.getOrDefault(module, List.of())) {
+            if (absolute.startsWith(root) && (best == null || root.getNameCount() > best.getNameCount())) {
+                best = root;
+            }
+        }
+        if (best == null) {
+            return findOwnType(file, fileName, typeCount);
+        }
+
+        Path directory = best.relativize(absolute).getParent();
+        String type = directory == null
+                ? fileName
+                : directory.toString().replace(directory.getFileSystem().getSeparator(), ".") + "." + fileName;
+        return internType(type);
+    }
+
+    /**
+     * Находит тип, объявленный файлом, среди его зависимостей: простое имя совпадает с именем
+     * файла, а пакет по возможности совпадает с каталогом файла
+     *
+     * @return тип или -1, если среди зависимостей файла его нет
+     */
+    private int findOwnType(Path file, String fileName, int typeCount) {
+        int candidate = -1;
+        for (int i = 0; i < typeCount; i++) {
+            String type = types.getName(fileTypes[i]);
+            if (!TypeNames.simpleName(type).equals(fileName)) continue;
+
+            Path directory = file.getParent();
+            Path packagePath = Path.of(TypeNames.packageOf(type).replace('.', '/'));
+            if (directory != null && directory.endsWith(packagePath)) {
+                return fileTypes[i];
+            }
+            candidate = fileTypes[i];
+        }
+        return candidate;
+    }
+
+    /**
+     * @param symbolId идентификатор символа анализа
+     * @return тип верхнего уровня для символа или NOT_A_TYPE
+     */
+    private int typeOf(int symbolId) {
+        if (symbolId >= symbolTypes.length) {
+            int oldLength = symbolTypes.length;
+            symbolTypes = Arrays.copyOf(symbolTypes, Math.max(symbolId + 1, oldLength * 2));
+            Arrays.fill(symbolTypes, oldLength, symbolTypes.length, UNKNOWN);
+        }
+
+        int type = symbolTypes[symbolId];
+        if (type == UNKNOWN) {
+            String name = TypeNames.topLevelType(symbols.getName(symbolId));
+            type = name == null ? NOT_A_TYPE : internType(name);
+            symbolTypes[symbolId] = type;
+        }
+        return type;
+    }
+
+    /**
+     * @param name полное имя типа верхнего уровня
+     * @return номер типа; рабочие массивы расширяются под него
+     */
+    private int internType(String name) {
+        int type = types.intern(name);
+        if (type >= seenInFile.length) {
+            int length = Math.max(type + 1, seenInFile.length * 2);
+            seenInFile = Arrays.copyOf(seenInFile, length);
+            seenOnLine = Arrays.copyOf(seenOnLine, length);
+            slotInFile = Arrays.copyOf(slotInFile, length);
+        }
+        return type;
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addEdge(int source, int target, int weight) {
+        if (edgeCount == edgeSources.length) {
+            int length = edgeCount * 2;
+            edgeSources = Arrays.copyOf(edgeSources, length);
+            edgeTargets = Arrays.copyOf(edgeTargets, length);
+            edgeWeights = Arrays.copyOf(edgeWeights, length);
+        }
+        edgeSources[edgeCount] = source;
+        edgeTargets[edgeCount] = target;
+        edgeWeights[edgeCount] = weight;
+        edgeCount++;
+    }
+
+    /**
+     * Строит граф зависимостей между типами верхнего уровня
+     *
+     * @return граф типов; вес дуги - количество строк, в которых тип использует другой тип
+     */
+    public DependencyGraph buildTypeGraph() {
+        findSourceTypes();
+        int[] nodes = new int[types.size()];
+        int nodeCount = 0;
+        for (int type = 0; type < nodes.length; type++) {
+            nodes[type] = isNode(type) ? nodeCount++ : -1;
+        }
+        String[] names = new String[nodeCount];
+        for (int type = 0; type < nodes.length; type++) {
+            if (nodes[type] >= 0) {
+                names[nodes[type]] = types.getName(type);
+            }
+        }
+        return collapse(names, nodes);
+    }
+
+    /**
+     * Строит граф зависимостей между пакетами. Зависимости внутри пакета не учитываются
+     *
+     * @return граф пакетов; вес дуги - суммарное количество строк с зависимостями
+     */
+    public DependencyGraph buildPackageGraph() {
+        findSourceTypes();
+        SymbolTable packages = new SymbolTable();
+        int[] nodes = new int[types.size()];
+        for (int type = 0; type < nodes.length; type++) {
+            nodes[type] = isNode(type) ? packages.intern(TypeNames.packageOf(types.getName(type))) : -1;
+        }
+        String[] names = new String[packages.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = packages.getName(i);
+        }
+        return collapse(names, nodes);
+    }
+
+    /**
+     * @return количество файлов, для которых не найден собственный тип; они не попадают в граф
+     */
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    /**
+     * Отмечает как типы проекта те типы, файл которых есть в каталогах исходников, хотя сам файл
+     * не передавался: анализ байт-кода не выдает результатов для интерфейсов и записей без кода.
+     * Без этого дуги к таким типам отбрасывались бы вместе с внешними типами
+     */
+    private void findSourceTypes() {
+        if (includeExternal) return;
+
+        Set<Path> roots = new LinkedHashSet<>();
+        sourceRoots.values().forEach(roots::addAll);
+        for (; checkedTypes < types.size(); checkedTypes++) {
+            if (projectTypes.get(checkedTypes)) continue;
+
+            String relativePath = types.getName(checkedTypes).replace('.', '/') + ".java";
+            for (Path root : roots) {
+                if (Files.isRegularFile(root.resolve(relativePath))) {
+                    projectTypes.set(checkedTypes);
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean isNode(int type) {
+        return includeExternal || projectTypes.get(type);
+    }
+
+    /**
+     * Переносит дуги между типами на узлы графа, отбрасывая дуги к типам вне графа и петли
+     *
+     * @param names имена узлов
+     * @param nodes тип -> узел графа или -1
+     */
+    private DependencyGraph collapse(String[] names, int[] nodes) {
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int count = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            int source = nodes[edgeSources[i]];
+            int target = nodes[edgeTargets[i]];
+            if (source < 0 || target < 0 || source == target) continue;
+
+            sources[count] = source;
+            targets[count] = target;
+            weights[count] = edgeWeights[i];
+            count++;
+        }
+        return DependencyGraph.fromEdges(names, sources, targets, weights, count);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,100 @@
+package com.beryozavv.graph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Выгрузка графа зависимостей в форматы DOT (Graphviz) и GraphML (yEd, Gephi). Вес дуги
+ * выводится атрибутом weight
+ */
+public final class GraphExporter {
+
+    private GraphExporter() {
+    }
+
+    /**
+     * Записывает граф в файл; формат выбирается по расширению: .graphml - GraphML, иначе DOT
+     *
+     * @param graph граф
+     * @param file  файл для записи
+     * @throws IOException при ошибке записи
+     */
+    public static void write(DependencyGraph graph, Path file) throws IOException {
+        boolean graphMl = file.getFileName().toString().toLowerCase().endsWith(".graphml");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (graphMl) {
+                writeGraphMl(graph, writer);
+            } else {
+                writeDot(graph, writer);
+            }
+        }
+    }
+
+    /**
+     * @param graph  граф
+     * @param writer поток вывода
+     * @throws IOException при ошибке записи
+     */
+    public static void writeDot(DependencyGraph graph, Writer writer) throws IOException {
+        writer.write("digraph dependencies {\n");
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            writer.write("  n");
+            writer.write(Integer.toString(node));
+            writer.write(" [label=\"");
+            writer.write(graph.getName(node).replace("\\", "\\\\").replace("\"", "\\\""));
+            writer.write("\"];\n");
+        }
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = 0; edge < graph.getOutDegree(node); edge++) {
+                writer.write("  n");
+                writer.write(Integer.toString(node));
+                writer.write(" -> n");
+                writer.write(Integer.toString(graph.getTarget(node, edge)));
+                writer.write(" [weight=");
+                writer.write(Integer.toString(graph.getWeight(node, edge)));
+                writer.write("];\n");
+            }
+        }
+        writer.write("}\n");
+    }
+
+    /**
+     * @param graph  граф
+     * @param writer поток вывода
+     * @throws IOException при ошибке записи
+     */
+    public static void writeGraphMl(DependencyGraph graph, Writer writer) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        writer.write("  <key id=\"name\" for=\"node\" attr.name=\"name\" attr.type=\"string\"/>\n");
+        writer.write("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n");
+        writer.write("  <graph id=\"dependencies\" edgedefault=\"directed\">\n");
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            writer.write("    <node id=\"n");
+            writer.write(Integer.toString(node));
+            writer.write("\"><data key=\"name\">");
+            writer.write(escapeXml(graph.getName(node)));
+            writer.write("</data></node>\n");
+        }
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = 0; edge < graph.getOutDegree(node); edge++) {
+                writer.write("    <edge source=\"n");
+                writer.write(Integer.toString(node));
+                writer.write("\" target=\"n");
+                writer.write(Integer.toString(graph.getTarget(node, edge)));
+                writer.write("\"><data key=\"weight\">");
+                writer.write(Integer.toString(graph.getWeight(node, edge)));
+                writer.write("</data></edge>\n");
+            }
+        }
+        writer.write("  </graph>\n");
+        writer.write("</graphml>\n");
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,55 @@
+package com.beryozavv.graph;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Сводка по графу зависимостей: циклы и узлы с наибольшим количеством входящих
+ * и исходящих зависимостей
+ */
+public final class GraphReport {
+
+    // Количество узлов в списках наибольших степеней и в выводе одного цикла
+    private static final int LIMIT = 10;
+
+    private GraphReport() {
+    }
+
+    /**
+     * @param graph        граф
+     * @param level        уровень графа для заголовка: type или package
+     * @param skippedFiles количество файлов, не попавших в граф, потому что их тип не определен
+     * @param out          поток вывода
+     */
+    public static void print(DependencyGraph graph, String level, int skippedFiles, PrintStream out) {
+        out.printf("Dependency graph (%s): %d nodes, %d edges%n", level, graph.getNodeCount(), graph.getEdgeCount());
+        if (skippedFiles > 0) {
+            out.printf("Files without own type, left out of the graph: %d%n", skippedFiles);
+        }
+
+        List<int[]> cycles = graph.findCycles();
+        out.printf("Cycles: %d%n", cycles.size());
+        for (int[] cycle : cycles) {
+            StringBuilder line = new StringBuilder("  [").append(cycle.length).append("] ");
+            for (int i = 0; i < Math.min(cycle.length, LIMIT); i++) {
+                if (i > 0) line.append(", ");
+                line.append(graph.getName(cycle[i]));
+            }
+            if (cycle.length > LIMIT) {
+                line.append(", ...");
+            }
+            out.println(line);
+        }
+
+        printRanking(graph, "Top fan-in", graph.getInDegrees(), out);
+        printRanking(graph, "Top fan-out", graph.getOutDegrees(), out);
+    }
+
+    private static void printRanking(DependencyGraph graph, String title, int[] degrees, PrintStream out) {
+        out.println(title + ":");
+        for (int node : graph.rank(degrees, LIMIT)) {
+            if (degrees[node] == 0) break;
+            out.printf("  %6d  %s%n", degrees[node], graph.getName(node));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.beryozavv.graph;
+
+import java.util.Arrays;
+
+/**
+ * Компоненты сильной связности по алгоритму Тарьяна. Рекурсия заменена явным стеком
+ * вызовов, поэтому глубина графа ограничена только памятью, а не стеком потока
+ */
+final class StronglyConnectedComponents {
+
+    private StronglyConnectedComponents() {
+    }
+
+    /**
+     * @param graph граф
+     * @return номер компоненты каждого узла; компоненты нумеруются с 0 в порядке завершения,
+     * то есть в обратном топологическом порядке графа компонент
+     */
+    static int[] compute(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        // Порядковый номер посещения узла, -1 для непосещенного
+        int[] index = new int[nodeCount];
+        Arrays.fill(index, -1);
+        // Наименьший номер посещения, достижимый из поддерева узла
+        int[] lowLink = new int[nodeCount];
+        // Номер компоненты, -1 пока узел не отнесен к компоненте (узел на стеке Тарьяна)
+        int[] components = new int[nodeCount];
+        Arrays.fill(components, -1);
+
+        int[] stack = new int[nodeCount];
+        int stackSize = 0;
+        // Стек вызовов: узел и номер следующей просматриваемой дуги
+        int[] callNodes = new int[nodeCount];
+        int[] callEdges = new int[nodeCount];
+
+        int visited = 0;
+        int componentCount = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] != -1) continue;
+
+            int depth = 0;
+            callNodes[0] = root;
+            callEdges[0] = 0;
+            index[root] = lowLink[root] = visited++;
+            stack[stackSize++] = root;
+
+            while (depth >= 0) {
+                int node = callNodes[depth];
+                int edge = callEdges[depth];
+                if (edge < graph.getOutDegree(node)) {
+                    callEdges[depth]++;
+                    int target = graph.getTarget(node, edge);
+                    if (index[target] == -1) {
+                        index[target] = lowLink[target] = visited++;
+                        stack[stackSize++] = target;
+                        depth++;
+                        callNodes[depth] = target;
+                        callEdges[depth] = 0;
+                    } else if (components[target] == -1) {
+                        lowLink[node] = Math.min(lowLink[node], index[target]);
+                    }
+                    continue;
+                }
+
+                // Все дуги узла просмотрены: узел - корень компоненты, если из него
+                // не достижим ранее посещенный узел стека
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        components[member] = componentCount;
+                    } while (member != node);
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNodes[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,66 @@
+package com.beryozavv.graph;
+
+/**
+ * Разбор имен зависимостей для графа. Имя зависимости приводится к типу верхнего уровня:
+ * аргументы типа и признак массива отбрасываются, вложенный тип заменяется объемлющим.
+ * Пакет отделяется от типа по соглашению об именах Java: имя типа начинается с заглавной
+ * буквы, имена пакетов - со строчной
+ */
+final class TypeNames {
+
+    private TypeNames() {
+    }
+
+    /**
+     * @param name имя зависимости, например java.util.Map.Entry&lt;K,V&gt;[]
+     * @return тип верхнего уровня (java.util.Map) или null, если имя не является полным
+     * именем типа: примитив, переменная типа, пакет или неразрешенное имя
+     */
+    static String topLevelType(String name) {
+        int end = name.indexOf('<');
+        if (end < 0) {
+            end = name.length();
+        }
+        while (end >= 2 && name.startsWith("[]", end - 2)) {
+            end -= 2;
+        }
+
+        int segmentStart = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i < end && name.charAt(i) != '.') {
+                boolean valid = i == segmentStart
+                        ? Character.isJavaIdentifierStart(name.charAt(i))
+                        : Character.isJavaIdentifierPart(name.charAt(i));
+                if (!valid) {
+                    return null;
+                }
+                continue;
+            }
+            if (i == segmentStart) {
+                return null;
+            }
+            if (Character.isUpperCase(name.charAt(segmentStart))) {
+                // Тип без пакета не отличить от неразрешенного простого имени
+                return segmentStart == 0 ? null : name.substring(0, i);
+            }
+            segmentStart = i + 1;
+        }
+        return null;
+    }
+
+    /**
+     * @param type тип верхнего уровня
+     * @return пакет типа
+     */
+    static String packageOf(String type) {
+        return type.substring(0, type.lastIndexOf('.'));
+    }
+
+    /**
+     * @param type тип верхнего уровня
+     * @return простое имя типа
+     */
+    static String simpleName(String type) {
+        return type.substring(type.lastIndexOf('.') + 1);
+    }
+}
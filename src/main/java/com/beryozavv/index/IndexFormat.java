@@ -0,0 +1,41 @@
+package com.beryozavv.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Бинарный формат обратного индекса. Все числа записаны в порядке big-endian.
+ * <pre>
+ * заголовок   magic, version, fileCount, symbolCount, postingCount (int),
+ *             смещения секций files, symbols, postings, strings (long)
+ * files       fileCount записей: moduleOffset, moduleLength, pathOffset, pathLength (int)
+ * symbols     symbolCount записей, отсортированных по байтам UTF-8 имени:
+ *             nameOffset, nameLength, firstPosting, postingCount (int)
+ * postings    postingCount записей: fileId, line (int), внутри символа по возрастанию
+ * strings     строки UTF-8, смещения отсчитываются от начала секции
+ * </pre>
+ */
+final class IndexFormat {
+
+    static final int MAGIC = 0x4A444149;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 5 * Integer.BYTES + 4 * Long.BYTES;
+    static final int FILE_ENTRY_SIZE = 4 * Integer.BYTES;
+    static final int SYMBOL_ENTRY_SIZE = 4 * Integer.BYTES;
+    static final int POSTING_SIZE = 2 * Integer.BYTES;
+
+    private IndexFormat() {
+    }
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Сравнивает имена по байтам UTF-8 без знака, как они упорядочены в индексе
+     */
+    static int compare(byte[] left, byte[] right) {
+        return Arrays.compareUnsigned(left, right);
+    }
+}
@@ -0,0 +1,207 @@
+package com.beryozavv.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обратный индекс, открытый через отображение файла в память. Поиск выполняется
+ * двоичным поиском по отсортированной таблице символов без загрузки индекса целиком
+ */
+public class ReverseIndex implements Closeable {
+
+    /**
+     * Место использования символа
+     *
+     * @param symbol полное имя символа
+     * @param module имя модуля
+     * @param file   путь к файлу
+     * @param line   номер строки
+     */
+    public record Usage(String symbol, String module, String file, int line) {
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int fileCount;
+    private final int symbolCount;
+    private final int filesOffset;
+    private final int symbolsOffset;
+    private final int postingsOffset;
+    private final int stringsOffset;
+
+    private ReverseIndex(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != IndexFormat.MAGIC || buffer.getInt(4) != IndexFormat.VERSION) {
+            throw new IOException("Файл не является обратным индексом или имеет другую версию");
+        }
+        this.fileCount = buffer.getInt(8);
+        this.symbolCount = buffer.getInt(12);
+        this.filesOffset = (int) buffer.getLong(20);
+        this.symbolsOffset = (int) buffer.getLong(28);
+        this.postingsOffset = (int) buffer.getLong(36);
+        this.stringsOffset = (int) buffer.getLong(44);
+    }
+
+    /**
+     * Открывает индекс только для чтения
+     *
+     * @param indexFile файл индекса
+     * @return открытый индекс
+     * @throws IOException если файл не найден, поврежден или больше 2 ГБ
+     */
+    public static ReverseIndex open(Path indexFile) throws IOException {
+        FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Индекс больше 2 ГБ не поддерживается: " + indexFile);
+            }
+            if (size < IndexFormat.HEADER_SIZE) {
+                throw new IOException("Файл индекса поврежден: " + indexFile);
+            }
+            return new ReverseIndex(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Находит использования типа, включая его параметризации и массивы
+     * (например, для java.util.List также java.util.List&lt;java.lang.String&gt;)
+     *
+     * @param type полное имя типа
+     * @return места использования
+     */
+    public List<Usage> findType(String type) {
+        byte[] prefix = IndexFormat.utf8(type);
+        List<Usage> usages = new ArrayList<>();
+        for (int symbol = lowerBound(prefix); symbol < symbolCount && startsWith(symbol, prefix); symbol++) {
+            int length = nameLength(symbol);
+            if (length == prefix.length) {
+                collect(symbol, usages);
+            } else {
+                byte next = buffer.get(stringsOffset + nameOffset(symbol) + prefix.length);
+                if (next == '<' || next == '[') {
+                    collect(symbol, usages);
+                }
+            }
+        }
+        return usages;
+    }
+
+    /**
+     * Находит использования всех типов пакета и его подпакетов
+     *
+     * @param packageName имя пакета, например com.foo
+     * @return места использования
+     */
+    public List<Usage> findPackage(String packageName) {
+        byte[] prefix = IndexFormat.utf8(packageName + ".");
+        List<Usage> usages = new ArrayList<>();
+        for (int symbol = lowerBound(prefix); symbol < symbolCount && startsWith(symbol, prefix); symbol++) {
+            collect(symbol, usages);
+        }
+        return usages;
+    }
+
+    /**
+     * @return количество файлов в индексе
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return количество различных символов в индексе
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void collect(int symbol, List<Usage> usages) {
+        String name = readString(nameOffset(symbol), nameLength(symbol));
+        int entry = symbolsOffset + symbol * IndexFormat.SYMBOL_ENTRY_SIZE;
+        int first = buffer.getInt(entry + 8);
+        int count = buffer.getInt(entry + 12);
+        for (int i = first; i < first + count; i++) {
+            int posting = postingsOffset + i * IndexFormat.POSTING_SIZE;
+            int fileId = buffer.getInt(posting);
+            int fileEntry = filesOffset + fileId * IndexFormat.FILE_ENTRY_SIZE;
+            usages.add(new Usage(name,
+                    readString(buffer.getInt(fileEntry), buffer.getInt(fileEntry + 4)),
+                    readString(buffer.getInt(fileEntry + 8), buffer.getInt(fileEntry + 12)),
+                    buffer.getInt(posting + 4)));
+        }
+    }
+
+    /**
+     * Двоичный поиск первого символа, имя которого не меньше ключа
+     */
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = symbolCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareName(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareName(int symbol, byte[] key) {
+        int offset = stringsOffset + nameOffset(symbol);
+        int length = nameLength(symbol);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = Byte.toUnsignedInt(buffer.get(offset + i)) - Byte.toUnsignedInt(key[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private boolean startsWith(int symbol, byte[] prefix) {
+        if (nameLength(symbol) < prefix.length) {
+            return false;
+        }
+        int offset = stringsOffset + nameOffset(symbol);
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int nameOffset(int symbol) {
+        return buffer.getInt(symbolsOffset + symbol * IndexFormat.SYMBOL_ENTRY_SIZE);
+    }
+
+    private int nameLength(int symbol) {
+        return buffer.getInt(symbolsOffset + symbol * IndexFormat.SYMBOL_ENTRY_SIZE + 4);
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(stringsOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,403 @@
+package com.beryozavv.index;
+
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Строит обратный индекс "полное имя -> (файл, строка)" из потока результатов анализа
+ * и записывает его в файл при закрытии. Записи копятся в буфере ограниченного размера;
+ * заполненный буфер сортируется по имени символа и выгружается во временный файл серии,
+ * а при закрытии серии сливаются в индекс. Внутри символа записи серии идут в порядке
+ * поступления, а серии - друг за другом, поэтому слияние сохраняет порядок файлов и строк
+ */
+public class ReverseIndexWriter implements DependencySink {
+
+    // Объем буфера записей по умолчанию, байт
+    public static final long DEFAULT_RUN_BYTES = 64L << 20;
+
+    // Память на запись при сортировке серии: тройка в буфере, ранг символа
+    // и пара (файл, строка) в отсортированном массиве, байт
+    private static final int POSTING_SORT_BYTES = 6 * Integer.BYTES;
+
+    // Наименьшее количество записей в серии
+    private static final int MIN_RUN_POSTINGS = 1024;
+
+    // Буфер чтения и записи файлов серий, байт
+    private static final int RUN_BUFFER_SIZE = 1 << 16;
+
+    // Файл индекса
+    private final Path indexFile;
+
+    // Таблица символов анализатора
+    private final SymbolTable symbols;
+
+    // Модуль и путь каждого файла, идентификатор файла - индекс в списках
+    private final List<String> fileModules = new ArrayList<>();
+    private final List<String> filePaths = new ArrayList<>();
+
+    // Наибольшее количество записей в буфере
+    private final int runCapacity;
+
+    // Тройки (symbolId, fileId, line) текущей серии в порядке поступления
+    private int[] postings = new int[3 * 1024];
+    private int postingCount;
+
+    // Выгруженные серии в порядке поступления и общее количество записей в них
+    private final List<Path> runFiles = new ArrayList<>();
+    private long spilledPostings;
+
+    /**
+     * Отсортированная серия в памяти
+     *
+     * @param symbolIds символы по возрастанию байтов имени
+     * @param names     имена символов в UTF-8 в том же порядке
+     * @param starts    начало записей каждого символа в pairs и общее количество записей в конце
+     * @param pairs     пары (fileId, line), внутри символа в порядке поступления
+     */
+    private record SortedRun(int[] symbolIds, byte[][] names, int[] starts, int[] pairs) {
+    }
+
+    /**
+     * Запись секции postings индекса
+     */
+    @FunctionalInterface
+    private interface PostingsWriter {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    public ReverseIndexWriter(Path indexFile, SymbolTable symbols) {
+        this(indexFile, symbols, DEFAULT_RUN_BYTES);
+    }
+
+    /**
+     * @param indexFile файл индекса
+     * @param symbols   таблица символов анализатора
+     * @param runBytes  память под буфер записей и его сортировку, байт; сверх нее записи
+     *                  выгружаются во временные файлы
+     */
+    public ReverseIndexWriter(Path indexFile, SymbolTable symbols, long runBytes) {
+        this.indexFile = indexFile;
+        this.symbols = symbols;
+        this.runCapacity = (int) Math.min(Integer.MAX_VALUE / 3, Math.max(MIN_RUN_POSTINGS, runBytes / POSTING_SORT_BYTES));
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) throws IOException {
+        int fileId = filePaths.size();
+        fileModules.add(module);
+        filePaths.add(file.toString());
+
+        for (int i = 0; i < dependencies.getLineCount(); i++) {
+            int line = dependencies.getLine(i);
+            for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                addPosting(dependencies.getSymbolId(i, j), fileId, line);
+            }
+        }
+    }
+
+    private void addPosting(int symbolId, int fileId, int line) throws IOException {
+        if (postingCount == runCapacity) {
+            spillRun();
+        }
+        int position = postingCount * 3;
+        if (position + 3 > postings.length) {
+            postings = Arrays.copyOf(postings, (int) Math.min((long) runCapacity * 3, postings.length * 2L));
+        }
+        postings[position] = symbolId;
+        postings[position + 1] = fileId;
+        postings[position + 2] = line;
+        postingCount++;
+    }
+
+    /**
+     * Сортирует буфер и выгружает его в файл серии: количество символов, затем для каждого
+     * символа его идентификатор, количество записей и пары (fileId, line)
+     */
+    private void spillRun() throws IOException {
+        SortedRun run = sortRun();
+        Path runFile = Files.createTempFile("reverse-index-run", ".bin");
+        runFiles.add(runFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), RUN_BUFFER_SIZE))) {
+            out.writeInt(run.symbolIds().length);
+            for (int rank = 0; rank < run.symbolIds().length; rank++) {
+                out.writeInt(run.symbolIds()[rank]);
+                out.writeInt(run.starts()[rank + 1] - run.starts()[rank]);
+                for (int i = run.starts()[rank] * 2; i < run.starts()[rank + 1] * 2; i++) {
+                    out.writeInt(run.pairs()[i]);
+                }
+            }
+        }
+        spilledPostings += postingCount;
+        postingCount = 0;
+    }
+
+    /**
+     * Упорядочивает записи буфера по байтам имени символа
+     */
+    private SortedRun sortRun() {
+        Map<Integer, byte[]> names = new HashMap<>();
+        for (int i = 0; i < postingCount; i++) {
+            names.computeIfAbsent(postings[i * 3], id -> IndexFormat.utf8(symbols.getName(id)));
+        }
+        Integer[] order = names.keySet().toArray(Integer[]::new);
+        Arrays.sort(order, (left, right) -> IndexFormat.compare(names.get(left), names.get(right)));
+        Map<Integer, Integer> rankBySymbol = new HashMap<>(order.length * 2);
+        for (int rank = 0; rank < order.length; rank++) {
+            rankBySymbol.put(order[rank], rank);
+        }
+
+        // Устойчивая сортировка подсчетом по рангу символа: внутри символа записи остаются
+        // в порядке поступления, то есть по возрастанию файла и строки
+        int[] symbolOf = new int[postingCount];
+        int[] starts = new int[order.length + 1];
+        for (int i = 0; i < postingCount; i++) {
+            symbolOf[i] = rankBySymbol.get(postings[i * 3]);
+            starts[symbolOf[i] + 1]++;
+        }
+        for (int rank = 0; rank < order.length; rank++) {
+            starts[rank + 1] += starts[rank];
+        }
+        int[] sorted = new int[postingCount * 2];
+        int[] cursor = Arrays.copyOf(starts, order.length);
+        for (int i = 0; i < postingCount; i++) {
+            int position = cursor[symbolOf[i]]++;
+            sorted[position * 2] = postings[i * 3 + 1];
+            sorted[position * 2 + 1] = postings[i * 3 + 2];
+        }
+
+        int[] symbolIds = new int[order.length];
+        byte[][] sortedNames = new byte[order.length][];
+        for (int rank = 0; rank < order.length; rank++) {
+            symbolIds[rank] = order[rank];
+            sortedNames[rank] = names.get(order[rank]);
+        }
+        return new SortedRun(symbolIds, sortedNames, starts, sorted);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, "reverse-index", ".tmp");
+        try {
+            write(tempFile);
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+            for (Path runFile : runFiles) {
+                Files.deleteIfExists(runFile);
+            }
+            runFiles.clear();
+        }
+    }
+
+    private void write(Path file) throws IOException {
+        if (spilledPostings + postingCount > Integer.MAX_VALUE) {
+            throw new IOException("Слишком много записей для обратного индекса: " + (spilledPostings + postingCount));
+        }
+        if (runFiles.isEmpty()) {
+            SortedRun run = sortRun();
+            writeIndex(file, run.symbolIds(), run.names(), run.starts(), run.symbolIds().length, out -> {
+                for (int value : run.pairs()) {
+                    out.writeInt(value);
+                }
+            });
+            return;
+        }
+
+        // Последняя серия тоже выгружается, чтобы освободить буфер на время слияния
+        spillRun();
+        postings = new int[0];
+        Path postingsFile = Files.createTempFile(file.toAbsolutePath().getParent(), "reverse-index-postings", ".tmp");
+        try {
+            int[] symbolIds = new int[1024];
+            int[] starts = new int[1025];
+            int symbolCount = 0;
+            int position = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(postingsFile), RUN_BUFFER_SIZE))) {
+                List<RunReader> readers = new ArrayList<>();
+                try {
+                    PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator
+                            .comparing((RunReader reader) -> reader.name, IndexFormat::compare)
+                            .thenComparingInt(reader -> reader.index));
+                    for (Path runFile : runFiles) {
+                        RunReader reader = new RunReader(readers.size(), runFile);
+                        readers.add(reader);
+                        if (reader.next()) {
+                            queue.add(reader);
+                        }
+                    }
+                    // Записи одного символа из разных серий идут подряд в порядке серий
+                    while (!queue.isEmpty()) {
+                        int symbolId = queue.peek().symbolId;
+                        if (symbolCount == symbolIds.length) {
+                            symbolIds = Arrays.copyOf(symbolIds, symbolCount * 2);
+                            starts = Arrays.copyOf(starts, symbolCount * 2 + 1);
+                        }
+                        symbolIds[symbolCount] = symbolId;
+                        starts[symbolCount++] = position;
+                        while (!queue.isEmpty() && queue.peek().symbolId == symbolId) {
+                            RunReader reader = queue.poll();
+                            position += reader.copyPostings(out);
+                            if (reader.next()) {
+                                queue.add(reader);
+                            }
+                        }
+                    }
+                    starts[symbolCount] = position;
+                } finally {
+                    for (RunReader reader : readers) {
+                        reader.close();
+                    }
+                }
+            }
+
+            byte[][] names = new byte[symbolCount][];
+            for (int i = 0; i < symbolCount; i++) {
+                names[i] = IndexFormat.utf8(symbols.getName(symbolIds[i]));
+            }
+            writeIndex(file, symbolIds, names, starts, symbolCount, out -> Files.copy(postingsFile, out));
+        } finally {
+            Files.deleteIfExists(postingsFile);
+        }
+    }
+
+    /**
+     * Записывает файл индекса по символам, упорядоченным по имени
+     *
+     * @param file        файл индекса
+     * @param symbolIds   символы
+     * @param names       имена символов в UTF-8
+     * @param starts      начало записей каждого символа и общее количество записей в конце
+     * @param symbolCount количество символов
+     * @param postings    запись секции postings в порядке символов
+     */
+    private void writeIndex(Path file, int[] symbolIds, byte[][] names, int[] starts, int symbolCount,
+                            PostingsWriter postings) throws IOException {
+        // Пул строк: модули, пути файлов и имена символов; строки пишутся в конце файла
+        // в том же порядке, в котором здесь вычисляются их смещения
+        int stringsSize = 0;
+        Map<String, int[]> moduleStrings = new HashMap<>();
+        int[][] fileEntries = new int[filePaths.size()][];
+        for (int fileId = 0; fileId < filePaths.size(); fileId++) {
+            int[] module = moduleStrings.get(fileModules.get(fileId));
+            if (module == null) {
+                module = new int[]{stringsSize, IndexFormat.utf8(fileModules.get(fileId)).length};
+                moduleStrings.put(fileModules.get(fileId), module);
+                stringsSize += module[1];
+            }
+            int pathLength = IndexFormat.utf8(filePaths.get(fileId)).length;
+            fileEntries[fileId] = new int[]{module[0], module[1], stringsSize, pathLength};
+            stringsSize += pathLength;
+        }
+        int symbolStringsOffset = stringsSize;
+
+        int postingCount = starts[symbolCount];
+        long filesOffset = IndexFormat.HEADER_SIZE;
+        long symbolsOffset = filesOffset + (long) filePaths.size() * IndexFormat.FILE_ENTRY_SIZE;
+        long postingsOffset = symbolsOffset + (long) symbolCount * IndexFormat.SYMBOL_ENTRY_SIZE;
+        long stringsOffset = postingsOffset + (long) postingCount * IndexFormat.POSTING_SIZE;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(IndexFormat.MAGIC);
+            out.writeInt(IndexFormat.VERSION);
+            out.writeInt(filePaths.size());
+            out.writeInt(symbolCount);
+            out.writeInt(postingCount);
+            out.writeLong(filesOffset);
+            out.writeLong(symbolsOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(stringsOffset);
+
+            for (int[] entry : fileEntries) {
+                for (int value : entry) {
+                    out.writeInt(value);
+                }
+            }
+            int nameOffset = symbolStringsOffset;
+            for (int i = 0; i < symbolCount; i++) {
+                out.writeInt(nameOffset);
+                out.writeInt(names[i].length);
+                out.writeInt(starts[i]);
+                out.writeInt(starts[i + 1] - starts[i]);
+                nameOffset += names[i].length;
+            }
+            postings.writeTo(out);
+
+            Set<String> writtenModules = new HashSet<>();
+            for (int fileId = 0; fileId < filePaths.size(); fileId++) {
+                if (writtenModules.add(fileModules.get(fileId))) {
+                    out.write(IndexFormat.utf8(fileModules.get(fileId)));
+                }
+                out.write(IndexFormat.utf8(filePaths.get(fileId)));
+            }
+            for (int i = 0; i < symbolCount; i++) {
+                out.write(names[i]);
+            }
+        }
+    }
+
+    /**
+     * Последовательное чтение файла серии по символам
+     */
+    private final class RunReader implements Closeable {
+
+        // Номер серии в порядке поступления
+        private final int index;
+
+        private final DataInputStream in;
+
+        // Символы, которые еще не прочитаны
+        private int remainingSymbols;
+
+        // Текущий символ, его имя в UTF-8 и количество его записей
+        private int symbolId;
+        private byte[] name;
+        private int count;
+
+        RunReader(int index, Path runFile) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), RUN_BUFFER_SIZE));
+            this.remainingSymbols = in.readInt();
+        }
+
+        /**
+         * Переходит к следующему символу серии
+         *
+         * @return false, если символы серии закончились
+         */
+        boolean next() throws IOException {
+            if (remainingSymbols == 0) return false;
+
+            remainingSymbols--;
+            symbolId = in.readInt();
+            count = in.readInt();
+            name = IndexFormat.utf8(symbols.getName(symbolId));
+            return true;
+        }
+
+        /**
+         * Копирует записи текущего символа
+         *
+         * @return количество скопированных записей
+         */
+        int copyPostings(DataOutputStream out) throws IOException {
+            for (int i = 0; i < count * 2; i++) {
+                out.writeInt(in.readInt());
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.beryozavv.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Пул массивов для чтения исходников. Массивы делятся на классы размеров по степеням двойки
+ * от 4 КБ до 1 М элементов, в каждом классе хранится ограниченное число свободных массивов.
+ * Массивы больше наибольшего класса не переиспользуются. Пул потокобезопасен
+ */
+public final class BufferPool {
+
+    // Степени двойки наименьшего и наибольшего класса размеров
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 20;
+
+    // Свободные массивы по классам размеров, от наименьшего
+    private final List<ArrayBlockingQueue<char[]>> chars;
+    private final List<ArrayBlockingQueue<byte[]>> bytes;
+
+    /**
+     * @param maxPerClass наибольшее количество свободных массивов каждого класса и типа
+     */
+    public BufferPool(int maxPerClass) {
+        int classCount = MAX_SHIFT - MIN_SHIFT + 1;
+        chars = new ArrayList<>(classCount);
+        bytes = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            chars.add(new ArrayBlockingQueue<>(maxPerClass));
+            bytes.add(new ArrayBlockingQueue<>(maxPerClass));
+        }
+    }
+
+    /**
+     * @param minLength наименьшая нужная длина
+     * @return массив символов длиной не меньше minLength, содержимое не определено
+     */
+    public char[] takeChars(int minLength) {
+        int shift = sizeShift(minLength);
+        if (shift > MAX_SHIFT) {
+            return new char[minLength];
+        }
+        char[] array = chars.get(shift - MIN_SHIFT).poll();
+        return array != null ? array : new char[1 << shift];
+    }
+
+    /**
+     * @param minLength наименьшая нужная длина
+     * @return массив байт длиной не меньше minLength, содержимое не определено
+     */
+    public byte[] takeBytes(int minLength) {
+        int shift = sizeShift(minLength);
+        if (shift > MAX_SHIFT) {
+            return new byte[minLength];
+        }
+        byte[] array = bytes.get(shift - MIN_SHIFT).poll();
+        return array != null ? array : new byte[1 << shift];
+    }
+
+    /**
+     * Возвращает массив в пул. Если свободных массивов его класса достаточно, массив отбрасывается
+     */
+    public void release(char[] array) {
+        int shift = poolShift(array.length);
+        if (shift > 0) {
+            chars.get(shift - MIN_SHIFT).offer(array);
+        }
+    }
+
+    /**
+     * Возвращает массив в пул. Если свободных массивов его класса достаточно, массив отбрасывается
+     */
+    public void release(byte[] array) {
+        int shift = poolShift(array.length);
+        if (shift > 0) {
+            bytes.get(shift - MIN_SHIFT).offer(array);
+        }
+    }
+
+    private static int sizeShift(int minLength) {
+        return Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(minLength, 1) - 1));
+    }
+
+    /**
+     * @return класс размера массива или 0, если массив взят не из пула
+     */
+    private static int poolShift(int length) {
+        int shift = Integer.numberOfTrailingZeros(length);
+        return Integer.bitCount(length) == 1 && shift >= MIN_SHIFT && shift <= MAX_SHIFT ? shift : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.beryozavv.ingest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Упреждающее чтение файлов на виртуальных потоках. Файлы загружаются параллельно,
+ * но выдаются потребителю в исходном порядке; загружено и не выдано одновременно
+ * не больше depth файлов, поэтому память под прочитанные данные ограничена.
+ * Пока потребитель разбирает один файл, следующие уже читаются с диска
+ *
+ * @param <T> результат загрузки файла
+ */
+public final class SourcePrefetcher<T> implements AutoCloseable {
+
+    /**
+     * Загрузка одного файла
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(Path file) throws IOException;
+    }
+
+    private final List<Path> files;
+    private final Loader<T> loader;
+
+    // Освобождение результата, который так и не был выдан потребителю
+    private final Consumer<T> discard;
+
+    // Разрешения на загрузку: одно на каждый загружаемый или загруженный и не выданный файл
+    private final Semaphore permits;
+
+    // Разрешение возвращается после загрузки, а не после выдачи файла потребителю
+    private final boolean releaseOnLoad;
+
+    private final List<CompletableFuture<T>> results;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+    private int next;
+
+    /**
+     * @param files   файлы в порядке выдачи
+     * @param depth   наибольшее количество файлов, загруженных впрок
+     * @param loader  загрузка файла
+     * @param discard освобождение загруженного, но не выданного результата при закрытии
+     */
+    public SourcePrefetcher(List<Path> files, int depth, Loader<T> loader, Consumer<T> discard) {
+        this(files, depth, loader, discard, false);
+    }
+
+    private SourcePrefetcher(List<Path> files, int depth, Loader<T> loader, Consumer<T> discard, boolean releaseOnLoad) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Глубина упреждающего чтения должна быть положительной: " + depth);
+        }
+        this.files = List.copyOf(files);
+        this.loader = loader;
+        this.discard = discard;
+        this.permits = new Semaphore(depth);
+        this.releaseOnLoad = releaseOnLoad;
+        this.results = new ArrayList<>(this.files.size());
+        for (int i = 0; i < this.files.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+        this.dispatcher = Thread.ofVirtual().name("source-prefetch").start(this::dispatch);
+    }
+
+    /**
+     * Прогрев файлов для разбора самим JDT: файлы читаются не больше чем по depth одновременно
+     * и сразу отбрасываются, чтобы JDT прочитал их уже из кэша операционной системы.
+     * Выдавать результаты не нужно, прогрев останавливается при закрытии
+     *
+     * @param files файлы в порядке, в котором их прочитает JDT
+     * @param depth наибольшее количество одновременно читаемых файлов
+     * @param pool  пул массивов для чтения
+     * @return прогрев, который нужно закрыть после разбора
+     */
+    public static SourcePrefetcher<Void> warm(List<Path> files, int depth, BufferPool pool) {
+        return new SourcePrefetcher<>(files, depth, file -> {
+            SourceReader.touch(file, pool);
+            return null;
+        }, ignored -> {
+        }, true);
+    }
+
+    private void dispatch() {
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (closed) {
+                return;
+            }
+            int index = i;
+            Thread.ofVirtual().name("source-prefetch-" + i).start(() -> load(index));
+        }
+    }
+
+    private void load(int index) {
+        try {
+            results.get(index).complete(loader.load(files.get(index)));
+        } catch (IOException | RuntimeException e) {
+            results.get(index).completeExceptionally(e);
+        } finally {
+            if (releaseOnLoad) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Ждет загрузки следующего файла
+     *
+     * @return результат загрузки следующего по порядку файла
+     * @throws IOException если файл не удалось загрузить
+     */
+    public T next() throws IOException {
+        if (next >= results.size()) {
+            throw new IllegalStateException("Все файлы уже выданы");
+        }
+        CompletableFuture<T> result = results.get(next++);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Чтение файла прервано");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        } finally {
+            if (!releaseOnLoad) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Останавливает чтение. Загруженные или загружаемые, но не выданные результаты освобождаются
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        for (int i = next; i < results.size(); i++) {
+            results.get(i).thenAccept(discard);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.beryozavv.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Чтение исходных файлов в UTF-8 прямо в массивы символов из пула, без промежуточной строки.
+ * Небольшие файлы читаются в массив байт из пула, большие отображаются в память
+ */
+public final class SourceReader {
+
+    // Размер файла, начиная с которого файл отображается в память, байт
+    public static final int MAP_THRESHOLD = 1 << 20;
+
+    private SourceReader() {
+    }
+
+    /**
+     * Читает и декодирует файл. Некорректные последовательности UTF-8 заменяются, как при
+     * чтении файла самим JDT; метка порядка байт в начале файла пропускается
+     *
+     * @param file путь к файлу
+     * @param pool пул массивов
+     * @return текст файла, который нужно закрыть после использования
+     * @throws IOException при ошибке чтения
+     */
+    public static SourceText read(Path file, BufferPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Файл слишком большой: " + file);
+            }
+
+            byte[] pooledBytes = null;
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                pooledBytes = pool.takeBytes((int) size);
+                bytes = ByteBuffer.wrap(pooledBytes, 0, (int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Читаем до конца файла
+                }
+                bytes.flip();
+            }
+
+            try {
+                skipByteOrderMark(bytes);
+                // Символов UTF-16 не больше, чем байт UTF-8
+                char[] chars = pool.takeChars(bytes.remaining());
+                CharBuffer out = CharBuffer.wrap(chars);
+                CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                decoder.decode(bytes, out, true);
+                decoder.flush(out);
+                int length = out.position();
+                Arrays.fill(chars, length, chars.length, ' ');
+                return new SourceText(chars, length, pool);
+            } finally {
+                if (pooledBytes != null) {
+                    pool.release(pooledBytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает файл без декодирования, чтобы его содержимое оказалось в кэше операционной
+     * системы к моменту, когда файл прочитает JDT
+     *
+     * @param file путь к файлу
+     * @param pool пул массивов
+     * @throws IOException при ошибке чтения
+     */
+    public static void touch(Path file, BufferPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                mapped.load();
+                return;
+            }
+            byte[] pooledBytes = pool.takeBytes((int) size);
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(pooledBytes);
+                while (channel.read(bytes) > 0 && bytes.hasRemaining()) {
+                    // Читаем до конца файла
+                }
+            } finally {
+                pool.release(pooledBytes);
+            }
+        }
+    }
+
+    private static void skipByteOrderMark(ByteBuffer bytes) {
+        int position = bytes.position();
+        if (bytes.remaining() >= 3 && (bytes.get(position) & 0xFF) == 0xEF
+                && (bytes.get(position + 1) & 0xFF) == 0xBB && (bytes.get(position + 2) & 0xFF) == 0xBF) {
+            bytes.position(position + 3);
+        }
+    }
+}
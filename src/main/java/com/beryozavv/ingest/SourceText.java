@@ -0,0 +1,39 @@
+package com.beryozavv.ingest;
+
+/**
+ * Текст исходного файла в массиве из пула. Массив длиннее текста: после текста до конца
+ * массива стоят пробелы, поэтому массив целиком можно передать в ASTParser.setSource,
+ * который разбирает весь массив. После закрытия массив возвращается в пул и не должен
+ * использоваться, в том числе через построенное по нему AST
+ */
+public final class SourceText implements AutoCloseable {
+
+    private final char[] chars;
+    private final int length;
+    private final BufferPool pool;
+
+    SourceText(char[] chars, int length, BufferPool pool) {
+        this.chars = chars;
+        this.length = length;
+        this.pool = pool;
+    }
+
+    /**
+     * @return массив с текстом в начале и пробелами после него
+     */
+    public char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * @return длина текста в символах
+     */
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public void close() {
+        pool.release(chars);
+    }
+}
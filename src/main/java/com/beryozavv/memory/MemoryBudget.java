@@ -0,0 +1,175 @@
+package com.beryozavv.memory;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Бюджет памяти анализа. Большую часть памяти занимают окружения JDT с привязками,
+ * поэтому бюджет ограничивает объем исходников, которые одновременно разбираются
+ * во всех потоках: пакет файлов ждет, пока не освободится место. Вторая часть бюджета
+ * отводится готовым результатам, которые ждут своей очереди на вывод; сверх нее
+ * результаты выгружаются на диск. Третья часть - буфер записей обратного индекса,
+ * который при заполнении выгружается отсортированной серией. Бюджет не охватывает
+ * таблицу символов, список файлов, агрегаты графа и свертки, результаты в памяти
+ * режима наблюдения и кэша результатов, а также карты, которые возвращает
+ * {@code analyzeResult()}. Бюджет общий для всех модулей проекта и потокобезопасен
+ */
+public class MemoryBudget {
+
+    // Память, занимаемая при разборе с привязками, на байт исходника. Замеры на пакетах
+    // от 30 до 500 файлов дают от 70 до 90 байт
+    public static final int PARSE_BYTES_PER_SOURCE_BYTE = 80;
+
+    // Доли бюджета в процентах: разбор, ожидающие вывода результаты и буфер обратного индекса.
+    // Остаток приходится на таблицу символов, кэши и буферы вывода
+    private static final int PARSE_PERCENT = 60;
+    private static final int RESULTS_PERCENT = 20;
+    private static final int INDEX_PERCENT = 10;
+
+    // Разрешения на разбор выдаются в килобайтах исходника
+    private static final int PERMIT_BYTES = 1024;
+
+    // Бюджет, байт
+    private final long limit;
+
+    // Объем исходников, которые могут разбираться одновременно, байт
+    private final long parseSourceLimit;
+
+    // Разрешения на разбор: по одному на килобайт исходника
+    private final Semaphore parsePermits;
+    private final int parsePermitCount;
+
+    // Объем результатов, которые могут ждать вывода в памяти, байт
+    private final long resultsLimit;
+
+    // Объем результатов, ожидающих вывода в памяти, байт
+    private final AtomicLong bufferedResults = new AtomicLong();
+
+    /**
+     * Разрешение на разбор пакета; возвращается при закрытии
+     */
+    public final class ParsePermit implements AutoCloseable {
+        private final int permits;
+
+        private ParsePermit(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            parsePermits.release(permits);
+        }
+    }
+
+    /**
+     * @param limit бюджет памяти, байт
+     */
+    public MemoryBudget(long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Бюджет памяти должен быть положительным: " + limit);
+        }
+        this.limit = limit;
+        this.parseSourceLimit = Math.max(PERMIT_BYTES, limit / 100 * PARSE_PERCENT / PARSE_BYTES_PER_SOURCE_BYTE);
+        this.parsePermitCount = (int) Math.min(Integer.MAX_VALUE, parseSourceLimit / PERMIT_BYTES);
+        this.parsePermits = new Semaphore(parsePermitCount, true);
+        this.resultsLimit = limit / 100 * RESULTS_PERCENT;
+    }
+
+    /**
+     * Разбирает размер вида 512m, 4g, 65536k или число байт
+     *
+     * @param value размер
+     * @return размер, байт
+     * @throws IllegalArgumentException если размер задан неверно
+     */
+    public static long parseSize(String value) {
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        if (!normalized.isEmpty()) {
+            switch (normalized.charAt(normalized.length() - 1)) {
+                case 'k' -> multiplier = 1L << 10;
+                case 'm' -> multiplier = 1L << 20;
+                case 'g' -> multiplier = 1L << 30;
+                default -> multiplier = 1;
+            }
+            if (multiplier > 1) {
+                normalized = normalized.substring(0, normalized.length() - 1);
+            }
+        }
+        try {
+            long size = Math.multiplyExact(Long.parseLong(normalized), multiplier);
+            if (size < 1) {
+                throw new IllegalArgumentException("Размер должен быть положительным: " + value);
+            }
+            return size;
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Некорректный размер: " + value);
+        }
+    }
+
+    /**
+     * @return бюджет, байт
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Возвращает наибольший объем исходников одного пакета, при котором все потоки
+     * могут разбирать свои пакеты одновременно
+     *
+     * @param parallelism количество потоков разбора
+     * @return объем исходников пакета, байт
+     */
+    public long batchSourceLimit(int parallelism) {
+        return Math.max(PERMIT_BYTES, parseSourceLimit / parallelism);
+    }
+
+    /**
+     * @return память под буфер записей обратного индекса и его сортировку, байт
+     */
+    public long indexRunBytes() {
+        return limit / 100 * INDEX_PERCENT;
+    }
+
+    /**
+     * Ждет, пока разбор пакета уложится в бюджет вместе с уже идущими разборами.
+     * Пакет больше всего бюджета разбора ждет, пока не завершатся все остальные
+     *
+     * @param sourceBytes объем исходников пакета, байт
+     * @return разрешение, которое нужно закрыть после разбора
+     */
+    public ParsePermit acquireParse(long sourceBytes) {
+        int permits = (int) Math.min(parsePermitCount, Math.max(1, (sourceBytes + PERMIT_BYTES - 1) / PERMIT_BYTES));
+        parsePermits.acquireUninterruptibly(permits);
+        return new ParsePermit(permits);
+    }
+
+    /**
+     * Резервирует память под результаты, ожидающие вывода
+     *
+     * @param bytes объем результатов, байт
+     * @return true, если результаты можно держать в памяти, false - если их нужно выгрузить
+     */
+    public boolean reserveResults(long bytes) {
+        while (true) {
+            long current = bufferedResults.get();
+            if (current + bytes > resultsLimit) {
+                return false;
+            }
+            if (bufferedResults.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает память, зарезервированную {@link #reserveResults(long)}
+     *
+     * @param bytes объем результатов, байт
+     */
+    public void releaseResults(long bytes) {
+        bufferedResults.addAndGet(-bytes);
+    }
+}
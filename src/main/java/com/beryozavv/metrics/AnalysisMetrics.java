@@ -0,0 +1,328 @@
+package com.beryozavv.metrics;
+
+import jdk.jfr.EventType;
+import org.eclipse.jdt.core.dom.ASTNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики и время этапов анализа. Время этапов суммируется по всем потокам, поэтому
+ * при параллельном анализе может превышать общее время работы. Выключенный экземпляр
+ * {@link #DISABLED} ничего не замеряет: проверки сводятся к чтению поля, а события JFR
+ * создаются, только если запись JFR включена
+ */
+public final class AnalysisMetrics {
+
+    // Экземпляр без сбора метрик
+    public static final AnalysisMetrics DISABLED = new AnalysisMetrics(false);
+
+    // Максимальный тип узла AST, для которого ведется статистика стратегий
+    private static final int MAX_NODE_TYPE = 128;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            THREADS instanceof com.sun.management.ThreadMXBean allocations && allocations.isThreadAllocatedMemorySupported()
+                    ? allocations : null;
+
+    // Типы событий JFR для проверки, включена ли их запись
+    private static final EventType PHASE_EVENT = EventType.getEventType(AnalysisPhaseEvent.class);
+    private static final EventType BATCH_EVENT = EventType.getEventType(ParseBatchEvent.class);
+
+    private final boolean enabled;
+
+    // Начало и конец работы
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    // Время этапов: индекс - номер этапа
+    private final LongAdder[] phaseWall = new LongAdder[Phase.values().length];
+    private final LongAdder[] phaseCpu = new LongAdder[Phase.values().length];
+
+    // Стратегии: индекс - тип узла AST
+    private final LongAdder[] strategyNodes = new LongAdder[MAX_NODE_TYPE];
+    private final LongAdder[] strategyNanos = new LongAdder[MAX_NODE_TYPE];
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder unresolvedBindings = new LongAdder();
+    private final LongAdder extractionErrors = new LongAdder();
+    private final LongAdder skippedFiles = new LongAdder();
+    private final LongAdder bindingCacheHits = new LongAdder();
+    private final LongAdder bindingCacheMisses = new LongAdder();
+    private final LongAdder spilledBatches = new LongAdder();
+    private final LongAdder spilledBytes = new LongAdder();
+
+    // Планирование пакетов разбора
+    private final LongAdder scheduledBatches = new LongAdder();
+    private final LongAdder scheduledBytes = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator minBatchBytes = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxBatchBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder largeFiles = new LongAdder();
+    private final LongAdder batchLimitCuts = new LongAdder();
+
+    /**
+     * Создает включенный набор метрик
+     */
+    public AnalysisMetrics() {
+        this(true);
+    }
+
+    private AnalysisMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < phaseWall.length; i++) {
+            phaseWall[i] = new LongAdder();
+            phaseCpu[i] = new LongAdder();
+        }
+        for (int i = 0; i < MAX_NODE_TYPE; i++) {
+            strategyNodes[i] = new LongAdder();
+            strategyNanos[i] = new LongAdder();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return процессорное время текущего потока, нс, или 0 если оно недоступно
+     */
+    public static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * @return память, выделенная текущим потоком с его запуска, байт, или 0 если замер недоступен
+     */
+    public static long currentThreadAllocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Начинает замер этапа, который выполняется в текущем потоке
+     *
+     * @param phase этап
+     * @return замер, который нужно остановить по окончании этапа
+     */
+    public PhaseTimer startPhase(Phase phase) {
+        if (!enabled && !PHASE_EVENT.isEnabled()) {
+            return PhaseTimer.NOOP;
+        }
+        return new PhaseTimer(this, phase);
+    }
+
+    /**
+     * Начинает замер разбора пакета файлов в текущем потоке
+     *
+     * @return замер пакета
+     */
+    public BatchTimer startBatch() {
+        if (!enabled && !BATCH_EVENT.isEnabled()) {
+            return BatchTimer.NOOP;
+        }
+        return new BatchTimer(this);
+    }
+
+    /**
+     * Добавляет время этапа
+     *
+     * @param phase     этап
+     * @param wallNanos астрономическое время, нс
+     * @param cpuNanos  процессорное время, нс
+     */
+    public void record(Phase phase, long wallNanos, long cpuNanos) {
+        if (!enabled) return;
+        phaseWall[phase.ordinal()].add(wallNanos);
+        phaseCpu[phase.ordinal()].add(cpuNanos);
+    }
+
+    /**
+     * Учитывает узел, обработанный стратегией
+     *
+     * @param nodeType тип узла AST
+     * @param nanos    время работы стратегии, нс
+     */
+    public void recordNode(int nodeType, long nanos) {
+        if (nodeType < MAX_NODE_TYPE) {
+            strategyNodes[nodeType].increment();
+            strategyNanos[nodeType].add(nanos);
+        }
+    }
+
+    public void unresolvedBinding() {
+        unresolvedBindings.increment();
+    }
+
+    public void extractionError() {
+        extractionErrors.increment();
+    }
+
+    /**
+     * Учитывает файл, для которого JDT не построил AST
+     */
+    public void skippedFile() {
+        skippedFiles.increment();
+    }
+
+    /**
+     * Учитывает пакет результатов, выгруженный на диск
+     *
+     * @param bytes объем записи, байт
+     */
+    public void spilledBatch(long bytes) {
+        spilledBatches.increment();
+        spilledBytes.add(bytes);
+    }
+
+    /**
+     * Учитывает пакет, выданный планировщиком разбора
+     *
+     * @param sourceBytes    объем исходников пакета, байт
+     * @param allocatedBytes память, выделенная при разборе пакета, байт
+     */
+    public void scheduledBatch(long sourceBytes, long allocatedBytes) {
+        scheduledBatches.increment();
+        scheduledBytes.add(sourceBytes);
+        this.allocatedBytes.add(allocatedBytes);
+        minBatchBytes.accumulate(sourceBytes);
+        maxBatchBytes.accumulate(sourceBytes);
+    }
+
+    /**
+     * Учитывает большие файлы, поставленные в начало очереди разбора
+     *
+     * @param count количество файлов
+     */
+    public void largeFilesFirst(int count) {
+        largeFiles.add(count);
+    }
+
+    /**
+     * Учитывает уменьшение предела объема пакета из-за заполнения кучи
+     */
+    public void batchLimitCut() {
+        batchLimitCuts.increment();
+    }
+
+    void recordBatch(int fileCount, long hits, long misses) {
+        if (!enabled) return;
+        files.add(fileCount);
+        batches.increment();
+        bindingCacheHits.add(hits);
+        bindingCacheMisses.add(misses);
+    }
+
+    /**
+     * Фиксирует окончание работы для расчета общего времени и скорости
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Печатает сводку по этапам, стратегиям и счетчикам
+     *
+     * @param out поток вывода
+     */
+    public void printSummary(PrintStream out) {
+        double seconds = elapsedNanos() / 1e9;
+        out.println("Analysis summary");
+        out.printf(Locale.ROOT, "  files: %d in %d batches, %.2f s, %.1f files/s%n",
+                files.sum(), batches.sum(), seconds, filesPerSecond());
+        out.printf(Locale.ROOT, "  %-14s %12s %12s%n", "phase", "wall ms", "cpu ms");
+        for (Phase phase : Phase.values()) {
+            out.printf(Locale.ROOT, "  %-14s %12.1f %12.1f%n", phase.getLabel(),
+                    phaseWall[phase.ordinal()].sum() / 1e6, phaseCpu[phase.ordinal()].sum() / 1e6);
+        }
+        out.printf(Locale.ROOT, "  %-22s %12s %12s%n", "strategy", "nodes", "ms");
+        for (int nodeType = 0; nodeType < MAX_NODE_TYPE; nodeType++) {
+            long nodes = strategyNodes[nodeType].sum();
+            if (nodes > 0) {
+                out.printf(Locale.ROOT, "  %-22s %12d %12.1f%n", strategyName(nodeType), nodes, strategyNanos[nodeType].sum() / 1e6);
+            }
+        }
+        out.printf(Locale.ROOT, "  unresolved bindings: %d, extraction errors: %d, skipped files: %d%n",
+                unresolvedBindings.sum(), extractionErrors.sum(), skippedFiles.sum());
+        out.printf(Locale.ROOT, "  binding name cache: %d hits, %d misses%n", bindingCacheHits.sum(), bindingCacheMisses.sum());
+        out.printf(Locale.ROOT, "  spilled results: %d batches, %.1f MB%n", spilledBatches.sum(), spilledBytes.sum() / 1e6);
+        long scheduled = scheduledBatches.sum();
+        if (scheduled > 0) {
+            out.printf(Locale.ROOT, "  scheduler: %d batches of %.1f/%.1f/%.1f KB min/avg/max source, %d large files first,"
+                            + " %d heap limit cuts, %.1f bytes allocated per source byte%n",
+                    scheduled, minBatchBytes.get() / 1024.0, scheduledBytes.sum() / 1024.0 / scheduled,
+                    maxBatchBytes.get() / 1024.0, largeFiles.sum(), batchLimitCuts.sum(), allocatedPerSourceByte());
+        }
+    }
+
+    /**
+     * Записывает метрики в файл JSON
+     *
+     * @param file файл метрик
+     * @throws IOException при ошибке записи
+     */
+    public void writeJson(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(String.format(Locale.ROOT, "{\"files\":%d,\"batches\":%d,\"wallMillis\":%.3f,\"filesPerSecond\":%.3f,",
+                    files.sum(), batches.sum(), elapsedNanos() / 1e6, filesPerSecond()));
+            out.write("\"phases\":{");
+            for (Phase phase : Phase.values()) {
+                if (phase.ordinal() > 0) out.write(',');
+                out.write(String.format(Locale.ROOT, "\"%s\":{\"wallMillis\":%.3f,\"cpuMillis\":%.3f}", phase.getLabel(),
+                        phaseWall[phase.ordinal()].sum() / 1e6, phaseCpu[phase.ordinal()].sum() / 1e6));
+            }
+            out.write("},\"strategies\":{");
+            boolean first = true;
+            for (int nodeType = 0; nodeType < MAX_NODE_TYPE; nodeType++) {
+                long nodes = strategyNodes[nodeType].sum();
+                if (nodes == 0) continue;
+                if (!first) out.write(',');
+                first = false;
+                out.write(String.format(Locale.ROOT, "\"%s\":{\"nodes\":%d,\"millis\":%.3f}",
+                        strategyName(nodeType), nodes, strategyNanos[nodeType].sum() / 1e6));
+            }
+            out.write(String.format(Locale.ROOT, "},\"unresolvedBindings\":%d,\"extractionErrors\":%d,\"skippedFiles\":%d,"
+                            + "\"bindingCacheHits\":%d,\"bindingCacheMisses\":%d,\"spilledBatches\":%d,\"spilledBytes\":%d,",
+                    unresolvedBindings.sum(), extractionErrors.sum(), skippedFiles.sum(), bindingCacheHits.sum(), bindingCacheMisses.sum(),
+                    spilledBatches.sum(), spilledBytes.sum()));
+            long scheduled = scheduledBatches.sum();
+            out.write(String.format(Locale.ROOT, "\"scheduler\":{\"batches\":%d,\"sourceBytes\":%d,\"minBatchBytes\":%d,"
+                            + "\"maxBatchBytes\":%d,\"largeFilesFirst\":%d,\"heapLimitCuts\":%d,\"allocatedBytes\":%d}}%n",
+                    scheduled, scheduledBytes.sum(), scheduled > 0 ? minBatchBytes.get() : 0, maxBatchBytes.get(),
+                    largeFiles.sum(), batchLimitCuts.sum(), allocatedBytes.sum()));
+        }
+    }
+
+    private double allocatedPerSourceByte() {
+        long bytes = scheduledBytes.sum();
+        return bytes == 0 ? 0 : (double) allocatedBytes.sum() / bytes;
+    }
+
+    private long elapsedNanos() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return end - startNanos;
+    }
+
+    private double filesPerSecond() {
+        long elapsed = elapsedNanos();
+        return elapsed == 0 ? 0 : files.sum() * 1e9 / elapsed;
+    }
+
+    private static String strategyName(int nodeType) {
+        try {
+            return ASTNode.nodeClassForType(nodeType).getSimpleName();
+        } catch (IllegalArgumentException e) {
+            return "node-" + nodeType;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.beryozavv.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Событие JFR: завершение этапа анализа в одном потоке
+ */
+@Name("com.beryozavv.AnalysisPhase")
+@Label("Analysis Phase")
+@Category("Dependency Analyzer")
+@StackTrace(false)
+class AnalysisPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+}
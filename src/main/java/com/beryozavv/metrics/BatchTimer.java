@@ -0,0 +1,84 @@
+package com.beryozavv.metrics;
+
+/**
+ * Замер разбора одного пакета файлов. Извлечение зависимостей выполняется внутри
+ * createASTs после разбора каждого файла, поэтому его время замеряется отдельно
+ * и вычитается из времени пакета, остаток относится к разбору
+ */
+public class BatchTimer {
+
+    // Замер, который ничего не делает
+    static final BatchTimer NOOP = new BatchTimer();
+
+    private final AnalysisMetrics metrics;
+    private final ParseBatchEvent event;
+    private final long wallStart;
+    private final long cpuStart;
+
+    // Накопленное время извлечения
+    private long extractWall;
+    private long extractCpu;
+
+    // Начало текущего извлечения
+    private long extractWallStart;
+    private long extractCpuStart;
+
+    private BatchTimer() {
+        this.metrics = null;
+        this.event = null;
+        this.wallStart = 0;
+        this.cpuStart = 0;
+    }
+
+    BatchTimer(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+        this.event = new ParseBatchEvent();
+        this.event.begin();
+        this.wallStart = System.nanoTime();
+        this.cpuStart = AnalysisMetrics.currentThreadCpuTime();
+    }
+
+    /**
+     * Отмечает начало извлечения зависимостей одного файла
+     */
+    public void extractStarted() {
+        if (metrics == null) return;
+        extractWallStart = System.nanoTime();
+        extractCpuStart = AnalysisMetrics.currentThreadCpuTime();
+    }
+
+    /**
+     * Отмечает окончание извлечения зависимостей одного файла
+     */
+    public void extractFinished() {
+        if (metrics == null) return;
+        extractWall += System.nanoTime() - extractWallStart;
+        extractCpu += AnalysisMetrics.currentThreadCpuTime() - extractCpuStart;
+    }
+
+    /**
+     * Завершает замер пакета
+     *
+     * @param fileCount количество файлов пакета
+     * @param hits      попадания кэша имен привязок
+     * @param misses    промахи кэша имен привязок
+     */
+    public void finish(int fileCount, long hits, long misses) {
+        if (metrics == null) return;
+
+        long wall = System.nanoTime() - wallStart;
+        long cpu = AnalysisMetrics.currentThreadCpuTime() - cpuStart;
+        metrics.record(Phase.PARSE, wall - extractWall, cpu - extractCpu);
+        metrics.record(Phase.EXTRACT, extractWall, extractCpu);
+        metrics.recordBatch(fileCount, hits, misses);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.files = fileCount;
+            event.extractTime = extractWall;
+            event.bindingCacheHits = hits;
+            event.bindingCacheMisses = misses;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.beryozavv.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Событие JFR: разбор одного пакета файлов общим ASTParser
+ */
+@Name("com.beryozavv.ParseBatch")
+@Label("Parse Batch")
+@Category("Dependency Analyzer")
+@StackTrace(false)
+class ParseBatchEvent extends Event {
+
+    @Label("Files")
+    int files;
+
+    @Label("Extraction Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long extractTime;
+
+    @Label("Binding Cache Hits")
+    long bindingCacheHits;
+
+    @Label("Binding Cache Misses")
+    long bindingCacheMisses;
+}
@@ -0,0 +1,39 @@
+package com.beryozavv.metrics;
+
+/**
+ * Этап работы анализатора
+ */
+public enum Phase {
+    // Получение модели Gradle (или ее загрузка из кэша)
+    GRADLE_MODEL("gradle-model"),
+    // Список измененных файлов и чтение их версий из git
+    GIT("git"),
+    // Поиск Java-файлов в каталогах исходников
+    FILE_SCAN("file-scan"),
+    // Чтение и запись кэша результатов, включая хэширование файлов
+    CACHE_IO("cache-io"),
+    // Индекс типов classpath и исходников для разбора без привязок
+    TYPE_INDEX("type-index"),
+    // Разбор файлов и разрешение привязок в ASTParser.createASTs
+    PARSE("parse"),
+    // Обход AST и работа стратегий извлечения
+    EXTRACT("extract"),
+    // Передача результатов в приемник
+    OUTPUT("output"),
+    // Построение графа зависимостей, поиск циклов и выгрузка графа
+    GRAPH("graph"),
+    // Ожидание места в бюджете памяти перед разбором пакета
+    MEMORY_WAIT("memory-wait"),
+    // Запись и чтение результатов, выгруженных на диск
+    SPILL("spill");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
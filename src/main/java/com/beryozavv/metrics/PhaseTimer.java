@@ -0,0 +1,51 @@
+package com.beryozavv.metrics;
+
+/**
+ * Замер одного этапа в текущем потоке. Остановка добавляет время в метрики
+ * и записывает событие JFR, если его запись включена. Останавливается в finally
+ * блока, который замеряется
+ */
+public class PhaseTimer {
+
+    // Замер, который ничего не делает
+    static final PhaseTimer NOOP = new PhaseTimer();
+
+    private final AnalysisMetrics metrics;
+    private final Phase phase;
+    private final AnalysisPhaseEvent event;
+    private final long wallStart;
+    private final long cpuStart;
+
+    private PhaseTimer() {
+        this.metrics = null;
+        this.phase = null;
+        this.event = null;
+        this.wallStart = 0;
+        this.cpuStart = 0;
+    }
+
+    PhaseTimer(AnalysisMetrics metrics, Phase phase) {
+        this.metrics = metrics;
+        this.phase = phase;
+        this.event = new AnalysisPhaseEvent();
+        this.event.begin();
+        this.wallStart = System.nanoTime();
+        this.cpuStart = AnalysisMetrics.currentThreadCpuTime();
+    }
+
+    /**
+     * Завершает замер этапа
+     */
+    public void stop() {
+        if (metrics == null) return;
+
+        long cpuTime = AnalysisMetrics.currentThreadCpuTime() - cpuStart;
+        metrics.record(phase, System.nanoTime() - wallStart, cpuTime);
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.getLabel();
+            event.cpuTime = cpuTime;
+            event.commit();
+        }
+    }
+}
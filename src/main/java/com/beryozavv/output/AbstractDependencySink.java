@@ -0,0 +1,59 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Основа текстовых приемников: буферизованный вывод и сортировка имен строки
+ * в переиспользуемом буфере
+ */
+abstract class AbstractDependencySink implements DependencySink {
+
+    // Поток вывода
+    protected final Writer writer;
+
+    // Таблица символов для получения имен зависимостей
+    protected final SymbolTable symbols;
+
+    // Буфер имен одной строки
+    private String[] lineNames = new String[16];
+
+    protected AbstractDependencySink(Writer writer, SymbolTable symbols) {
+        this.writer = writer;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Заполняет буфер именами зависимостей строки в алфавитном порядке
+     *
+     * @param dependencies зависимости файла
+     * @param index        индекс строки
+     * @return буфер, в котором отсортированы первые {@code dependencies.getSymbolCount(index)} элементов
+     */
+    protected String[] sortedNames(FileDependencies dependencies, int index) {
+        int count = dependencies.getSymbolCount(index);
+        if (lineNames.length < count) {
+            lineNames = new String[Math.max(count, lineNames.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            lineNames[i] = symbols.getName(dependencies.getSymbolId(index, i));
+        }
+        Arrays.sort(lineNames, 0, count);
+        return lineNames;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        writer.close();
+    }
+}
@@ -0,0 +1,53 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Передает результаты нескольким приемникам, например выводу и обратному индексу
+ */
+public class CompositeDependencySink implements DependencySink {
+
+    private final List<DependencySink> sinks;
+
+    public CompositeDependencySink(List<DependencySink> sinks) {
+        this.sinks = List.copyOf(sinks);
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) throws IOException {
+        for (DependencySink sink : sinks) {
+            sink.accept(module, file, dependencies);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (DependencySink sink : sinks) {
+            sink.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Закрываем все приемники, даже если один из них завершился с ошибкой
+        IOException failure = null;
+        for (DependencySink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
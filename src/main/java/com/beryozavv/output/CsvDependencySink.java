@@ -0,0 +1,50 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Вывод в формате CSV (RFC 4180): одна запись на пару (строка, зависимость)
+ * <pre>module,file,line,dependency</pre>
+ */
+public class CsvDependencySink extends AbstractDependencySink {
+
+    public CsvDependencySink(Writer writer, SymbolTable symbols) throws IOException {
+        super(writer, symbols);
+        writer.write("module,file,line,dependency\r\n");
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) throws IOException {
+        // Общее начало записей файла экранируется один раз
+        String prefix = escape(module) + ',' + escape(file.toString()) + ',';
+        for (int i = 0; i < dependencies.getLineCount(); i++) {
+            String line = Integer.toString(dependencies.getLine(i));
+            String[] names = sortedNames(dependencies, i);
+            for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                writer.write(prefix);
+                writer.write(line);
+                writer.write(',');
+                writer.write(escape(names[j]));
+                writer.write("\r\n");
+            }
+        }
+    }
+
+    /**
+     * Заключает значение в кавычки, если в нем есть запятая, кавычка или перевод строки
+     */
+    static String escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
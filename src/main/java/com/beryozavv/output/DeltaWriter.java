@@ -0,0 +1,163 @@
+package com.beryozavv.output;
+
+import com.beryozavv.delta.DependencyDelta;
+import com.beryozavv.delta.FileChange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Вывод изменения зависимостей между ревизиями в одном из форматов вывода. Пути файлов
+ * выводятся относительно корня репозитория. Удаленные зависимости выводятся со строками
+ * старой версии файла, добавленные - со строками новой:
+ * <pre>
+ * text:   File: src/A.java (modified)
+ *           - Line 7 -> java.util.Vector
+ *           + Line 9 -> java.util.ArrayList
+ * ndjson: {"module":"app","file":"src/A.java","oldFile":"src/A.java","status":"modified",
+ *          "removed":[{"line":7,"deps":["java.util.Vector"]}],"added":[{"line":9,"deps":["java.util.ArrayList"]}]}
+ * csv:    module,file,change,line,dependency
+ * </pre>
+ */
+public class DeltaWriter implements Closeable {
+
+    // Формат вывода
+    private final OutputFormat format;
+
+    // Поток вывода
+    private final Writer writer;
+
+    // Модуль, заголовок которого выведен последним, для текстового формата
+    private String currentModule;
+
+    /**
+     * @param format формат вывода
+     * @param writer поток вывода
+     * @throws IOException при ошибке записи заголовка
+     */
+    public DeltaWriter(OutputFormat format, Writer writer) throws IOException {
+        this.format = format;
+        this.writer = writer;
+        if (format == OutputFormat.CSV) {
+            writer.write("module,file,change,line,dependency\r\n");
+        }
+    }
+
+    /**
+     * Выводит изменение зависимостей одного файла
+     *
+     * @param delta изменение зависимостей файла
+     * @throws IOException при ошибке записи
+     */
+    public void write(DependencyDelta delta) throws IOException {
+        switch (format) {
+            case TEXT -> writeText(delta);
+            case NDJSON -> writeNdjson(delta);
+            case CSV -> writeCsv(delta);
+        }
+    }
+
+    private void writeText(DependencyDelta delta) throws IOException {
+        if (!delta.module().equals(currentModule)) {
+            writer.write("Module: ");
+            writer.write(delta.module());
+            writer.write('\n');
+            currentModule = delta.module();
+        }
+
+        FileChange change = delta.change();
+        writer.write("File: ");
+        if (change.oldPath() != null && change.newPath() != null && !change.oldPath().equals(change.newPath())) {
+            writer.write(change.oldPath());
+            writer.write(" -> ");
+        }
+        writer.write(change.path());
+        writer.write(" (");
+        writer.write(change.status().getLabel());
+        writer.write(")\n");
+        writeTextLines("  - Line ", delta.removed());
+        writeTextLines("  + Line ", delta.added());
+    }
+
+    private void writeTextLines(String prefix, SortedMap<Integer, SortedSet<String>> lines) throws IOException {
+        for (Map.Entry<Integer, SortedSet<String>> line : lines.entrySet()) {
+            writer.write(prefix);
+            writer.write(Integer.toString(line.getKey()));
+            writer.write(" -> ");
+            writer.write(String.join(", ", line.getValue()));
+            writer.write('\n');
+        }
+    }
+
+    private void writeNdjson(DependencyDelta delta) throws IOException {
+        FileChange change = delta.change();
+        writer.write("{\"module\":");
+        NdjsonDependencySink.writeString(writer, delta.module());
+        writer.write(",\"file\":");
+        NdjsonDependencySink.writeString(writer, change.path());
+        if (change.oldPath() != null) {
+            writer.write(",\"oldFile\":");
+            NdjsonDependencySink.writeString(writer, change.oldPath());
+        }
+        writer.write(",\"status\":");
+        NdjsonDependencySink.writeString(writer, change.status().getLabel());
+        writer.write(",\"removed\":");
+        writeNdjsonLines(delta.removed());
+        writer.write(",\"added\":");
+        writeNdjsonLines(delta.added());
+        writer.write("}\n");
+    }
+
+    private void writeNdjsonLines(SortedMap<Integer, SortedSet<String>> lines) throws IOException {
+        writer.write('[');
+        boolean firstLine = true;
+        for (Map.Entry<Integer, SortedSet<String>> line : lines.entrySet()) {
+            if (!firstLine) writer.write(',');
+            firstLine = false;
+            writer.write("{\"line\":");
+            writer.write(Integer.toString(line.getKey()));
+            writer.write(",\"deps\":[");
+            boolean firstName = true;
+            for (String name : line.getValue()) {
+                if (!firstName) writer.write(',');
+                firstName = false;
+                NdjsonDependencySink.writeString(writer, name);
+            }
+            writer.write("]}");
+        }
+        writer.write(']');
+    }
+
+    private void writeCsv(DependencyDelta delta) throws IOException {
+        String module = CsvDependencySink.escape(delta.module()) + ',';
+        FileChange change = delta.change();
+        if (change.oldPath() != null) {
+            writeCsvLines(module + CsvDependencySink.escape(change.oldPath()) + ",removed,", delta.removed());
+        }
+        if (change.newPath() != null) {
+            writeCsvLines(module + CsvDependencySink.escape(change.newPath()) + ",added,", delta.added());
+        }
+    }
+
+    private void writeCsvLines(String prefix, SortedMap<Integer, SortedSet<String>> lines) throws IOException {
+        for (Map.Entry<Integer, SortedSet<String>> line : lines.entrySet()) {
+            for (String name : line.getValue()) {
+                writer.write(prefix);
+                writer.write(Integer.toString(line.getKey()));
+                writer.write(',');
+                writer.write(CsvDependencySink.escape(name));
+                writer.write("\r\n");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        writer.close();
+    }
+}
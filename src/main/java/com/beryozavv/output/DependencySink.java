@@ -0,0 +1,31 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Приемник результатов анализа, получающий зависимости каждого файла сразу после извлечения
+ */
+public interface DependencySink extends Closeable {
+
+    /**
+     * Принимает зависимости одного файла
+     *
+     * @param module       имя модуля
+     * @param file         путь к Java-файлу
+     * @param dependencies зависимости файла по строкам
+     * @throws IOException при ошибке записи
+     */
+    void accept(String module, Path file, FileDependencies dependencies) throws IOException;
+
+    /**
+     * Передает накопленный вывод получателю, не закрывая приемник
+     *
+     * @throws IOException при ошибке записи
+     */
+    default void flush() throws IOException {
+    }
+}
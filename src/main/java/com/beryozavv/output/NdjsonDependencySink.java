@@ -0,0 +1,70 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Вывод в формате NDJSON: одна строка JSON на файл
+ * <pre>{"module":"app","file":"/src/A.java","lines":[{"line":3,"deps":["java.util.List"]}]}</pre>
+ */
+public class NdjsonDependencySink extends AbstractDependencySink {
+
+    public NdjsonDependencySink(Writer writer, SymbolTable symbols) {
+        super(writer, symbols);
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) throws IOException {
+        writer.write("{\"module\":");
+        writeString(writer, module);
+        writer.write(",\"file\":");
+        writeString(writer, file.toString());
+        writer.write(",\"lines\":[");
+        for (int i = 0; i < dependencies.getLineCount(); i++) {
+            if (i > 0) writer.write(',');
+            writer.write("{\"line\":");
+            writer.write(Integer.toString(dependencies.getLine(i)));
+            writer.write(",\"deps\":[");
+            String[] names = sortedNames(dependencies, i);
+            for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                if (j > 0) writer.write(',');
+                writeString(writer, names[j]);
+            }
+            writer.write("]}");
+        }
+        writer.write("]}\n");
+    }
+
+    /**
+     * Записывает строку JSON с экранированием кавычек, обратной косой черты и управляющих символов
+     *
+     * @param writer поток вывода
+     * @param value  строка
+     * @throws IOException при ошибке записи
+     */
+    static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                writer.write(value, start, i - start);
+                switch (c) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> writer.write(String.format("\\u%04x", (int) c));
+                }
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
@@ -0,0 +1,31 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Формат вывода результатов анализа
+ */
+public enum OutputFormat {
+    TEXT,
+    NDJSON,
+    CSV;
+
+    /**
+     * Создает приемник результатов в этом формате
+     *
+     * @param writer  поток вывода
+     * @param symbols таблица символов анализатора
+     * @return приемник результатов
+     * @throws IOException при ошибке записи заголовка
+     */
+    public DependencySink createSink(Writer writer, SymbolTable symbols) throws IOException {
+        return switch (this) {
+            case TEXT -> new TextDependencySink(writer, symbols);
+            case NDJSON -> new NdjsonDependencySink(writer, symbols);
+            case CSV -> new CsvDependencySink(writer, symbols);
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.beryozavv.output;
+
+/**
+ * Уровень агрегации вывода: зависимости по строкам или множества зависимостей
+ * файла, пакета или модуля
+ */
+public enum RollupLevel {
+    LINE,
+    FILE,
+    PACKAGE,
+    MODULE
+}
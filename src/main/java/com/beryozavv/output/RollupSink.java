@@ -0,0 +1,219 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Вывод множеств зависимостей файла, пакета или модуля без номеров строк. Зависимости
+ * файла выводятся сразу, зависимости пакета и модуля накапливаются как множества
+ * идентификаторов символов и выводятся при закрытии, поэтому данные по строкам не хранятся
+ * дольше обработки одного файла. Пакет файла определяется по каталогу относительно
+ * каталога исходников его модуля:
+ * <pre>
+ * text:   Module: app
+ *         Package: com.example.web
+ *           org.springframework.web.bind.annotation.RestController
+ * ndjson: {"module":"app","package":"com.example.web","deps":["org.springframework.web.bind.annotation.RestController"]}
+ * csv:    module,package,dependency
+ * </pre>
+ */
+public class RollupSink extends AbstractDependencySink {
+
+    // Имя пакета без объявления package в выводе
+    private static final String DEFAULT_PACKAGE = "(default)";
+
+    // Уровень агрегации: FILE, PACKAGE или MODULE
+    private final RollupLevel level;
+
+    // Формат вывода
+    private final OutputFormat format;
+
+    // Каталоги исходников модулей: модуль -> каталоги
+    private final Map<String, List<Path>> sourceRoots;
+
+    // Модуль -> пакет -> идентификаторы зависимостей; для MODULE пакет - пустая строка
+    private final Map<String, Map<String, SymbolSet>> groups = new TreeMap<>();
+
+    // Модуль, заголовок которого выведен последним, для текстового формата
+    private String currentModule;
+
+    /**
+     * @param level       уровень агрегации, кроме LINE
+     * @param format      формат вывода
+     * @param writer      поток вывода
+     * @param symbols     таблица символов анализатора
+     * @param sourceRoots каталоги исходников модулей для определения пакета файла
+     * @throws IOException при ошибке записи заголовка
+     */
+    public RollupSink(RollupLevel level, OutputFormat format, Writer writer, SymbolTable symbols,
+                      Map<String, List<Path>> sourceRoots) throws IOException {
+        super(writer, symbols);
+        if (level == RollupLevel.LINE) {
+            throw new IllegalArgumentException("Вывод по строкам не агрегируется");
+        }
+        this.level = level;
+        this.format = format;
+        this.sourceRoots = new HashMap<>();
+        sourceRoots.forEach((module, roots) -> this.sourceRoots.put(module,
+                roots.stream().map(root -> root.toAbsolutePath().normalize()).toList()));
+        if (format == OutputFormat.CSV) {
+            writer.write(switch (level) {
+                case FILE -> "module,file,dependency\r\n";
+                case PACKAGE -> "module,package,dependency\r\n";
+                default -> "module,dependency\r\n";
+            });
+        }
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) throws IOException {
+        if (level == RollupLevel.FILE) {
+            SymbolSet fileSymbols = new SymbolSet();
+            fileSymbols.addAll(dependencies);
+            write(module, file.toString(), fileSymbols);
+            return;
+        }
+
+        String scope = level == RollupLevel.PACKAGE ? packageOf(module, file) : "";
+        groups.computeIfAbsent(module, ignored -> new TreeMap<>())
+                .computeIfAbsent(scope, ignored -> new SymbolSet())
+                .addAll(dependencies);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Map.Entry<String, Map<String, SymbolSet>> module : groups.entrySet()) {
+            for (Map.Entry<String, SymbolSet> scope : module.getValue().entrySet()) {
+                write(module.getKey(), scope.getKey(), scope.getValue());
+            }
+        }
+        groups.clear();
+        super.close();
+    }
+
+    private void write(String module, String scope, SymbolSet symbolSet) throws IOException {
+        String[] names = symbolSet.names(symbols);
+        switch (format) {
+            case TEXT -> writeText(module, scope, names);
+            case NDJSON -> writeNdjson(module, scope, names);
+            case CSV -> writeCsv(module, scope, names);
+        }
+    }
+
+    private void writeText(String module, String scope, String[] names) throws IOException {
+        if (!module.equals(currentModule)) {
+            writer.write("Module: ");
+            writer.write(module);
+            writer.write('\n');
+            currentModule = module;
+        }
+        if (level != RollupLevel.MODULE) {
+            writer.write(level == RollupLevel.FILE ? "File: " : "Package: ");
+            writer.write(scope);
+            writer.write('\n');
+        }
+        for (String name : names) {
+            writer.write("  ");
+            writer.write(name);
+            writer.write('\n');
+        }
+    }
+
+    private void writeNdjson(String module, String scope, String[] names) throws IOException {
+        writer.write("{\"module\":");
+        NdjsonDependencySink.writeString(writer, module);
+        if (level != RollupLevel.MODULE) {
+            writer.write(level == RollupLevel.FILE ? ",\"file\":" : ",\"package\":");
+            NdjsonDependencySink.writeString(writer, scope);
+        }
+        writer.write(",\"deps\":[");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) writer.write(',');
+            NdjsonDependencySink.writeString(writer, names[i]);
+        }
+        writer.write("]}\n");
+    }
+
+    private void writeCsv(String module, String scope, String[] names) throws IOException {
+        String prefix = CsvDependencySink.escape(module) + ','
+                + (level != RollupLevel.MODULE ? CsvDependencySink.escape(scope) + ',' : "");
+        for (String name : names) {
+            writer.write(prefix);
+            writer.write(CsvDependencySink.escape(name));
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * Определяет пакет файла по самому вложенному каталогу исходников модуля, в который он входит
+     */
+    private String packageOf(String module, Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path best = null;
+        for (Path root : sourceRoots.getOrDefault(module, List.of())) {
+            if (absolute.startsWith(root) && (best == null || root.getNameCount() > best.getNameCount())) {
+                best = root;
+            }
+        }
+        Path directory = best != null ? best.relativize(absolute).getParent() : null;
+        if (directory == null) {
+            return DEFAULT_PACKAGE;
+        }
+        return directory.toString().replace(directory.getFileSystem().getSeparator(), ".");
+    }
+
+    /**
+     * Множество идентификаторов символов: идентификаторы дописываются в массив, который
+     * сортируется и освобождается от повторов при заполнении
+     */
+    private static final class SymbolSet {
+        private int[] ids = new int[16];
+        private int size;
+
+        // Количество первых элементов, уже отсортированных и без повторов
+        private int compacted;
+
+        void addAll(FileDependencies dependencies) {
+            for (int i = 0; i < dependencies.getLineCount(); i++) {
+                for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                    if (size == ids.length) {
+                        compact();
+                        if (size > ids.length / 2) {
+                            ids = Arrays.copyOf(ids, ids.length * 2);
+                        }
+                    }
+                    ids[size++] = dependencies.getSymbolId(i, j);
+                }
+            }
+        }
+
+        private void compact() {
+            if (compacted == size) return;
+
+            Arrays.sort(ids, 0, size);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || ids[i] != ids[unique - 1]) {
+                    ids[unique++] = ids[i];
+                }
+            }
+            size = unique;
+            compacted = unique;
+        }
+
+        String[] names(SymbolTable symbols) {
+            compact();
+            String[] names = new String[size];
+            for (int i = 0; i < size; i++) {
+                names[i] = symbols.getName(ids[i]);
+            }
+            Arrays.sort(names);
+            return names;
+        }
+    }
+}
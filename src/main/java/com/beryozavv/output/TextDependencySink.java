@@ -0,0 +1,46 @@
+package com.beryozavv.output;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Вывод в текстовом формате: заголовок модуля, заголовок файла и зависимости по строкам
+ */
+public class TextDependencySink extends AbstractDependencySink {
+
+    // Модуль, заголовок которого выведен последним
+    private String currentModule;
+
+    public TextDependencySink(Writer writer, SymbolTable symbols) {
+        super(writer, symbols);
+    }
+
+    @Override
+    public void accept(String module, Path file, FileDependencies dependencies) throws IOException {
+        if (!module.equals(currentModule)) {
+            writer.write("Module: ");
+            writer.write(module);
+            writer.write('\n');
+            currentModule = module;
+        }
+
+        writer.write("File: ");
+        writer.write(file.toString());
+        writer.write('\n');
+        for (int i = 0; i < dependencies.getLineCount(); i++) {
+            writer.write("  Line ");
+            writer.write(Integer.toString(dependencies.getLine(i)));
+            writer.write(" -> ");
+            String[] names = sortedNames(dependencies, i);
+            for (int j = 0; j < dependencies.getSymbolCount(i); j++) {
+                if (j > 0) writer.write(", ");
+                writer.write(names[j]);
+            }
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.beryozavv.result;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Результат анализа в компактном виде: общая таблица символов и зависимости каждого файла.
+ * Предоставляет только чтение
+ */
+public class AnalysisResult {
+
+    // Таблица символов, общая для всех файлов
+    private final SymbolTable symbols;
+
+    // Файл -> зависимости
+    private final Map<Path, FileDependencies> files;
+
+    /**
+     * @param symbols таблица символов, в которой зарегистрированы идентификаторы зависимостей
+     * @param files   зависимости файлов; файлы без зависимостей в карту не входят
+     */
+    public AnalysisResult(SymbolTable symbols, Map<Path, FileDependencies> files) {
+        this.symbols = symbols;
+        this.files = Collections.unmodifiableMap(files);
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return файлы, в которых найдены зависимости
+     */
+    public Set<Path> getFiles() {
+        return files.keySet();
+    }
+
+    /**
+     * @param file путь к файлу
+     * @return зависимости файла или null, если зависимостей нет
+     */
+    public FileDependencies get(Path file) {
+        return files.get(file);
+    }
+
+    /**
+     * @return количество файлов с зависимостями
+     */
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * Возвращает результат в прежнем формате: файл -> (строка -> набор полных имен).
+     * Карты строк создаются при обращении к файлу и не хранятся
+     *
+     * @return неизменяемое представление результата
+     */
+    public Map<Path, Map<Integer, Set<String>>> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Map<Integer, Set<String>> get(Object key) {
+                FileDependencies dependencies = files.get(key);
+                return dependencies == null ? null : dependencies.toMap(symbols);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return files.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return files.size();
+            }
+
+            @Override
+            public Set<Entry<Path, Map<Integer, Set<String>>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Path, Map<Integer, Set<String>>>> iterator() {
+                        Iterator<Entry<Path, FileDependencies>> iterator = files.entrySet().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public Entry<Path, Map<Integer, Set<String>>> next() {
+                                Entry<Path, FileDependencies> entry = iterator.next();
+                                return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().toMap(symbols));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return files.size();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,254 @@
+package com.beryozavv.result;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Зависимости одного файла в компактном виде (CSR): отсортированные номера строк,
+ * смещения и идентификаторы символов из {@link SymbolTable}, отсортированные внутри строки
+ */
+public final class FileDependencies {
+
+    // Файл без зависимостей
+    public static final FileDependencies EMPTY = new FileDependencies(new int[0], new int[]{0}, new int[0]);
+
+    // Номера строк по возрастанию
+    private final int[] lines;
+
+    // Символы строки lines[i] находятся в symbolIds[offsets[i]..offsets[i + 1])
+    private final int[] offsets;
+
+    // Идентификаторы символов
+    private final int[] symbolIds;
+
+    private FileDependencies(int[] lines, int[] offsets, int[] symbolIds) {
+        this.lines = lines;
+        this.offsets = offsets;
+        this.symbolIds = symbolIds;
+    }
+
+    /**
+     * @return количество строк, в которых есть зависимости
+     */
+    public int getLineCount() {
+        return lines.length;
+    }
+
+    /**
+     * @param index индекс строки от 0 до {@link #getLineCount()}
+     * @return номер строки в файле
+     */
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @param index индекс строки
+     * @return количество символов в строке
+     */
+    public int getSymbolCount(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @param index  индекс строки
+     * @param symbol индекс символа внутри строки
+     * @return идентификатор символа
+     */
+    public int getSymbolId(int index, int symbol) {
+        return symbolIds[offsets[index] + symbol];
+    }
+
+    /**
+     * @return общее количество пар (строка, символ)
+     */
+    public int size() {
+        return symbolIds.length;
+    }
+
+    public boolean isEmpty() {
+        return lines.length == 0;
+    }
+
+    /**
+     * @return приблизительный объем памяти, занимаемый зависимостями, байт
+     */
+    public long memorySize() {
+        // Заголовки объекта и трех массивов
+        return 64 + 4L * (lines.length + offsets.length + symbolIds.length);
+    }
+
+    /**
+     * Записывает зависимости с идентификаторами символов как есть. Прочитать их можно
+     * только с той же таблицей символов, например при выгрузке результатов на диск
+     *
+     * @param out поток записи
+     * @throws IOException при ошибке записи
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(lines.length);
+        out.writeInt(symbolIds.length);
+        for (int i = 0; i < lines.length; i++) {
+            out.writeInt(lines[i]);
+            out.writeInt(offsets[i + 1] - offsets[i]);
+        }
+        for (int symbolId : symbolIds) {
+            out.writeInt(symbolId);
+        }
+    }
+
+    /**
+     * Читает зависимости, записанные {@link #write(DataOutput)}
+     *
+     * @param in поток чтения
+     * @return зависимости файла
+     * @throws IOException при ошибке чтения
+     */
+    public static FileDependencies read(DataInput in) throws IOException {
+        int lineCount = in.readInt();
+        int symbolCount = in.readInt();
+        if (lineCount == 0) {
+            return EMPTY;
+        }
+        int[] lines = new int[lineCount];
+        int[] offsets = new int[lineCount + 1];
+        for (int i = 0; i < lineCount; i++) {
+            lines[i] = in.readInt();
+            offsets[i + 1] = offsets[i] + in.readInt();
+        }
+        int[] symbolIds = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbolIds[i] = in.readInt();
+        }
+        return new FileDependencies(lines, offsets, symbolIds);
+    }
+
+    /**
+     * Проверяет, используется ли символ в строке
+     *
+     * @param line     номер строки
+     * @param symbolId идентификатор символа
+     * @return true, если символ найден в строке
+     */
+    public boolean contains(int line, int symbolId) {
+        int index = Arrays.binarySearch(lines, line);
+        return index >= 0 && Arrays.binarySearch(symbolIds, offsets[index], offsets[index + 1], symbolId) >= 0;
+    }
+
+    /**
+     * Преобразует зависимости в прежний формат: строка -> набор полных имен
+     *
+     * @param symbols таблица символов
+     * @return неизменяемая карта зависимостей
+     */
+    public Map<Integer, Set<String>> toMap(SymbolTable symbols) {
+        Map<Integer, Set<String>> result = new LinkedHashMap<>(lines.length * 2);
+        for (int i = 0; i < lines.length; i++) {
+            Set<String> names = new LinkedHashSet<>(getSymbolCount(i) * 2);
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                names.add(symbols.getName(symbolIds[j]));
+            }
+            result.put(lines[i], Collections.unmodifiableSet(names));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Создает зависимости файла из прежнего формата
+     *
+     * @param lineDeps карта строка -> набор полных имен
+     * @param symbols  таблица символов
+     * @return зависимости в компактном виде
+     */
+    public static FileDependencies fromMap(Map<Integer, Set<String>> lineDeps, SymbolTable symbols) {
+        Builder builder = new Builder();
+        lineDeps.forEach((line, names) -> {
+            for (String name : names) {
+                builder.add(line, symbols.intern(name));
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Накопитель пар (строка, символ). Пары упаковываются в long и сортируются при сборке,
+     * повторы удаляются
+     */
+    public static final class Builder {
+        private long[] pairs = new long[64];
+        private int count;
+
+        /**
+         * Добавляет использование символа в строке
+         *
+         * @param line     номер строки
+         * @param symbolId идентификатор символа
+         */
+        public void add(int line, int symbolId) {
+            if (count == pairs.length) {
+                pairs = Arrays.copyOf(pairs, count * 2);
+            }
+            pairs[count++] = ((long) line << 32) | (symbolId & 0xFFFFFFFFL);
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * Очищает накопитель для повторного использования
+         */
+        public void clear() {
+            count = 0;
+        }
+
+        /**
+         * @return зависимости в компактном виде
+         */
+        public FileDependencies build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            Arrays.sort(pairs, 0, count);
+
+            // Первый проход считает различные пары и строки, чтобы выделить массивы точного размера
+            int symbolCount = 0;
+            int lineCount = 0;
+            long previous = -1;
+            for (int i = 0; i < count; i++) {
+                long pair = pairs[i];
+                if (pair == previous) continue;
+                if (symbolCount == 0 || (int) (pair >>> 32) != (int) (previous >>> 32)) {
+                    lineCount++;
+                }
+                symbolCount++;
+                previous = pair;
+            }
+
+            int[] symbolIds = new int[symbolCount];
+            int[] lines = new int[lineCount];
+            int[] offsets = new int[lineCount + 1];
+            symbolCount = 0;
+            lineCount = 0;
+            previous = -1;
+            for (int i = 0; i < count; i++) {
+                long pair = pairs[i];
+                if (pair == previous) continue;
+
+                int line = (int) (pair >>> 32);
+                if (lineCount == 0 || lines[lineCount - 1] != line) {
+                    lines[lineCount] = line;
+                    offsets[lineCount] = symbolCount;
+                    lineCount++;
+                }
+                symbolIds[symbolCount++] = (int) pair;
+                previous = pair;
+            }
+            offsets[lineCount] = symbolCount;
+
+            return new FileDependencies(lines, offsets, symbolIds);
+        }
+    }
+}
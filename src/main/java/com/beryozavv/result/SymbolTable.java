@@ -0,0 +1,82 @@
+package com.beryozavv.result;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таблица символов: каждому полному имени типа сопоставляется целочисленный идентификатор.
+ * Каждое имя хранится в памяти один раз, поиск существующего имени выполняется без блокировки
+ */
+public class SymbolTable {
+
+    // Имя -> идентификатор
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Идентификатор -> имя
+    private volatile String[] names = new String[1024];
+
+    // Количество зарегистрированных имен
+    private int size;
+
+    /**
+     * Возвращает идентификатор имени, регистрируя его при первом обращении
+     *
+     * @param name полное имя типа
+     * @return идентификатор имени
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        return register(name);
+    }
+
+    private synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = size;
+        String[] current = names;
+        if (newId == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[newId] = name;
+        names = current;
+        size++;
+
+        // Имя записывается в массив до публикации идентификатора
+        ids.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * Возвращает имя по идентификатору
+     *
+     * @param id идентификатор, полученный из {@link #intern(String)}
+     * @return полное имя типа
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * Возвращает идентификатор уже зарегистрированного имени
+     *
+     * @param name полное имя типа
+     * @return идентификатор или -1, если имя не встречалось
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return количество зарегистрированных имен
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
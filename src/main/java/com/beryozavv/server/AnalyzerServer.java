@@ -0,0 +1,411 @@
+package com.beryozavv.server;
+
+import com.beryozavv.AnalyzerOptions;
+import com.beryozavv.ProjectSession;
+import com.beryozavv.classpath.Artifact;
+import com.beryozavv.index.ReverseIndex;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.output.OutputFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP-сервер анализатора, доступный только с локальной машины. Держит загруженные
+ * проекты в памяти, поэтому повторные запросы не платят за запуск JVM и модель Gradle.
+ * <p>
+ * Запросы:
+ * <ul>
+ *     <li>POST /analyze?project=&lt;dir&gt;[&amp;format=text|ndjson|csv] - разобрать файлы из тела
+ *     запроса (по одному пути в строке); пустое тело - вернуть результаты всего проекта</li>
+ *     <li>GET /usages?project=&lt;dir&gt;&amp;type=&lt;name&gt; или &amp;package=&lt;name&gt; - места использования</li>
+ *     <li>GET /artifact?project=&lt;dir&gt;&amp;type=&lt;name&gt; - архив classpath каждого модуля,
+ *     из которого взят тип, с координатами Maven, если их можно определить по пути</li>
+ *     <li>POST /evict?project=&lt;dir&gt; - выгрузить проект из памяти</li>
+ *     <li>GET /status - загруженные проекты и оценка занимаемой памяти</li>
+ *     <li>POST /shutdown - остановить сервер</li>
+ * </ul>
+ * Порт открыт любой программе и любой странице в браузере пользователя, поэтому каждый запрос
+ * должен нести заголовок {@code Authorization: Bearer <token>} с секретом, который сервер при
+ * запуске записывает в файл, доступный только владельцу. Запросы с заголовком Origin, то есть
+ * из браузера, и с заголовком Host, отличным от 127.0.0.1 и localhost, отклоняются, а проекты
+ * принимаются только из разрешенных каталогов: загрузка проекта выполняет его скрипты сборки
+ */
+public class AnalyzerServer implements Closeable {
+
+    // HTTP-сервер на адресе обратной петли
+    private final HttpServer server;
+
+    // Потоки обработки запросов
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Загруженные проекты
+    private final SessionRegistry registry;
+
+    // Каталоги, внутри которых разрешено открывать проекты, в виде реальных путей
+    private final List<Path> allowedRoots;
+
+    // Секрет, который клиент передает в заголовке Authorization, и файл, в который он записан
+    private final byte[] token;
+    private final Path tokenFile;
+
+    // Срабатывает при остановке сервера
+    private final Object stopped = new Object();
+    private boolean running = true;
+
+    /**
+     * Создает сервер и регистрирует обработчики запросов
+     *
+     * @param port         порт на адресе обратной петли, 0 для свободного порта
+     * @param memoryLimit  лимит памяти загруженных проектов, байт
+     * @param idleTimeout  время простоя до выгрузки проекта, мс
+     * @param parallelism  количество потоков анализа
+     * @param batchSize    размер пакета файлов
+     * @param allowedRoots каталоги, внутри которых разрешено открывать проекты
+     * @param tokenFile    файл для секрета клиентов или null для файла по умолчанию
+     *                     ~/.dependency-analyzer/server-&lt;port&gt;.token
+     * @param modelSource  источник модели проектов: файл модели, classpath или артефакты и каталоги
+     *                     исходников, относительно корня каждого проекта; без них модель берется у Gradle
+     * @throws IOException если порт занят, разрешенный каталог не существует или файл секрета не удалось записать
+     */
+    public AnalyzerServer(int port, long memoryLimit, long idleTimeout, int parallelism, int batchSize,
+                          List<Path> allowedRoots, Path tokenFile, AnalyzerOptions modelSource) throws IOException {
+        if (allowedRoots.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны разрешенные каталоги проектов");
+        }
+        List<Path> roots = new ArrayList<>();
+        for (Path allowedRoot : allowedRoots) {
+            roots.add(allowedRoot.toRealPath());
+        }
+        this.allowedRoots = List.copyOf(roots);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+
+        String secret = newToken();
+        this.token = secret.getBytes(StandardCharsets.UTF_8);
+        this.tokenFile = tokenFile != null ? tokenFile
+                : Path.of(System.getProperty("user.home"), ".dependency-analyzer", "server-" + server.getAddress().getPort() + ".token");
+        try {
+            writeToken(this.tokenFile, secret);
+        } catch (IOException e) {
+            server.stop(0);
+            throw e;
+        }
+
+        this.registry = new SessionRegistry(memoryLimit, idleTimeout, parallelism, batchSize, modelSource);
+        server.setExecutor(executor);
+        server.createContext("/analyze", exchange -> handle(exchange, "POST", this::analyze));
+        server.createContext("/usages", exchange -> handle(exchange, "GET", this::usages));
+        server.createContext("/artifact", exchange -> handle(exchange, "GET", this::artifact));
+        server.createContext("/evict", exchange -> handle(exchange, "POST", this::evict));
+        server.createContext("/status", exchange -> handle(exchange, "GET", this::status));
+        server.createContext("/shutdown", exchange -> handle(exchange, "POST", this::shutdown));
+    }
+
+    /**
+     * Обработчик запроса: пишет тело ответа и возвращает его тип
+     */
+    @FunctionalInterface
+    private interface RequestHandler {
+        String handle(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return файл, в который записан секрет для заголовка Authorization
+     */
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * @return порт, на котором сервер принимает запросы
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Ожидает остановки сервера запросом /shutdown или методом close
+     *
+     * @throws InterruptedException если поток прерван
+     */
+    public void awaitShutdown() throws InterruptedException {
+        synchronized (stopped) {
+            while (running) {
+                stopped.wait();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        registry.close();
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить файл секрета " + tokenFile + ": " + e.getMessage());
+        }
+        synchronized (stopped) {
+            running = false;
+            stopped.notifyAll();
+        }
+    }
+
+    private String analyze(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException {
+        OutputFormat format = parameters.containsKey("format")
+                ? OutputFormat.valueOf(parameters.get("format").toUpperCase(Locale.ROOT))
+                : OutputFormat.NDJSON;
+        ProjectSession session = registry.get(allowedProject(parameters));
+
+        List<Path> files = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (!line.isBlank()) {
+                Path file = Path.of(line.strip());
+                files.add(file.isAbsolute() ? file.normalize() : session.getProjectRoot().resolve(file).normalize());
+            }
+        }
+
+        // Приемник не закрывается: поток ответа закрывается после записи заголовков
+        DependencySink sink = format.createSink(out, session.getSymbols());
+        session.analyze(files, sink);
+        registry.enforceMemoryLimit(session.getProjectRoot());
+        return switch (format) {
+            case TEXT -> "text/plain; charset=utf-8";
+            case NDJSON -> "application/x-ndjson";
+            case CSV -> "text/csv; charset=utf-8";
+        };
+    }
+
+    private String usages(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException {
+        ProjectSession session = registry.get(allowedProject(parameters));
+        boolean isPackage = parameters.containsKey("package");
+        String name = isPackage ? parameters.get("package") : parameters.get("type");
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Не указан параметр type или package");
+        }
+
+        for (ReverseIndex.Usage usage : session.findUsages(name, isPackage)) {
+            out.append(usage.module()).append('\t')
+                    .append(usage.file()).append(':').append(Integer.toString(usage.line())).append('\t')
+                    .append(usage.symbol()).append('\n');
+        }
+        return "text/plain; charset=utf-8";
+    }
+
+    private String artifact(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException {
+        ProjectSession session = registry.get(allowedProject(parameters));
+        String type = parameters.get("type");
+        if (type == null || type.isEmpty()) {
+            throw new IllegalArgumentException("Не указан параметр type");
+        }
+
+        for (Map.Entry<String, Artifact> entry : session.findArtifacts(type).entrySet()) {
+            out.append(entry.getKey()).append('\t')
+                    .append(entry.getValue().coordinates()).append('\t')
+                    .append(entry.getValue().file()).append('\n');
+        }
+        return "text/plain; charset=utf-8";
+    }
+
+    private String evict(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException {
+        out.write(registry.evict(allowedProject(parameters)) ? "evicted\n" : "not loaded\n");
+        return "text/plain; charset=utf-8";
+    }
+
+    private String status(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException {
+        long now = System.currentTimeMillis();
+        long total = 0;
+        for (ProjectSession session : registry.loaded()) {
+            total += session.getEstimatedBytes();
+            out.append(session.getProjectRoot().toString())
+                    .append("\tfiles=").append(Integer.toString(session.getFileCount()))
+                    .append("\tmemoryKb=").append(Long.toString(session.getEstimatedBytes() / 1024))
+                    .append("\tidleSec=").append(Long.toString((now - session.getLastAccess()) / 1000))
+                    .append('\n');
+        }
+        out.append("total\tmemoryKb=").append(Long.toString(total / 1024))
+                .append("\tlimitKb=").append(Long.toString(registry.getMemoryLimit() / 1024))
+                .append('\n');
+        return "text/plain; charset=utf-8";
+    }
+
+    private String shutdown(HttpExchange exchange, Map<String, String> parameters, Writer out) throws IOException {
+        out.write("stopping\n");
+        // Останавливаемся после отправки ответа
+        Thread.ofVirtual().start(this::close);
+        return "text/plain; charset=utf-8";
+    }
+
+    /**
+     * Проверяет метод запроса, вызывает обработчик и отправляет ответ. Тело ответа собирается
+     * целиком, чтобы ошибка анализа вернулась кодом ответа, а не оборванным потоком
+     */
+    private void handle(HttpExchange exchange, String method, RequestHandler handler) throws IOException {
+        try (exchange) {
+            if (!checkAccess(exchange)) {
+                return;
+            }
+            if (!exchange.getRequestMethod().equals(method)) {
+                send(exchange, 405, "text/plain; charset=utf-8", ("Ожидается " + method + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            String contentType;
+            try {
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+                    contentType = handler.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()), out);
+                }
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "text/plain; charset=utf-8", (e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            } catch (IOException | RuntimeException e) {
+                send(exchange, 500, "text/plain; charset=utf-8", ("Error: " + e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            send(exchange, 200, contentType, body.toByteArray());
+        }
+    }
+
+    /**
+     * Проверяет, что запрос пришел не из браузера, адресован серверу на обратной петле
+     * и несет секрет сервера, и отправляет отказ, если это не так
+     *
+     * @return true, если запрос разрешен
+     */
+    private boolean checkAccess(HttpExchange exchange) throws IOException {
+        // Браузер добавляет Origin к запросам страниц, включая POST без предварительной проверки
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            send(exchange, 403, "text/plain; charset=utf-8", "Запросы из браузера не принимаются\n".getBytes(StandardCharsets.UTF_8));
+            return false;
+        }
+        // Защита от подмены DNS: имя сервера в запросе должно указывать на обратную петлю
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null || !isLoopbackHost(host)) {
+            send(exchange, 403, "text/plain; charset=utf-8", ("Недопустимый заголовок Host: " + host + "\n").getBytes(StandardCharsets.UTF_8));
+            return false;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")
+                || !MessageDigest.isEqual(token, authorization.substring("Bearer ".length()).strip().getBytes(StandardCharsets.UTF_8))) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            send(exchange, 401, "text/plain; charset=utf-8",
+                    ("Нужен заголовок Authorization: Bearer <секрет из " + tokenFile + ">\n").getBytes(StandardCharsets.UTF_8));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isLoopbackHost(String host) {
+        String name = host;
+        int colon = host.lastIndexOf(':');
+        if (colon >= 0) {
+            if (!host.substring(colon + 1).equals(Integer.toString(server.getAddress().getPort()))) {
+                return false;
+            }
+            name = host.substring(0, colon);
+        }
+        return name.equals("127.0.0.1") || name.equalsIgnoreCase("localhost");
+    }
+
+    /**
+     * Возвращает каталог проекта из параметров запроса, если он находится внутри разрешенных каталогов
+     */
+    private Path allowedProject(Map<String, String> parameters) throws IOException {
+        Path project = requireProject(parameters);
+        Path realProject;
+        try {
+            realProject = project.toAbsolutePath().normalize().toRealPath();
+        } catch (NoSuchFileException e) {
+            throw new IOException("Каталог проекта не найден: " + project);
+        }
+        for (Path allowedRoot : allowedRoots) {
+            if (realProject.startsWith(allowedRoot)) {
+                return realProject;
+            }
+        }
+        throw new IllegalArgumentException("Проект " + project + " вне разрешенных каталогов " + allowedRoots);
+    }
+
+    /**
+     * @return случайный секрет в виде строки base64url
+     */
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Записывает секрет в файл, который может читать только владелец. Прежний файл удаляется,
+     * а новый создается сразу с ограниченными правами, чтобы секрет не был виден даже мгновение
+     */
+    private static void writeToken(Path tokenFile, String secret) throws IOException {
+        Path parent = tokenFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.deleteIfExists(tokenFile);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(tokenFile);
+            File file = tokenFile.toFile();
+            if (!(file.setReadable(false, false) && file.setReadable(true, true)
+                    && file.setWritable(false, false) && file.setWritable(true, true))) {
+                Files.delete(tokenFile);
+                throw new IOException("Не удалось ограничить доступ к файлу секрета " + tokenFile);
+            }
+        }
+        Files.writeString(tokenFile, secret + "\n", StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static Path requireProject(Map<String, String> parameters) {
+        String project = parameters.get("project");
+        if (project == null || project.isEmpty()) {
+            throw new IllegalArgumentException("Не указан параметр project");
+        }
+        return Path.of(project);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,193 @@
+package com.beryozavv.server;
+
+import com.beryozavv.AnalyzerOptions;
+import com.beryozavv.PathResult;
+import com.beryozavv.ProjectSession;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Набор загруженных проектов сервера. Проект загружается при первом обращении, а вытесняется
+ * при превышении лимита памяти (давно не использовавшиеся первыми) или после простоя
+ */
+class SessionRegistry implements AutoCloseable {
+
+    // Загруженные и загружаемые проекты: корневой каталог -> сессия
+    private final ConcurrentHashMap<Path, CompletableFuture<ProjectSession>> sessions = new ConcurrentHashMap<>();
+
+    // Лимит оценки памяти всех проектов, байт
+    private final long memoryLimit;
+
+    // Время простоя, после которого проект вытесняется, мс
+    private final long idleTimeout;
+
+    // Количество потоков и размер пакета для анализа проектов
+    private final int parallelism;
+    private final int batchSize;
+
+    // Источник модели проектов: файл модели, classpath, артефакты или, если ничего не задано, Gradle
+    private final AnalyzerOptions modelSource;
+
+    // Периодическая проверка простоя
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param memoryLimit лимит памяти всех проектов, байт
+     * @param idleTimeout время простоя до вытеснения проекта, мс
+     * @param parallelism количество потоков анализа
+     * @param batchSize   размер пакета файлов
+     * @param modelSource параметры источника модели проектов: файл модели, classpath или артефакты
+     *                    и каталоги исходников; относительные пути разрешаются от корня каждого проекта
+     */
+    SessionRegistry(long memoryLimit, long idleTimeout, int parallelism, int batchSize, AnalyzerOptions modelSource) {
+        this.memoryLimit = memoryLimit;
+        this.idleTimeout = idleTimeout;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.modelSource = modelSource;
+
+        long period = Math.max(1000, idleTimeout / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Возвращает сессию проекта, при необходимости загружая модель Gradle и выполняя полный анализ.
+     * Одновременные запросы к незагруженному проекту ждут одной загрузки
+     *
+     * @param projectRoot корневой каталог проекта
+     * @return сессия проекта
+     * @throws IOException при ошибке загрузки проекта
+     */
+    ProjectSession get(Path projectRoot) throws IOException {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Каталог проекта не найден: " + root);
+        }
+
+        CompletableFuture<ProjectSession> future = new CompletableFuture<>();
+        CompletableFuture<ProjectSession> existing = sessions.putIfAbsent(root, future);
+        if (existing == null) {
+            try {
+                future.complete(load(root));
+            } catch (IOException | RuntimeException e) {
+                sessions.remove(root, future);
+                future.completeExceptionally(e);
+                throw e;
+            }
+            enforceMemoryLimit(root);
+            return future.join();
+        }
+
+        try {
+            ProjectSession session = existing.get();
+            session.touch();
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Загрузка проекта прервана");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Ошибка загрузки проекта " + root, e.getCause());
+        }
+    }
+
+    /**
+     * Удаляет проект из памяти
+     *
+     * @param projectRoot корневой каталог проекта
+     * @return true, если проект был загружен
+     */
+    boolean evict(Path projectRoot) {
+        return sessions.remove(projectRoot.toAbsolutePath().normalize()) != null;
+    }
+
+    /**
+     * @return загруженные проекты
+     */
+    List<ProjectSession> loaded() {
+        List<ProjectSession> loaded = new ArrayList<>();
+        for (CompletableFuture<ProjectSession> future : sessions.values()) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                loaded.add(future.join());
+            }
+        }
+        return loaded;
+    }
+
+    long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        sessions.clear();
+    }
+
+    private ProjectSession load(Path root) throws IOException {
+        // Модель Gradle и результаты неизмененных файлов переживают перезапуск сервера
+        Path cacheDir = root.resolve(".dependency-analyzer");
+        AnalyzerOptions options = new AnalyzerOptions();
+        options.setParallelism(parallelism);
+        options.setBatchSize(batchSize);
+        options.setCacheDir(cacheDir);
+        options.setModelFile(resolve(root, modelSource.getModelFile()));
+        options.setClasspathFile(resolve(root, modelSource.getClasspathFile()));
+        options.setArtifactsFile(resolve(root, modelSource.getArtifactsFile()));
+        options.setSourceRoots(modelSource.getSourceRoots());
+        PathResult pathResult = options.getClasspathProvider().load(root, false);
+        return new ProjectSession(root, pathResult, options);
+    }
+
+    /**
+     * @return путь относительно корня проекта, абсолютный путь без изменений или null
+     */
+    private static Path resolve(Path root, Path file) {
+        return file != null ? root.resolve(file) : null;
+    }
+
+    /**
+     * Вытесняет давно не использовавшиеся проекты, пока общая оценка памяти превышает лимит.
+     * Только что загруженный проект не вытесняется, даже если один превышает лимит
+     *
+     * @param keep проект, который нужно оставить
+     */
+    synchronized void enforceMemoryLimit(Path keep) {
+        List<ProjectSession> candidates = loaded();
+        long total = 0;
+        for (ProjectSession session : candidates) {
+            total += session.getEstimatedBytes();
+        }
+        candidates.sort(Comparator.comparingLong(ProjectSession::getLastAccess));
+        for (ProjectSession session : candidates) {
+            if (total <= memoryLimit) break;
+            if (session.getProjectRoot().equals(keep)) continue;
+            if (evict(session.getProjectRoot())) {
+                total -= session.getEstimatedBytes();
+                System.err.println("Проект вытеснен из памяти (лимит): " + session.getProjectRoot());
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (ProjectSession session : loaded()) {
+            if (now - session.getLastAccess() > idleTimeout && evict(session.getProjectRoot())) {
+                System.err.println("Проект вытеснен из памяти (простой): " + session.getProjectRoot());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.beryozavv.shard;
+
+/**
+ * Бинарный формат файла частичного результата. Все числа записаны в порядке big-endian.
+ * <pre>
+ * заголовок  magic, version, shardIndex, shardCount (int)
+ * records    зависимости файлов в формате FileDependencies.write с идентификаторами
+ *            символов процесса-исполнителя
+ * symbols    symbolCount (int), имена символов по порядку идентификаторов (UTF)
+ * entries    entryCount (int), записи: module, path (UTF), offset (long), length (int)
+ * trailer    смещение секции symbols (long)
+ * </pre>
+ */
+final class PartialResultFormat {
+
+    static final int MAGIC = 0x4A444150;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    /**
+     * Запись оглавления
+     *
+     * @param module имя модуля
+     * @param path   путь к Java-файлу
+     * @param offset смещение зависимостей файла
+     * @param length длина зависимостей файла, байт
+     */
+    record Entry(String module, String path, long offset, int length) {
+    }
+
+    private PartialResultFormat() {
+    }
+}
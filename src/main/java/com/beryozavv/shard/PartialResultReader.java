@@ -0,0 +1,142 @@
+package com.beryozavv.shard;
+
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Чтение файла частичного результата. При открытии читаются только таблица символов
+ * и оглавление, зависимости файла читаются по запросу
+ */
+public class PartialResultReader implements Closeable {
+
+    // Файл частичного результата
+    private final FileChannel channel;
+
+    // Часть проекта, результаты которой записаны в файл
+    private final Shard shard;
+
+    // Идентификатор символа в файле -> идентификатор в таблице символов читателя
+    private final int[] symbolIds;
+
+    // Оглавление в порядке записи
+    private final List<PartialResultFormat.Entry> entries;
+
+    private PartialResultReader(FileChannel channel, Shard shard, int[] symbolIds, List<PartialResultFormat.Entry> entries) {
+        this.channel = channel;
+        this.shard = shard;
+        this.symbolIds = symbolIds;
+        this.entries = entries;
+    }
+
+    /**
+     * Открывает файл и регистрирует его символы в таблице символов
+     *
+     * @param file    файл частичного результата
+     * @param symbols таблица символов, в которую переводятся идентификаторы
+     * @return открытый файл
+     * @throws IOException если файл не удалось прочитать или он имеет другой формат
+     */
+    public static PartialResultReader open(Path file, SymbolTable symbols) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(readFully(channel, 0, PartialResultFormat.HEADER_SIZE)));
+            if (header.readInt() != PartialResultFormat.MAGIC || header.readInt() != PartialResultFormat.VERSION) {
+                throw new IOException("Файл " + file + " не является частичным результатом анализа");
+            }
+            Shard shard = new Shard(header.readInt(), header.readInt());
+
+            long symbolsOffset = ByteBuffer.wrap(readFully(channel, channel.size() - Long.BYTES, Long.BYTES)).getLong();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(symbolsOffset)), 1 << 16));
+            int[] symbolIds = new int[in.readInt()];
+            for (int i = 0; i < symbolIds.length; i++) {
+                symbolIds[i] = symbols.intern(in.readUTF());
+            }
+            int entryCount = in.readInt();
+            List<PartialResultFormat.Entry> entries = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                entries.add(new PartialResultFormat.Entry(in.readUTF(), in.readUTF(), in.readLong(), in.readInt()));
+            }
+            return new PartialResultReader(channel, shard, symbolIds, Collections.unmodifiableList(entries));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (e instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Некорректный формат частичного результата " + file, e);
+        }
+    }
+
+    public Shard getShard() {
+        return shard;
+    }
+
+    /**
+     * @return количество файлов с зависимостями
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param index номер записи оглавления
+     * @return имя модуля файла
+     */
+    public String getModule(int index) {
+        return entries.get(index).module();
+    }
+
+    /**
+     * @param index номер записи оглавления
+     * @return путь к Java-файлу
+     */
+    public String getPath(int index) {
+        return entries.get(index).path();
+    }
+
+    /**
+     * Читает зависимости файла с идентификаторами таблицы символов читателя
+     *
+     * @param index номер записи оглавления
+     * @return зависимости файла
+     * @throws IOException при ошибке чтения
+     */
+    public FileDependencies read(int index) throws IOException {
+        PartialResultFormat.Entry entry = entries.get(index);
+        FileDependencies stored = FileDependencies.read(new DataInputStream(
+                new ByteArrayInputStream(readFully(channel, entry.offset(), entry.length()))));
+
+        // Порядок идентификаторов в таблице читателя другой, поэтому строки собираются заново
+        FileDependencies.Builder builder = new FileDependencies.Builder();
+        for (int i = 0; i < stored.getLineCount(); i++) {
+            for (int j = 0; j < stored.getSymbolCount(i); j++) {
+                builder.add(stored.getLine(i), symbolIds[stored.getSymbolId(i, j)]);
+            }
+        }
+        return builder.build();
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Файл частичного результата обрезан");
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
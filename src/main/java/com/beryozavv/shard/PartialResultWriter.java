@@ -0,0 +1,99 @@
+package com.beryozavv.shard;
+
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.FileDependencies;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Записывает результаты части проекта в файл частичного результата. Зависимости файлов
+ * пишутся по мере поступления, таблица символов процесса и оглавление - при закрытии.
+ * Файл появляется на месте целиком только после успешного закрытия
+ */
+public class PartialResultWriter implements DependencySink {
+
+    // Итоговый файл и временный файл, в который идет запись
+    private final Path file;
+    private final Path tempFile;
+
+    // Таблица символов процесса, идентификаторы которой записываются в файл
+    private final SymbolTable symbols;
+
+    private final DataOutputStream out;
+
+    // Положение следующей записи в файле
+    private long position;
+
+    // Оглавление в порядке записи
+    private final List<PartialResultFormat.Entry> entries = new ArrayList<>();
+
+    // Буфер одной записи
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+
+    /**
+     * @param file    файл частичного результата
+     * @param shard   часть проекта, результаты которой записываются
+     * @param symbols таблица символов анализатора
+     * @throws IOException при ошибке создания файла
+     */
+    public PartialResultWriter(Path file, Shard shard, SymbolTable symbols) throws IOException {
+        this.file = file;
+        this.symbols = symbols;
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        this.tempFile = Files.createTempFile(parent, "partial-result", ".tmp");
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16));
+        out.writeInt(PartialResultFormat.MAGIC);
+        out.writeInt(PartialResultFormat.VERSION);
+        out.writeInt(shard.index());
+        out.writeInt(shard.count());
+        position = PartialResultFormat.HEADER_SIZE;
+    }
+
+    @Override
+    public void accept(String module, Path javaFile, FileDependencies dependencies) throws IOException {
+        record.reset();
+        dependencies.write(recordOut);
+        recordOut.flush();
+        record.writeTo(out);
+        entries.add(new PartialResultFormat.Entry(module, javaFile.toString(), position, record.size()));
+        position += record.size();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            try (out) {
+                long symbolsOffset = position;
+                int symbolCount = symbols.size();
+                out.writeInt(symbolCount);
+                for (int i = 0; i < symbolCount; i++) {
+                    out.writeUTF(symbols.getName(i));
+                }
+                out.writeInt(entries.size());
+                for (PartialResultFormat.Entry entry : entries) {
+                    out.writeUTF(entry.module());
+                    out.writeUTF(entry.path());
+                    out.writeLong(entry.offset());
+                    out.writeInt(entry.length());
+                }
+                out.writeLong(symbolsOffset);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
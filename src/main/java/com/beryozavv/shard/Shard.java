@@ -0,0 +1,40 @@
+package com.beryozavv.shard;
+
+/**
+ * Часть проекта при анализе в нескольких процессах
+ *
+ * @param index номер части, от 1 до count
+ * @param count количество частей
+ */
+public record Shard(int index, int count) {
+
+    public Shard {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Некорректная часть " + index + "/" + count);
+        }
+    }
+
+    /**
+     * Разбирает часть в виде i/N
+     *
+     * @param value строка вида 2/8
+     * @return часть проекта
+     * @throws IllegalArgumentException если строка задана неверно
+     */
+    public static Shard parse(String value) {
+        int slash = value.indexOf('/');
+        try {
+            if (slash > 0) {
+                return new Shard(Integer.parseInt(value.substring(0, slash)), Integer.parseInt(value.substring(slash + 1)));
+            }
+        } catch (NumberFormatException e) {
+            // Сообщение ниже
+        }
+        throw new IllegalArgumentException("Часть задается в виде i/N, например 2/8: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,205 @@
+package com.beryozavv.shard;
+
+import com.beryozavv.ModulePaths;
+import com.beryozavv.PathResult;
+import com.beryozavv.cache.GradleModelCache;
+import com.beryozavv.metrics.AnalysisMetrics;
+import com.beryozavv.metrics.Phase;
+import com.beryozavv.metrics.PhaseTimer;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Анализ проекта в нескольких процессах. Координатор записывает модель проекта в файл,
+ * запускает на этой машине N процессов-исполнителей с параметром --shard i/N, ждет их
+ * завершения и объединяет частичные результаты. Объединенный результат выводится в порядке
+ * модулей и обхода файлов, как при анализе в одном процессе в один поток
+ */
+public class ShardCoordinator {
+
+    // Параметры, которые координатор задает исполнителям сам или не передает им вовсе;
+    // значение - есть ли у параметра аргумент
+    private static final Map<String, Boolean> COORDINATOR_OPTIONS = Map.ofEntries(
+            Map.entry("--shards", true),
+            Map.entry("--threads", true),
+            Map.entry("--output", true),
+            Map.entry("--format", true),
+            Map.entry("--index", true),
+            Map.entry("--rollup", true),
+            Map.entry("--metrics", true),
+            Map.entry("--graph", true),
+            Map.entry("--graph-level", true),
+            Map.entry("--graph-external", false),
+            Map.entry("--graph-report", false),
+            Map.entry("--model", true),
+            Map.entry("--classpath-file", true),
+            Map.entry("--artifacts", true),
+            Map.entry("--source-roots", true),
+            Map.entry("--stats", false),
+            Map.entry("--refresh-model", false));
+
+    // Пути модулей проекта
+    private final PathResult pathResult;
+
+    // Количество процессов-исполнителей
+    private final int shardCount;
+
+    // Количество потоков каждого исполнителя
+    private final int workerThreads;
+
+    // Аргументы командной строки координатора
+    private final String[] args;
+
+    // Метрики координатора
+    private final AnalysisMetrics metrics;
+
+    /**
+     * @param pathResult  пути к исходникам и classpath модулей
+     * @param shardCount  количество процессов-исполнителей
+     * @param parallelism общее количество потоков, делится между исполнителями
+     * @param args        аргументы командной строки координатора, передаются исполнителям
+     * @param metrics     метрики координатора
+     */
+    public ShardCoordinator(PathResult pathResult, int shardCount, int parallelism, String[] args, AnalysisMetrics metrics) {
+        this.pathResult = pathResult;
+        this.shardCount = shardCount;
+        this.workerThreads = Math.max(1, parallelism / shardCount);
+        this.args = args.clone();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Запускает исполнителей, ждет их завершения и передает объединенный результат в приемник
+     *
+     * @param sink    приемник результатов
+     * @param symbols таблица символов приемника
+     * @throws IOException если исполнитель завершился с ошибкой или результат не удалось прочитать
+     */
+    public void run(DependencySink sink, SymbolTable symbols) throws IOException {
+        Path workDir = Files.createTempDirectory("dependency-analyzer-shards");
+        try {
+            Path modelFile = workDir.resolve("model.bin");
+            GradleModelCache.writeModelFile(modelFile, pathResult);
+
+            List<Path> partialFiles = new ArrayList<>();
+            for (int i = 1; i <= shardCount; i++) {
+                partialFiles.add(workDir.resolve("shard-" + i + ".bin"));
+            }
+            runWorkers(modelFile, partialFiles);
+            merge(partialFiles, sink, symbols);
+        } finally {
+            try (Stream<Path> files = Files.list(workDir)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * Запускает исполнителей одновременно и ждет завершения всех
+     */
+    private void runWorkers(Path modelFile, List<Path> partialFiles) throws IOException {
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 1; i <= shardCount; i++) {
+                List<String> command = workerCommand(new Shard(i, shardCount), modelFile, partialFiles.get(i - 1));
+                processes.add(new ProcessBuilder(command).inheritIO().start());
+            }
+            for (int i = 0; i < processes.size(); i++) {
+                int exitCode = processes.get(i).waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("Исполнитель части " + new Shard(i + 1, shardCount) + " завершился с кодом " + exitCode);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Анализ прерван");
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Собирает командную строку исполнителя: та же JVM с ее параметрами памяти и свойствами,
+     * тот же classpath и аргументы координатора, кроме параметров вывода
+     */
+    private List<String> workerCommand(Shard shard, Path modelFile, Path partialFile) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        for (String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (jvmArg.startsWith("-X") || jvmArg.startsWith("-D")) {
+                command.add(jvmArg);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("com.beryozavv.AnalyzerMain");
+
+        for (int i = 0; i < args.length; i++) {
+            Boolean hasValue = COORDINATOR_OPTIONS.get(args[i]);
+            if (hasValue == null) {
+                command.add(args[i]);
+            } else if (hasValue) {
+                i++;
+            }
+        }
+        command.addAll(List.of("--model", modelFile.toString(), "--threads", Integer.toString(workerThreads),
+                "--shard", shard.toString(), "--output", partialFile.toString()));
+        return command;
+    }
+
+    /**
+     * Объединяет частичные результаты: обходит файлы модулей в том же порядке, что и анализатор,
+     * и для каждого файла читает его зависимости из частичного результата, в котором он записан
+     */
+    private void merge(List<Path> partialFiles, DependencySink sink, SymbolTable symbols) throws IOException {
+        List<PartialResultReader> readers = new ArrayList<>();
+        try {
+            // Модуль и путь файла -> номер частичного результата и номер записи в нем
+            Map<String, long[]> locations = new HashMap<>();
+            for (int i = 0; i < partialFiles.size(); i++) {
+                PartialResultReader reader = PartialResultReader.open(partialFiles.get(i), symbols);
+                readers.add(reader);
+                if (!reader.getShard().equals(new Shard(i + 1, shardCount))) {
+                    throw new IOException("Файл " + partialFiles.get(i) + " содержит часть " + reader.getShard());
+                }
+                for (int entry = 0; entry < reader.size(); entry++) {
+                    locations.put(reader.getModule(entry) + '\n' + reader.getPath(entry), new long[]{i, entry});
+                }
+            }
+
+            for (ModulePaths module : pathResult.getModules()) {
+                for (String sourceRoot : module.getSourcePath()) {
+                    for (Path javaFile : ShardPartitioner.collectJavaFiles(Path.of(sourceRoot))) {
+                        long[] location = locations.get(module.getName() + '\n' + javaFile);
+                        if (location == null) continue;
+
+                        PartialResultReader reader = readers.get((int) location[0]);
+                        PhaseTimer phaseTimer = metrics.startPhase(Phase.OUTPUT);
+                        try {
+                            sink.accept(module.getName(), javaFile, reader.read((int) location[1]));
+                        } finally {
+                            phaseTimer.stop();
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (PartialResultReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
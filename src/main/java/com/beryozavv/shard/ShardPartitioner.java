@@ -0,0 +1,80 @@
+package com.beryozavv.shard;
+
+import com.beryozavv.JavaDependencyAnalyzer;
+import com.beryozavv.ModulePaths;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Разбиение файлов проекта на части. Файлы упорядочиваются по модулю, номеру каталога
+ * исходников и внутри каталога в каноническом порядке анализатора (каталог файла, затем имя),
+ * и этот список режется на N непрерывных отрезков примерно равного объема. Порядок не зависит
+ * от порядка обхода каталогов файловой системы, поэтому процессы на разных машинах
+ * с одинаковыми исходниками получают одно и то же разбиение. Соседние файлы одного пакета
+ * обычно попадают в одну часть и разбираются в общем окружении JDT
+ */
+public final class ShardPartitioner {
+
+    /**
+     * Java-файл проекта
+     */
+    private record SourceFile(int moduleIndex, Path path, long size) {
+    }
+
+    private ShardPartitioner() {
+    }
+
+    /**
+     * Выбирает файлы части проекта
+     *
+     * @param modules модули проекта с каталогами исходников
+     * @param shard   часть проекта
+     * @return имя модуля -> файлы части в порядке разбиения; модули без файлов части не входят
+     * @throws IOException при ошибке обхода каталогов исходников
+     */
+    public static Map<String, List<Path>> select(List<ModulePaths> modules, Shard shard) throws IOException {
+        // Модули и каталоги исходников по порядку, файлы каталога в каноническом порядке
+        List<SourceFile> files = new ArrayList<>();
+        for (int moduleIndex = 0; moduleIndex < modules.size(); moduleIndex++) {
+            for (String sourceRoot : modules.get(moduleIndex).getSourcePath()) {
+                for (Path file : collectJavaFiles(Path.of(sourceRoot))) {
+                    files.add(new SourceFile(moduleIndex, file, Files.size(file)));
+                }
+            }
+        }
+
+        long totalSize = 0;
+        for (SourceFile file : files) {
+            totalSize += file.size();
+        }
+
+        // Файл относится к части, в которую попадает середина его диапазона байт
+        Map<String, List<Path>> selected = new LinkedHashMap<>();
+        long offset = 0;
+        for (int i = 0; i < files.size(); i++) {
+            SourceFile file = files.get(i);
+            int part = totalSize == 0
+                    ? (int) ((long) i * shard.count() / files.size())
+                    : (int) Math.min(shard.count() - 1, (offset + file.size() / 2) * shard.count() / totalSize);
+            offset += file.size();
+            if (part == shard.index() - 1) {
+                selected.computeIfAbsent(modules.get(file.moduleIndex()).getName(), key -> new ArrayList<>()).add(file.path());
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Собирает Java-файлы каталога исходников в каноническом порядке, как это делает анализатор
+     *
+     * @param sourceRoot каталог исходников
+     * @return пути к Java-файлам; пустой список, если каталога нет
+     * @throws IOException при ошибке обхода каталога
+     */
+    public static List<Path> collectJavaFiles(Path sourceRoot) throws IOException {
+        return JavaDependencyAnalyzer.collectJavaFiles(List.of(sourceRoot));
+    }
+}
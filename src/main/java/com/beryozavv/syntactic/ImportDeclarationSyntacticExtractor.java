@@ -0,0 +1,19 @@
+package com.beryozavv.syntactic;
+
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Стратегия для извлечения зависимостей из импортов без привязок
+ */
+public class ImportDeclarationSyntacticExtractor implements SyntacticExtractorStrategy<ImportDeclaration> {
+
+    @Override
+    public void extractDependencies(ImportDeclaration node, TypeNameResolver resolver, IntConsumer dependencies) {
+        int symbolId = resolver.resolveImport(node);
+        if (symbolId != TypeNameResolver.NONE) {
+            dependencies.accept(symbolId);
+        }
+    }
+}
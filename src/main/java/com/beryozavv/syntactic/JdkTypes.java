@@ -0,0 +1,71 @@
+package com.beryozavv.syntactic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Типы JDK из образа запущенной JVM (файловая система jrt:/). Пакет читается
+ * при первом обращении к нему, поэтому проверка java.lang и пары импортируемых
+ * пакетов не требует обхода всего образа
+ */
+final class JdkTypes {
+
+    private static final FileSystem JRT = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+    // Пакет -> имена типов пакета, вложенные типы через точку (Map.Entry)
+    private static final Map<String, Set<String>> TYPES_BY_PACKAGE = new ConcurrentHashMap<>();
+
+    private JdkTypes() {
+    }
+
+    /**
+     * Проверяет, есть ли тип с таким полным именем в JDK
+     *
+     * @param qualifiedName полное имя, вложенные типы через точку
+     * @return true, если тип найден
+     */
+    static boolean contains(String qualifiedName) {
+        // Пакет отделяется одной из точек, вложенные типы тоже пишутся через точку
+        for (int dot = qualifiedName.indexOf('.'); dot > 0; dot = qualifiedName.indexOf('.', dot + 1)) {
+            Set<String> types = TYPES_BY_PACKAGE.computeIfAbsent(qualifiedName.substring(0, dot), JdkTypes::readPackage);
+            if (types.contains(qualifiedName.substring(dot + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> readPackage(String packageName) {
+        Path packageDir = JRT.getPath("/packages", packageName);
+        if (!Files.isDirectory(packageDir)) {
+            return Set.of();
+        }
+
+        Set<String> types = new HashSet<>();
+        String relativeDir = packageName.replace('.', '/');
+        try (DirectoryStream<Path> modules = Files.newDirectoryStream(packageDir)) {
+            for (Path module : modules) {
+                Path dir = JRT.getPath("/modules", module.getFileName().toString(), relativeDir);
+                try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(dir, "*.class")) {
+                    for (Path classFile : classFiles) {
+                        String name = classFile.getFileName().toString();
+                        types.add(name.substring(0, name.length() - ".class".length()).replace('$', '.'));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return types;
+    }
+}
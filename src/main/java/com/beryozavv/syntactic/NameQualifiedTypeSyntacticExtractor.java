@@ -0,0 +1,21 @@
+package com.beryozavv.syntactic;
+
+import org.eclipse.jdt.core.dom.NameQualifiedType;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Стратегия для извлечения зависимостей из типов с аннотацией перед простым именем
+ * (java.util.@NonNull List) без привязок
+ */
+public class NameQualifiedTypeSyntacticExtractor implements SyntacticExtractorStrategy<NameQualifiedType> {
+
+    @Override
+    public void extractDependencies(NameQualifiedType node, TypeNameResolver resolver, IntConsumer dependencies) {
+        String written = node.getQualifier().getFullyQualifiedName() + "." + node.getName().getIdentifier();
+        int symbolId = resolver.resolveType(written);
+        if (symbolId != TypeNameResolver.NONE) {
+            dependencies.accept(symbolId);
+        }
+    }
+}
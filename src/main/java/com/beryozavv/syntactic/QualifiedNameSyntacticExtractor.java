@@ -0,0 +1,23 @@
+package com.beryozavv.syntactic;
+
+import org.eclipse.jdt.core.dom.Annotation;
+import org.eclipse.jdt.core.dom.QualifiedName;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Стратегия для извлечения зависимостей из квалифицированных имен без привязок:
+ * тип аннотации или ссылка на тип в выражении (Outer.Inner.CONST, java.util.List.of)
+ */
+public class QualifiedNameSyntacticExtractor implements SyntacticExtractorStrategy<QualifiedName> {
+
+    @Override
+    public void extractDependencies(QualifiedName node, TypeNameResolver resolver, IntConsumer dependencies) {
+        int symbolId = node.getParent() instanceof Annotation
+                ? resolver.resolveType(node)
+                : resolver.resolveExpression(node.getFullyQualifiedName());
+        if (symbolId != TypeNameResolver.NONE) {
+            dependencies.accept(symbolId);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.beryozavv.syntactic;
+
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Стратегия для извлечения зависимостей из простых имен без привязок. Без типов переменных
+ * ссылки на переменные не дают зависимостей, поэтому разрешаются только имена, которые
+ * могут обозначать тип: тип аннотации, квалификатор this/super, левая часть вызова
+ * (Foo.bar()) или ссылки на метод, имя объявляемого типа и статически импортированные члены
+ */
+public class SimpleNameSyntacticExtractor implements SyntacticExtractorStrategy<SimpleName> {
+
+    @Override
+    public void extractDependencies(SimpleName node, TypeNameResolver resolver, IntConsumer dependencies) {
+        StructuralPropertyDescriptor location = node.getLocationInParent();
+        int symbolId;
+        if (node.getParent() instanceof Annotation
+                || location == ThisExpression.QUALIFIER_PROPERTY
+                || location == SuperFieldAccess.QUALIFIER_PROPERTY
+                || location == SuperMethodInvocation.QUALIFIER_PROPERTY) {
+            symbolId = resolver.resolveType(node);
+        } else if (location == MethodInvocation.EXPRESSION_PROPERTY
+                || location == ExpressionMethodReference.EXPRESSION_PROPERTY) {
+            symbolId = resolver.resolveExpression(node.getIdentifier());
+        } else if (node.getParent() instanceof AbstractTypeDeclaration declaration
+                && location == declaration.getNameProperty()) {
+            symbolId = resolver.resolveDeclaration(declaration);
+        } else if (node.isDeclaration()
+                || location == FieldAccess.NAME_PROPERTY
+                || (location == MethodInvocation.NAME_PROPERTY && ((MethodInvocation) node.getParent()).getExpression() != null)) {
+            return;
+        } else {
+            symbolId = resolver.resolveStaticImport(node.getIdentifier());
+        }
+
+        if (symbolId != TypeNameResolver.NONE) {
+            dependencies.accept(symbolId);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.beryozavv.syntactic;
+
+import org.eclipse.jdt.core.dom.SimpleType;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Стратегия для извлечения зависимостей из простых типов без привязок. Покрывает и типы
+ * в создании объектов, литералах типов, instanceof и объявлениях переменных
+ */
+public class SimpleTypeSyntacticExtractor implements SyntacticExtractorStrategy<SimpleType> {
+
+    @Override
+    public void extractDependencies(SimpleType node, TypeNameResolver resolver, IntConsumer dependencies) {
+        // var - выводимый тип локальной переменной, не имя типа
+        if (node.isVar()) return;
+
+        int symbolId = resolver.resolveType(node.getName());
+        if (symbolId != TypeNameResolver.NONE) {
+            dependencies.accept(symbolId);
+        }
+    }
+}
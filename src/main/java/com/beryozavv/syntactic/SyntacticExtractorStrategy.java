@@ -0,0 +1,23 @@
+package com.beryozavv.syntactic;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Интерфейс стратегии для извлечения зависимостей из узлов AST, разобранного без привязок.
+ * Имена типов разрешаются по импортам и индексу типов через {@link TypeNameResolver}
+ *
+ * @param <T> тип узла AST
+ */
+public interface SyntacticExtractorStrategy<T extends ASTNode> {
+
+    /**
+     * Извлекает зависимости из узла AST в виде идентификаторов символов
+     *
+     * @param node         узел AST для анализа
+     * @param resolver     разрешение имен текущего файла
+     * @param dependencies получатель идентификаторов найденных зависимостей
+     */
+    void extractDependencies(T node, TypeNameResolver resolver, IntConsumer dependencies);
+}
@@ -0,0 +1,68 @@
+package com.beryozavv.syntactic;
+
+import com.beryozavv.classpath.ModuleClasspath;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс полных имен типов для разрешения имен без привязок JDT. Содержит типы,
+ * объявленные в исходниках, и типы из JAR-файлов и каталогов классов classpath;
+ * типы JDK проверяются по образу запущенной JVM. Вложенные типы хранятся через точку.
+ * Индекс можно наполнять из нескольких потоков
+ */
+public class TypeIndex {
+
+    // Индекс, в котором типы ищутся после собственных, например общий индекс исходников проекта
+    private final TypeIndex parent;
+
+    // Полные имена типов
+    private final Set<String> types = ConcurrentHashMap.newKeySet();
+
+    public TypeIndex() {
+        this(null);
+    }
+
+    /**
+     * @param parent индекс, дополняющий этот, или null
+     */
+    public TypeIndex(TypeIndex parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Добавляет тип, объявленный в исходниках
+     *
+     * @param qualifiedName полное имя типа
+     */
+    public void add(String qualifiedName) {
+        types.add(qualifiedName);
+    }
+
+    /**
+     * Добавляет типы из архивов и каталогов классов classpath модуля
+     *
+     * @param classpath classpath модуля
+     */
+    public void addClasspath(ModuleClasspath classpath) {
+        classpath.forEachType(types::add);
+    }
+
+    /**
+     * Проверяет, известен ли тип: в этом индексе, в родительском или в JDK
+     *
+     * @param qualifiedName полное имя типа
+     * @return true, если тип найден
+     */
+    public boolean contains(String qualifiedName) {
+        return types.contains(qualifiedName)
+                || (parent != null ? parent.contains(qualifiedName) : JdkTypes.contains(qualifiedName));
+    }
+
+    /**
+     * @return количество типов в этом индексе без родительского и JDK
+     */
+    public int size() {
+        return types.size();
+    }
+}
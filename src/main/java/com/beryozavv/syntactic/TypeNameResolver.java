@@ -0,0 +1,355 @@
+package com.beryozavv.syntactic;
+
+import com.beryozavv.result.SymbolTable;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разрешение имен типов без привязок JDT, по правилам видимости имен в файле:
+ * типы самого файла, одиночные импорты, типы того же пакета, импорты по требованию
+ * и java.lang. Кандидаты проверяются по {@link TypeIndex}. Имя, которое явно обозначает
+ * тип, но не нашлось, возвращается с префиксом {@link #UNRESOLVED_PREFIX}.
+ * Экземпляр настраивается на файл через {@link #reset(CompilationUnit)}, используется
+ * одним потоком и кэширует результаты для имен текущего файла
+ */
+public class TypeNameResolver {
+
+    // Префикс имени, которое не удалось разрешить
+    public static final String UNRESOLVED_PREFIX = "?";
+
+    // Результат для имени, которое не является типом
+    public static final int NONE = -1;
+
+    private final TypeIndex types;
+    private final SymbolTable symbols;
+
+    // Контекст текущего файла
+    private String packagePrefix = "";
+    private final Map<String, String> fileTypes = new HashMap<>();
+    private final Map<String, String> singleImports = new HashMap<>();
+    private final List<String> onDemandImports = new ArrayList<>();
+    private final Map<String, String> staticImports = new HashMap<>();
+
+    // Результаты текущего файла: имя типа -> идентификатор символа
+    private final Map<String, Integer> typeNames = new HashMap<>();
+    private final Map<String, Integer> expressionNames = new HashMap<>();
+
+    // Количество имен типов, которые не удалось разрешить
+    private long unresolved;
+
+    /**
+     * @param types   индекс известных типов
+     * @param symbols таблица символов для регистрации имен
+     */
+    public TypeNameResolver(TypeIndex types, SymbolTable symbols) {
+        this.types = types;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Настраивает разрешение на файл: пакет, импорты и объявленные в файле типы
+     *
+     * @param cu единица компиляции
+     */
+    public void reset(CompilationUnit cu) {
+        PackageDeclaration packageDeclaration = cu.getPackage();
+        packagePrefix = packageDeclaration == null ? "" : packageDeclaration.getName().getFullyQualifiedName() + ".";
+        fileTypes.clear();
+        singleImports.clear();
+        onDemandImports.clear();
+        staticImports.clear();
+        typeNames.clear();
+        expressionNames.clear();
+
+        for (Object type : cu.types()) {
+            addFileTypes((AbstractTypeDeclaration) type, packagePrefix);
+        }
+        for (Object object : cu.imports()) {
+            ImportDeclaration importDeclaration = (ImportDeclaration) object;
+            String name = importDeclaration.getName().getFullyQualifiedName();
+            if (importDeclaration.isOnDemand()) {
+                if (!importDeclaration.isStatic()) {
+                    onDemandImports.add(name);
+                }
+            } else if (importDeclaration.isStatic()) {
+                int dot = name.lastIndexOf('.');
+                if (dot > 0) {
+                    staticImports.putIfAbsent(name.substring(dot + 1), name.substring(0, dot));
+                }
+            } else {
+                singleImports.putIfAbsent(name.substring(name.lastIndexOf('.') + 1), name);
+            }
+        }
+    }
+
+    /**
+     * Добавляет в индекс все типы файла, включая вложенные
+     *
+     * @param cu    единица компиляции
+     * @param index индекс типов
+     */
+    public static void addDeclaredTypes(CompilationUnit cu, TypeIndex index) {
+        PackageDeclaration packageDeclaration = cu.getPackage();
+        String prefix = packageDeclaration == null ? "" : packageDeclaration.getName().getFullyQualifiedName() + ".";
+        for (Object type : cu.types()) {
+            addDeclaredTypes((AbstractTypeDeclaration) type, prefix, index);
+        }
+    }
+
+    /**
+     * Разрешает имя, которое по синтаксису обозначает тип: имя в SimpleType, тип аннотации
+     *
+     * @param name имя типа
+     * @return идентификатор полного имени, неразрешенного имени с префиксом "?"
+     * или {@link #NONE}, если имя является переменной типа
+     */
+    public int resolveType(Name name) {
+        String written = name.getFullyQualifiedName();
+        if (name.isSimpleName() && isTypeVariable(name, written)) {
+            return NONE;
+        }
+        return resolveType(written);
+    }
+
+    /**
+     * Разрешает имя типа в том виде, в каком оно записано в исходнике
+     *
+     * @param written простое или квалифицированное имя типа
+     * @return идентификатор полного имени или неразрешенного имени с префиксом "?"
+     */
+    public int resolveType(String written) {
+        Integer cached = typeNames.get(written);
+        if (cached != null) {
+            return cached;
+        }
+        int symbolId;
+        int dot = written.indexOf('.');
+        if (dot < 0) {
+            symbolId = symbolOrUnresolved(resolveSimpleName(written), written);
+        } else {
+            // Outer.Inner через тип первого сегмента, иначе имя уже записано полностью
+            String first = written.substring(0, dot);
+            String outer = resolveSimpleName(first);
+            if (outer != null) {
+                symbolId = symbols.intern(outer + written.substring(dot));
+            } else if (Character.isLowerCase(first.charAt(0))) {
+                symbolId = symbols.intern(written);
+            } else {
+                symbolId = unresolved(written);
+            }
+        }
+        typeNames.put(written, symbolId);
+        return symbolId;
+    }
+
+    /**
+     * Разрешает имя в позиции выражения (Foo.bar(), Foo.CONST, java.util.List.of()),
+     * где первый сегмент может быть и типом, и переменной. Типом считается первый префикс
+     * имени, найденный в индексе, вместе со следующими за ним вложенными типами.
+     * Неразрешенным считается только имя, похожее на тип (с заглавной буквы и не КОНСТАНТА)
+     *
+     * @param written имя в том виде, в каком оно записано в исходнике
+     * @return идентификатор типа, на который ссылается имя, или {@link #NONE}
+     */
+    public int resolveExpression(String written) {
+        Integer cached = expressionNames.get(written);
+        if (cached != null) {
+            return cached;
+        }
+
+        int symbolId = NONE;
+        int dot = written.indexOf('.');
+        String first = dot < 0 ? written : written.substring(0, dot);
+        boolean typeLike = looksLikeType(first);
+        if (typeLike) {
+            String type = resolveSimpleName(first);
+            if (type != null) {
+                symbolId = symbols.intern(nestedTypes(type, written, dot));
+            }
+        } else if (dot > 0 && Character.isLowerCase(first.charAt(0))) {
+            // Имя с пакетом: ищем первый префикс, который является типом
+            for (int end = written.indexOf('.', dot + 1); ; end = written.indexOf('.', end + 1)) {
+                String prefix = end < 0 ? written : written.substring(0, end);
+                if (types.contains(prefix)) {
+                    symbolId = symbols.intern(nestedTypes(prefix, written, end));
+                    break;
+                }
+                if (end < 0) break;
+            }
+        }
+        if (symbolId == NONE) {
+            String type = staticImports.get(first);
+            if (type != null) {
+                symbolId = symbols.intern(type);
+            } else if (typeLike) {
+                symbolId = unresolved(first);
+            }
+        }
+        expressionNames.put(written, symbolId);
+        return symbolId;
+    }
+
+    /**
+     * Находит тип, из которого статически импортирован член с таким именем
+     *
+     * @param identifier имя поля или метода
+     * @return идентификатор типа или {@link #NONE}
+     */
+    public int resolveStaticImport(String identifier) {
+        if (staticImports.isEmpty()) {
+            return NONE;
+        }
+        String type = staticImports.get(identifier);
+        return type == null ? NONE : symbols.intern(type);
+    }
+
+    /**
+     * @param declaration объявление типа в текущем файле
+     * @return идентификатор полного имени объявленного типа
+     */
+    public int resolveDeclaration(AbstractTypeDeclaration declaration) {
+        StringBuilder name = new StringBuilder(declaration.getName().getIdentifier());
+        for (ASTNode parent = declaration.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof AbstractTypeDeclaration outer) {
+                name.insert(0, '.').insert(0, outer.getName().getIdentifier());
+            } else if (!(parent instanceof CompilationUnit)) {
+                // Локальный или анонимный класс: полного имени нет
+                return NONE;
+            }
+        }
+        return symbols.intern(packagePrefix + name);
+    }
+
+    /**
+     * Возвращает тип, на который ссылается импорт: сам импортируемый тип, тип статического
+     * члена или тип, из которого импортируются все вложенные типы
+     *
+     * @param importDeclaration объявление импорта
+     * @return идентификатор типа или {@link #NONE} для импорта пакета
+     */
+    public int resolveImport(ImportDeclaration importDeclaration) {
+        String name = importDeclaration.getName().getFullyQualifiedName();
+        if (importDeclaration.isStatic() && !importDeclaration.isOnDemand()) {
+            int dot = name.lastIndexOf('.');
+            return dot > 0 ? symbols.intern(name.substring(0, dot)) : NONE;
+        }
+        if (importDeclaration.isOnDemand() && !importDeclaration.isStatic() && !types.contains(name)) {
+            return NONE;
+        }
+        return symbols.intern(name);
+    }
+
+    /**
+     * @return количество имен типов, которые не удалось разрешить
+     */
+    public long getUnresolved() {
+        return unresolved;
+    }
+
+    /**
+     * Ищет простое имя типа в порядке областей видимости Java
+     *
+     * @param simpleName простое имя
+     * @return полное имя или null
+     */
+    private String resolveSimpleName(String simpleName) {
+        String type = fileTypes.get(simpleName);
+        if (type != null) return type;
+
+        type = singleImports.get(simpleName);
+        if (type != null) return type;
+
+        type = packagePrefix + simpleName;
+        if (types.contains(type)) return type;
+
+        for (String onDemandImport : onDemandImports) {
+            type = onDemandImport + "." + simpleName;
+            if (types.contains(type)) return type;
+        }
+
+        type = "java.lang." + simpleName;
+        return types.contains(type) ? type : null;
+    }
+
+    /**
+     * Дописывает к типу следующие сегменты имени, пока они являются вложенными типами
+     */
+    private String nestedTypes(String type, String written, int from) {
+        while (from > 0) {
+            int end = written.indexOf('.', from + 1);
+            String nested = type + (end < 0 ? written.substring(from) : written.substring(from, end));
+            if (!types.contains(nested)) break;
+            type = nested;
+            from = end;
+        }
+        return type;
+    }
+
+    private int symbolOrUnresolved(String type, String written) {
+        return type != null ? symbols.intern(type) : unresolved(written);
+    }
+
+    private int unresolved(String written) {
+        unresolved++;
+        return symbols.intern(UNRESOLVED_PREFIX + written);
+    }
+
+    /**
+     * Проверяет, объявлена ли переменная типа с этим именем в охватывающем типе или методе
+     */
+    private static boolean isTypeVariable(ASTNode node, String identifier) {
+        for (ASTNode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            List<?> typeParameters = switch (parent) {
+                case TypeDeclaration type -> type.typeParameters();
+                case RecordDeclaration record -> record.typeParameters();
+                case MethodDeclaration method -> method.typeParameters();
+                default -> List.of();
+            };
+            for (Object typeParameter : typeParameters) {
+                if (((TypeParameter) typeParameter).getName().getIdentifier().equals(identifier)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Имя похоже на тип: начинается с заглавной буквы и содержит строчные, в отличие от констант
+     */
+    private static boolean looksLikeType(String identifier) {
+        if (!Character.isUpperCase(identifier.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < identifier.length(); i++) {
+            if (Character.isLowerCase(identifier.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addFileTypes(AbstractTypeDeclaration type, String prefix) {
+        String qualifiedName = prefix + type.getName().getIdentifier();
+        fileTypes.putIfAbsent(type.getName().getIdentifier(), qualifiedName);
+        for (Object member : type.bodyDeclarations()) {
+            if (member instanceof AbstractTypeDeclaration nested) {
+                addFileTypes(nested, qualifiedName + ".");
+            }
+        }
+    }
+
+    private static void addDeclaredTypes(AbstractTypeDeclaration type, String prefix, TypeIndex index) {
+        String qualifiedName = prefix + type.getName().getIdentifier();
+        index.add(qualifiedName);
+        for (Object member : type.bodyDeclarations()) {
+            if (member instanceof AbstractTypeDeclaration nested) {
+                addDeclaredTypes(nested, qualifiedName + ".", index);
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.beryozavv.watch;
+
+import com.beryozavv.AnalyzerOptions;
+import com.beryozavv.PathResult;
+import com.beryozavv.ProjectSession;
+import com.beryozavv.classpath.ClasspathProvider;
+import com.beryozavv.output.DependencySink;
+import com.beryozavv.result.SymbolTable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Режим наблюдения: держит проект в памяти и при изменении Java-файлов разбирает
+ * только их, передавая новые результаты в приемник. Изменение файлов, описывающих модель
+ * проекта (файлов сборки Gradle или списка classpath), приводит к повторному получению
+ * модели и полному анализу
+ */
+public class ProjectWatcher implements Closeable {
+
+    // Пауза без событий, после которой накопленные изменения применяются, мс
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    // Корневой каталог проекта
+    private final Path projectRoot;
+
+    // Параметры анализа
+    private final AnalyzerOptions options;
+
+    // Источник модели проекта
+    private final ClasspathProvider provider;
+
+    // Таблица символов, общая для всех загрузок проекта и приемника
+    private final SymbolTable symbols;
+
+    // Приемник результатов
+    private final DependencySink sink;
+
+    // Служба наблюдения и отслеживаемые каталоги
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    // Каталоги исходников текущей модели
+    private List<Path> sourceRoots = List.of();
+
+    // Проект в памяти
+    private ProjectSession session;
+
+    /**
+     * Накопленные за одну серию событий изменения
+     */
+    private static final class Changes {
+        final Set<Path> files = new TreeSet<>();
+        boolean model;
+        boolean overflow;
+    }
+
+    /**
+     * @param projectRoot корневой каталог проекта
+     * @param options     параметры анализа
+     * @param symbols     таблица символов, по которой приемник получает имена зависимостей
+     * @param sink        приемник результатов
+     * @throws IOException если служба наблюдения недоступна
+     */
+    public ProjectWatcher(Path projectRoot, AnalyzerOptions options, SymbolTable symbols, DependencySink sink) throws IOException {
+        this.projectRoot = projectRoot.toAbsolutePath().normalize();
+        this.options = options;
+        this.provider = options.getClasspathProvider();
+        this.symbols = symbols;
+        this.sink = sink;
+        this.watchService = projectRoot.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Выполняет полный анализ и затем обрабатывает изменения, пока служба наблюдения не закрыта
+     * или поток не прерван
+     *
+     * @throws IOException          при ошибке анализа или записи результатов
+     * @throws InterruptedException если поток прерван
+     */
+    public void run() throws IOException, InterruptedException {
+        reload(false);
+        try {
+            while (true) {
+                Changes changes = new Changes();
+                collect(watchService.take(), changes);
+
+                // Редакторы сохраняют файл несколькими операциями, поэтому ждем, пока события затихнут
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changes);
+                }
+                apply(changes);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Наблюдение остановлено методом close
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Разбирает события одного каталога. Новые каталоги исходников сразу ставятся на наблюдение,
+     * а их Java-файлы считаются измененными
+     */
+    private void collect(WatchKey key, Changes changes) throws IOException {
+        Path directory = watchedDirectories.get(key);
+        if (directory == null && !key.isValid()) {
+            // Ключ отменен при загрузке проекта заново, а полный анализ уже учел эти события
+            key.pollEvents();
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                changes.overflow = true;
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            if (provider.affectsModel(projectRoot, path)) {
+                changes.model = true;
+            } else if (path.toString().endsWith(".java")) {
+                changes.files.add(path);
+            } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(path) && isUnderSourceRoot(path)) {
+                changes.files.addAll(registerTree(path));
+            } else if (event.kind() == ENTRY_DELETE) {
+                // Удален каталог: его файлы пропадают из результатов
+                changes.files.addAll(session.filesUnder(path));
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void apply(Changes changes) throws IOException {
+        long start = System.nanoTime();
+        if (changes.model) {
+            System.err.println("Файлы модели проекта изменились, модель загружается заново");
+            tryReload(true);
+        } else if (changes.overflow) {
+            System.err.println("Потеряна часть событий, проект анализируется заново");
+            tryReload(false);
+        } else if (!changes.files.isEmpty()) {
+            session.analyze(new ArrayList<>(changes.files), sink);
+            sink.flush();
+            System.err.printf("Обновлено файлов: %d за %d мс%n", changes.files.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Загружает проект заново, а если модель не получена или анализ не удался, например пока
+     * файл сборки еще редактируется, сообщает об ошибке и оставляет прежний проект и наблюдение.
+     * Следующее изменение файлов модели вызовет новую попытку
+     *
+     * @param refresh получить модель заново, минуя кэш
+     */
+    private void tryReload(boolean refresh) throws IOException {
+        PathResult pathResult;
+        ProjectSession loaded;
+        try {
+            pathResult = provider.load(projectRoot, refresh);
+            loaded = new ProjectSession(projectRoot, pathResult, options, symbols);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Не удалось загрузить проект, остаются прежние результаты: " + e.getMessage());
+            return;
+        }
+        replace(pathResult, loaded);
+    }
+
+    /**
+     * Получает модель проекта, выполняет полный анализ, передает все результаты в приемник
+     * и заново ставит на наблюдение каталоги исходников и файлов сборки
+     *
+     * @param refresh получить модель заново, минуя кэш
+     */
+    private void reload(boolean refresh) throws IOException {
+        PathResult pathResult = provider.load(projectRoot, refresh);
+        replace(pathResult, new ProjectSession(projectRoot, pathResult, options, symbols));
+    }
+
+    /**
+     * Делает загруженный проект текущим: заново ставит на наблюдение каталоги исходников
+     * и файлов сборки и передает все результаты в приемник
+     */
+    private void replace(PathResult pathResult, ProjectSession loaded) throws IOException {
+        for (WatchKey key : watchedDirectories.keySet()) {
+            key.cancel();
+        }
+        watchedDirectories.clear();
+
+        sourceRoots = pathResult.getSourcePath().stream().map(path -> Path.of(path).toAbsolutePath().normalize()).toList();
+        for (Path sourceRoot : sourceRoots) {
+            if (Files.isDirectory(sourceRoot)) {
+                registerTree(sourceRoot);
+            }
+        }
+        for (Path directory : provider.modelDirectories(projectRoot)) {
+            register(directory);
+        }
+
+        session = loaded;
+        session.analyze(List.of(), sink);
+        sink.flush();
+    }
+
+    /**
+     * Ставит на наблюдение каталог со всеми подкаталогами
+     *
+     * @param root каталог
+     * @return Java-файлы, найденные в каталоге
+     */
+    private List<Path> registerTree(Path root) throws IOException {
+        List<Path> javaFiles = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.toString().endsWith(".java")) {
+                    javaFiles.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return javaFiles;
+    }
+
+    private void register(Path directory) throws IOException {
+        watchedDirectories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+    }
+
+    private boolean isUnderSourceRoot(Path path) {
+        for (Path sourceRoot : sourceRoots) {
+            if (path.startsWith(sourceRoot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}